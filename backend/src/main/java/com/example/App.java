@@ -3,11 +3,16 @@ package com.example;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.example.Auth.AuthHandler;
+import com.example.Config.ServerConfig;
 import com.example.Controllers.AdminController;
 import com.example.Controllers.DbController;
+import com.example.Controllers.MetricsController;
 import com.example.Controllers.PrisonController;
 import com.example.Controllers.UserController;
+import com.example.Metrics.RequestMetrics;
 import com.example.Router.Router;
+import com.example.Utils.KeysetPage;
 
 import io.github.cdimascio.dotenv.Dotenv;
 import io.javalin.Javalin;
@@ -38,19 +43,27 @@ public class App {
         // Cast strings into final
         final String[] originsForLambda = allowedOrigins;
 
+        // Virtual or platform request threads, see SERVER_THREADS
+        ServerConfig serverConfig = new ServerConfig();
+
         // Create server with avaible cors
         Javalin app = Javalin.create(config -> {
+            serverConfig.configure(config);
             config.plugins.enableCors(cors -> {
                 cors.add(it -> {
                     for (String origin : originsForLambda) {
                         it.allowHost(origin);
                     }
                     it.allowCredentials = true;
+                    it.exposeHeader(KeysetPage.NEXT_CURSOR_HEADER);
                 });
             });
         // Start listening on "0.0.0.0" port 7000
         });
 
+        // Limit requests in flight before anything else runs
+        serverConfig.install(app);
+
         // Initialize router to route the traffic
         Router.configure(app);
 
@@ -59,17 +72,27 @@ public class App {
     }
 
     public static Javalin createApp() {
+        ServerConfig serverConfig = new ServerConfig();
         Javalin app = Javalin.create(config -> {
+            serverConfig.configure(config);
             config.plugins.enableCors(cors -> {
-                cors.add(it -> it.anyHost());
+                cors.add(it -> {
+                    it.anyHost();
+                    it.exposeHeader(KeysetPage.NEXT_CURSOR_HEADER);
+                });
             });
         });
 
+        serverConfig.install(app);
+        RequestMetrics.getInstance().register(app);
+        AuthHandler.register(app, new AuthHandler());
+
         // Zarejestruj wszystkie routy
         DbController dbController = new DbController();
         UserController userController = new UserController();
         PrisonController prisonController = new PrisonController();
         AdminController adminController = new AdminController();
+        MetricsController metricsController = new MetricsController();
 
         app.get("/api/hello", userController::helloMsg);
         app.post("/api/login", userController::login);
@@ -85,6 +108,10 @@ public class App {
         app.delete("/api/users/{userId}", userController::deleteUser);
         app.get("/api/admin/test", adminController::testAdmin);
         app.get("/api/admin/backups", adminController::getAllBackups);
+        app.get("/api/admin/backup/jobs", adminController::getBackupJobs);
+        app.get("/api/admin/backup/jobs/{jobId}", adminController::getBackupJob);
+        app.get("/api/metrics", metricsController::metrics);
+        app.get("/api/admin/sqlStats", metricsController::sqlStats);
 
         return app;
     }
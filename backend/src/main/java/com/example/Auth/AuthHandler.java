@@ -0,0 +1,120 @@
+package com.example.Auth;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.ForbiddenResponse;
+import io.javalin.http.Handler;
+import io.javalin.http.HandlerType;
+import io.javalin.http.UnauthorizedResponse;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+
+/**
+ * The {@code AuthHandler} class is the {@code before} handler guarding
+ * {@code /api/*}.
+ *
+ * <p>A request carrying {@code Authorization: Bearer <token>} has its token
+ * verified by {@link TokenService}; the claims are then available to handlers
+ * through {@code ctx.attribute(AuthHandler.CLAIMS_ATTRIBUTE)}. Requests under
+ * {@code /api/admin/} always need a token with the {@code admin} role.
+ *
+ * <p>Login, hello, health and metrics endpoints are always public. Whether the
+ * remaining endpoints reject requests without a token is controlled by
+ * {@code AUTH_REQUIRED} (default {@code false}). A token that is present but
+ * invalid is always rejected.
+ */
+public class AuthHandler implements Handler {
+    private static final Logger logger = LoggerFactory.getLogger(AuthHandler.class);
+
+    /** Context attribute holding the {@link Claims} of the verified token. */
+    public static final String CLAIMS_ATTRIBUTE = "claims";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String ADMIN_PREFIX = "/api/admin/";
+    private static final Set<String> PUBLIC_PATHS = Set.of(
+        "/api/login",
+        "/api/hello",
+        "/api/user/login",
+        "/api/user/hello",
+        "/api/db/health",
+        "/api/metrics"
+    );
+
+    private final TokenService tokenService;
+    private final boolean required;
+
+    /**
+     * Creates a handler with explicit settings.
+     *
+     * @param tokenService verifies the tokens
+     * @param required whether requests without a token are rejected
+     */
+    public AuthHandler(TokenService tokenService, boolean required) {
+        this.tokenService = tokenService;
+        this.required = required;
+    }
+
+    /**
+     * Creates a handler using the shared {@link TokenService} and
+     * {@code AUTH_REQUIRED} from the environment.
+     */
+    public AuthHandler() {
+        this(TokenService.getInstance(), Boolean.parseBoolean(System.getenv().getOrDefault("AUTH_REQUIRED", "false")));
+        if (!required) {
+            logger.warn("AUTH_REQUIRED is off, requests without a token are let through outside /api/admin/");
+        }
+    }
+
+    /**
+     * Installs the handler in front of {@code /api/*} and renders rejections
+     * in the same shape as the controllers' errors.
+     *
+     * @param app the Javalin instance to protect
+     * @param handler the handler to install
+     */
+    public static void register(Javalin app, AuthHandler handler) {
+        app.before("/api/*", handler);
+        app.exception(UnauthorizedResponse.class, (e, ctx) ->
+            ctx.status(401).json(Map.of("error", "Unauthorized", "message", e.getMessage())));
+        app.exception(ForbiddenResponse.class, (e, ctx) ->
+            ctx.status(403).json(Map.of("error", "Forbidden", "message", e.getMessage())));
+    }
+
+    @Override
+    public void handle(@NotNull Context ctx) {
+        if (ctx.method() == HandlerType.OPTIONS || PUBLIC_PATHS.contains(ctx.path())) {
+            return;
+        }
+
+        boolean admin = ctx.path().startsWith(ADMIN_PREFIX);
+        String header = ctx.header("Authorization");
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            // Backups, restores and PITR are never open, whatever AUTH_REQUIRED says
+            if (required || admin) {
+                throw new UnauthorizedResponse("Missing bearer token");
+            }
+            return;
+        }
+
+        Claims claims;
+        try {
+            claims = tokenService.verify(header.substring(BEARER_PREFIX.length()).trim());
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.info("Rejected token on {}: {}", ctx.path(), e.getMessage());
+            throw new UnauthorizedResponse("Invalid or expired token");
+        }
+
+        if (admin && !"admin".equalsIgnoreCase(claims.get("role", String.class))) {
+            throw new ForbiddenResponse("Admin role required");
+        }
+
+        ctx.attribute(CLAIMS_ATTRIBUTE, claims);
+    }
+}
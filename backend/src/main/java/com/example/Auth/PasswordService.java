@@ -0,0 +1,144 @@
+package com.example.Auth;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code PasswordService} class runs BCrypt password verification on a
+ * dedicated, CPU-sized executor instead of on Jetty request threads.
+ *
+ * <p>The executor has a bounded queue. When it is full new work is rejected
+ * immediately, which lets the login endpoint answer with <b>503</b> rather
+ * than piling up requests and threads behind a burst of logins.
+ *
+ * <p>Bulk hashing for user imports runs on a separate fork-join pool, so an
+ * import spreads across all cores without eating into the login queue.
+ *
+ * <p>Configuration:
+ * <ul>
+ *   <li>{@code LOGIN_HASH_THREADS} — worker threads (default: available processors)</li>
+ *   <li>{@code LOGIN_QUEUE_CAPACITY} — verifications allowed to wait (default 64)</li>
+ *   <li>{@code BULK_HASH_THREADS} — parallelism of bulk hashing (default: available processors)</li>
+ * </ul>
+ */
+public class PasswordService {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordService.class);
+    private static PasswordService instance;
+
+    private final ThreadPoolExecutor executor;
+    private final ForkJoinPool bulkPool;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a service with the given executor bounds.
+     *
+     * @param threads number of worker threads
+     * @param queueCapacity number of verifications allowed to wait for a worker
+     * @param bulkThreads parallelism of {@link #hashAll(List)}
+     */
+    public PasswordService(int threads, int queueCapacity, int bulkThreads) {
+        this.executor = new ThreadPoolExecutor(
+            threads, threads,
+            60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            namedDaemonThreads("password-verify-"),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.bulkPool = new ForkJoinPool(bulkThreads);
+    }
+
+    /**
+     * Creates a service with the given executor bounds and one bulk hashing
+     * thread per core.
+     *
+     * @param threads number of worker threads
+     * @param queueCapacity number of verifications allowed to wait for a worker
+     */
+    public PasswordService(int threads, int queueCapacity) {
+        this(threads, queueCapacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a service configured from the environment.
+     */
+    public PasswordService() {
+        this(
+            Integer.parseInt(System.getenv().getOrDefault(
+                "LOGIN_HASH_THREADS", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+            Integer.parseInt(System.getenv().getOrDefault("LOGIN_QUEUE_CAPACITY", "64")),
+            Integer.parseInt(System.getenv().getOrDefault(
+                "BULK_HASH_THREADS", String.valueOf(Runtime.getRuntime().availableProcessors())))
+        );
+    }
+
+    /**
+     * Returns the process-wide service shared by all controllers.
+     *
+     * @return the shared {@link PasswordService}
+     */
+    public static synchronized PasswordService getInstance() {
+        if (instance == null) {
+            instance = new PasswordService();
+            logger.info("Password service initialized with {} threads", instance.executor.getCorePoolSize());
+        }
+        return instance;
+    }
+
+    /**
+     * Checks a plain text password against a BCrypt hash on the worker pool.
+     *
+     * @param password the plain text password
+     * @param hashedPassword the stored BCrypt hash
+     * @return a future with the result, failed with {@link RejectedExecutionException}
+     *         if the pool is saturated
+     */
+    public CompletableFuture<Boolean> verify(String password, String hashedPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> BCrypt.checkpw(password, hashedPassword), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Hashes a batch of passwords in parallel on the bulk pool.
+     *
+     * @param passwords the plain text passwords
+     * @return the BCrypt hashes, in the same order as {@code passwords}
+     */
+    public List<String> hashAll(List<String> passwords) {
+        return bulkPool.submit(() -> passwords.parallelStream()
+            .map(password -> BCrypt.hashpw(password, BCrypt.gensalt()))
+            .toList()
+        ).join();
+    }
+
+    /**
+     * Returns the number of verifications rejected because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
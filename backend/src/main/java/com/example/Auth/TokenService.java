@@ -0,0 +1,179 @@
+package com.example.Auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * The {@code TokenService} class owns the key used to sign and verify JWT
+ * tokens.
+ *
+ * <p>The key comes from {@code JWT_SECRET} (at least 32 bytes, optionally
+ * prefixed with {@code base64:}), so every backend replica started with the
+ * same secret accepts tokens issued by any other one. Without it a random key
+ * is generated and tokens only survive until this process restarts.
+ *
+ * <p>Verifying a signature is much more expensive than a map lookup, so the
+ * claims of verified tokens are kept in an LRU cache of
+ * {@code JWT_CLAIMS_CACHE_SIZE} entries (default 10000), keyed by the SHA-256
+ * digest of the token. Cached claims are still checked for expiry on every
+ * request.
+ */
+public class TokenService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+    private static TokenService instance;
+
+    private final Key key;
+    private final JwtParser parser;
+    private final int maxEntries;
+    private final Map<String, Claims> verified;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a service that signs and verifies with the given key.
+     *
+     * @param key the HMAC key
+     * @param maxEntries maximum number of cached verified tokens
+     */
+    public TokenService(Key key, int maxEntries) {
+        this.key = key;
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.maxEntries = maxEntries;
+        this.verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Claims> eldest) {
+                return size() > TokenService.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Creates a service configured from the environment.
+     */
+    public TokenService() {
+        this(
+            keyFromEnv(),
+            Integer.parseInt(System.getenv().getOrDefault("JWT_CLAIMS_CACHE_SIZE", "10000"))
+        );
+    }
+
+    /**
+     * Returns the process-wide token service.
+     *
+     * @return the shared {@link TokenService}
+     */
+    public static synchronized TokenService getInstance() {
+        if (instance == null) {
+            instance = new TokenService();
+            logger.info("Token service initialized");
+        }
+        return instance;
+    }
+
+    private static Key keyFromEnv() {
+        String secret = System.getenv("JWT_SECRET");
+        if (secret == null || secret.isBlank()) {
+            logger.warn("JWT_SECRET is not set, using a random key. Tokens will not be valid on other instances or after a restart");
+            return Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        }
+
+        byte[] bytes = secret.startsWith("base64:")
+            ? Base64.getDecoder().decode(secret.substring("base64:".length()))
+            : secret.getBytes(StandardCharsets.UTF_8);
+        // Throws WeakKeyException for secrets shorter than 256 bits
+        return Keys.hmacShaKeyFor(bytes);
+    }
+
+    /**
+     * Returns the key tokens are signed with.
+     *
+     * @return the signing key
+     */
+    public Key getKey() {
+        return key;
+    }
+
+    /**
+     * Verifies a token and returns its claims.
+     *
+     * <p>Tokens seen before are answered from the cache without checking the
+     * signature again.
+     *
+     * @param token the compact JWT
+     * @return the claims of the token
+     * @throws JwtException if the token is malformed, badly signed or expired
+     */
+    public Claims verify(String token) {
+        String digest = digest(token);
+
+        Claims claims;
+        synchronized (verified) {
+            claims = verified.get(digest);
+        }
+
+        if (claims != null) {
+            Date expiration = claims.getExpiration();
+            if (expiration != null && expiration.before(new Date())) {
+                synchronized (verified) {
+                    verified.remove(digest);
+                }
+                throw new ExpiredJwtException(null, claims, "Token expired");
+            }
+            hits.increment();
+            return claims;
+        }
+
+        misses.increment();
+        claims = parser.parseClaimsJws(token).getBody();
+        synchronized (verified) {
+            verified.put(digest, claims);
+        }
+        return claims;
+    }
+
+    /**
+     * Returns the claims cache counters.
+     *
+     * @return a map of counter names to values
+     */
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (verified) {
+            size = verified.size();
+        }
+        return Map.of(
+            "size", size,
+            "maxEntries", maxEntries,
+            "hits", hits.sum(),
+            "misses", misses.sum()
+        );
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
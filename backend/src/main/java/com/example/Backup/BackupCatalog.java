@@ -0,0 +1,501 @@
+package com.example.Backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code BackupCatalog} class keeps the list of backups in memory, so
+ * listing them does not touch the filesystem.
+ *
+ * <p>Once {@link #start() started}, the catalog scans the backup directory
+ * and then follows it with a {@link WatchService}. Backups written by the
+ * backend itself are also {@link #register(Path, String) registered} when
+ * they are complete, which covers directory dumps: the watch only sees the
+ * top level of the directory.
+ *
+ * <p>Every backup has a SHA-256 kept next to it in a hidden
+ * {@code .<name>.sha256} file, in {@code sha256sum} format. The COPY
+ * engine, gzip dumps and whole-file uploads compute it while the bytes are
+ * streamed;
+ * otherwise it is computed once the backup is complete. Every
+ * {@code BACKUP_VERIFY_INTERVAL_MINUTES} (default 60) a background verifier
+ * re-reads each backup, compares it with its checksum and marks mismatches
+ * {@link Integrity#CORRUPTED}. Backups found without a checksum get one on
+ * their first verification.
+ *
+ * <p>A catalog that is not started rescans the directory on every
+ * {@link #list()}.
+ */
+public class BackupCatalog {
+    private static final Logger logger = LoggerFactory.getLogger(BackupCatalog.class);
+    private static BackupCatalog instance;
+
+    private static final int HASH_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Result of the last integrity check of a backup.
+     */
+    public enum Integrity { UNVERIFIED, OK, CORRUPTED }
+
+    /**
+     * One backup.
+     *
+     * @param name file or directory name
+     * @param format the format, or null if unrecognized
+     * @param size bytes, summed over the files of a directory dump
+     * @param createdAt epoch millis the backup was created
+     * @param modifiedAt epoch millis of the last modification
+     * @param sha256 hex checksum, or null until computed
+     * @param integrity result of the last check
+     * @param verifiedAt epoch millis of the last check, or 0
+     */
+    public record Entry(String name, BackupFormat format, long size, long createdAt, long modifiedAt,
+                        String sha256, Integrity integrity, long verifiedAt) {
+
+        Entry withChecksum(String sha256, Integrity integrity, long verifiedAt) {
+            return new Entry(name, format, size, createdAt, modifiedAt, sha256, integrity, verifiedAt);
+        }
+
+        /**
+         * Returns the entry as a JSON-friendly map.
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", name);
+            map.put("format", format != null ? format.name().toLowerCase() : "unknown");
+            map.put("size", size);
+            map.put("createdAt", createdAt);
+            map.put("ageMs", System.currentTimeMillis() - createdAt);
+            map.put("sha256", sha256);
+            map.put("integrity", integrity.name().toLowerCase());
+            if (verifiedAt > 0) {
+                map.put("verifiedAt", verifiedAt);
+            }
+            return map;
+        }
+    }
+
+    private final Path dir;
+    private final long verifyIntervalMillis;
+    private final Predicate<String> inUse;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile List<Entry> sorted = List.of();
+
+    private ScheduledExecutorService verifier;
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * Creates a catalog with explicit settings. Call {@link #start()} to
+     * watch and verify in the background.
+     *
+     * @param dir the backup directory
+     * @param verifyIntervalMillis time between verification rounds
+     * @param inUse tells which backups a job is still writing or reading;
+     *              they are not hashed until it is done
+     */
+    public BackupCatalog(Path dir, long verifyIntervalMillis, Predicate<String> inUse) {
+        this.dir = dir;
+        this.verifyIntervalMillis = verifyIntervalMillis;
+        this.inUse = inUse;
+    }
+
+    /**
+     * Returns the running catalog of {@code BACKUP_PATH}.
+     *
+     * @return the shared {@link BackupCatalog}
+     */
+    public static synchronized BackupCatalog getInstance() {
+        if (instance == null) {
+            String path = System.getenv("BACKUP_PATH") != null ? System.getenv("BACKUP_PATH") : "/app/backups";
+            long minutes = Long.parseLong(System.getenv().getOrDefault("BACKUP_VERIFY_INTERVAL_MINUTES", "60"));
+            instance = new BackupCatalog(Path.of(path), TimeUnit.MINUTES.toMillis(minutes),
+                BackupJobManager.getInstance()::isInUse);
+            instance.start();
+        }
+        return instance;
+    }
+
+    /**
+     * Scans the directory, then watches it and verifies checksums in the
+     * background.
+     */
+    public synchronized void start() {
+        if (verifier != null) {
+            return;
+        }
+        rescan();
+
+        verifier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backup-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        verifier.scheduleWithFixedDelay(this::verifyAllQuietly, verifyIntervalMillis, verifyIntervalMillis,
+            TimeUnit.MILLISECONDS);
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watcher = new Thread(this::watch, "backup-catalog-watch");
+            watcher.setDaemon(true);
+            watcher.start();
+            logger.info("Backup catalog watching {}, {} backups", dir, entries.size());
+        } catch (IOException e) {
+            // The catalog still works, it is just refreshed only by register and verify
+            logger.warn("Couldn't watch {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * Stops watching and verifying.
+     */
+    public synchronized void stop() {
+        if (verifier != null) {
+            verifier.shutdownNow();
+            verifier = null;
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Couldn't close watch service: {}", e.getMessage());
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * Returns the backups, newest first.
+     *
+     * @return the entries
+     */
+    public List<Entry> list() {
+        if (verifier == null) {
+            rescan();
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns one backup.
+     *
+     * @param name the backup name
+     * @return the entry, or null if unknown
+     */
+    public Entry get(String name) {
+        if (verifier == null) {
+            refresh(name);
+        }
+        return entries.get(name);
+    }
+
+    /**
+     * Adds a completed backup and stores its checksum.
+     *
+     * @param path the backup
+     * @param sha256 checksum computed while writing it, or null to compute it now
+     * @return the entry
+     * @throws IOException if the backup can't be read
+     */
+    public Entry register(Path path, String sha256) throws IOException {
+        String checksum = sha256 != null ? sha256 : sha256(path);
+        writeSidecar(path.getFileName().toString(), checksum);
+        refresh(path.getFileName().toString());
+        Entry entry = entries.get(path.getFileName().toString());
+        if (entry == null) {
+            throw new IOException("Not a backup: " + path);
+        }
+        entry = entry.withChecksum(checksum, Integrity.OK, System.currentTimeMillis());
+        entries.put(entry.name(), entry);
+        resort();
+        return entry;
+    }
+
+    /**
+     * Deletes a backup and its checksum.
+     *
+     * @param name the backup name
+     * @return whether the backup existed
+     * @throws IOException if a file can't be deleted
+     */
+    public boolean delete(String name) throws IOException {
+        boolean deleted = BackupFiles.delete(dir.resolve(name));
+        Files.deleteIfExists(sidecar(name));
+        entries.remove(name);
+        resort();
+        return deleted;
+    }
+
+    /**
+     * Checks every backup against its checksum now.
+     */
+    public void verifyAll() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (!inUse.test(entry.name())) {
+                verify(entry.name());
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #verifyAll()} on the verifier thread.
+     *
+     * @return whether a verification round was scheduled
+     */
+    public boolean verifyAllAsync() {
+        ScheduledExecutorService executor = verifier;
+        if (executor == null) {
+            return false;
+        }
+        executor.execute(this::verifyAllQuietly);
+        return true;
+    }
+
+    /**
+     * Checks one backup against its checksum.
+     *
+     * @param name the backup name
+     * @return the updated entry, or null if the backup is gone
+     */
+    public Entry verify(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            return null;
+        }
+        Path path = dir.resolve(name);
+        try {
+            String actual = sha256(path);
+            Entry updated;
+            if (entry.sha256() == null) {
+                writeSidecar(name, actual);
+                updated = entry.withChecksum(actual, Integrity.OK, System.currentTimeMillis());
+            } else if (entry.sha256().equalsIgnoreCase(actual)) {
+                updated = entry.withChecksum(entry.sha256(), Integrity.OK, System.currentTimeMillis());
+            } else {
+                logger.error("Backup {} is corrupted: expected sha256 {}, found {}", name, entry.sha256(), actual);
+                updated = entry.withChecksum(entry.sha256(), Integrity.CORRUPTED, System.currentTimeMillis());
+            }
+            entries.replace(name, entry, updated);
+            resort();
+            return entries.get(name);
+        } catch (IOException e) {
+            logger.warn("Couldn't verify backup {}: {}", name, e.getMessage());
+            refresh(name);
+            return entries.get(name);
+        }
+    }
+
+    private void verifyAllQuietly() {
+        try {
+            verifyAll();
+        } catch (RuntimeException e) {
+            logger.error("Backup verification failed: ", e);
+        }
+    }
+
+    /**
+     * Re-reads the whole directory.
+     */
+    public void rescan() {
+        List<String> present = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(dir)) {
+            paths.filter(BackupFiles::isBackup).forEach(path -> present.add(path.getFileName().toString()));
+        } catch (IOException e) {
+            logger.warn("Couldn't list {}: {}", dir, e.getMessage());
+        }
+        entries.keySet().retainAll(present);
+        for (String name : present) {
+            refreshEntry(name);
+        }
+        resort();
+    }
+
+    private void refresh(String name) {
+        refreshEntry(name);
+        resort();
+    }
+
+    /**
+     * Re-reads one backup's attributes. A backup whose size and modification
+     * time are unchanged keeps its verification result.
+     */
+    private void refreshEntry(String name) {
+        Path path = dir.resolve(name);
+        if (!BackupFiles.isBackup(path)) {
+            entries.remove(name);
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = Files.isDirectory(path) ? directorySize(path) : attributes.size();
+            long modifiedAt = attributes.lastModifiedTime().toMillis();
+            long createdAt = Math.min(attributes.creationTime().toMillis(), modifiedAt);
+
+            Entry previous = entries.get(name);
+            String sha256 = readSidecar(name);
+            Entry entry;
+            if (previous != null && previous.size() == size && previous.modifiedAt() == modifiedAt
+                    && sha256 != null && sha256.equalsIgnoreCase(previous.sha256())) {
+                entry = previous;
+            } else {
+                entry = new Entry(name, BackupFormat.detect(path), size, createdAt, modifiedAt, sha256,
+                    Integrity.UNVERIFIED, 0);
+            }
+            entries.put(name, entry);
+        } catch (IOException e) {
+            entries.remove(name);
+        }
+    }
+
+    private void resort() {
+        List<Entry> list = new ArrayList<>(entries.values());
+        list.sort(Comparator.comparingLong(Entry::createdAt).reversed().thenComparing(Entry::name));
+        sorted = List.copyOf(list);
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        while (service != null) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            boolean overflow = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                } else if (event.context() instanceof Path changed) {
+                    onChange(changed.getFileName().toString());
+                }
+            }
+            if (overflow) {
+                rescan();
+            }
+            if (!key.reset()) {
+                logger.warn("Backup directory {} is no longer watched", dir);
+                return;
+            }
+        }
+    }
+
+    private void onChange(String name) {
+        if (name.startsWith(".") && name.endsWith(".sha256")) {
+            // A checksum changed behind our back, re-read it
+            refresh(name.substring(1, name.length() - ".sha256".length()));
+        } else if (!name.startsWith(".")) {
+            refresh(name);
+        }
+    }
+
+    private Path sidecar(String name) {
+        return dir.resolve("." + name + ".sha256");
+    }
+
+    private String readSidecar(String name) {
+        Path sidecar = sidecar(name);
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        try {
+            String line = Files.readString(sidecar, StandardCharsets.US_ASCII).trim();
+            int space = line.indexOf(' ');
+            return space > 0 ? line.substring(0, space) : line;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeSidecar(String name, String sha256) throws IOException {
+        Path sidecar = sidecar(name);
+        Path temp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        Files.writeString(temp, sha256 + "  " + name + "\n", StandardCharsets.US_ASCII);
+        Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Creates the digest used for backup checksums.
+     *
+     * @return a SHA-256 {@link MessageDigest}
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Computes the checksum of a backup. For a directory dump it covers the
+     * relative path and contents of every file, in path order.
+     *
+     * @param path the backup
+     * @return the hex SHA-256
+     * @throws IOException if the backup can't be read
+     */
+    public static String sha256(Path path) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        if (Files.isDirectory(path)) {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(path)) {
+                files = walk.filter(Files::isRegularFile).sorted().toList();
+            }
+            for (Path file : files) {
+                digest.update(path.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                update(digest, file, buffer);
+            }
+        } else {
+            update(digest, path, buffer);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, Path file, byte[] buffer) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static long directorySize(Path path) throws IOException {
+        try (Stream<Path> walk = Files.walk(path)) {
+            return walk.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
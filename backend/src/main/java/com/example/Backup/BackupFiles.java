@@ -0,0 +1,85 @@
+package com.example.Backup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * The {@code BackupFiles} class lists and deletes backups in the backup
+ * directory, whether they are single files or directory dumps.
+ */
+public class BackupFiles {
+
+    private BackupFiles() {
+    }
+
+    /**
+     * Returns the names of the backups in {@code dir}, newest first.
+     *
+     * <p>Hidden files and directories that are not complete directory dumps
+     * are skipped, as are the names in {@code exclude}, typically the
+     * backup a job is still writing.
+     *
+     * @param dir the backup directory
+     * @param exclude names to leave out
+     * @return the backup names
+     * @throws IOException if the directory can't be read
+     */
+    public static List<String> list(Path dir, Set<String> exclude) throws IOException {
+        List<Path> backups = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(dir)) {
+            entries.filter(path -> !exclude.contains(path.getFileName().toString()))
+                .filter(BackupFiles::isBackup)
+                .forEach(backups::add);
+        }
+        backups.sort(Comparator.comparingLong(BackupFiles::lastModified).reversed());
+        return backups.stream().map(path -> path.getFileName().toString()).toList();
+    }
+
+    /**
+     * Whether a path in the backup directory is a backup: a visible regular
+     * file or a complete directory dump. Hidden files are upload parts and
+     * checksum sidecars.
+     *
+     * @param path the path
+     * @return whether it is listed as a backup
+     */
+    public static boolean isBackup(Path path) {
+        if (path.getFileName().toString().startsWith(".")) {
+            return false;
+        }
+        return Files.isRegularFile(path) || BackupFormat.detect(path) == BackupFormat.DIRECTORY;
+    }
+
+    /**
+     * Deletes a backup file, or a directory dump with its contents.
+     *
+     * @param path the backup
+     * @return whether anything was deleted
+     * @throws IOException if a file can't be deleted
+     */
+    public static boolean delete(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Files.deleteIfExists(path);
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path entry : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(entry);
+            }
+        }
+        return true;
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.Backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The {@code BackupFormat} enum lists the {@code pg_dump} archive formats
+ * the backup endpoints produce.
+ *
+ * <ul>
+ *   <li>{@link #CUSTOM}: one compressed file, {@code pg_dump -F c}. Dumped by
+ *       a single process; restorable in parallel.</li>
+ *   <li>{@link #GZIP}: an uncompressed custom-format archive,
+ *       {@code pg_dump -F c -Z 0}, piped through
+ *       {@link com.example.Utils.ParallelGzipOutputStream} so it is
+ *       compressed on several cores. Restored by streaming it through
+ *       {@link java.util.zip.GZIPInputStream} into {@code pg_restore}, which
+ *       reads it from standard input and so restores with a single job.</li>
+ *   <li>{@link #DIRECTORY}: a directory with one file per table and a
+ *       {@code toc.dat}, {@code pg_dump -F d}. Dumped and restored in
+ *       parallel with {@code -j}.</li>
+ *   <li>{@link #COPY}: a zip of gzipped {@code COPY} streams, one per table,
+ *       written and read by {@link CopyBackupEngine} inside the backend
+ *       without {@code pg_dump}.</li>
+ * </ul>
+ */
+public enum BackupFormat {
+    CUSTOM("c", ".sql"),
+    GZIP("c", ".sql.gz"),
+    DIRECTORY("d", ".dir"),
+    COPY(null, ".zip");
+
+    private static final byte[] CUSTOM_MAGIC = "PGDMP".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+    private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+
+    private final String pgDumpFormat;
+    private final String extension;
+
+    BackupFormat(String pgDumpFormat, String extension) {
+        this.pgDumpFormat = pgDumpFormat;
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the value of {@code pg_dump -F}, or null for {@link #COPY}.
+     */
+    public String pgDumpFormat() {
+        return pgDumpFormat;
+    }
+
+    /**
+     * Returns the suffix of backups in this format.
+     */
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Whether the backup is made and restored by the PostgreSQL client tools.
+     */
+    public boolean usesPgTools() {
+        return this != COPY;
+    }
+
+    /**
+     * Whether {@code pg_dump} can write this format with several jobs.
+     */
+    public boolean parallelDump() {
+        return this == DIRECTORY;
+    }
+
+    /**
+     * Whether {@code pg_dump} writes to standard output and the backend
+     * compresses the stream.
+     */
+    public boolean pipedCompression() {
+        return this == GZIP;
+    }
+
+    /**
+     * Parses a format name, case-insensitively.
+     *
+     * @param name {@code custom}, {@code gzip}, {@code directory} or {@code copy}
+     * @return the format
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static BackupFormat fromName(String name) {
+        return Arrays.stream(values())
+            .filter(format -> format.name().equalsIgnoreCase(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown backup format: " + name));
+    }
+
+    /**
+     * Tells the format of an existing backup from its contents.
+     *
+     * @param path the backup file or directory
+     * @return the format, or null if {@code path} is not a complete backup
+     */
+    public static BackupFormat detect(Path path) {
+        if (Files.isDirectory(path)) {
+            // pg_dump writes toc.dat last, so a dump still running has none
+            return Files.isRegularFile(path.resolve("toc.dat")) ? DIRECTORY : null;
+        }
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] header = in.readNBytes(CUSTOM_MAGIC.length);
+            if (Arrays.equals(header, CUSTOM_MAGIC)) {
+                return CUSTOM;
+            }
+            if (startsWith(header, ZIP_MAGIC)) {
+                return COPY;
+            }
+            if (startsWith(header, GZIP_MAGIC)) {
+                return GZIP;
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] header, byte[] magic) {
+        return header.length >= magic.length && Arrays.equals(header, 0, magic.length, magic, 0, magic.length);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.Backup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code BackupJob} class holds the state of one backup or restore run
+ * by {@link BackupJobManager}.
+ *
+ * <p>A job goes {@code QUEUED → RUNNING → SUCCEEDED | FAILED}. While it runs,
+ * every line the tool prints is counted and the last
+ * {@code BACKUP_JOB_OUTPUT_LINES} lines are kept, so a poller can follow the
+ * progress without the whole output being held in memory.
+ */
+public class BackupJob {
+
+    /**
+     * What the job does. {@code BASE_BACKUP} and {@code PREPARE_RECOVERY}
+     * are the point-in-time recovery jobs of {@link PitrManager}.
+     */
+    public enum Type { BACKUP, RESTORE, BASE_BACKUP, PREPARE_RECOVERY }
+
+    /**
+     * Where the job is in its lifecycle.
+     */
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private final String id;
+    private final Type type;
+    private final String database;
+    private final String file;
+    private final int maxOutputLines;
+    private final long createdAt = System.currentTimeMillis();
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private final Deque<String> output = new ArrayDeque<>();
+    private long linesRead;
+    private State state = State.QUEUED;
+    private long startedAt;
+    private long finishedAt;
+    private Integer exitCode;
+    private String error;
+
+    BackupJob(String id, Type type, String database, String file, int maxOutputLines) {
+        this.id = id;
+        this.type = type;
+        this.database = database;
+        this.file = file;
+        this.maxOutputLines = maxOutputLines;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized Integer getExitCode() {
+        return exitCode;
+    }
+
+    public synchronized boolean isFinished() {
+        return state == State.SUCCEEDED || state == State.FAILED;
+    }
+
+    /**
+     * Returns the kept tail of the tool output.
+     *
+     * @return the last output lines, oldest first
+     */
+    public synchronized List<String> getOutput() {
+        return new ArrayList<>(output);
+    }
+
+    /**
+     * Waits for the job to finish.
+     *
+     * @param timeout how long to wait
+     * @param unit unit of {@code timeout}
+     * @return whether the job finished in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    synchronized void started() {
+        state = State.RUNNING;
+        startedAt = System.currentTimeMillis();
+    }
+
+    synchronized void appendOutput(String line) {
+        linesRead++;
+        output.addLast(line);
+        if (output.size() > maxOutputLines) {
+            output.removeFirst();
+        }
+    }
+
+    void finished(int exitCode, String error) {
+        synchronized (this) {
+            this.exitCode = error == null ? exitCode : null;
+            this.error = error;
+            this.state = error == null && exitCode == 0 ? State.SUCCEEDED : State.FAILED;
+            this.finishedAt = System.currentTimeMillis();
+        }
+        done.countDown();
+    }
+
+    /**
+     * Returns the job as a JSON-friendly map.
+     *
+     * @param withOutput include the kept output lines
+     */
+    public synchronized Map<String, Object> toMap(boolean withOutput) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", id);
+        map.put("type", type.name().toLowerCase());
+        map.put("state", state.name().toLowerCase());
+        map.put("database", database);
+        map.put("file", file);
+        map.put("createdAt", createdAt);
+        if (startedAt > 0) {
+            map.put("startedAt", startedAt);
+            long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+            map.put("elapsedMs", end - startedAt);
+        }
+        if (finishedAt > 0) {
+            map.put("finishedAt", finishedAt);
+        }
+        if (exitCode != null) {
+            map.put("exitCode", exitCode);
+        }
+        if (error != null) {
+            map.put("error", error);
+        }
+        map.put("linesRead", linesRead);
+        if (!output.isEmpty()) {
+            map.put("lastLine", output.peekLast());
+        }
+        if (withOutput) {
+            map.put("output", new ArrayList<>(output));
+        }
+        return map;
+    }
+}
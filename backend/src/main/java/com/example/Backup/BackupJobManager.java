@@ -0,0 +1,344 @@
+package com.example.Backup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code BackupJobManager} class runs backups and restores in the
+ * background so the HTTP handler can answer with a job ID right away.
+ *
+ * <p>Jobs run on a bounded pool of {@code BACKUP_WORKERS} threads (default 2)
+ * with at most {@code BACKUP_QUEUE_SIZE} jobs waiting (default 4). Only one
+ * job per database may be queued or running at a time; submitting another
+ * throws {@link ConflictException} naming the active job, since a dump taken
+ * during a restore, or two restores, would leave the database or the file in
+ * an undefined state.
+ *
+ * <p>The last {@code BACKUP_JOB_HISTORY} jobs (default 100) stay available to
+ * {@link #get(String)} and {@link #list()} after they finish.
+ */
+public class BackupJobManager {
+    private static final Logger logger = LoggerFactory.getLogger(BackupJobManager.class);
+    private static BackupJobManager instance;
+
+    private final ThreadPoolExecutor executor;
+    private final int maxOutputLines;
+    private final int historySize;
+    private final Map<String, BackupJob> jobs;
+    private final Map<String, BackupJob> activeByDatabase = new LinkedHashMap<>();
+
+    /**
+     * The work of one job.
+     */
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * Runs the job.
+         *
+         * @param output receives progress lines
+         * @return exit code, {@code 0} on success
+         * @throws Exception if the job could not run
+         */
+        int run(Consumer<String> output) throws Exception;
+    }
+
+    /**
+     * Thrown when a database already has a job queued or running.
+     */
+    public static class ConflictException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient BackupJob active;
+
+        ConflictException(BackupJob active) {
+            super("A " + active.getType().name().toLowerCase() + " of " + active.getDatabase()
+                + " is already " + active.getState().name().toLowerCase());
+            this.active = active;
+        }
+
+        public BackupJob getActive() {
+            return active;
+        }
+    }
+
+    /**
+     * Creates a manager with explicit limits.
+     *
+     * @param workers jobs running at the same time
+     * @param queueSize jobs waiting for a worker
+     * @param maxOutputLines output lines kept per job
+     * @param historySize jobs remembered, finished or not
+     */
+    public BackupJobManager(int workers, int queueSize, int maxOutputLines, int historySize) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize), runnable -> {
+                Thread thread = new Thread(runnable, "backup-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.maxOutputLines = maxOutputLines;
+        this.historySize = historySize;
+        this.jobs = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BackupJob> eldest) {
+                return size() > BackupJobManager.this.historySize;
+            }
+        };
+    }
+
+    /**
+     * Creates a manager configured from the environment.
+     */
+    public BackupJobManager() {
+        this(
+            Integer.parseInt(System.getenv().getOrDefault("BACKUP_WORKERS", "2")),
+            Integer.parseInt(System.getenv().getOrDefault("BACKUP_QUEUE_SIZE", "4")),
+            Integer.parseInt(System.getenv().getOrDefault("BACKUP_JOB_OUTPUT_LINES", "200")),
+            Integer.parseInt(System.getenv().getOrDefault("BACKUP_JOB_HISTORY", "100"))
+        );
+    }
+
+    /**
+     * Returns the process-wide job manager.
+     *
+     * @return the shared {@link BackupJobManager}
+     */
+    public static synchronized BackupJobManager getInstance() {
+        if (instance == null) {
+            instance = new BackupJobManager();
+            logger.info("Backup job manager initialized");
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a job.
+     *
+     * @param type what the job does
+     * @param database the database the job works on
+     * @param file the backup file written or read
+     * @param task the work to run
+     * @return the queued job
+     * @throws ConflictException if {@code database} already has an active job
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public synchronized BackupJob submit(BackupJob.Type type, String database, String file, Task task) {
+        BackupJob active = activeByDatabase.get(database);
+        if (active != null) {
+            throw new ConflictException(active);
+        }
+
+        BackupJob job = new BackupJob(UUID.randomUUID().toString(), type, database, file, maxOutputLines);
+        executor.execute(() -> run(job, task));
+        activeByDatabase.put(database, job);
+        jobs.put(job.getId(), job);
+        logger.info("Queued {} job {} for {} ({})", type, job.getId(), database, file);
+        return job;
+    }
+
+    private void run(BackupJob job, Task task) {
+        job.started();
+        logger.info("Started {} job {}", job.getType(), job.getId());
+        int exitCode = -1;
+        String error = null;
+        try {
+            exitCode = task.run(job::appendOutput);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "Interrupted";
+        } catch (Exception e) {
+            logger.error("{} job {} failed: ", job.getType(), job.getId(), e);
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+
+        // Free the database before waking up anyone waiting on the job
+        synchronized (this) {
+            activeByDatabase.remove(job.getDatabase(), job);
+        }
+        job.finished(exitCode, error);
+
+        if (error == null && exitCode == 0) {
+            logger.info("{} job {} succeeded", job.getType(), job.getId());
+        } else if (error == null) {
+            logger.error("{} job {} exited with {}", job.getType(), job.getId(), exitCode);
+        }
+    }
+
+    /**
+     * Returns a job by ID.
+     *
+     * @param id the job ID
+     * @return the job, or null if unknown or forgotten
+     */
+    public synchronized BackupJob get(String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Returns the remembered jobs, newest first.
+     *
+     * @return the jobs
+     */
+    public synchronized List<BackupJob> list() {
+        List<BackupJob> list = new ArrayList<>(jobs.values());
+        Collections.reverse(list);
+        return list;
+    }
+
+    /**
+     * Returns the job queued or running on a database.
+     *
+     * @param database the database
+     * @return the active job, or null
+     */
+    public synchronized BackupJob active(String database) {
+        return activeByDatabase.get(database);
+    }
+
+    /**
+     * Whether a queued or running job reads or writes a backup file.
+     *
+     * @param file the backup file name
+     * @return whether the file is in use
+     */
+    public synchronized boolean isInUse(String file) {
+        return activeByDatabase.values().stream().anyMatch(job -> job.getFile().equals(file));
+    }
+
+    /**
+     * Returns a task running an external command, feeding its combined
+     * stdout and stderr to the job output. The process is killed if the
+     * worker is interrupted.
+     *
+     * @param command the command to run
+     * @return the task
+     */
+    public static Task command(ProcessBuilder command) {
+        return output -> {
+            command.redirectErrorStream(true);
+            Process process = command.start();
+            try {
+                readLines(process.getInputStream(), output);
+                return process.waitFor();
+            } finally {
+                if (process.isAlive()) {
+                    process.destroyForcibly();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a task running an external command whose stdout is data,
+     * copied into the stream {@code sink} opens; stderr goes to the job
+     * output.
+     *
+     * @param command the command to run
+     * @param sink opens the stream receiving stdout, closed when the command is done
+     * @return the task
+     */
+    public static Task commandTo(ProcessBuilder command, Callable<OutputStream> sink) {
+        return output -> {
+            Process process = command.start();
+            Thread errors = Thread.ofVirtual().start(() -> readLinesQuietly(process.getErrorStream(), output));
+            try {
+                try (InputStream in = process.getInputStream(); OutputStream out = sink.call()) {
+                    in.transferTo(out);
+                }
+                int exitCode = process.waitFor();
+                errors.join();
+                return exitCode;
+            } finally {
+                if (process.isAlive()) {
+                    process.destroyForcibly();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns a task running an external command whose stdin is fed from
+     * the stream {@code source} opens; its combined stdout and stderr go to
+     * the job output.
+     *
+     * @param command the command to run
+     * @param source opens the stream copied to stdin
+     * @return the task
+     */
+    public static Task commandFrom(ProcessBuilder command, Callable<InputStream> source) {
+        return output -> {
+            command.redirectErrorStream(true);
+            Process process = command.start();
+            AtomicReference<Exception> feedFailure = new AtomicReference<>();
+            Thread feeder = Thread.ofVirtual().start(() -> {
+                try (InputStream in = source.call(); OutputStream stdin = process.getOutputStream()) {
+                    in.transferTo(stdin);
+                } catch (Exception e) {
+                    feedFailure.set(e);
+                }
+            });
+            try {
+                readLines(process.getInputStream(), output);
+                int exitCode = process.waitFor();
+                feeder.join();
+                // A command that failed explains itself; the broken pipe it leaves says nothing
+                if (exitCode == 0 && feedFailure.get() != null) {
+                    throw new IOException("Couldn't feed " + command.command().get(0), feedFailure.get());
+                }
+                return exitCode;
+            } finally {
+                if (process.isAlive()) {
+                    process.destroyForcibly();
+                }
+                feeder.interrupt();
+            }
+        };
+    }
+
+    private static void readLines(InputStream in, Consumer<String> output) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.accept(line);
+            }
+        }
+    }
+
+    private static void readLinesQuietly(InputStream in, Consumer<String> output) {
+        try {
+            readLines(in, output);
+        } catch (IOException e) {
+            // The process was killed
+        }
+    }
+
+    /**
+     * Stops accepting jobs and interrupts the running ones.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.Backup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code BackupScheduler} class takes backups on a schedule and prunes
+ * the ones its {@link RetentionPolicy} no longer keeps, on a background
+ * thread.
+ *
+ * <p>Every {@code BACKUP_SCHEDULE_MINUTES} (off when {@code 0}, the
+ * default) a backup is started the same way {@code POST /backup/create}
+ * starts one; the scheduler doesn't wait for the job, which runs on the
+ * {@link BackupJobManager} workers. A backup or restore already running
+ * skips that round.
+ *
+ * <p>Pruning runs every {@code BACKUP_PRUNE_INTERVAL_MINUTES} (default 60)
+ * once a policy is set in {@code BACKUP_RETENTION}; without one nothing is
+ * ever deleted, but {@link #plan()} still shows what the default policy
+ * would do. Backups are deleted {@code BACKUP_PRUNE_BATCH_SIZE} (default
+ * 10) at a time with a pause in between, so a large backlog doesn't starve
+ * the disk, and never while a job is using them.
+ */
+public class BackupScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(BackupScheduler.class);
+    private static BackupScheduler instance;
+
+    private static final long BATCH_PAUSE_MILLIS = 1000;
+
+    private final BackupCatalog catalog;
+    private final BackupJobManager jobManager;
+    private final RetentionPolicy policy;
+    private final boolean pruning;
+    private final long backupIntervalMillis;
+    private final long pruneIntervalMillis;
+    private final int batchSize;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a scheduler with explicit settings. Call
+     * {@link #start(Callable)} to run it in the background.
+     *
+     * @param catalog the backups to prune
+     * @param jobManager tells which backups a job is using
+     * @param policy the retention policy
+     * @param pruning whether backups are deleted at all
+     * @param backupIntervalMillis time between scheduled backups, {@code 0} for none
+     * @param pruneIntervalMillis time between pruning rounds
+     * @param batchSize backups deleted between pauses
+     */
+    public BackupScheduler(BackupCatalog catalog, BackupJobManager jobManager, RetentionPolicy policy,
+                           boolean pruning, long backupIntervalMillis, long pruneIntervalMillis, int batchSize) {
+        this.catalog = catalog;
+        this.jobManager = jobManager;
+        this.policy = policy;
+        this.pruning = pruning;
+        this.backupIntervalMillis = backupIntervalMillis;
+        this.pruneIntervalMillis = pruneIntervalMillis;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Returns the scheduler of the shared catalog, configured from the
+     * environment. It is not started.
+     *
+     * @return the shared {@link BackupScheduler}
+     */
+    public static synchronized BackupScheduler getInstance() {
+        if (instance == null) {
+            String retention = System.getenv("BACKUP_RETENTION");
+            instance = new BackupScheduler(
+                BackupCatalog.getInstance(),
+                BackupJobManager.getInstance(),
+                RetentionPolicy.fromEnv(),
+                retention != null && !retention.isBlank(),
+                TimeUnit.MINUTES.toMillis(Long.parseLong(System.getenv().getOrDefault("BACKUP_SCHEDULE_MINUTES", "0"))),
+                TimeUnit.MINUTES.toMillis(Long.parseLong(
+                    System.getenv().getOrDefault("BACKUP_PRUNE_INTERVAL_MINUTES", "60"))),
+                Integer.parseInt(System.getenv().getOrDefault("BACKUP_PRUNE_BATCH_SIZE", "10"))
+            );
+        }
+        return instance;
+    }
+
+    /**
+     * Starts taking backups and pruning on a background thread.
+     *
+     * @param startBackup starts one backup job and returns it; it may throw
+     *                    {@link BackupJobManager.ConflictException} or
+     *                    {@link RejectedExecutionException} when it can't
+     */
+    public synchronized void start(Callable<BackupJob> startBackup) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "backup-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (backupIntervalMillis > 0) {
+            scheduler.scheduleAtFixedRate(() -> backupQuietly(startBackup), backupIntervalMillis,
+                backupIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        if (pruning) {
+            scheduler.scheduleWithFixedDelay(this::pruneQuietly, pruneIntervalMillis, pruneIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        }
+        logger.info("Backup scheduler started, backups every {} ms, retention {}", backupIntervalMillis,
+            pruning ? policy : "off");
+    }
+
+    /**
+     * Stops the background work.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public RetentionPolicy getPolicy() {
+        return policy;
+    }
+
+    public boolean isPruning() {
+        return pruning;
+    }
+
+    /**
+     * Returns what a pruning round would delete now.
+     *
+     * @return the plan
+     */
+    public RetentionPolicy.Plan plan() {
+        return plan(policy);
+    }
+
+    /**
+     * Returns what a pruning round with another policy would delete now.
+     *
+     * @param policy the policy to try
+     * @return the plan
+     */
+    public RetentionPolicy.Plan plan(RetentionPolicy policy) {
+        // A backup a job is writing or restoring is neither kept nor deleted
+        List<BackupCatalog.Entry> backups = catalog.list().stream()
+            .filter(entry -> !jobManager.isInUse(entry.name()))
+            .toList();
+        return policy.apply(backups, Instant.now());
+    }
+
+    /**
+     * Deletes the backups the policy doesn't keep, in batches.
+     *
+     * @return the number of backups deleted
+     * @throws InterruptedException if interrupted between batches
+     */
+    public int prune() throws InterruptedException {
+        List<RetentionPolicy.Decision> expired = plan().delete();
+        int deleted = 0;
+        for (int i = 0; i < expired.size(); i++) {
+            if (i > 0 && i % batchSize == 0) {
+                Thread.sleep(BATCH_PAUSE_MILLIS);
+            }
+            String name = expired.get(i).name();
+            if (jobManager.isInUse(name)) {
+                continue;
+            }
+            try {
+                if (catalog.delete(name)) {
+                    deleted++;
+                    logger.info("Pruned backup {} ({})", name, expired.get(i).reason());
+                }
+            } catch (IOException e) {
+                logger.warn("Couldn't prune backup {}: {}", name, e.getMessage());
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Runs {@link #prune()} on the scheduler thread.
+     *
+     * @return whether a pruning round was scheduled
+     */
+    public boolean pruneAsync() {
+        ScheduledExecutorService executor = scheduler;
+        if (executor == null || !pruning) {
+            return false;
+        }
+        executor.execute(this::pruneQuietly);
+        return true;
+    }
+
+    private void backupQuietly(Callable<BackupJob> startBackup) {
+        try {
+            BackupJob job = startBackup.call();
+            logger.info("Scheduled backup {} started, job {}", job.getFile(), job.getId());
+        } catch (BackupJobManager.ConflictException e) {
+            logger.info("Scheduled backup skipped: {}", e.getMessage());
+        } catch (RejectedExecutionException e) {
+            logger.warn("Scheduled backup skipped, job queue is full");
+        } catch (Exception e) {
+            logger.error("Scheduled backup failed to start: ", e);
+        }
+    }
+
+    private void pruneQuietly() {
+        try {
+            int deleted = prune();
+            if (deleted > 0) {
+                logger.info("Pruned {} backups", deleted);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Pruning backups failed: ", e);
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package com.example.Backup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Config.DatabaseConfig;
+import com.example.Utils.ParallelGzipOutputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The {@code CopyBackupEngine} class backs up and restores the tables of one
+ * schema with {@code COPY}, inside the backend and without the PostgreSQL
+ * client tools.
+ *
+ * <p>A backup is a zip holding {@code manifest.json} and one gzipped
+ * {@code COPY ... TO STDOUT} stream per table. Tables are dumped in parallel,
+ * each on its own connection, and all of them read the snapshot exported by
+ * a coordinating transaction, so the archive is consistent just like a
+ * parallel {@code pg_dump}. Every stream goes straight from the socket
+ * through gzip to a temporary file; the files are then stored uncompressed
+ * into the zip. No table is ever held in memory. Compression runs on a pool
+ * of its own with {@link ParallelGzipOutputStream}, so one large table is
+ * still compressed on every job's core instead of only its connection's.
+ *
+ * <p>A restore truncates the archived tables in one statement and loads them
+ * with {@code COPY ... FROM STDIN} level by level: a table's level is one
+ * more than the highest level of the tables its foreign keys reference, so
+ * the tables of one level can be loaded in parallel. Each table is loaded in
+ * its own transaction; a failed restore leaves the tables loaded so far.
+ * Afterwards every sequence owned by a restored column is moved past the
+ * column's maximum.
+ *
+ * <p>A restore into live tables runs with {@code session_replication_role}
+ * set to {@code replica}, so no trigger fires for the loaded rows: the
+ * occupancy counters aren't bumped a second time and the change log doesn't
+ * record every row again. This needs a superuser, or on PostgreSQL 15 and
+ * later a role granted {@code SET} on the parameter. The tables those
+ * triggers maintain ({@link #DERIVED_TABLES}) are not loaded from the
+ * archive but rebuilt from the loaded data, see
+ * {@link #rebuildDerivedTables(Consumer)}.
+ *
+ * <p>Only data is archived. The schema itself must already exist, which is
+ * the case for the application database.
+ */
+public class CopyBackupEngine {
+    private static final Logger logger = LoggerFactory.getLogger(CopyBackupEngine.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /** Zip entry holding the {@link Manifest}. */
+    public static final String MANIFEST_ENTRY = "manifest.json";
+    /** Value of {@link Manifest#format()} in archives written by this class. */
+    public static final String FORMAT_NAME = "prisonflow-copy";
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Tables written by triggers of the other tables. They are archived, so
+     * a staged restore gets them as they were, but an in-place restore
+     * rebuilds them instead of loading them.
+     */
+    public static final Set<String> DERIVED_TABLES =
+        Set.of("prison_occupancy_counters", "change_log", "change_log_horizon");
+
+    private final DataSource dataSource;
+    private final String schema;
+
+    /**
+     * One archived table.
+     *
+     * @param name table name
+     * @param columns archived columns, in {@code COPY} order
+     * @param level load order, tables of a level only reference lower levels
+     * @param entry zip entry of the gzipped {@code COPY} stream
+     * @param rows number of rows
+     * @param bytes compressed size of the entry
+     */
+    public record TableEntry(String name, List<String> columns, int level, String entry, long rows, long bytes) {}
+
+    /**
+     * Contents of {@code manifest.json}.
+     *
+     * @param format always {@link #FORMAT_NAME}
+     * @param version format version
+     * @param schema schema the tables were dumped from
+     * @param serverVersion PostgreSQL version of the source
+     * @param createdAt epoch millis of the snapshot
+     * @param tables the tables, in load order
+     */
+    public record Manifest(String format, int version, String schema, String serverVersion, long createdAt,
+                           List<TableEntry> tables) {}
+
+    private record Table(String name, List<String> columns, Set<String> references) {}
+
+    private record DumpedTable(TableEntry entry, Path file, long crc) {}
+
+    /**
+     * Creates an engine for one schema.
+     *
+     * @param dataSource source of the connections, one per parallel job plus one
+     * @param schema the schema whose tables are backed up or restored
+     */
+    public CopyBackupEngine(DataSource dataSource, String schema) {
+        this.dataSource = dataSource;
+        this.schema = schema;
+    }
+
+    /**
+     * Creates an engine for the {@code public} schema of the application
+     * database. It opens its own connections instead of borrowing from the
+     * application pool, so a long backup never starves requests.
+     *
+     * @return the engine
+     */
+    public static CopyBackupEngine fromDatabaseConfig() {
+        PGSimpleDataSource pg = new PGSimpleDataSource();
+        pg.setURL(DatabaseConfig.getJdbcUrl());
+        pg.setUser(DatabaseConfig.getUser());
+        pg.setPassword(DatabaseConfig.getPassword());
+        pg.setApplicationName("prisonflow-backup");
+        return new CopyBackupEngine(pg, "public");
+    }
+
+    /**
+     * Writes a backup of every table in the schema.
+     *
+     * @param target the zip file to create, must not exist
+     * @param jobs tables dumped at the same time
+     * @param output receives progress lines
+     * @return the hex SHA-256 of the archive, computed while writing it
+     * @throws Exception if the backup fails; {@code target} is not left behind
+     */
+    public String backup(Path target, int jobs, Consumer<String> output) throws Exception {
+        Path work = Files.createTempDirectory(target.toAbsolutePath().getParent(), "." + target.getFileName() + ".");
+        ExecutorService pool = newPool(jobs);
+        ForkJoinPool compressors = new ForkJoinPool(jobs);
+        long start = System.nanoTime();
+        try (Connection coordinator = dataSource.getConnection()) {
+            // Holding this transaction open keeps the exported snapshot valid
+            coordinator.setAutoCommit(false);
+            coordinator.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            coordinator.setReadOnly(true);
+            String snapshot = queryString(coordinator, "SELECT pg_export_snapshot()");
+            String serverVersion = queryString(coordinator, "SHOW server_version");
+            long createdAt = System.currentTimeMillis();
+
+            List<Table> tables = discoverTables(coordinator);
+            Map<String, Integer> levels = levels(tables);
+            output.accept(String.format("Dumping %d tables of %s with %d jobs", tables.size(), schema, jobs));
+
+            List<Callable<DumpedTable>> dumps = new ArrayList<>();
+            for (int i = 0; i < tables.size(); i++) {
+                Table table = tables.get(i);
+                String entry = String.format("data/%04d.copy.gz", i);
+                dumps.add(() -> dumpTable(table, levels.get(table.name()), entry, work, snapshot, compressors, output));
+            }
+            List<DumpedTable> dumped = runAll(pool, dumps);
+            dumped.sort((a, b) -> Integer.compare(a.entry().level(), b.entry().level()));
+
+            Manifest manifest = new Manifest(FORMAT_NAME, FORMAT_VERSION, schema, serverVersion, createdAt,
+                dumped.stream().map(DumpedTable::entry).toList());
+            String sha256 = writeArchive(target, manifest, dumped);
+            coordinator.commit();
+
+            output.accept(String.format("Backup of %d tables written to %s in %d ms (%d bytes, sha256 %s)",
+                dumped.size(), target.getFileName(), (System.nanoTime() - start) / 1_000_000, Files.size(target), sha256));
+            return sha256;
+        } finally {
+            pool.shutdownNow();
+            compressors.shutdownNow();
+            BackupFiles.delete(work);
+        }
+    }
+
+    /**
+     * Replaces the data of the archived tables with the archive contents,
+     * in live tables: triggers don't fire and the {@link #DERIVED_TABLES}
+     * are rebuilt afterwards, also when the load fails halfway.
+     *
+     * @param source the zip written by {@link #backup(Path, int, Consumer)}
+     * @param jobs tables loaded at the same time
+     * @param output receives progress lines
+     * @return {@code 0}, matching {@link BackupJobManager.Task}
+     * @throws Exception if the restore fails
+     */
+    public int restore(Path source, int jobs, Consumer<String> output) throws Exception {
+        return load(source, jobs, output, true);
+    }
+
+    /**
+     * Loads every archived table as it is, for a schema that has no
+     * triggers yet, such as the staging schema of {@link StagingRestore}.
+     *
+     * @param source the zip written by {@link #backup(Path, int, Consumer)}
+     * @param jobs tables loaded at the same time
+     * @param output receives progress lines
+     * @throws Exception if the load fails
+     */
+    void loadAll(Path source, int jobs, Consumer<String> output) throws Exception {
+        load(source, jobs, output, false);
+    }
+
+    private int load(Path source, int jobs, Consumer<String> output, boolean live) throws Exception {
+        ExecutorService pool = newPool(jobs);
+        long start = System.nanoTime();
+        try (ZipFile zip = new ZipFile(source.toFile())) {
+            Manifest manifest = readManifest(zip);
+            List<TableEntry> tables = manifest.tables().stream()
+                .filter(table -> !live || !DERIVED_TABLES.contains(table.name()))
+                .toList();
+            output.accept(String.format("Restoring %d tables into %s with %d jobs", tables.size(), schema, jobs));
+
+            boolean truncated = false;
+            try {
+                try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+                    conn.setAutoCommit(false);
+                    if (live) {
+                        disableTriggers(stmt);
+                    }
+                    stmt.execute("TRUNCATE " + tables.stream()
+                        .map(table -> qualified(table.name()))
+                        .collect(Collectors.joining(", ")));
+                    conn.commit();
+                }
+                truncated = true;
+
+                Map<Integer, List<TableEntry>> byLevel = new TreeMap<>();
+                for (TableEntry table : tables) {
+                    byLevel.computeIfAbsent(table.level(), key -> new ArrayList<>()).add(table);
+                }
+                for (List<TableEntry> level : byLevel.values()) {
+                    List<Callable<Long>> loads = new ArrayList<>();
+                    for (TableEntry table : level) {
+                        loads.add(() -> loadTable(zip, table, live, output));
+                    }
+                    runAll(pool, loads);
+                }
+
+                resetSequences(tables.stream().map(TableEntry::name).collect(Collectors.toSet()), output);
+            } catch (Exception e) {
+                // Whatever was loaded so far is live, the derived tables must match it
+                if (live && truncated) {
+                    try {
+                        rebuildDerivedTables(output);
+                    } catch (SQLException rebuild) {
+                        e.addSuppressed(rebuild);
+                    }
+                }
+                throw e;
+            }
+            if (live) {
+                rebuildDerivedTables(output);
+            }
+            output.accept(String.format("Restore of %d tables finished in %d ms",
+                tables.size(), (System.nanoTime() - start) / 1_000_000));
+            return 0;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Rebuilds the {@link #DERIVED_TABLES} from the restored data in one
+     * transaction. The occupancy counters are recounted from
+     * {@code criminals}. The change log is emptied and its horizon moved
+     * past every cursor handed out so far, so clients that synced before
+     * the restore get a 410 and reload. Tables the schema doesn't have are
+     * skipped.
+     */
+    private void rebuildDerivedTables(Consumer<String> output) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            if (exists(conn, "prison_occupancy_counters") && exists(conn, "criminals")) {
+                stmt.execute("DELETE FROM " + qualified("prison_occupancy_counters"));
+                stmt.execute("INSERT INTO " + qualified("prison_occupancy_counters") + " (prison_id, current_inmates) "
+                    + "SELECT prison_id, count(*) FROM " + qualified("criminals")
+                    + " WHERE status = 'imprisoned' AND prison_id IS NOT NULL GROUP BY prison_id");
+                output.accept("Recounted the prison occupancy counters");
+            }
+            expireChangeFeed(conn, output);
+            conn.commit();
+        }
+    }
+
+    /**
+     * Empties the change log and moves its horizon past every cursor handed
+     * out so far, in the caller's transaction. Skipped when the schema has
+     * no change log.
+     *
+     * @param conn a connection inside the restoring transaction
+     * @param output receives progress lines
+     * @throws SQLException if the log can't be reset
+     */
+    void expireChangeFeed(Connection conn, Consumer<String> output) throws SQLException {
+        if (!exists(conn, "change_log") || !exists(conn, "change_log_horizon")) {
+            return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM " + qualified("change_log"));
+            // Every cursor handed out so far is below this transaction's id with any change_id
+            stmt.execute("UPDATE " + qualified("change_log_horizon")
+                + " SET txid = pg_current_xact_id(), change_id = " + Long.MAX_VALUE);
+        }
+        output.accept("Expired the change feed cursors of before the restore");
+    }
+
+    private boolean exists(Connection conn, String table) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            stmt.setString(1, qualified(table));
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Keeps triggers, foreign key checks included, from firing for the rest
+     * of the current transaction.
+     */
+    private static void disableTriggers(Statement stmt) throws SQLException {
+        stmt.execute("SET LOCAL session_replication_role = replica");
+    }
+
+    /**
+     * Reads the manifest of an archive.
+     *
+     * @param source the archive
+     * @return the manifest
+     * @throws IOException if the file is not an archive of this format
+     */
+    public static Manifest readManifest(Path source) throws IOException {
+        try (ZipFile zip = new ZipFile(source.toFile())) {
+            return readManifest(zip);
+        }
+    }
+
+    private static Manifest readManifest(ZipFile zip) throws IOException {
+        ZipEntry entry = zip.getEntry(MANIFEST_ENTRY);
+        if (entry == null) {
+            throw new IOException("Not a COPY backup: " + MANIFEST_ENTRY + " is missing");
+        }
+        Manifest manifest;
+        try (InputStream in = zip.getInputStream(entry)) {
+            manifest = mapper.readValue(in, Manifest.class);
+        }
+        if (!FORMAT_NAME.equals(manifest.format()) || manifest.version() > FORMAT_VERSION) {
+            throw new IOException("Unsupported backup format " + manifest.format() + " v" + manifest.version());
+        }
+        return manifest;
+    }
+
+    private DumpedTable dumpTable(Table table, int level, String entry, Path work, String snapshot,
+                                  ForkJoinPool compressors, Consumer<String> output) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Path file = work.resolve(entry.replace('/', '_'));
+        CRC32 crc = new CRC32();
+        long rows;
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setReadOnly(true);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET TRANSACTION SNAPSHOT '" + snapshot.replace("'", "''") + "'");
+            }
+
+            try (OutputStream out = new ParallelGzipOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE), crc),
+                    ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, compressors)) {
+                rows = conn.unwrap(PGConnection.class).getCopyAPI()
+                    .copyOut("COPY " + qualified(table.name()) + " (" + columnList(table.columns()) + ") TO STDOUT", out);
+            }
+            conn.commit();
+        }
+
+        long bytes = Files.size(file);
+        output.accept(String.format("Dumped %s: %d rows, %d bytes in %d ms",
+            table.name(), rows, bytes, (System.nanoTime() - start) / 1_000_000));
+        return new DumpedTable(new TableEntry(table.name(), table.columns(), level, entry, rows, bytes), file, crc.getValue());
+    }
+
+    private long loadTable(ZipFile zip, TableEntry table, boolean live, Consumer<String> output)
+            throws SQLException, IOException {
+        long start = System.nanoTime();
+        ZipEntry entry = zip.getEntry(table.entry());
+        if (entry == null) {
+            throw new IOException("Archive entry " + table.entry() + " of " + table.name() + " is missing");
+        }
+
+        long rows;
+        try (Connection conn = dataSource.getConnection();
+             InputStream in = new GZIPInputStream(
+                 new BufferedInputStream(zip.getInputStream(entry), BUFFER_SIZE), BUFFER_SIZE)) {
+            conn.setAutoCommit(false);
+            if (live) {
+                try (Statement stmt = conn.createStatement()) {
+                    disableTriggers(stmt);
+                }
+            }
+            rows = conn.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + qualified(table.name()) + " (" + columnList(table.columns()) + ") FROM STDIN", in);
+            conn.commit();
+        }
+
+        output.accept(String.format("Loaded %s: %d rows in %d ms", table.name(), rows, (System.nanoTime() - start) / 1_000_000));
+        return rows;
+    }
+
+    private String writeArchive(Path target, Manifest manifest, List<DumpedTable> dumped) throws IOException {
+        boolean written = false;
+        MessageDigest digest = BackupCatalog.newDigest();
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new DigestOutputStream(
+                Files.newOutputStream(target, StandardOpenOption.CREATE_NEW), digest), BUFFER_SIZE))) {
+            zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+            zip.write(mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+            zip.closeEntry();
+
+            // The streams are gzipped already, store them as they are
+            for (DumpedTable table : dumped) {
+                ZipEntry entry = new ZipEntry(table.entry().entry());
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(table.entry().bytes());
+                entry.setCompressedSize(table.entry().bytes());
+                entry.setCrc(table.crc());
+                zip.putNextEntry(entry);
+                Files.copy(table.file(), zip);
+                zip.closeEntry();
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(target);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private List<Table> discoverTables(Connection conn) throws SQLException {
+        Map<String, Table> tables = new LinkedHashMap<>();
+        String tablesSql = """
+            SELECT c.relname,
+                   array_agg(a.attname::text ORDER BY a.attnum) AS columns
+            FROM pg_class c
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            JOIN pg_attribute a ON a.attrelid = c.oid
+            WHERE n.nspname = ? AND c.relkind = 'r'
+              AND a.attnum > 0 AND NOT a.attisdropped AND a.attgenerated = ''
+            GROUP BY c.relname
+            ORDER BY c.relname
+            """;
+        try (PreparedStatement stmt = conn.prepareStatement(tablesSql)) {
+            stmt.setString(1, schema);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String name = rs.getString("relname");
+                    List<String> columns = List.of((String[]) rs.getArray("columns").getArray());
+                    tables.put(name, new Table(name, columns, new HashSet<>()));
+                }
+            }
+        }
+
+        String referencesSql = """
+            SELECT child.relname AS child, parent.relname AS parent
+            FROM pg_constraint con
+            JOIN pg_class child ON child.oid = con.conrelid
+            JOIN pg_class parent ON parent.oid = con.confrelid
+            JOIN pg_namespace n ON n.oid = child.relnamespace
+            WHERE con.contype = 'f' AND n.nspname = ? AND parent.relnamespace = child.relnamespace
+            """;
+        try (PreparedStatement stmt = conn.prepareStatement(referencesSql)) {
+            stmt.setString(1, schema);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Table child = tables.get(rs.getString("child"));
+                    String parent = rs.getString("parent");
+                    if (child != null && tables.containsKey(parent) && !parent.equals(child.name())) {
+                        child.references().add(parent);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(tables.values());
+    }
+
+    /**
+     * Assigns load levels: a table without foreign keys is level 0, any
+     * other one level above the highest table it references.
+     */
+    private static Map<String, Integer> levels(List<Table> tables) {
+        Map<String, Integer> levels = new HashMap<>();
+        Set<String> remaining = tables.stream().map(Table::name).collect(Collectors.toCollection(HashSet::new));
+        int level = 0;
+        while (!remaining.isEmpty()) {
+            List<String> ready = new ArrayList<>();
+            for (Table table : tables) {
+                if (remaining.contains(table.name())
+                        && table.references().stream().noneMatch(remaining::contains)) {
+                    ready.add(table.name());
+                }
+            }
+            if (ready.isEmpty()) {
+                // A reference cycle can't be ordered; load the rest together last
+                logger.warn("Foreign key cycle between {}, loading them in one level", remaining);
+                ready.addAll(remaining);
+            }
+            for (String name : ready) {
+                levels.put(name, level);
+                remaining.remove(name);
+            }
+            level++;
+        }
+        return levels;
+    }
+
+    /**
+     * Moves the sequences owned by columns of {@code tables} past the
+     * columns' maximum.
+     */
+    void resetSequences(Set<String> tables, Consumer<String> output) throws SQLException {
+        String sequencesSql = """
+            SELECT t.relname AS table_name, a.attname AS column_name, s.oid::regclass::text AS sequence_name
+            FROM pg_depend d
+            JOIN pg_class s ON s.oid = d.objid AND s.relkind = 'S'
+            JOIN pg_class t ON t.oid = d.refobjid
+            JOIN pg_namespace n ON n.oid = t.relnamespace
+            JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = d.refobjsubid
+            WHERE d.classid = 'pg_class'::regclass AND d.refclassid = 'pg_class'::regclass
+              AND d.deptype IN ('a', 'i') AND n.nspname = ?
+            """;
+        try (Connection conn = dataSource.getConnection()) {
+            List<String[]> sequences = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(sequencesSql)) {
+                stmt.setString(1, schema);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (tables.contains(rs.getString("table_name"))) {
+                            sequences.add(new String[] {
+                                rs.getString("table_name"), rs.getString("column_name"), rs.getString("sequence_name")
+                            });
+                        }
+                    }
+                }
+            }
+
+            for (String[] sequence : sequences) {
+                String sql = "SELECT setval(?::regclass, COALESCE((SELECT MAX(" + quote(sequence[1]) + ") FROM "
+                    + qualified(sequence[0]) + "), 0) + 1, false)";
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, sequence[2]);
+                    stmt.execute();
+                }
+            }
+            output.accept("Reset " + sequences.size() + " sequences");
+        }
+    }
+
+    /**
+     * Runs the tasks on the pool and returns their results in order. The
+     * first failure cancels the remaining tasks and is rethrown.
+     */
+    private static <T> List<T> runAll(ExecutorService pool, List<Callable<T>> tasks) throws Exception {
+        List<Future<T>> futures = new ArrayList<>();
+        for (Callable<T> task : tasks) {
+            futures.add(pool.submit(task));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e;
+        }
+        return results;
+    }
+
+    private static ExecutorService newPool(int jobs) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(PgCommands.clampJobs(jobs), runnable -> {
+            Thread thread = new Thread(runnable, "copy-backup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static String queryString(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private String qualified(String table) {
+        return quote(schema) + "." + quote(table);
+    }
+
+    private static String columnList(List<String> columns) {
+        return columns.stream().map(CopyBackupEngine::quote).collect(Collectors.joining(", "));
+    }
+
+    static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
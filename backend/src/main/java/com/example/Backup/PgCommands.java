@@ -0,0 +1,170 @@
+package com.example.Backup;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.postgresql.Driver;
+
+import com.example.Config.DatabaseConfig;
+
+/**
+ * The {@code PgCommands} class builds the {@code pg_dump} and
+ * {@code pg_restore} command lines for one database.
+ *
+ * <p>Directory dumps and all restores are parallel. The default number of
+ * jobs is {@code BACKUP_PARALLEL_JOBS}, or the number of cores capped at 4
+ * when unset: each job holds its own database connection and the server
+ * side does most of the work, so more jobs than that rarely pays off on
+ * one database. Requests may ask for fewer or more, up to
+ * {@link #MAX_PARALLEL_JOBS}.
+ */
+public class PgCommands {
+
+    /** Upper bound of jobs a request may ask for. */
+    public static final int MAX_PARALLEL_JOBS = 16;
+
+    private final String host;
+    private final String port;
+    private final String database;
+    private final String user;
+    private final String password;
+    private final int parallelJobs;
+
+    /**
+     * Creates commands with explicit settings.
+     *
+     * @param host database host
+     * @param port database port
+     * @param database database name
+     * @param user database user
+     * @param password password passed through {@code PGPASSWORD}
+     * @param parallelJobs default number of jobs
+     */
+    public PgCommands(String host, String port, String database, String user, String password, int parallelJobs) {
+        this.host = host;
+        this.port = port;
+        this.database = database;
+        this.user = user;
+        this.password = password;
+        this.parallelJobs = clampJobs(parallelJobs);
+    }
+
+    /**
+     * Creates commands for the application database, taking host, port and
+     * name from its JDBC URL.
+     *
+     * @return the commands
+     */
+    public static PgCommands fromDatabaseConfig() {
+        String url = DatabaseConfig.getJdbcUrl();
+        Properties properties = Driver.parseURL(url, null);
+        if (properties == null) {
+            throw new IllegalStateException("Not a PostgreSQL JDBC URL: " + url);
+        }
+        // With a multi-host URL the tools get the first host
+        return new PgCommands(
+            properties.getProperty("PGHOST").split(",")[0],
+            properties.getProperty("PGPORT").split(",")[0],
+            properties.getProperty("PGDBNAME"),
+            DatabaseConfig.getUser(),
+            DatabaseConfig.getPassword(),
+            defaultParallelJobs()
+        );
+    }
+
+    /**
+     * Returns {@code BACKUP_PARALLEL_JOBS}, or the core count capped at 4.
+     */
+    public static int defaultParallelJobs() {
+        String configured = System.getenv("BACKUP_PARALLEL_JOBS");
+        if (configured != null && !configured.isBlank()) {
+            return clampJobs(Integer.parseInt(configured.trim()));
+        }
+        return Math.min(Runtime.getRuntime().availableProcessors(), 4);
+    }
+
+    /**
+     * Limits a job count to {@code 1..MAX_PARALLEL_JOBS}.
+     */
+    public static int clampJobs(int jobs) {
+        return Math.max(1, Math.min(jobs, MAX_PARALLEL_JOBS));
+    }
+
+    public String getDatabase() {
+        return database;
+    }
+
+    public int getParallelJobs() {
+        return parallelJobs;
+    }
+
+    /**
+     * Builds a {@code pg_dump} into {@code target}. For a format with
+     * {@linkplain BackupFormat#pipedCompression() piped compression} the
+     * uncompressed archive goes to standard output instead, and the caller
+     * writes {@code target}.
+     *
+     * @param target the file or directory to create
+     * @param format the archive format
+     * @param jobs parallel jobs, ignored for formats that can't dump in parallel
+     * @return the command
+     */
+    public ProcessBuilder dump(Path target, BackupFormat format, int jobs) {
+        List<String> command = new ArrayList<>(List.of("pg_dump"));
+        addConnection(command);
+        command.addAll(List.of("-F", format.pgDumpFormat(), "-v"));
+        if (format.pipedCompression()) {
+            command.addAll(List.of("-Z", "0"));
+        } else {
+            command.addAll(List.of("-f", target.toString()));
+        }
+        if (format.parallelDump() && jobs > 1) {
+            command.addAll(List.of("-j", String.valueOf(clampJobs(jobs))));
+        }
+        return withPassword(new ProcessBuilder(command));
+    }
+
+    /**
+     * Builds a {@code pg_restore} of {@code source} that drops and recreates
+     * the objects it contains.
+     *
+     * @param source the backup file or directory
+     * @param jobs parallel jobs
+     * @return the command
+     */
+    public ProcessBuilder restore(Path source, int jobs) {
+        List<String> command = new ArrayList<>(List.of("pg_restore"));
+        addConnection(command);
+        command.addAll(List.of("-c", "-v"));
+        if (jobs > 1) {
+            command.addAll(List.of("-j", String.valueOf(clampJobs(jobs))));
+        }
+        command.add(source.toString());
+        return withPassword(new ProcessBuilder(command));
+    }
+
+    /**
+     * Builds a {@code pg_restore} that reads a custom-format archive from
+     * standard input. {@code pg_restore} can't seek in a pipe, so it runs a
+     * single job.
+     *
+     * @return the command
+     */
+    public ProcessBuilder restoreFromStdin() {
+        List<String> command = new ArrayList<>(List.of("pg_restore"));
+        addConnection(command);
+        command.addAll(List.of("-c", "-v"));
+        return withPassword(new ProcessBuilder(command));
+    }
+
+    private void addConnection(List<String> command) {
+        command.addAll(List.of("-h", host, "-p", port, "-U", user, "-d", database));
+    }
+
+    private ProcessBuilder withPassword(ProcessBuilder builder) {
+        builder.environment().put("PGPASSWORD", password);
+        return builder;
+    }
+}
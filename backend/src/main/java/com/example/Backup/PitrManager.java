@@ -0,0 +1,513 @@
+package com.example.Backup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.postgresql.ds.PGSimpleDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Config.DatabaseConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The {@code PitrManager} class manages point-in-time recovery: base
+ * backups of the database cluster plus the WAL the server archives, from
+ * which the cluster can be rebuilt as it was at any moment since the
+ * oldest base backup.
+ *
+ * <p>The server archives every finished WAL segment into the {@code wal}
+ * directory of the backup directory with {@code archive_mode = on} and an
+ * {@code archive_command} copying into {@code PITR_WAL_ARCHIVE}, the same
+ * directory as the server sees it (default {@code /backups/wal}).
+ *
+ * <p>A base backup uses the low-level backup API: between
+ * {@code pg_backup_start} and {@code pg_backup_stop} on one connection, the
+ * data directory, readable by the backend at {@code PITR_DATA_DIR}, is
+ * copied file by file into {@code base/<name>/data} while the server keeps
+ * running. Copies of pages changed meanwhile are repaired by replaying the
+ * WAL, which {@code pg_backup_stop} waits to be archived. The files the
+ * server recreates at startup are skipped, like {@code pg_basebackup} does.
+ *
+ * <p>Preparing a recovery copies the newest base backup that finished
+ * before the target into {@code recovery/<name>/data}, with a
+ * {@code recovery.signal} and the restore settings, ready to be started in
+ * place of the current data directory. Recovery time then depends on the
+ * WAL replayed since that base backup, not on the size of the database.
+ */
+public class PitrManager {
+    private static final Logger logger = LoggerFactory.getLogger(PitrManager.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static PitrManager instance;
+
+    /** Name of the metadata file in every base backup directory. */
+    public static final String INFO_FILE = "pitr.json";
+
+    private static final DateTimeFormatter NAME_FORMAT =
+        DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter PG_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSSxxx").withZone(ZoneOffset.UTC);
+    private static final Pattern START_WAL = Pattern.compile("START WAL LOCATION: (\\S+) \\(file (\\w+)\\)");
+    private static final Pattern START_TIMELINE = Pattern.compile("START TIMELINE: (\\d+)");
+
+    /** Top-level entries of the data directory that are not copied. */
+    private static final Set<String> SKIPPED_FILES = Set.of(
+        "postmaster.pid", "postmaster.opts", "backup_label", "tablespace_map", "recovery.signal", "standby.signal"
+    );
+    /** Directories whose contents the server recreates; they are copied empty. */
+    private static final Set<String> EMPTIED_DIRECTORIES = Set.of(
+        "pg_wal", "pg_dynshmem", "pg_notify", "pg_replslot", "pg_serial", "pg_snapshots", "pg_stat_tmp", "pg_subtrans"
+    );
+
+    private final DataSource dataSource;
+    private final Path dataDir;
+    private final Path walDir;
+    private final Path baseDir;
+    private final Path recoveryDir;
+    private final String serverWalArchive;
+
+    /**
+     * One base backup, stored as {@value #INFO_FILE} next to its data.
+     *
+     * @param name directory name under {@code base}
+     * @param startLsn WAL location the backup starts at
+     * @param stopLsn WAL location the backup is consistent from
+     * @param startWalFile first WAL segment the backup needs
+     * @param timeline timeline the backup was taken on
+     * @param startedAt epoch millis of {@code pg_backup_start}
+     * @param finishedAt epoch millis of {@code pg_backup_stop}; the earliest recovery target
+     * @param size bytes copied
+     */
+    public record BaseBackup(String name, String startLsn, String stopLsn, String startWalFile, int timeline,
+                             long startedAt, long finishedAt, long size) {}
+
+    /**
+     * Creates a manager with explicit settings.
+     *
+     * @param dataSource connections as a user allowed to run the backup functions
+     * @param backupDir the backup directory; WAL, base backups and recoveries live below it
+     * @param dataDir the server's data directory, as the backend sees it
+     * @param serverWalArchive the WAL archive directory, as the server sees it
+     */
+    public PitrManager(DataSource dataSource, Path backupDir, Path dataDir, String serverWalArchive) {
+        this.dataSource = dataSource;
+        this.dataDir = dataDir;
+        this.walDir = backupDir.resolve("wal");
+        this.baseDir = backupDir.resolve("base");
+        this.recoveryDir = backupDir.resolve("recovery");
+        this.serverWalArchive = serverWalArchive;
+    }
+
+    /**
+     * Returns the manager of the application database.
+     *
+     * @return the shared {@link PitrManager}
+     */
+    public static synchronized PitrManager getInstance() {
+        if (instance == null) {
+            PGSimpleDataSource pg = new PGSimpleDataSource();
+            pg.setURL(DatabaseConfig.getJdbcUrl());
+            pg.setUser(DatabaseConfig.getUser());
+            pg.setPassword(DatabaseConfig.getPassword());
+            pg.setApplicationName("prisonflow-pitr");
+            String backupPath = System.getenv("BACKUP_PATH") != null ? System.getenv("BACKUP_PATH") : "/app/backups";
+            instance = new PitrManager(pg, Path.of(backupPath),
+                Path.of(System.getenv().getOrDefault("PITR_DATA_DIR", "/pgdata")),
+                System.getenv().getOrDefault("PITR_WAL_ARCHIVE", "/backups/wal"));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the archiving settings, the archiver's counters, the base
+     * backups and the window recovery targets may fall in.
+     *
+     * @return the status
+     * @throws SQLException if the server can't be queried
+     * @throws IOException if the backup directories can't be read
+     */
+    public Map<String, Object> status() throws SQLException, IOException {
+        Map<String, Object> status = new LinkedHashMap<>();
+        Timestamp lastArchived;
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            Map<String, String> settings = new LinkedHashMap<>();
+            try (ResultSet rs = stmt.executeQuery("""
+                    SELECT name, setting FROM pg_settings
+                    WHERE name IN ('wal_level', 'archive_mode', 'archive_command', 'archive_timeout')
+                    ORDER BY name
+                    """)) {
+                while (rs.next()) {
+                    settings.put(rs.getString(1), rs.getString(2));
+                }
+            }
+            status.put("archiving", isArchiving(settings));
+            status.put("settings", settings);
+
+            Map<String, Object> archiver = new LinkedHashMap<>();
+            try (ResultSet rs = stmt.executeQuery("""
+                    SELECT archived_count, last_archived_wal, last_archived_time,
+                           failed_count, last_failed_wal, last_failed_time, pg_walfile_name(pg_current_wal_lsn())
+                    FROM pg_stat_archiver
+                    """)) {
+                rs.next();
+                lastArchived = rs.getTimestamp("last_archived_time");
+                archiver.put("archivedCount", rs.getLong("archived_count"));
+                archiver.put("lastArchivedWal", rs.getString("last_archived_wal"));
+                archiver.put("lastArchivedAt", lastArchived != null ? lastArchived.getTime() : null);
+                archiver.put("failedCount", rs.getLong("failed_count"));
+                archiver.put("lastFailedWal", rs.getString("last_failed_wal"));
+                Timestamp lastFailed = rs.getTimestamp("last_failed_time");
+                archiver.put("lastFailedAt", lastFailed != null ? lastFailed.getTime() : null);
+                archiver.put("currentWal", rs.getString(7));
+            }
+            status.put("archiver", archiver);
+        }
+
+        List<BaseBackup> baseBackups = listBaseBackups();
+        status.put("baseBackups", baseBackups);
+
+        Map<String, Object> wal = new LinkedHashMap<>();
+        List<Path> segments = walSegments();
+        wal.put("segments", segments.size());
+        wal.put("bytes", segments.stream().mapToLong(path -> path.toFile().length()).sum());
+        wal.put("oldest", segments.isEmpty() ? null : segments.get(0).getFileName().toString());
+        wal.put("newest", segments.isEmpty() ? null : segments.get(segments.size() - 1).getFileName().toString());
+        status.put("walArchive", wal);
+
+        Map<String, Object> window = new LinkedHashMap<>();
+        window.put("from", baseBackups.stream().mapToLong(BaseBackup::finishedAt).min().stream().boxed()
+            .findFirst().orElse(null));
+        window.put("to", lastArchived != null ? lastArchived.getTime() : null);
+        status.put("recoveryWindow", window);
+        return status;
+    }
+
+    /**
+     * Returns the base backups, newest first.
+     *
+     * @return the base backups
+     * @throws IOException if the directory can't be read
+     */
+    public List<BaseBackup> listBaseBackups() throws IOException {
+        if (!Files.isDirectory(baseDir)) {
+            return List.of();
+        }
+        List<BaseBackup> backups = new ArrayList<>();
+        try (Stream<Path> entries = Files.list(baseDir)) {
+            for (Path info : entries.map(dir -> dir.resolve(INFO_FILE)).filter(Files::isRegularFile).toList()) {
+                backups.add(mapper.readValue(info.toFile(), BaseBackup.class));
+            }
+        }
+        backups.sort(Comparator.comparingLong(BaseBackup::finishedAt).reversed());
+        return backups;
+    }
+
+    /**
+     * Takes a base backup while the server keeps running.
+     *
+     * @param output receives progress lines
+     * @return {@code 0}, matching {@link BackupJobManager.Task}
+     * @throws Exception if the backup fails; no partial backup is left behind
+     */
+    public int baseBackup(Consumer<String> output) throws Exception {
+        String name = "base_" + NAME_FORMAT.format(Instant.now());
+        Path partial = baseDir.resolve("." + name);
+        Path target = baseDir.resolve(name);
+        Files.createDirectories(walDir);
+        Files.createDirectories(partial);
+
+        boolean finished = false;
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            requireArchiving(conn);
+            boolean legacy = conn.getMetaData().getDatabaseMajorVersion() < 15;
+            long startedAt = System.currentTimeMillis();
+            String startLsn;
+            try (PreparedStatement start = conn.prepareStatement(legacy
+                    ? "SELECT pg_start_backup(?, true, false)::text"
+                    : "SELECT pg_backup_start(?, true)::text")) {
+                start.setString(1, "prisonflow " + name);
+                try (ResultSet rs = start.executeQuery()) {
+                    rs.next();
+                    startLsn = rs.getString(1);
+                }
+            }
+            output.accept("Backup started at " + startLsn + ", copying " + dataDir);
+
+            long size;
+            String stopLsn;
+            String label;
+            String tablespaceMap;
+            try {
+                size = copyDataDirectory(partial.resolve("data"), output);
+            } finally {
+                // Always end the backup; the session would otherwise hold it open
+                try (ResultSet rs = stmt.executeQuery(legacy
+                        ? "SELECT lsn::text, labelfile, spcmapfile FROM pg_stop_backup(false, true)"
+                        : "SELECT lsn::text, labelfile, spcmapfile FROM pg_backup_stop(true)")) {
+                    rs.next();
+                    stopLsn = rs.getString(1);
+                    label = rs.getString(2);
+                    tablespaceMap = rs.getString(3);
+                }
+            }
+            Files.writeString(partial.resolve("data/backup_label"), label, StandardCharsets.UTF_8);
+            if (tablespaceMap != null && !tablespaceMap.isEmpty()) {
+                Files.writeString(partial.resolve("data/tablespace_map"), tablespaceMap, StandardCharsets.UTF_8);
+            }
+            output.accept("Backup stopped at " + stopLsn + ", WAL archived");
+
+            Matcher wal = START_WAL.matcher(label);
+            Matcher timeline = START_TIMELINE.matcher(label);
+            BaseBackup backup = new BaseBackup(name, startLsn, stopLsn, wal.find() ? wal.group(2) : null,
+                timeline.find() ? Integer.parseInt(timeline.group(1)) : 1, startedAt, System.currentTimeMillis(), size);
+            mapper.writerWithDefaultPrettyPrinter().writeValue(partial.resolve(INFO_FILE).toFile(), backup);
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+            logger.info("Base backup {} finished at {}", name, stopLsn);
+            output.accept(String.format("Base backup %s: %d bytes in %d ms", name, size, backup.finishedAt() - startedAt));
+            return 0;
+        } finally {
+            if (!finished) {
+                BackupFiles.delete(partial);
+            }
+        }
+    }
+
+    /**
+     * Prepares a data directory that recovers to {@code target}. The WAL
+     * segment in progress is archived first, so the target may be any
+     * moment up to now.
+     *
+     * @param target the moment to recover to
+     * @param output receives progress lines, ending with what to do next
+     * @return {@code 0}, matching {@link BackupJobManager.Task}
+     * @throws IllegalArgumentException if no base backup finished before {@code target}
+     * @throws Exception if the recovery can't be prepared
+     */
+    public int prepareRecovery(Instant target, Consumer<String> output) throws Exception {
+        BaseBackup base = chooseBaseBackup(listBaseBackups(), target);
+        if (base == null) {
+            throw new IllegalArgumentException("No base backup finished before " + target);
+        }
+        switchWal(output);
+
+        String name = "recovery_" + NAME_FORMAT.format(target);
+        Path partial = recoveryDir.resolve("." + name);
+        Path prepared = recoveryDir.resolve(name);
+        BackupFiles.delete(partial);
+        BackupFiles.delete(prepared);
+        Files.createDirectories(partial);
+
+        boolean finished = false;
+        try {
+            Path data = partial.resolve("data");
+            output.accept("Copying base backup " + base.name());
+            copyTree(baseDir.resolve(base.name()).resolve("data"), data);
+            Files.createFile(data.resolve("recovery.signal"));
+            Files.writeString(data.resolve("postgresql.auto.conf"), recoveryConf(serverWalArchive, target),
+                StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            Files.move(partial, prepared, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        } finally {
+            if (!finished) {
+                BackupFiles.delete(partial);
+            }
+        }
+
+        output.accept("Recovery prepared in " + prepared.resolve("data"));
+        output.accept("Stop the database, replace its data directory with that one and start it:");
+        output.accept("it replays the archived WAL from " + base.startWalFile() + " up to "
+            + PG_TIMESTAMP.format(target) + " and then opens for writes on a new timeline.");
+        return 0;
+    }
+
+    /**
+     * Returns the newest base backup a recovery to {@code target} can start
+     * from: it must have finished, and so be consistent, before the target.
+     *
+     * @param backups the base backups
+     * @param target the recovery target
+     * @return the base backup, or null if there is none
+     */
+    public static BaseBackup chooseBaseBackup(List<BaseBackup> backups, Instant target) {
+        return backups.stream()
+            .filter(backup -> backup.finishedAt() <= target.toEpochMilli())
+            .max(Comparator.comparingLong(BaseBackup::finishedAt))
+            .orElse(null);
+    }
+
+    /**
+     * Returns the settings appended to {@code postgresql.auto.conf} of a
+     * recovery; later lines override earlier ones.
+     *
+     * @param walArchive the WAL archive, as the server sees it
+     * @param target the recovery target
+     * @return the settings
+     */
+    public static String recoveryConf(String walArchive, Instant target) {
+        return "\n# Point-in-time recovery prepared by the backend\n"
+            + "restore_command = 'cp " + walArchive.replace("'", "''") + "/%f %p'\n"
+            + "recovery_target_time = '" + PG_TIMESTAMP.format(target) + "'\n"
+            + "recovery_target_action = 'promote'\n";
+    }
+
+    /**
+     * Closes the WAL segment in progress and waits until the archiver has
+     * stored it.
+     */
+    private void switchWal(Consumer<String> output) throws SQLException, InterruptedException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            requireArchiving(conn);
+            String segment;
+            try (ResultSet rs = stmt.executeQuery("SELECT pg_walfile_name(pg_switch_wal())")) {
+                rs.next();
+                segment = rs.getString(1);
+            }
+            long deadline = System.currentTimeMillis() + 60_000;
+            while (System.currentTimeMillis() < deadline) {
+                try (ResultSet rs = stmt.executeQuery("SELECT last_archived_wal FROM pg_stat_archiver")) {
+                    rs.next();
+                    String archived = rs.getString(1);
+                    // Segment names sort in WAL order within a timeline
+                    if (archived != null && archived.compareTo(segment) >= 0) {
+                        output.accept("Archived WAL up to " + archived);
+                        return;
+                    }
+                }
+                Thread.sleep(500);
+            }
+            throw new SQLException("WAL segment " + segment + " was not archived within a minute, check archive_command");
+        }
+    }
+
+    private void requireArchiving(Connection conn) throws SQLException {
+        Map<String, String> settings = new LinkedHashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT name, setting FROM pg_settings WHERE name IN ('wal_level', 'archive_mode')")) {
+            while (rs.next()) {
+                settings.put(rs.getString(1), rs.getString(2));
+            }
+        }
+        if (!isArchiving(settings)) {
+            throw new IllegalStateException("WAL archiving is off: the server needs wal_level = replica and "
+                + "archive_mode = on, found " + settings);
+        }
+    }
+
+    private static boolean isArchiving(Map<String, String> settings) {
+        return !"minimal".equals(settings.get("wal_level")) && !"off".equals(settings.get("archive_mode"))
+            && settings.get("archive_mode") != null;
+    }
+
+    private List<Path> walSegments() throws IOException {
+        if (!Files.isDirectory(walDir)) {
+            return List.of();
+        }
+        try (Stream<Path> entries = Files.list(walDir)) {
+            return entries.filter(Files::isRegularFile).sorted().toList();
+        }
+    }
+
+    /**
+     * Copies the data directory, leaving out what the server recreates.
+     * Files may change or disappear while they are copied; WAL replay
+     * repairs the former, the latter are not needed.
+     */
+    private long copyDataDirectory(Path target, Consumer<String> output) throws IOException {
+        AtomicLong bytes = new AtomicLong();
+        AtomicLong files = new AtomicLong();
+        Files.walkFileTree(dataDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                Path relative = dataDir.relativize(dir);
+                Files.createDirectories(target.resolve(relative.toString()));
+                if (relative.getNameCount() == 1 && EMPTIED_DIRECTORIES.contains(relative.toString())) {
+                    if (relative.toString().equals("pg_wal")) {
+                        Files.createDirectories(target.resolve("pg_wal/archive_status"));
+                    }
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return dir.getFileName().toString().startsWith("pgsql_tmp")
+                    ? FileVisitResult.SKIP_SUBTREE
+                    : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Path relative = dataDir.relativize(file);
+                String name = file.getFileName().toString();
+                if ((relative.getNameCount() == 1 && SKIPPED_FILES.contains(name))
+                        || name.startsWith("pgsql_tmp") || name.equals("pg_internal.init")) {
+                    return FileVisitResult.CONTINUE;
+                }
+                try {
+                    Files.copy(file, target.resolve(relative.toString()));
+                    bytes.addAndGet(Files.size(target.resolve(relative.toString())));
+                    if (files.incrementAndGet() % 1000 == 0) {
+                        output.accept("Copied " + files.get() + " files, " + bytes.get() + " bytes");
+                    }
+                } catch (NoSuchFileException e) {
+                    // Dropped while we were copying
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (e instanceof NoSuchFileException) {
+                    return FileVisitResult.CONTINUE;
+                }
+                throw e;
+            }
+        });
+        output.accept("Copied " + files.get() + " files, " + bytes.get() + " bytes");
+        return bytes.get();
+    }
+
+    private static void copyTree(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.copy(file, target.resolve(source.relativize(file).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
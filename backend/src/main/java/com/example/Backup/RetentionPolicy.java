@@ -0,0 +1,258 @@
+package com.example.Backup;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@code RetentionPolicy} class decides which backups to keep, in
+ * tiers: for example the newest backup of every hour for a day, of every
+ * day for a month and of every month for a year.
+ *
+ * <p>A policy is written as comma-separated rules, as in
+ * {@code BACKUP_RETENTION}:
+ * <pre>
+ * last=3,hourly=24h,daily=30d,weekly=8w,monthly=1y
+ * </pre>
+ * {@code last=N} keeps the {@code N} newest backups whatever their age.
+ * The tiers {@code hourly}, {@code daily}, {@code weekly} and
+ * {@code monthly} take how long they reach back, in hours ({@code h}),
+ * days ({@code d}), weeks ({@code w}) or years ({@code y}); within that
+ * window the newest backup of each period (in UTC, weeks starting on
+ * Monday) is kept. A backup no rule keeps is deleted.
+ *
+ * <p>A backup whose checksum no longer matches never fills a slot, so a
+ * good backup of the same period is kept instead; backups of an
+ * unrecognized format are left alone.
+ */
+public class RetentionPolicy {
+
+    /** The policy used when none is configured. */
+    public static final String DEFAULT_SPEC = "last=3,hourly=24h,daily=30d,monthly=1y";
+
+    /**
+     * A retention tier.
+     *
+     * @param name the rule name, reported as the reason a backup is kept
+     * @param unit the period a backup is kept for
+     * @param window how far back the tier reaches
+     */
+    public record Tier(String name, ChronoUnit unit, Duration window) {}
+
+    /**
+     * What the policy decided about one backup.
+     *
+     * @param name the backup name
+     * @param createdAt epoch millis the backup was created
+     * @param reason the rules that keep it, or why it is deleted
+     */
+    public record Decision(String name, long createdAt, String reason) {}
+
+    /**
+     * The decisions about a list of backups.
+     *
+     * @param keep the backups kept, newest first
+     * @param delete the backups to delete, oldest first
+     */
+    public record Plan(List<Decision> keep, List<Decision> delete) {
+
+        /**
+         * Returns the plan as a JSON-friendly map.
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("keep", keep);
+            map.put("delete", delete);
+            return map;
+        }
+    }
+
+    private final String spec;
+    private final int keepLast;
+    private final List<Tier> tiers;
+
+    private RetentionPolicy(String spec, int keepLast, List<Tier> tiers) {
+        this.spec = spec;
+        this.keepLast = keepLast;
+        this.tiers = tiers;
+    }
+
+    /**
+     * Parses a policy.
+     *
+     * @param spec the rules, such as {@value #DEFAULT_SPEC}
+     * @return the policy
+     * @throws IllegalArgumentException if a rule is not understood
+     */
+    public static RetentionPolicy parse(String spec) {
+        int keepLast = 0;
+        List<Tier> tiers = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String rule : spec.split(",")) {
+            rule = rule.trim();
+            if (rule.isEmpty()) {
+                continue;
+            }
+            int equals = rule.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Retention rule must be name=value: " + rule);
+            }
+            String name = rule.substring(0, equals).trim().toLowerCase();
+            String value = rule.substring(equals + 1).trim();
+            if (!seen.add(name)) {
+                throw new IllegalArgumentException("Retention rule given twice: " + name);
+            }
+            switch (name) {
+                case "last" -> keepLast = count(value);
+                case "hourly" -> tiers.add(new Tier(name, ChronoUnit.HOURS, window(value)));
+                case "daily" -> tiers.add(new Tier(name, ChronoUnit.DAYS, window(value)));
+                case "weekly" -> tiers.add(new Tier(name, ChronoUnit.WEEKS, window(value)));
+                case "monthly" -> tiers.add(new Tier(name, ChronoUnit.MONTHS, window(value)));
+                default -> throw new IllegalArgumentException(
+                    "Unknown retention rule " + name + ", expected last, hourly, daily, weekly or monthly");
+            }
+        }
+        if (keepLast == 0 && tiers.isEmpty()) {
+            throw new IllegalArgumentException("Retention policy keeps nothing: " + spec);
+        }
+        return new RetentionPolicy(spec.trim(), keepLast, List.copyOf(tiers));
+    }
+
+    /**
+     * Returns the policy in {@code BACKUP_RETENTION}, or the
+     * {@link #DEFAULT_SPEC default} when unset.
+     *
+     * @return the policy
+     */
+    public static RetentionPolicy fromEnv() {
+        String spec = System.getenv("BACKUP_RETENTION");
+        return parse(spec != null && !spec.isBlank() ? spec : DEFAULT_SPEC);
+    }
+
+    public String getSpec() {
+        return spec;
+    }
+
+    public int getKeepLast() {
+        return keepLast;
+    }
+
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * Decides which backups to keep.
+     *
+     * @param backups the backups, in any order
+     * @param now the time the tiers reach back from
+     * @return the plan
+     */
+    public Plan apply(List<BackupCatalog.Entry> backups, Instant now) {
+        List<BackupCatalog.Entry> candidates = backups.stream()
+            .filter(entry -> entry.format() != null)
+            .sorted(Comparator.comparingLong(BackupCatalog.Entry::createdAt).reversed())
+            .toList();
+        Map<String, List<String>> reasons = new LinkedHashMap<>();
+
+        int kept = 0;
+        for (BackupCatalog.Entry entry : candidates) {
+            if (kept == keepLast) {
+                break;
+            }
+            if (entry.integrity() != BackupCatalog.Integrity.CORRUPTED) {
+                reasons.computeIfAbsent(entry.name(), name -> new ArrayList<>()).add("last");
+                kept++;
+            }
+        }
+
+        for (Tier tier : tiers) {
+            Instant oldest = now.minus(tier.window());
+            Set<Instant> filled = new HashSet<>();
+            for (BackupCatalog.Entry entry : candidates) {
+                Instant createdAt = Instant.ofEpochMilli(entry.createdAt());
+                if (createdAt.isBefore(oldest)) {
+                    break;
+                }
+                if (entry.integrity() != BackupCatalog.Integrity.CORRUPTED
+                        && filled.add(periodStart(createdAt, tier.unit()))) {
+                    reasons.computeIfAbsent(entry.name(), name -> new ArrayList<>()).add(tier.name());
+                }
+            }
+        }
+
+        List<Decision> keep = new ArrayList<>();
+        List<Decision> delete = new ArrayList<>();
+        for (BackupCatalog.Entry entry : candidates) {
+            List<String> rules = reasons.get(entry.name());
+            if (rules != null) {
+                keep.add(new Decision(entry.name(), entry.createdAt(), String.join(",", rules)));
+            } else {
+                delete.add(new Decision(entry.name(), entry.createdAt(),
+                    entry.integrity() == BackupCatalog.Integrity.CORRUPTED ? "corrupted" : "expired"));
+            }
+        }
+        return new Plan(keep, delete.reversed());
+    }
+
+    /**
+     * Returns the start of the UTC period an instant falls in.
+     */
+    static Instant periodStart(Instant instant, ChronoUnit unit) {
+        ZonedDateTime time = instant.atZone(ZoneOffset.UTC);
+        return switch (unit) {
+            case HOURS -> time.truncatedTo(ChronoUnit.HOURS).toInstant();
+            case DAYS -> time.truncatedTo(ChronoUnit.DAYS).toInstant();
+            case WEEKS -> time.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                .atStartOfDay(ZoneOffset.UTC).toInstant();
+            case MONTHS -> LocalDate.of(time.getYear(), time.getMonth(), 1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            default -> throw new IllegalArgumentException("Unsupported retention period " + unit);
+        };
+    }
+
+    private static int count(String value) {
+        try {
+            int count = Integer.parseInt(value);
+            if (count < 0) {
+                throw new IllegalArgumentException("Retention count must not be negative: " + value);
+            }
+            return count;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Retention count must be a number: " + value);
+        }
+    }
+
+    private static Duration window(String value) {
+        long amount;
+        try {
+            amount = Long.parseUnsignedLong(value.substring(0, Math.max(0, value.length() - 1)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Retention window must be a number and h, d, w or y: " + value);
+        }
+        return switch (value.charAt(value.length() - 1)) {
+            case 'h' -> Duration.ofHours(amount);
+            case 'd' -> Duration.ofDays(amount);
+            case 'w' -> Duration.ofDays(7 * amount);
+            case 'y' -> Duration.ofDays(365 * amount);
+            default -> throw new IllegalArgumentException(
+                "Retention window must be a number and h, d, w or y: " + value);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
@@ -0,0 +1,440 @@
+package com.example.Backup;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.postgresql.ds.PGSimpleDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Cache.DashboardSnapshotCache;
+import com.example.Cache.PrisonCache;
+import com.example.Cache.TableVersions;
+import com.example.Config.DatabaseConfig;
+import com.example.Dashboard.DashboardStream;
+
+/**
+ * The {@code StagingRestore} class restores a {@link CopyBackupEngine}
+ * archive without taking the live schema away from readers.
+ *
+ * <p>A restore runs in four steps:
+ * <ol>
+ *   <li>The live schema's tables, serial sequences, functions and views are
+ *       cloned, empty, into {@code <schema>_staging}, and the archive is
+ *       loaded there. The live schema is only read.</li>
+ *   <li>Foreign keys and triggers are added once the data is in, so the
+ *       load fires no triggers and the keys validate the restored data.
+ *       Every table's row count must match the manifest, then the tables
+ *       are analyzed so the planner has statistics right after the swap.</li>
+ *   <li>One transaction renames the live schema to
+ *       {@code <schema>_previous} and the staging schema to the live name.
+ *       Renaming touches only the schema row, so it commits at once; every
+ *       statement planned afterwards resolves to the restored tables. The
+ *       same transaction empties the swapped-in change log and moves its
+ *       horizon, so change feed cursors of before the swap expire.</li>
+ *   <li>The previous schema stays for {@code BACKUP_PREVIOUS_SCHEMA_MINUTES}
+ *       (default 60) so {@link #rollback()} can swap it back, then it is
+ *       dropped.</li>
+ * </ol>
+ *
+ * <p>Writes made to the live schema during the restore are lost with it,
+ * as with any restore. Grants, comments and policies are not cloned; the
+ * restored schema and its objects belong to the restoring user.
+ */
+public class StagingRestore {
+    private static final Logger logger = LoggerFactory.getLogger(StagingRestore.class);
+    private static StagingRestore instance;
+
+    private final DataSource dataSource;
+    private final String schema;
+    private final String stagingSchema;
+    private final String previousSchema;
+    private final long keepPreviousMillis;
+    private final Runnable afterSwap;
+    private final ScheduledExecutorService cleaner;
+    private final AtomicLong swaps = new AtomicLong();
+
+    /**
+     * Creates a restore with explicit settings.
+     *
+     * @param dataSource source of the connections, one per parallel job plus one
+     * @param schema the live schema
+     * @param keepPreviousMillis how long the replaced schema is kept for rollback
+     * @param afterSwap run after every swap, to drop cached data
+     */
+    public StagingRestore(DataSource dataSource, String schema, long keepPreviousMillis, Runnable afterSwap) {
+        this.dataSource = dataSource;
+        this.schema = schema;
+        this.stagingSchema = schema + "_staging";
+        this.previousSchema = schema + "_previous";
+        this.keepPreviousMillis = keepPreviousMillis;
+        this.afterSwap = afterSwap;
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "previous-schema-cleaner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the restore of the application's {@code public} schema. Like
+     * {@link CopyBackupEngine#fromDatabaseConfig()} it opens its own
+     * connections.
+     *
+     * @return the shared {@link StagingRestore}
+     */
+    public static synchronized StagingRestore getInstance() {
+        if (instance == null) {
+            PGSimpleDataSource pg = new PGSimpleDataSource();
+            pg.setURL(DatabaseConfig.getJdbcUrl());
+            pg.setUser(DatabaseConfig.getUser());
+            pg.setPassword(DatabaseConfig.getPassword());
+            pg.setApplicationName("prisonflow-restore");
+            long minutes = Long.parseLong(System.getenv().getOrDefault("BACKUP_PREVIOUS_SCHEMA_MINUTES", "60"));
+            instance = new StagingRestore(pg, "public", TimeUnit.MINUTES.toMillis(minutes), () -> {
+                // Every table was replaced: drop cached rows, change every tag, reread the dashboard
+                PrisonCache.getInstance().invalidateAll();
+                TableVersions.getInstance().bumpAll();
+                DashboardSnapshotCache.getInstance().invalidate();
+                DashboardStream.getInstance().resync();
+            });
+        }
+        return instance;
+    }
+
+    public String getPreviousSchema() {
+        return previousSchema;
+    }
+
+    /**
+     * Loads an archive into the staging schema and swaps it in.
+     *
+     * @param source the archive
+     * @param jobs tables loaded at the same time
+     * @param output receives progress lines
+     * @return {@code 0}, matching {@link BackupJobManager.Task}
+     * @throws Exception if the restore fails; the live schema is then untouched
+     */
+    public int restore(Path source, int jobs, Consumer<String> output) throws Exception {
+        long start = System.nanoTime();
+        CopyBackupEngine.Manifest manifest = CopyBackupEngine.readManifest(source);
+        boolean swapped = false;
+        try {
+            Clone clone = prepareStaging(output);
+            new CopyBackupEngine(dataSource, stagingSchema).loadAll(source, jobs, output);
+            finishStaging(clone, manifest, output);
+            swap(output);
+            swapped = true;
+        } finally {
+            if (!swapped) {
+                dropSchema(stagingSchema);
+            }
+        }
+        output.accept(String.format("Staged restore finished in %d ms, previous data kept in %s",
+            (System.nanoTime() - start) / 1_000_000, previousSchema));
+        return 0;
+    }
+
+    /**
+     * Swaps the previous schema back in. Calling it again undoes the
+     * rollback.
+     *
+     * @return whether there was a previous schema
+     * @throws SQLException if the swap fails
+     */
+    public boolean rollback() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            if (!schemaExists(conn, previousSchema)) {
+                return false;
+            }
+            dropSchema(conn, stagingSchema);
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET LOCAL lock_timeout = '5s'");
+                stmt.execute("ALTER SCHEMA " + quote(schema) + " RENAME TO " + quote(stagingSchema));
+                stmt.execute("ALTER SCHEMA " + quote(previousSchema) + " RENAME TO " + quote(schema));
+                stmt.execute("ALTER SCHEMA " + quote(stagingSchema) + " RENAME TO " + quote(previousSchema));
+                new CopyBackupEngine(dataSource, schema).expireChangeFeed(conn, logger::info);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        logger.warn("Rolled {} back to the schema it replaced", schema);
+        afterSwap();
+        return true;
+    }
+
+    /**
+     * The structure that is added to the staging schema after the load.
+     */
+    private record Clone(List<String> tables, List<String> foreignKeys, List<String> triggers,
+                         List<String> materializedViews) {}
+
+    private Clone prepareStaging(Consumer<String> output) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            dropSchema(conn, stagingSchema);
+            stmt.execute("CREATE SCHEMA " + quote(stagingSchema));
+
+            List<String> tables = strings(conn, schema, """
+                SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ? AND c.relkind = 'r' AND NOT c.relispartition
+                ORDER BY c.relname
+                """);
+            for (String table : tables) {
+                stmt.execute("CREATE TABLE " + staging(table) + " (LIKE " + live(table) + " INCLUDING ALL)");
+            }
+            int sequences = cloneSerialSequences(conn);
+
+            // Definitions are printed while only the live schema is on the path,
+            // so its names come out unqualified and resolve to the staging copies
+            stmt.execute("SET search_path TO " + quote(schema));
+            List<String> functions = strings(conn, schema, """
+                SELECT pg_get_functiondef(p.oid) FROM pg_proc p JOIN pg_namespace n ON n.oid = p.pronamespace
+                WHERE n.nspname = ? AND p.prokind IN ('f', 'p')
+                  AND NOT EXISTS (SELECT 1 FROM pg_depend d WHERE d.objid = p.oid AND d.deptype = 'e')
+                ORDER BY p.oid
+                """);
+            List<String> views = strings(conn, schema, """
+                SELECT 'CREATE VIEW ' || quote_ident(c.relname) || ' AS ' || pg_get_viewdef(c.oid)
+                FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ? AND c.relkind = 'v'
+                ORDER BY c.oid
+                """);
+            List<String> materializedViews = strings(conn, schema, """
+                SELECT 'CREATE MATERIALIZED VIEW ' || quote_ident(c.relname) || ' AS '
+                    || pg_get_viewdef(c.oid)
+                FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ? AND c.relkind = 'm'
+                ORDER BY c.oid
+                """);
+            List<String> foreignKeys = strings(conn, schema, """
+                SELECT 'ALTER TABLE ' || quote_ident(t.relname) || ' ADD CONSTRAINT ' || quote_ident(c.conname)
+                    || ' ' || pg_get_constraintdef(c.oid)
+                FROM pg_constraint c JOIN pg_class t ON t.oid = c.conrelid
+                JOIN pg_namespace n ON n.oid = t.relnamespace
+                WHERE n.nspname = ? AND c.contype = 'f' AND t.relkind = 'r'
+                ORDER BY t.relname, c.conname
+                """);
+            List<String> triggers = strings(conn, schema, """
+                SELECT pg_get_triggerdef(t.oid, true) FROM pg_trigger t JOIN pg_class c ON c.oid = t.tgrelid
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = ? AND NOT t.tgisinternal
+                ORDER BY c.relname, t.tgname
+                """);
+
+            // pg_get_functiondef always qualifies the function name, the way quote_ident quotes it
+            String liveName = strings(conn, schema, "SELECT quote_ident(?)").get(0);
+            String stagingName = strings(conn, stagingSchema, "SELECT quote_ident(?)").get(0);
+            stmt.execute("SET search_path TO " + quote(stagingSchema));
+            for (String function : functions) {
+                stmt.execute(function.replaceFirst("(FUNCTION|PROCEDURE) " + Pattern.quote(liveName + "."),
+                    "$1 " + Matcher.quoteReplacement(stagingName + ".")));
+            }
+            for (String view : views) {
+                stmt.execute(view);
+            }
+            stmt.execute("RESET search_path");
+
+            output.accept(String.format("Cloned %d tables, %d sequences, %d functions and %d views of %s into %s",
+                tables.size(), sequences, functions.size(), views.size() + materializedViews.size(), schema,
+                stagingSchema));
+            return new Clone(tables, foreignKeys, triggers, materializedViews);
+        }
+    }
+
+    /**
+     * Gives every serial column of the staging tables a sequence of its
+     * own; {@code LIKE} copies the default, which still points at the live
+     * sequence. Identity columns get new sequences from {@code LIKE}.
+     */
+    private int cloneSerialSequences(Connection conn) throws SQLException {
+        String sql = """
+            SELECT t.relname AS table_name, a.attname AS column_name, s.relname AS sequence_name,
+                   format_type(q.seqtypid, NULL) AS sequence_type
+            FROM pg_depend d
+            JOIN pg_class s ON s.oid = d.objid AND s.relkind = 'S'
+            JOIN pg_sequence q ON q.seqrelid = s.oid
+            JOIN pg_class t ON t.oid = d.refobjid
+            JOIN pg_namespace n ON n.oid = t.relnamespace
+            JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = d.refobjsubid
+            WHERE d.classid = 'pg_class'::regclass AND d.refclassid = 'pg_class'::regclass
+              AND d.deptype = 'a' AND n.nspname = ? AND t.relkind = 'r'
+            """;
+        List<String> statements = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, schema);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String column = staging(rs.getString("table_name")) + "." + quote(rs.getString("column_name"));
+                    String sequence = staging(rs.getString("sequence_name"));
+                    statements.add("CREATE SEQUENCE " + sequence + " AS " + rs.getString("sequence_type")
+                        + " OWNED BY " + column);
+                    statements.add("ALTER TABLE " + staging(rs.getString("table_name")) + " ALTER COLUMN "
+                        + quote(rs.getString("column_name")) + " SET DEFAULT nextval('"
+                        + sequence.replace("'", "''") + "'::regclass)");
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (String statement : statements) {
+                stmt.execute(statement);
+            }
+        }
+        return statements.size() / 2;
+    }
+
+    private void finishStaging(Clone clone, CopyBackupEngine.Manifest manifest, Consumer<String> output)
+            throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            // Like an in-place restore, leave tables the backup doesn't have as they are
+            Set<String> archived = manifest.tables().stream()
+                .map(CopyBackupEngine.TableEntry::name)
+                .collect(Collectors.toSet());
+            Set<String> carried = clone.tables().stream()
+                .filter(table -> !archived.contains(table))
+                .collect(Collectors.toSet());
+            for (String table : carried) {
+                String columns = String.join(", ", strings(conn, live(table), """
+                    SELECT quote_ident(attname) FROM pg_attribute
+                    WHERE attrelid = ?::regclass AND attnum > 0 AND NOT attisdropped AND attgenerated = ''
+                    ORDER BY attnum
+                    """));
+                stmt.execute("INSERT INTO " + staging(table) + " (" + columns + ") OVERRIDING SYSTEM VALUE SELECT "
+                    + columns + " FROM " + live(table));
+            }
+            if (!carried.isEmpty()) {
+                new CopyBackupEngine(dataSource, stagingSchema).resetSequences(carried, output);
+                output.accept("Kept the current rows of " + carried.size() + " tables the backup doesn't have");
+            }
+
+            for (CopyBackupEngine.TableEntry table : manifest.tables()) {
+                try (ResultSet rs = stmt.executeQuery("SELECT count(*) FROM " + staging(table.name()))) {
+                    rs.next();
+                    if (rs.getLong(1) != table.rows()) {
+                        throw new SQLException(String.format("%s has %d rows, the backup has %d",
+                            table.name(), rs.getLong(1), table.rows()));
+                    }
+                }
+            }
+            output.accept("Row counts of " + manifest.tables().size() + " tables match the backup");
+
+            stmt.execute("SET search_path TO " + quote(stagingSchema));
+            for (String foreignKey : clone.foreignKeys()) {
+                stmt.execute(foreignKey);
+            }
+            for (String view : clone.materializedViews()) {
+                stmt.execute(view);
+            }
+            for (String trigger : clone.triggers()) {
+                stmt.execute(trigger);
+            }
+            stmt.execute("RESET search_path");
+            output.accept(String.format("Validated %d foreign keys, added %d triggers",
+                clone.foreignKeys().size(), clone.triggers().size()));
+
+            if (!clone.tables().isEmpty()) {
+                stmt.execute("ANALYZE " + String.join(", ", clone.tables().stream().map(this::staging).toList()));
+            }
+        }
+    }
+
+    private void swap(Consumer<String> output) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            dropSchema(conn, previousSchema);
+            conn.setAutoCommit(false);
+            long start = System.nanoTime();
+            try (Statement stmt = conn.createStatement()) {
+                // Don't queue behind a long DDL lock and stall every reader behind us
+                stmt.execute("SET LOCAL lock_timeout = '5s'");
+                stmt.execute("ALTER SCHEMA " + quote(schema) + " RENAME TO " + quote(previousSchema));
+                stmt.execute("ALTER SCHEMA " + quote(stagingSchema) + " RENAME TO " + quote(schema));
+                new CopyBackupEngine(dataSource, schema).expireChangeFeed(conn, output);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            output.accept(String.format("Swapped %s into %s in %d ms", stagingSchema, schema,
+                (System.nanoTime() - start) / 1_000_000));
+        }
+        afterSwap();
+    }
+
+    private void afterSwap() {
+        afterSwap.run();
+        long swap = swaps.incrementAndGet();
+        cleaner.schedule(() -> {
+            // A later swap or rollback owns the previous schema now
+            if (swaps.get() == swap) {
+                dropSchema(previousSchema);
+            }
+        }, keepPreviousMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<String> strings(Connection conn, String schema, String sql) throws SQLException {
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, schema);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString(1));
+                }
+            }
+        }
+        return names;
+    }
+
+    private static boolean schemaExists(Connection conn, String name) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM pg_namespace WHERE nspname = ?")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private void dropSchema(String name) {
+        try (Connection conn = dataSource.getConnection()) {
+            dropSchema(conn, name);
+        } catch (SQLException e) {
+            logger.warn("Couldn't drop schema {}: {}", name, e.getMessage());
+        }
+    }
+
+    private static void dropSchema(Connection conn, String name) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP SCHEMA IF EXISTS " + quote(name) + " CASCADE");
+        }
+    }
+
+    private String live(String name) {
+        return quote(schema) + "." + quote(name);
+    }
+
+    private String staging(String name) {
+        return quote(stagingSchema) + "." + quote(name);
+    }
+
+    private static String quote(String identifier) {
+        return CopyBackupEngine.quote(identifier);
+    }
+}
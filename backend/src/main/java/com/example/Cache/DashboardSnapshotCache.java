@@ -0,0 +1,272 @@
+package com.example.Cache;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code DashboardSnapshotCache} class holds the latest admin dashboard
+ * response so that many admins opening the dashboard at once cost one set
+ * of dashboard queries.
+ *
+ * <p>Requests are answered from the snapshot as follows:
+ * <ul>
+ *   <li>Read at the current version of the tables behind it, see
+ *       {@link TableVersions}: served as is, until it gets older than
+ *       {@code DASHBOARD_MAX_STALE_SECONDS}.</li>
+ *   <li>Younger than {@code DASHBOARD_STALE_MILLIS} (default 2000): served
+ *       as is, so a burst of writes costs at most one refresh per
+ *       interval.</li>
+ *   <li>Older, but younger than {@code DASHBOARD_MAX_STALE_SECONDS}
+ *       (default 60): served as is while one refresh runs in the
+ *       background (stale-while-revalidate).</li>
+ *   <li>Missing or older still: the request waits for a refresh.</li>
+ * </ul>
+ * At most one refresh runs at a time; every request that has to wait
+ * shares it (single-flight), so a burst of requests can't stampede the
+ * pool. A failed background refresh leaves the old snapshot in place; a
+ * failed refresh a request waits for fails that request, and so does one
+ * still running after {@code DASHBOARD_REFRESH_TIMEOUT_SECONDS} (default 30).
+ *
+ * <p>Hit, stale, wait and refresh counters are available through
+ * {@link #stats()}.
+ */
+public class DashboardSnapshotCache {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardSnapshotCache.class);
+    private static DashboardSnapshotCache instance;
+
+    private final long staleMillis;
+    private final long maxStaleMillis;
+    private final long waitMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Snapshot snapshot;
+    private CompletableFuture<Snapshot> refresh;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Loads a fresh dashboard response.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Map<String, Object> load() throws SQLException, InterruptedException;
+    }
+
+    /**
+     * A dashboard response and when it was read.
+     *
+     * @param body the response body
+     * @param loadedAt epoch millis the queries finished
+     * @param version the version of the tables read before the queries
+     *                ran, {@code null} if unknown
+     */
+    public record Snapshot(Map<String, Object> body, long loadedAt, String version) {
+
+        /**
+         * Returns how long ago the snapshot was read.
+         */
+        public long ageMillis() {
+            return Math.max(0, System.currentTimeMillis() - loadedAt);
+        }
+    }
+
+    /**
+     * Creates a cache with the given staleness bounds.
+     *
+     * @param staleMillis age after which a snapshot is refreshed in the background
+     * @param maxStaleMillis age after which a snapshot is no longer served
+     * @param waitMillis how long a request waits for a refresh
+     */
+    public DashboardSnapshotCache(long staleMillis, long maxStaleMillis, long waitMillis) {
+        this.staleMillis = staleMillis;
+        this.maxStaleMillis = Math.max(staleMillis, maxStaleMillis);
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Creates a cache configured from the environment.
+     */
+    public DashboardSnapshotCache() {
+        this(
+            Long.parseLong(System.getenv().getOrDefault("DASHBOARD_STALE_MILLIS", "2000")),
+            Long.parseLong(System.getenv().getOrDefault("DASHBOARD_MAX_STALE_SECONDS", "60")) * 1000,
+            Long.parseLong(System.getenv().getOrDefault("DASHBOARD_REFRESH_TIMEOUT_SECONDS", "30")) * 1000
+        );
+    }
+
+    /**
+     * Returns the process-wide cache shared by all controllers.
+     *
+     * @return the shared {@link DashboardSnapshotCache}
+     */
+    public static synchronized DashboardSnapshotCache getInstance() {
+        if (instance == null) {
+            instance = new DashboardSnapshotCache();
+            logger.info("Dashboard snapshot cache initialized");
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the current snapshot, refreshing it as described above.
+     *
+     * @param loader reads the dashboard from the database
+     * @return the snapshot
+     * @throws SQLException if the request had to wait for a refresh that failed
+     * @throws InterruptedException if interrupted while waiting for a refresh
+     */
+    public Snapshot get(Loader loader) throws SQLException, InterruptedException {
+        return get(loader, () -> null);
+    }
+
+    /**
+     * Returns the current snapshot, refreshing it as described above.
+     *
+     * @param loader reads the dashboard from the database
+     * @param version returns the current version of the tables behind the
+     *                dashboard, {@code null} if unknown
+     * @return the snapshot
+     * @throws SQLException if the request had to wait for a refresh that
+     *                      failed or didn't finish in time
+     * @throws InterruptedException if interrupted while waiting for a refresh
+     */
+    public Snapshot get(Loader loader, Supplier<String> version) throws SQLException, InterruptedException {
+        CompletableFuture<Snapshot> pending;
+        lock.lock();
+        try {
+            if (snapshot != null) {
+                long age = snapshot.ageMillis();
+                String current = version.get();
+                boolean unchanged = current != null && current.equals(snapshot.version());
+                if (age < staleMillis || (unchanged && age < maxStaleMillis)) {
+                    hits.increment();
+                    return snapshot;
+                }
+                if (age < maxStaleMillis) {
+                    staleHits.increment();
+                    refresh(loader, version);
+                    return snapshot;
+                }
+            }
+            waits.increment();
+            pending = refresh(loader, version);
+        } finally {
+            lock.unlock();
+        }
+
+        // Wait outside the lock; requests that arrive meanwhile join the same refresh
+        try {
+            return pending.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new SQLException("Timed out waiting for the dashboard refresh", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof InterruptedException) {
+                throw new SQLException("Dashboard refresh was interrupted", cause);
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Returns the refresh in flight, starting one if there is none. Must be
+     * called holding the lock.
+     */
+    private CompletableFuture<Snapshot> refresh(Loader loader, Supplier<String> version) {
+        if (refresh != null) {
+            return refresh;
+        }
+        CompletableFuture<Snapshot> started = new CompletableFuture<>();
+        refresh = started;
+        refreshes.increment();
+        Thread.ofVirtual().name("dashboard-refresh").start(() -> {
+            try {
+                // Read the version first, so a write racing with the queries makes the snapshot stale
+                String loadedVersion = version.get();
+                Snapshot loaded = new Snapshot(Map.copyOf(loader.load()), System.currentTimeMillis(), loadedVersion);
+                lock.lock();
+                try {
+                    // An invalidate() meanwhile dropped this refresh, its data may predate it
+                    if (refresh == started) {
+                        snapshot = loaded;
+                        refresh = null;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                started.complete(loaded);
+            } catch (Throwable e) {
+                // Whatever went wrong, the next request must be able to start a refresh again
+                failures.increment();
+                logger.warn("Dashboard refresh failed: ", e);
+                lock.lock();
+                try {
+                    if (refresh == started) {
+                        refresh = null;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                started.completeExceptionally(e);
+            }
+        });
+        return started;
+    }
+
+    /**
+     * Drops the snapshot and forgets the refresh in flight, so the next
+     * request reads the dashboard again. Call it when the data changed
+     * wholesale, such as after a restore.
+     */
+    public void invalidate() {
+        lock.lock();
+        try {
+            snapshot = null;
+            refresh = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the cache counters and the age of the current snapshot.
+     *
+     * @return a map of counter names to values
+     */
+    public Map<String, Object> stats() {
+        long age;
+        lock.lock();
+        try {
+            age = snapshot == null ? -1 : snapshot.ageMillis();
+        } finally {
+            lock.unlock();
+        }
+        return Map.of(
+            "hits", hits.sum(),
+            "staleHits", staleHits.sum(),
+            "waits", waits.sum(),
+            "refreshes", refreshes.sum(),
+            "failures", failures.sum(),
+            "snapshotAgeMs", age,
+            "staleMillis", staleMillis,
+            "maxStaleSeconds", maxStaleMillis / 1000
+        );
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.Cache;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Objects.Prison;
+
+/**
+ * The {@code PrisonCache} class is an in-process read-through cache for
+ * prison queries.
+ *
+ * <p>Prisons change rarely and mostly through {@code PrisonController}, so
+ * the read endpoints serve them from memory and the mutating handlers call
+ * {@link #invalidateAll()} once their statement has committed. Writes made
+ * elsewhere invalidate it too, through {@link TableVersions}.
+ *
+ * <p>The cache is bounded in two ways:
+ * <ul>
+ *   <li>At most {@code PRISON_CACHE_MAX_ENTRIES} query results (default 64),
+ *       evicting the least recently used one.</li>
+ *   <li>Every entry expires after {@code PRISON_CACHE_TTL_SECONDS} (default 60),
+ *       which also bounds staleness after outside writes while
+ *       {@link TableVersions} isn't listening.</li>
+ * </ul>
+ *
+ * <p>Hit, miss, eviction and invalidation counters are available through
+ * {@link #stats()}.
+ */
+public class PrisonCache {
+    private static final Logger logger = LoggerFactory.getLogger(PrisonCache.class);
+    private static PrisonCache instance;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Bumped on every invalidation. A load that started before an invalidation
+     * must not publish its (possibly stale) result afterwards.
+     */
+    private long generation;
+
+    /**
+     * Loads the value for a cache miss.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        List<Prison> load() throws SQLException;
+    }
+
+    private record Entry(List<Prison> prisons, long loadedAt) {}
+
+    /**
+     * Creates a cache with the given bounds.
+     *
+     * @param maxEntries maximum number of cached query results
+     * @param ttlMillis time after which an entry is reloaded
+     */
+    public PrisonCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > PrisonCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache configured from the environment.
+     */
+    public PrisonCache() {
+        this(
+            Integer.parseInt(System.getenv().getOrDefault("PRISON_CACHE_MAX_ENTRIES", "64")),
+            Long.parseLong(System.getenv().getOrDefault("PRISON_CACHE_TTL_SECONDS", "60")) * 1000
+        );
+    }
+
+    /**
+     * Returns the process-wide cache shared by all controllers.
+     *
+     * @return the shared {@link PrisonCache}
+     */
+    public static synchronized PrisonCache getInstance() {
+        if (instance == null) {
+            instance = new PrisonCache();
+            logger.info("Prison cache initialized");
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cached prisons for {@code key}, loading them on a miss.
+     *
+     * @param key identifies the query the prisons came from
+     * @param loader loads the prisons from the database on a miss
+     * @return an unmodifiable list of prisons
+     * @throws SQLException if the loader fails
+     */
+    public List<Prison> get(String key, Loader loader) throws SQLException {
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() - entry.loadedAt() < ttlMillis) {
+                    hits.increment();
+                    return entry.prisons();
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+            misses.increment();
+            startGeneration = generation;
+        }
+
+        // Load outside the lock so a slow query doesn't block other keys
+        List<Prison> prisons = List.copyOf(loader.load());
+
+        synchronized (this) {
+            if (generation == startGeneration) {
+                entries.put(key, new Entry(prisons, System.currentTimeMillis()));
+            }
+        }
+        return prisons;
+    }
+
+    /**
+     * Drops every cached entry. Called after a prison write has committed.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        invalidations.increment();
+    }
+
+    /**
+     * Returns the cache counters and current size.
+     *
+     * @return a map of counter names to values
+     */
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return Map.of(
+            "hits", hits.sum(),
+            "misses", misses.sum(),
+            "evictions", evictions.sum(),
+            "invalidations", invalidations.sum(),
+            "size", size,
+            "maxEntries", maxEntries,
+            "ttlSeconds", ttlMillis / 1000
+        );
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.Cache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Config.DatabaseConfig;
+
+/**
+ * The {@code TableVersions} class keeps a version number per table that
+ * changes whenever the table is written, so list endpoints can tag their
+ * responses and answer {@code If-None-Match} without querying.
+ *
+ * <p>Versions live in memory. The write handlers call {@link #bump(String)}
+ * once their statement has committed, so a client sees its own write on
+ * its next request. Writes made anywhere else reach the statement-level
+ * triggers of the {@code V3__table_change_notify} migration, which
+ * {@code NOTIFY table_changes} with the table name; one listener
+ * connection outside the pool bumps the version when the notification
+ * arrives.
+ *
+ * <p>Tags are only handed out while the listener is connected: without it
+ * an outside write could go unnoticed, so {@link #etag(String...)} returns
+ * {@code null} and responses are sent in full. After reconnecting every
+ * tag changes through {@link #bumpAll()}, since notifications sent
+ * meanwhile are lost; a restore calls it too. Tags also carry a random
+ * epoch, so they never repeat across restarts or between instances.
+ */
+public class TableVersions {
+    private static final Logger logger = LoggerFactory.getLogger(TableVersions.class);
+    private static TableVersions instance;
+
+    /** The channel the triggers notify. */
+    public static final String CHANNEL = "table_changes";
+
+    private static final long IDLE_CHECK_MILLIS = 30_000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final DataSource listenerSource;
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, List<Runnable>> changeListeners = new ConcurrentHashMap<>();
+
+    private volatile boolean tracking;
+    private volatile Thread listener;
+
+    /**
+     * Creates versions fed by the given listener connection. Call
+     * {@link #start()} to listen; until then no tags are handed out.
+     *
+     * @param listenerSource opens the listener connection, which stays open
+     */
+    public TableVersions(DataSource listenerSource) {
+        this.listenerSource = listenerSource;
+    }
+
+    /**
+     * Returns the versions of the application database. They are not
+     * started.
+     *
+     * @return the shared {@link TableVersions}
+     */
+    public static synchronized TableVersions getInstance() {
+        if (instance == null) {
+            PGSimpleDataSource listenerSource = new PGSimpleDataSource();
+            listenerSource.setURL(DatabaseConfig.getJdbcUrl());
+            listenerSource.setUser(DatabaseConfig.getUser());
+            listenerSource.setPassword(DatabaseConfig.getPassword());
+            listenerSource.setApplicationName("prisonflow-table-versions");
+            instance = new TableVersions(listenerSource);
+        }
+        return instance;
+    }
+
+    /**
+     * Starts listening for changes on a background thread.
+     */
+    public synchronized void start() {
+        if (listener != null) {
+            return;
+        }
+        listener = Thread.ofPlatform().name("table-versions-listener").daemon(true).start(this::listen);
+    }
+
+    /**
+     * Stops listening. No tags are handed out afterwards.
+     */
+    public synchronized void stop() {
+        tracking = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener = null;
+        }
+    }
+
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * Registers a callback run whenever a table changes, for caches that
+     * must drop what they hold of it.
+     *
+     * @param table the table name
+     * @param callback runs on the thread that saw the change
+     */
+    public void onChange(String table, Runnable callback) {
+        changeListeners.computeIfAbsent(table, name -> new CopyOnWriteArrayList<>()).add(callback);
+    }
+
+    /**
+     * Records that a table changed. Call it after the write has committed.
+     *
+     * <p>The callbacks run before the version changes, so a request that
+     * reads the new tag can't find rows a cache held from before the write.
+     *
+     * @param table the table name
+     */
+    public void bump(String table) {
+        runCallbacks(table);
+        versions.computeIfAbsent(table, name -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Records that every table may have changed, such as after a restore.
+     * Every change callback runs, then the tags of all tables change,
+     * including tables never bumped.
+     */
+    public void bumpAll() {
+        changeListeners.keySet().forEach(this::runCallbacks);
+        generation.incrementAndGet();
+    }
+
+    private void runCallbacks(String table) {
+        for (Runnable callback : changeListeners.getOrDefault(table, List.of())) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                logger.warn("Change callback for {} failed: ", table, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the version of a table.
+     *
+     * @param table the table name
+     * @return the version, {@code 0} until the table first changes
+     */
+    public long version(String table) {
+        AtomicLong version = versions.get(table);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * Returns an entity tag that changes whenever one of the tables does.
+     * Read it before running the query the response is built from, so a
+     * write racing with the query changes the tag of the next request.
+     *
+     * @param tables the tables the response is read from
+     * @return the quoted tag, or {@code null} while changes aren't tracked
+     */
+    public String etag(String... tables) {
+        if (!tracking) {
+            return null;
+        }
+        StringBuilder tag = new StringBuilder("\"").append(epoch).append('.').append(generation.get());
+        for (String table : tables) {
+            tag.append('-').append(version(table));
+        }
+        return tag.append('"').toString();
+    }
+
+    private void listen() {
+        long backoff = 1000;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection conn = listenerSource.getConnection()) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                // Anything may have changed while nobody was listening
+                bumpAll();
+                tracking = true;
+                backoff = 1000;
+                logger.info("Tracking table changes on {}", CHANNEL);
+                receive(conn);
+            } catch (SQLException e) {
+                tracking = false;
+                logger.warn("Table change listener lost its connection, retrying in {} ms: {}", backoff,
+                    e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+        tracking = false;
+    }
+
+    private void receive(Connection conn) throws SQLException {
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        while (!Thread.currentThread().isInterrupted()) {
+            PGNotification[] notifications = pg.getNotifications((int) IDLE_CHECK_MILLIS);
+            if (notifications == null || notifications.length == 0) {
+                if (!conn.isValid(5)) {
+                    throw new SQLException("Listener connection is no longer valid");
+                }
+                continue;
+            }
+            for (PGNotification notification : notifications) {
+                bump(notification.getParameter());
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.Changes;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+/**
+ * The {@code ChangeFeed} class reads the {@code change_log} kept by the
+ * triggers of the {@code V4__change_log} migration, so clients can sync
+ * the rows that changed since their last cursor.
+ *
+ * <p>A cursor is the position of an entry: the id of the transaction that
+ * wrote it, then its {@code change_id}. Only entries of transactions below
+ * the current snapshot's xmin are returned, which are all finished, so no
+ * entry can later commit behind a cursor that was already handed out. A
+ * long-running transaction therefore holds the feed back until it ends.
+ * A restore, in place or staged, empties the log and moves the horizon
+ * past every cursor, so clients that synced before it reload.
+ *
+ * <p>Cursors are opaque to clients. A client without one asks for the
+ * head first, loads the tables, then follows the feed from the head;
+ * entries hold the whole row after the change, so replaying one the
+ * client already has is harmless.
+ */
+public class ChangeFeed {
+    public static final int DEFAULT_LIMIT = 500;
+    public static final int MAX_LIMIT = 5000;
+
+    private static final String CURSOR_PREFIX = "tx:";
+
+    private static final String HEAD_SQL = """
+        SELECT pg_snapshot_xmin(pg_current_snapshot())::text AS xmin,
+            h.txid::text AS horizon_txid, h.change_id AS horizon_change_id
+        FROM %s.change_log_horizon h
+    """;
+
+    private static final String CHANGES_SQL = """
+        SELECT txid::text AS txid, change_id, table_name, op, row_id, row_data::text AS row_data, changed_at
+        FROM %s.change_log
+        WHERE (txid, change_id) > (?::xid8, ?) AND txid < ?::xid8
+        ORDER BY txid, change_id
+        LIMIT ?
+    """;
+
+    /**
+     * A position in the change log. Entries after it are the ones a client
+     * holding it hasn't seen.
+     *
+     * @param txid the id of the transaction that wrote the last entry seen
+     * @param changeId the id of the last entry seen within that transaction
+     */
+    public record Cursor(long txid, long changeId) implements Comparable<Cursor> {
+
+        @Override
+        public int compareTo(Cursor other) {
+            int byTxid = Long.compare(txid, other.txid);
+            return byTxid != 0 ? byTxid : Long.compare(changeId, other.changeId);
+        }
+
+        /**
+         * Encodes the cursor as an opaque token.
+         *
+         * @return the token
+         */
+        public String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + txid + ":" + changeId).getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Decodes a token produced by {@link #encode()}.
+         *
+         * @param token the token
+         * @return the cursor
+         * @throws IllegalArgumentException if the token is not a valid cursor
+         */
+        public static Cursor decode(String token) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = decoded.split(":");
+                if (parts.length != 3 || !decoded.startsWith(CURSOR_PREFIX)) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                Cursor cursor = new Cursor(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                if (cursor.txid() < 0 || cursor.changeId() < 0) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                return cursor;
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+
+    /**
+     * One change to one row, or a truncate of a whole table.
+     *
+     * @param table the table written
+     * @param op {@code upsert}, {@code delete} or {@code truncate}
+     * @param id the primary key of the row, {@code null} for a truncate
+     * @param row the row as JSON after an upsert, otherwise {@code null}
+     * @param changedAt when the writing transaction started, ISO-8601
+     */
+    public record Change(String table, String op, Integer id, @JsonRawValue String row, String changedAt) {}
+
+    /**
+     * A batch of changes and where the next one starts.
+     *
+     * @param changes the changes, oldest first
+     * @param cursor the cursor to ask for the next batch with
+     * @param hasMore whether more changes are ready right away
+     */
+    public record Page(List<Change> changes, String cursor, boolean hasMore) {}
+
+    /**
+     * Thrown when a cursor points before entries that were already pruned,
+     * so the client can't tell what it missed and has to reload.
+     */
+    public static class ExpiredCursorException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public ExpiredCursorException() {
+            super("Changes after this cursor were compacted, reload and follow the feed from the head");
+        }
+    }
+
+    private final DataSource dataSource;
+    private final String headSql;
+    private final String changesSql;
+
+    /**
+     * Creates a feed over the change log of a schema.
+     *
+     * @param dataSource the database holding the change log
+     * @param schema the schema of the change log
+     */
+    public ChangeFeed(DataSource dataSource, String schema) {
+        this.dataSource = dataSource;
+        String quoted = "\"" + schema.replace("\"", "\"\"") + "\"";
+        this.headSql = HEAD_SQL.formatted(quoted);
+        this.changesSql = CHANGES_SQL.formatted(quoted);
+    }
+
+    /**
+     * Creates a feed over the change log of the {@code public} schema.
+     *
+     * @param dataSource the database holding the change log
+     */
+    public ChangeFeed(DataSource dataSource) {
+        this(dataSource, "public");
+    }
+
+    /**
+     * Reads the changes after a cursor.
+     *
+     * <p>The horizon and the entries are read in one repeatable-read
+     * snapshot, so a compaction running meanwhile can't prune entries
+     * between the check and the read.
+     *
+     * @param since the cursor to read after, or {@code null} for just the head
+     * @param limit the most changes to return
+     * @return the changes and the next cursor
+     * @throws ExpiredCursorException if entries after the cursor were pruned
+     * @throws SQLException if the log can't be read
+     */
+    public Page read(Cursor since, int limit) throws SQLException, ExpiredCursorException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                Cursor head;
+                Cursor horizon;
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(headSql)) {
+                    if (!rs.next()) {
+                        throw new SQLException("change_log_horizon is empty");
+                    }
+                    Cursor xmin = new Cursor(Long.parseLong(rs.getString("xmin")), 0);
+                    horizon = new Cursor(Long.parseLong(rs.getString("horizon_txid")), rs.getLong("horizon_change_id"));
+                    // A restore moves the horizon past transactions that may still be running
+                    head = xmin.compareTo(horizon) < 0 ? horizon : xmin;
+                }
+
+                if (since == null) {
+                    return new Page(List.of(), head.encode(), false);
+                }
+                if (since.compareTo(horizon) < 0) {
+                    throw new ExpiredCursorException();
+                }
+
+                List<Change> changes = new ArrayList<>();
+                Cursor last = since;
+                boolean hasMore = false;
+                try (PreparedStatement stmt = conn.prepareStatement(changesSql)) {
+                    stmt.setString(1, Long.toString(since.txid()));
+                    stmt.setLong(2, since.changeId());
+                    stmt.setString(3, Long.toString(head.txid()));
+                    stmt.setInt(4, limit + 1);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            if (changes.size() == limit) {
+                                hasMore = true;
+                                break;
+                            }
+                            int rowId = rs.getInt("row_id");
+                            Integer id = rs.wasNull() ? null : rowId;
+                            changes.add(new Change(
+                                rs.getString("table_name"),
+                                rs.getString("op"),
+                                id,
+                                rs.getString("row_data"),
+                                rs.getTimestamp("changed_at").toInstant().toString()
+                            ));
+                            last = new Cursor(Long.parseLong(rs.getString("txid")), rs.getLong("change_id"));
+                        }
+                    }
+                }
+
+                // Past the last entry everything up to the head is known, so the client can skip ahead
+                Cursor next = hasMore ? last : head;
+                return new Page(changes, next.encode(), hasMore);
+            } finally {
+                // Read-only transaction, ending it just releases the snapshot
+                conn.rollback();
+                conn.setAutoCommit(true);
+                conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.Changes;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Config.DatabaseConfig;
+
+/**
+ * The {@code ChangeLogCompactor} class keeps the {@code change_log} read
+ * by {@link ChangeFeed} from growing with the write rate.
+ *
+ * <p>Every {@code CHANGE_LOG_COMPACT_MINUTES} (default 15, off when
+ * {@code 0}) it:
+ * <ol>
+ *   <li>deletes every entry a later entry of the same row superseded. Each
+ *       entry holds the whole row, so a client behind both only needs the
+ *       later one and this never changes what a cursor syncs to;</li>
+ *   <li>prunes entries older than {@code CHANGE_LOG_RETENTION_HOURS}
+ *       (default 24) and moves {@code change_log_horizon} to the newest one
+ *       pruned. Clients with an older cursor get a 410 and reload.</li>
+ * </ol>
+ * Only entries of finished transactions are touched, so the feed's view
+ * of them is final.
+ */
+public class ChangeLogCompactor {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogCompactor.class);
+    private static ChangeLogCompactor instance;
+
+    private static final String SUPERSEDED_SQL = """
+        DELETE FROM public.change_log c
+        WHERE c.row_id IS NOT NULL
+            AND c.txid < pg_snapshot_xmin(pg_current_snapshot())
+            AND EXISTS (
+                SELECT 1 FROM public.change_log n
+                WHERE n.table_name = c.table_name
+                    AND n.row_id = c.row_id
+                    AND (n.txid, n.change_id) > (c.txid, c.change_id)
+                    AND n.txid < pg_snapshot_xmin(pg_current_snapshot())
+            )
+    """;
+
+    private static final String EXPIRED_SQL = """
+        WITH pruned AS (
+            DELETE FROM public.change_log
+            WHERE changed_at < now() - make_interval(hours => ?)
+                AND txid < pg_snapshot_xmin(pg_current_snapshot())
+            RETURNING txid, change_id
+        ),
+        newest AS (
+            SELECT txid, change_id FROM pruned ORDER BY txid DESC, change_id DESC LIMIT 1
+        ),
+        moved AS (
+            UPDATE public.change_log_horizon h
+            SET txid = n.txid, change_id = n.change_id
+            FROM newest n
+            WHERE (n.txid, n.change_id) > (h.txid, h.change_id)
+        )
+        SELECT count(*) FROM pruned
+    """;
+
+    /**
+     * Entries removed by one run.
+     *
+     * @param superseded entries replaced by a later entry of the same row
+     * @param expired entries older than the retention
+     */
+    public record Result(int superseded, int expired) {}
+
+    private final DataSource dataSource;
+    private final long intervalMillis;
+    private final int retentionHours;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a compactor. Call {@link #start()} to run it on a schedule.
+     *
+     * @param dataSource the database holding the change log
+     * @param intervalMillis time between runs, {@code 0} for none
+     * @param retentionHours age after which entries are pruned
+     */
+    public ChangeLogCompactor(DataSource dataSource, long intervalMillis, int retentionHours) {
+        this.dataSource = dataSource;
+        this.intervalMillis = intervalMillis;
+        this.retentionHours = retentionHours;
+    }
+
+    /**
+     * Returns the compactor of the application database, configured from
+     * the environment. It is not started.
+     *
+     * @return the shared {@link ChangeLogCompactor}
+     */
+    public static synchronized ChangeLogCompactor getInstance() {
+        if (instance == null) {
+            instance = new ChangeLogCompactor(
+                DatabaseConfig.getDataSource(),
+                TimeUnit.MINUTES.toMillis(Long.parseLong(
+                    System.getenv().getOrDefault("CHANGE_LOG_COMPACT_MINUTES", "15"))),
+                Integer.parseInt(System.getenv().getOrDefault("CHANGE_LOG_RETENTION_HOURS", "24"))
+            );
+        }
+        return instance;
+    }
+
+    /**
+     * Starts compacting on a background thread, first right away.
+     */
+    public synchronized void start() {
+        if (scheduler != null || intervalMillis <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::compactQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background work.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Removes superseded and expired entries.
+     *
+     * @return the entries removed
+     * @throws SQLException if the log can't be compacted
+     */
+    public Result compact() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            int superseded;
+            try (Statement stmt = conn.createStatement()) {
+                superseded = stmt.executeUpdate(SUPERSEDED_SQL);
+            }
+            int expired;
+            try (PreparedStatement stmt = conn.prepareStatement(EXPIRED_SQL)) {
+                stmt.setInt(1, retentionHours);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    expired = rs.getInt(1);
+                }
+            }
+            return new Result(superseded, expired);
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            Result result = compact();
+            if (result.superseded() > 0 || result.expired() > 0) {
+                logger.info("Compacted change log: {} superseded, {} expired", result.superseded(),
+                    result.expired());
+            }
+        } catch (SQLException e) {
+            logger.error("Compacting the change log failed: ", e);
+        }
+    }
+}
@@ -2,6 +2,9 @@ package com.example.Config;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.example.Metrics.InstrumentedDataSource;
+import com.example.Metrics.PoolMetrics;
+import com.example.Metrics.SqlStats;
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
@@ -41,6 +44,7 @@ import java.sql.SQLException;
 public class DatabaseConfig {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseConfig.class);
     private static HikariDataSource dataSource;
+    private static DataSource instrumentedDataSource;
     
     /**
      * Initializes the HikariCP {@link HikariDataSource} with settings
@@ -50,18 +54,9 @@ public class DatabaseConfig {
         HikariConfig config = new HikariConfig();
         
         // Setting up connection to database
-        config.setJdbcUrl(System.getenv().getOrDefault(
-            "DB_URL", 
-            "jdbc:postgresql://localhost:5432/prisonflow"
-        ));
-        String dbUrl = System.getProperty("db.url", 
-                      System.getenv().getOrDefault("DB_URL", "jdbc:postgresql://localhost:5432/prisonflow"));
-        
-        String dbUser = System.getProperty("db.user", 
-                       System.getenv().getOrDefault("DB_USER", "postgres"));
-        
-        String dbPass = System.getProperty("db.password", 
-                       System.getenv().getOrDefault("DB_PASS", "postgres"));
+        String dbUrl = getJdbcUrl();
+        String dbUser = getUser();
+        String dbPass = getPassword();
 
         config.setJdbcUrl(dbUrl);
         config.setUsername(dbUser);
@@ -74,25 +69,71 @@ public class DatabaseConfig {
         config.setIdleTimeout(600000);        
         config.setMaxLifetime(1800000);       
         
+        // Pool statistics for /api/metrics
+        config.setMetricsTrackerFactory(PoolMetrics.getInstance());
+
         // Performance
         config.setAutoCommit(true);
         config.setConnectionTestQuery("SELECT 1");
         
         dataSource = new HikariDataSource(config);
         logger.info("DataSource initialized with pool size: " + config.getMaximumPoolSize());
+
+        // Statement timings and slow-query log, see SqlStats
+        if ("false".equalsIgnoreCase(System.getenv("SQL_INSTRUMENTATION"))) {
+            instrumentedDataSource = dataSource;
+        } else {
+            instrumentedDataSource = InstrumentedDataSource.wrap(dataSource, SqlStats.getInstance());
+        }
     }
     
+    /**
+     * Returns the JDBC URL: the {@code db.url} system property, else
+     * {@code DB_URL}.
+     *
+     * @return the JDBC URL of the application database
+     */
+    public static String getJdbcUrl() {
+        return System.getProperty("db.url",
+            System.getenv().getOrDefault("DB_URL", "jdbc:postgresql://localhost:5432/prisonflow"));
+    }
+
+    /**
+     * Returns the database user: the {@code db.user} system property, else
+     * {@code DB_USER}.
+     *
+     * @return the database user
+     */
+    public static String getUser() {
+        return System.getProperty("db.user", System.getenv().getOrDefault("DB_USER", "postgres"));
+    }
+
+    /**
+     * Returns the database password: the {@code db.password} system
+     * property, else {@code DB_PASS}.
+     *
+     * @return the database password
+     */
+    public static String getPassword() {
+        return System.getProperty("db.password", System.getenv().getOrDefault("DB_PASS", "postgres"));
+    }
+
     /**
      * Returns the shared {@link DataSource} instance.
      * Initializes it if not already created.
      *
+     * <p>Unless {@code SQL_INSTRUMENTATION=false}, the pool is wrapped in an
+     * {@link InstrumentedDataSource} that reports every statement to
+     * {@link SqlStats}. Use {@code unwrap(HikariDataSource.class)} to reach
+     * the pool itself.
+     *
      * @return the configured {@link DataSource}
      */
-    public static DataSource getDataSource() {
+    public static synchronized DataSource getDataSource() {
         if (dataSource == null) {
             initialize();
         }
-        return dataSource;
+        return instrumentedDataSource;
     }
     
     /**
@@ -0,0 +1,209 @@
+package com.example.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code SchemaMigrations} class applies the SQL scripts under
+ * {@code db/migration/} on the classpath that the database hasn't seen yet.
+ *
+ * <p>Scripts are named {@code V<version>__<description>.sql} and listed in
+ * {@link #SCRIPTS} in the order they run. Each one runs in its own
+ * transaction and is recorded in {@code schema_migrations}; a session
+ * advisory lock keeps two backends starting together from applying the
+ * same script twice. A recorded script whose checksum changed is reported
+ * but not run again, so scripts must never be edited once shipped.
+ *
+ * <p>Migrations run at startup unless {@code DB_MIGRATE=false}, for
+ * databases whose schema is managed elsewhere.
+ */
+public class SchemaMigrations {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    /** The migration scripts, oldest first. */
+    public static final List<String> SCRIPTS = List.of(
+        "V1__dashboard_notify.sql",
+        "V2__prison_occupancy_counters.sql",
+        "V3__table_change_notify.sql",
+        "V4__change_log.sql",
+        "V5__prison_dashboard_notify.sql"
+    );
+
+    private static final String LOCATION = "db/migration/";
+
+    /** Advisory lock key held while migrating, arbitrary but fixed. */
+    private static final long LOCK_KEY = 0x5052_4953_4f4eL;
+
+    private static final String CREATE_TABLE_SQL = """
+        CREATE TABLE IF NOT EXISTS schema_migrations (
+            version integer PRIMARY KEY,
+            description text NOT NULL,
+            checksum text NOT NULL,
+            applied_at timestamptz NOT NULL DEFAULT now()
+        )
+    """;
+
+    private final DataSource dataSource;
+    private final List<String> scripts;
+
+    /**
+     * Creates a migrator for the given scripts.
+     *
+     * @param dataSource the database to migrate
+     * @param scripts the script names under {@code db/migration/}, oldest first
+     */
+    public SchemaMigrations(DataSource dataSource, List<String> scripts) {
+        this.dataSource = dataSource;
+        this.scripts = scripts;
+    }
+
+    /**
+     * Creates a migrator for the application's {@link #SCRIPTS}.
+     *
+     * @param dataSource the database to migrate
+     */
+    public SchemaMigrations(DataSource dataSource) {
+        this(dataSource, SCRIPTS);
+    }
+
+    /**
+     * Migrates the application database at startup, unless
+     * {@code DB_MIGRATE=false}. A database that can't be reached is logged
+     * and left for the next start, so the rest of the API still comes up.
+     */
+    public static void migrateOnStartup() {
+        if ("false".equalsIgnoreCase(System.getenv("DB_MIGRATE"))) {
+            logger.info("Schema migrations disabled by DB_MIGRATE");
+            return;
+        }
+        try {
+            new SchemaMigrations(DatabaseConfig.getDataSource()).migrate();
+        } catch (SQLException | IOException e) {
+            logger.error("Schema migrations failed: ", e);
+        }
+    }
+
+    /**
+     * Applies the scripts not applied yet.
+     *
+     * @return the number of scripts applied
+     * @throws SQLException if a script fails; it is rolled back and the
+     *                      ones after it are not run
+     * @throws IOException if a script can't be read
+     */
+    public int migrate() throws SQLException, IOException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(true);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SELECT pg_advisory_lock(" + LOCK_KEY + ")");
+            }
+            try {
+                return applyPending(conn);
+            } finally {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                }
+            }
+        }
+    }
+
+    private int applyPending(Connection conn) throws SQLException, IOException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(CREATE_TABLE_SQL);
+        }
+
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+
+        int count = 0;
+        for (String script : scripts) {
+            int version = version(script);
+            String sql = read(script);
+            String checksum = checksum(sql);
+
+            if (applied.containsKey(version)) {
+                if (!applied.get(version).equals(checksum)) {
+                    logger.warn("Migration {} changed since it was applied, it is not run again", script);
+                }
+                continue;
+            }
+
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 PreparedStatement record = conn.prepareStatement(
+                     "INSERT INTO schema_migrations (version, description, checksum) VALUES (?, ?, ?)")) {
+                stmt.execute(sql);
+                record.setInt(1, version);
+                record.setString(2, description(script));
+                record.setString(3, checksum);
+                record.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Migration " + script + " failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            logger.info("Applied migration {}", script);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the version of a script named {@code V<version>__<description>.sql}.
+     *
+     * @throws IllegalArgumentException if the name doesn't follow that pattern
+     */
+    static int version(String script) {
+        int separator = script.indexOf("__");
+        if (!script.startsWith("V") || separator < 2 || !script.endsWith(".sql")) {
+            throw new IllegalArgumentException("Migration must be named V<version>__<description>.sql: " + script);
+        }
+        return Integer.parseInt(script.substring(1, separator));
+    }
+
+    private static String description(String script) {
+        return script.substring(script.indexOf("__") + 2, script.length() - ".sql".length()).replace('_', ' ');
+    }
+
+    private static String read(String script) throws IOException {
+        try (InputStream in = SchemaMigrations.class.getClassLoader().getResourceAsStream(LOCATION + script)) {
+            if (in == null) {
+                throw new IOException("Migration not found on the classpath: " + LOCATION + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String checksum(String sql) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(sql.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
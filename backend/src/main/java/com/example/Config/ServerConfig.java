@@ -0,0 +1,177 @@
+package com.example.Config;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.javalin.Javalin;
+import io.javalin.config.JavalinConfig;
+import io.javalin.http.ServiceUnavailableResponse;
+
+/**
+ * The {@code ServerConfig} class decides which threads run request handlers.
+ *
+ * <p>Two modes are available through {@code SERVER_THREADS}:
+ * <ul>
+ *   <li>{@code virtual} (default) — every request is handled on its own
+ *       virtual thread. A handler blocked on JDBC or on a {@code pg_dump}
+ *       process no longer holds a platform thread. Jetty's selectors and
+ *       acceptors keep {@value #MIN_THREADS} platform threads: they block
+ *       in {@code epoll}, which pins the carrier of a virtual thread, and on
+ *       a machine with one core an idle server would stop accepting.</li>
+ *   <li>{@code platform} — the classic bounded {@link QueuedThreadPool} of
+ *       {@code SERVER_MAX_THREADS} threads (default 250).</li>
+ * </ul>
+ *
+ * <p>In virtual mode nothing limits the number of concurrent handlers any
+ * more, so {@link #install(Javalin)} adds an admission limit in its place: at
+ * most {@code MAX_IN_FLIGHT_REQUESTS} (default 1000) requests are handled at
+ * once, and a request that cannot get in within
+ * {@code REQUEST_QUEUE_TIMEOUT_MS} (default 5000) gets a <b>503</b>. The
+ * database itself stays protected by the HikariCP pool and the per-endpoint
+ * limits in the controllers.
+ */
+public class ServerConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ServerConfig.class);
+
+    private static final String PERMIT_ATTRIBUTE = "inFlightPermit";
+    private static final int MIN_THREADS = 8;
+
+    /**
+     * Which threads handle requests.
+     */
+    public enum ThreadMode { VIRTUAL, PLATFORM }
+
+    private final ThreadMode mode;
+    private final int maxThreads;
+    private final int maxInFlight;
+    private final long queueTimeoutMillis;
+    private final Semaphore inFlight;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Creates a configuration with explicit settings.
+     *
+     * @param mode which threads handle requests
+     * @param maxThreads size of the platform thread pool
+     * @param maxInFlight requests handled at once in virtual mode
+     * @param queueTimeoutMillis how long a request waits to be admitted
+     */
+    public ServerConfig(ThreadMode mode, int maxThreads, int maxInFlight, long queueTimeoutMillis) {
+        this.mode = mode;
+        this.maxThreads = maxThreads;
+        this.maxInFlight = maxInFlight;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.inFlight = new Semaphore(maxInFlight, true);
+    }
+
+    /**
+     * Creates a configuration from the environment.
+     */
+    public ServerConfig() {
+        this(
+            ThreadMode.valueOf(System.getenv().getOrDefault("SERVER_THREADS", "virtual").toUpperCase()),
+            Integer.parseInt(System.getenv().getOrDefault("SERVER_MAX_THREADS", "250")),
+            Integer.parseInt(System.getenv().getOrDefault("MAX_IN_FLIGHT_REQUESTS", "1000")),
+            Long.parseLong(System.getenv().getOrDefault("REQUEST_QUEUE_TIMEOUT_MS", "5000"))
+        );
+    }
+
+    /**
+     * Makes Javalin start its Jetty server on the configured thread pool.
+     *
+     * @param config the config passed to {@code Javalin.create}
+     */
+    public void configure(JavalinConfig config) {
+        config.jetty.server(() -> new Server(createThreadPool()));
+        logger.info("Handling requests on {} threads", mode.name().toLowerCase());
+    }
+
+    /**
+     * Registers the in-flight request limit. Does nothing in platform mode,
+     * where the thread pool is the limit.
+     *
+     * @param app the Javalin instance to limit
+     */
+    public void install(Javalin app) {
+        if (mode != ThreadMode.VIRTUAL) {
+            return;
+        }
+
+        app.before(ctx -> {
+            boolean admitted;
+            try {
+                admitted = inFlight.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                admitted = false;
+            }
+            if (!admitted) {
+                rejected.increment();
+                throw new ServiceUnavailableResponse("Too many requests in flight");
+            }
+            ctx.attribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+        });
+        // After handlers run even when a handler threw, so the permit always comes back
+        app.after(ctx -> {
+            if (ctx.attribute(PERMIT_ATTRIBUTE) != null) {
+                ctx.attribute(PERMIT_ATTRIBUTE, null);
+                inFlight.release();
+            }
+        });
+        app.exception(ServiceUnavailableResponse.class, (e, ctx) -> {
+            ctx.header("Retry-After", "1");
+            ctx.status(503).json(Map.of("error", "Server busy", "message", e.getMessage()));
+        });
+    }
+
+    private ThreadPool createThreadPool() {
+        if (mode == ThreadMode.VIRTUAL) {
+            // Selectors and acceptors block in the kernel and would pin a carrier thread;
+            // they stay on a few platform threads and hand request handling to virtual threads
+            QueuedThreadPool pool = new QueuedThreadPool(MIN_THREADS, MIN_THREADS);
+            pool.setName("JettyServerThreadPool");
+            pool.setVirtualThreadsExecutor(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("JettyServerThreadPool-Virtual-", 0).factory()));
+            return pool;
+        }
+        QueuedThreadPool pool = new QueuedThreadPool(maxThreads, MIN_THREADS);
+        pool.setName("JettyServerThreadPool");
+        return pool;
+    }
+
+    /**
+     * Returns the configured thread mode.
+     *
+     * @return the thread mode
+     */
+    public ThreadMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the number of requests handled right now (virtual mode only).
+     *
+     * @return in-flight request count
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Returns how many requests were turned away with 503.
+     *
+     * @return rejected request count
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
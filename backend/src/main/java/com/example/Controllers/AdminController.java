@@ -1,72 +1,196 @@
 package com.example.Controllers;
 
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.InputStreamReader;
-import java.sql.Connection;
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.example.Backup.BackupCatalog;
+import com.example.Backup.BackupFormat;
+import com.example.Backup.BackupJob;
+import com.example.Backup.BackupJobManager;
+import com.example.Backup.BackupScheduler;
+import com.example.Backup.CopyBackupEngine;
+import com.example.Backup.PgCommands;
+import com.example.Backup.RetentionPolicy;
+import com.example.Backup.StagingRestore;
+import com.example.Cache.DashboardSnapshotCache;
+import com.example.Cache.TableVersions;
 import com.example.Config.DatabaseConfig;
+import com.example.Dashboard.DashboardStream;
+import com.example.Health.HealthProber;
+import com.example.Utils.ParallelGzipOutputStream;
 
-import io.github.cdimascio.dotenv.Dotenv;
 import io.javalin.http.Context;
 
 public class AdminController {
     private final DataSource dataSource;
     private final Logger logger;
     private final String pathToBackup;
-    private final Dotenv dotenv;
+    private final HealthProber healthProber;
+    private final BackupJobManager backupJobManager;
+    private final BackupCatalog backupCatalog;
+    private final BackupScheduler backupScheduler;
+    private final PgCommands pgCommands;
+    private final CopyBackupEngine copyEngine;
+    private final StagingRestore stagingRestore;
+    private final TableVersions tableVersions;
+    private final DashboardSnapshotCache dashboardCache;
+    private final DashboardStream dashboardStream;
+    private final String defaultFormat;
+    private final String defaultRestoreMode;
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
 
     /**
      * Constructor with dependency injection for testing.
      */
-    public AdminController(DataSource dataSource, String backupPath, Dotenv dotenv) {
+    public AdminController(DataSource dataSource, String backupPath, HealthProber healthProber,
+                           BackupJobManager backupJobManager, BackupCatalog backupCatalog,
+                           BackupScheduler backupScheduler, PgCommands pgCommands,
+                           CopyBackupEngine copyEngine, StagingRestore stagingRestore,
+                           TableVersions tableVersions, DashboardSnapshotCache dashboardCache,
+                           DashboardStream dashboardStream) {
         this.dataSource = dataSource;
         this.logger = LoggerFactory.getLogger(AdminController.class);
         this.pathToBackup = backupPath;
-        this.dotenv = dotenv;
+        this.healthProber = healthProber;
+        this.backupJobManager = backupJobManager;
+        this.backupCatalog = backupCatalog;
+        this.backupScheduler = backupScheduler;
+        this.pgCommands = pgCommands;
+        this.copyEngine = copyEngine;
+        this.stagingRestore = stagingRestore;
+        this.tableVersions = tableVersions;
+        this.dashboardCache = dashboardCache;
+        this.dashboardStream = dashboardStream;
+        this.defaultFormat = System.getenv().getOrDefault("BACKUP_FORMAT", "copy");
+        this.defaultRestoreMode = System.getenv().getOrDefault("BACKUP_RESTORE_MODE", "staging");
+    }
+
+    /**
+     * Constructor with the backup tools of the application database.
+     */
+    public AdminController(DataSource dataSource, String backupPath, HealthProber healthProber,
+                           BackupJobManager backupJobManager, BackupCatalog backupCatalog,
+                           BackupScheduler backupScheduler) {
+        this(dataSource, backupPath, healthProber, backupJobManager, backupCatalog, backupScheduler,
+            PgCommands.fromDatabaseConfig(), CopyBackupEngine.fromDatabaseConfig(), StagingRestore.getInstance(),
+            TableVersions.getInstance(), DashboardSnapshotCache.getInstance(), DashboardStream.getInstance());
+    }
+
+    /**
+     * Constructor with a scheduler that is not started and never prunes.
+     */
+    public AdminController(DataSource dataSource, String backupPath, HealthProber healthProber,
+                           BackupJobManager backupJobManager, BackupCatalog backupCatalog) {
+        this(dataSource, backupPath, healthProber, backupJobManager, backupCatalog,
+            new BackupScheduler(backupCatalog, backupJobManager, RetentionPolicy.fromEnv(), false, 0, Long.MAX_VALUE, 10));
+    }
+
+    /**
+     * Constructor with a catalog that is not started, so every listing
+     * rescans the directory.
+     */
+    public AdminController(DataSource dataSource, String backupPath, HealthProber healthProber,
+                           BackupJobManager backupJobManager) {
+        this(dataSource, backupPath, healthProber, backupJobManager,
+            new BackupCatalog(Path.of(backupPath), Long.MAX_VALUE, backupJobManager::isInUse));
+    }
+
+    /**
+     * Constructor using the shared {@link BackupJobManager}.
+     */
+    public AdminController(DataSource dataSource, String backupPath, HealthProber healthProber) {
+        this(dataSource, backupPath, healthProber, BackupJobManager.getInstance());
+    }
+
+    /**
+     * Constructor with a prober that is not running, so every health check
+     * is a live one.
+     */
+    public AdminController(DataSource dataSource, String backupPath) {
+        this(dataSource, backupPath, new HealthProber(dataSource));
     }
 
     /**
      * Constructor with DataSource only.
      */
     public AdminController(DataSource dataSource) {
-        this(
-            dataSource,
-            System.getenv("BACKUP_PATH") != null ? System.getenv("BACKUP_PATH") : "/app/backups",
-            Dotenv.configure().ignoreIfMissing().load()
-        );
+        this(dataSource, backupPathFromEnv());
     }
 
     /**
      * Default constructor for production use.
      */
     public AdminController() {
-        this(DatabaseConfig.getDataSource());
+        this(
+            DatabaseConfig.getDataSource(),
+            backupPathFromEnv(),
+            HealthProber.getInstance(),
+            BackupJobManager.getInstance(),
+            BackupCatalog.getInstance(),
+            BackupScheduler.getInstance(),
+            PgCommands.fromDatabaseConfig(),
+            CopyBackupEngine.fromDatabaseConfig(),
+            StagingRestore.getInstance(),
+            TableVersions.getInstance(),
+            DashboardSnapshotCache.getInstance(),
+            DashboardStream.getInstance()
+        );
     }
 
+    private static String backupPathFromEnv() {
+        return System.getenv("BACKUP_PATH") != null ? System.getenv("BACKUP_PATH") : "/app/backups";
+    }
+
+    /**
+     * Answers from the {@link HealthProber} status; {@code ?deep=true}
+     * checks the database live.
+     */
     public void testAdmin(Context ctx) {
-        try (Connection conn = dataSource.getConnection()){
+        HealthProber.Status status = healthProber.status("true".equals(ctx.queryParam("deep")));
+        ctx.header(HealthProber.AGE_HEADER, String.valueOf(status.ageMillis()));
+
+        if (status.databaseUp()) {
             ctx.status(200).result("Hello from backend, admin");
-        } catch (Exception e) {
-            logger.error("Couldn't connect to database: ", e);
-            ctx.status(500).result("Database connection failed: " + e.getMessage());
+        } else {
+            logger.error("Couldn't connect to database: {}", status.error());
+            ctx.status(500).result("Database connection failed: " + status.error());
         }
     }
 
+    /**
+     * Lists the backups from the {@link BackupCatalog}, newest first. A
+     * backup a job is still writing is left out, as are incomplete directory
+     * dumps.
+     *
+     * <p>The names are returned by default; {@code ?details=true} returns
+     * format, size, age, checksum and integrity instead. {@code ?limit=} and
+     * {@code ?offset=} page through the list, the total is sent in
+     * {@code X-Total-Count}.
+     */
     public void getAllBackups(Context ctx) {
         File backupDir = new File(pathToBackup);
 
-        System.out.println("Looking for backups in: " + backupDir.getAbsolutePath());
-        System.out.println("Directory exists: " + backupDir.exists());
-        System.out.println("Is directory: " + backupDir.isDirectory());
-
         if (!backupDir.exists() || !backupDir.isDirectory()) {
             ctx.status(400).json(Map.of(
                 "message", "backup dir does not exist",
@@ -75,79 +199,201 @@ public class AdminController {
             return;
         }
 
-        File[] files = backupDir.listFiles();
-        if (files == null) files = new File[0];
+        int offset;
+        int limit;
+        try {
+            offset = intParam(ctx, "offset", 0);
+            limit = intParam(ctx, "limit", Integer.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+            return;
+        }
+
+        BackupJob active = backupJobManager.active(pgCommands.getDatabase());
+        String inProgress = active != null && active.getType() == BackupJob.Type.BACKUP ? active.getFile() : null;
+        List<BackupCatalog.Entry> backups = backupCatalog.list().stream()
+            .filter(entry -> !entry.name().equals(inProgress))
+            .toList();
 
-        String[] fileNames = Arrays.stream(files)
-            .map(File::getName)
-            .toArray(String[]::new);
-        
-        Arrays.sort(files, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
-        ctx.status(200).json(fileNames);
+        ctx.header("X-Total-Count", String.valueOf(backups.size()));
+        Stream<BackupCatalog.Entry> page = backups.stream().skip(offset).limit(limit);
+        if ("true".equals(ctx.queryParam("details"))) {
+            ctx.status(200).json(page.map(BackupCatalog.Entry::toMap).toList());
+        } else {
+            ctx.status(200).json(page.map(BackupCatalog.Entry::name).toList());
+        }
     }
 
-    public void createBackup(Context ctx) {
-        String filename = "backup_" + java.time.LocalDateTime.now().format(
-            java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
-        ) + ".sql";
+    private static int intParam(Context ctx, String name, int defaultValue) {
+        String value = ctx.queryParam(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException(name + " must not be negative");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
 
-        String fullPath = pathToBackup + "/" + filename;
+    /**
+     * Starts a verification of every backup against its checksum; the
+     * results show up in {@code GET /list?details=true}.
+     */
+    public void verifyBackups(Context ctx) {
+        if (backupCatalog.verifyAllAsync()) {
+            ctx.status(202).json(Map.of("message", "Verification started"));
+        } else {
+            backupCatalog.verifyAll();
+            ctx.status(200).json(Map.of("message", "Verification finished"));
+        }
+    }
 
+    /**
+     * Shows which backups the retention policy keeps, and why, and which a
+     * pruning round would delete, without deleting anything.
+     * {@code ?policy=} tries another policy, such as
+     * {@code daily=7d,weekly=8w}.
+     */
+    public void getRetentionPlan(Context ctx) {
+        RetentionPolicy policy;
         try {
-            String dbHost = "db";
-            String dbPort = "5432";
-            String dbName = dotenv.get("POSTGRES_DB") != null ? dotenv.get("POSTGRES_DB") : "prisonflow";
-            String dbUser = dotenv.get("DB_USER") != null ? dotenv.get("DB_USER") : "postgres";
-            String dbPass = dotenv.get("DB_PASS") != null ? dotenv.get("DB_PASS") : "postgres";
-
-            ProcessBuilder pb = new ProcessBuilder(
-                "pg_dump",
-                "-h", dbHost,
-                "-p", dbPort,
-                "-U", dbUser,
-                "-d", dbName,
-                "-F", "c",
-                "-f", fullPath
-            );
-
-            pb.environment().put("PGPASSWORD", dbPass);
-            pb.redirectErrorStream(true);
-
-            Process process = pb.start();
-
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream())
-            );
-            StringBuilder output = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-                System.out.println(line);
-            }
+            String spec = ctx.queryParam("policy");
+            policy = spec != null ? RetentionPolicy.parse(spec) : backupScheduler.getPolicy();
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+            return;
+        }
 
-            int exitCode = process.waitFor();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("policy", policy.getSpec());
+        body.put("pruning", backupScheduler.isPruning());
+        body.putAll(backupScheduler.plan(policy).toMap());
+        ctx.status(200).json(body);
+    }
 
-            if (exitCode == 0) {
-                ctx.status(200).json(Map.of(
-                    "message", "Backup created successfully",
-                    "file", filename
-                ));
-            } else {
-                ctx.status(500).json(Map.of(
-                    "message", "Error creating backup",
-                    "exitCode", exitCode,
-                    "output", output.toString()
-                ));
-            }
+    /**
+     * Starts a pruning round on the scheduler thread.
+     */
+    public void pruneBackups(Context ctx) {
+        if (!backupScheduler.isPruning()) {
+            ctx.status(409).json(Map.of("message", "Pruning is off, set BACKUP_RETENTION to enable it"));
+        } else if (backupScheduler.pruneAsync()) {
+            ctx.status(202).json(Map.of("message", "Pruning started"));
+        } else {
+            ctx.status(503).json(Map.of("message", "Backup scheduler is not running"));
+        }
+    }
 
-        } catch (Exception e) {
-            ctx.status(500).json(Map.of(
-                "message", "Exception: " + e.getMessage()
-            ));
-            e.printStackTrace();
+    /**
+     * Starts a {@code pg_dump} job and answers {@code 202} with its ID; the
+     * progress is polled through {@link #getBackupJob(Context)}.
+     *
+     * <p>{@code ?format=} picks the format: {@code copy} is written by
+     * {@link CopyBackupEngine} inside the backend, {@code custom} and
+     * {@code directory} by {@code pg_dump}, and {@code gzip} by
+     * {@code pg_dump} with the backend compressing its output on
+     * {@code ?jobs=N} cores. {@code copy} and {@code directory} dump with
+     * {@code ?jobs=N} parallel jobs. The default format
+     * is {@code BACKUP_FORMAT} ({@code copy} when unset).
+     */
+    public void createBackup(Context ctx) {
+        BackupFormat format;
+        int jobs;
+        try {
+            String formatParam = ctx.queryParam("format");
+            format = BackupFormat.fromName(formatParam != null ? formatParam : defaultFormat);
+            jobs = jobsParam(ctx);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+            return;
+        }
+        submitJob(ctx, BackupJob.Type.BACKUP, () -> startBackup(format, jobs));
+    }
+
+    /**
+     * Starts a backup job in the default format with the default number of
+     * parallel jobs, as {@link BackupScheduler} does.
+     *
+     * @return the job
+     * @throws BackupJobManager.ConflictException if a job of the database is already queued or running
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public BackupJob startBackup() {
+        return startBackup(BackupFormat.fromName(defaultFormat), pgCommands.getParallelJobs());
+    }
+
+    private BackupJob startBackup(BackupFormat format, int jobs) {
+        String filename = "backup_" + java.time.LocalDateTime.now().format(
+            java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")
+        ) + format.extension();
+
+        Path fullPath = Path.of(pathToBackup, filename);
+
+        // Archives the backend writes are hashed as they are written, pg_dump files afterwards
+        BackupJobManager.Task dump;
+        if (!format.usesPgTools()) {
+            dump = output -> {
+                backupCatalog.register(fullPath, copyEngine.backup(fullPath, jobs, output));
+                return 0;
+            };
+        } else if (format.pipedCompression()) {
+            MessageDigest digest = BackupCatalog.newDigest();
+            dump = output -> {
+                int exitCode = BackupJobManager.commandTo(pgCommands.dump(fullPath, format, jobs),
+                    () -> new ParallelGzipOutputStream(new DigestOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(fullPath, StandardOpenOption.CREATE_NEW), STREAM_BUFFER_SIZE), digest),
+                        jobs)).run(output);
+                if (exitCode == 0) {
+                    backupCatalog.register(fullPath, HexFormat.of().formatHex(digest.digest()));
+                }
+                return exitCode;
+            };
+        } else {
+            dump = output -> {
+                int exitCode = BackupJobManager.command(pgCommands.dump(fullPath, format, jobs)).run(output);
+                if (exitCode == 0) {
+                    backupCatalog.register(fullPath, null);
+                }
+                return exitCode;
+            };
         }
+        return backupJobManager.submit(BackupJob.Type.BACKUP, pgCommands.getDatabase(), filename, output -> {
+            boolean succeeded = false;
+            try {
+                int exitCode = dump.run(output);
+                succeeded = exitCode == 0;
+                return exitCode;
+            } finally {
+                if (!succeeded) {
+                    // Don't leave a truncated dump in the list
+                    backupCatalog.delete(filename);
+                }
+            }
+        });
     }
 
+    /**
+     * Starts a restore job and answers {@code 202} with its ID. The format
+     * is told from the file; every format but {@code gzip}, which is
+     * streamed into {@code pg_restore}, is restored with {@code ?jobs=N}
+     * parallel jobs.
+     *
+     * <p>{@code ?mode=staging} restores a {@code copy} backup through
+     * {@link StagingRestore}, so readers keep the current data until the
+     * restored schema is swapped in; {@code ?mode=inplace} loads straight
+     * into the live tables. The default is {@code BACKUP_RESTORE_MODE}
+     * ({@code staging} when unset), which falls back to in place for the
+     * {@code pg_dump} formats.
+     *
+     * <p>When the job ends, every {@link TableVersions} tag changes, the
+     * dashboard snapshot is dropped and open dashboards are resynced, so no
+     * client is answered with data from before the restore.
+     */
     public void restoreBackup(Context ctx){
         String filename = ctx.pathParam("filename");
         
@@ -161,73 +407,134 @@ public class AdminController {
             return;
         }
 
-        String fullPath = pathToBackup + "/" + filename;
-        File backupFile = new File(fullPath);
+        Path fullPath = Path.of(pathToBackup, filename);
 
-        if (!backupFile.exists()) {
+        if (!Files.exists(fullPath)) {
             ctx.status(404).json(Map.of("message", "Backup file not found"));
             return;
         }
 
+        int jobs;
         try {
-            String dbHost = "db";
-            String dbPort = "5432";
-            String dbName = dotenv.get("POSTGRES_DB") != null ? dotenv.get("POSTGRES_DB") : "prisonflow";
-            String dbUser = dotenv.get("DB_USER") != null ? dotenv.get("DB_USER") : "postgres";
-            String dbPass = dotenv.get("DB_PASS") != null ? dotenv.get("DB_PASS") : "postgres";
-
-            ProcessBuilder pb = new ProcessBuilder(
-                "pg_restore",
-                "-h", dbHost,
-                "-p", dbPort,
-                "-U", dbUser,
-                "-d", dbName,
-                "-c",
-                "-v",
-                fullPath
-            );
-
-            Map<String, String> env = pb.environment();
-            env.put("PGPASSWORD", dbPass);
-            pb.redirectErrorStream(true);
-
-            System.out.println("Starting restore from: " + fullPath);
-            Process process = pb.start();
-
-            BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream())
-            );
-            StringBuilder output = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-                System.out.println("pg_restore: " + line);
-            }
+            jobs = jobsParam(ctx);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of("message", e.getMessage()));
+            return;
+        }
+
+        String modeParam = ctx.queryParam("mode");
+        String mode = modeParam != null ? modeParam : defaultRestoreMode;
+        if (!mode.equals("staging") && !mode.equals("inplace")) {
+            ctx.status(400).json(Map.of("message", "mode must be staging or inplace"));
+            return;
+        }
+        BackupFormat format = BackupFormat.detect(fullPath);
+        if (modeParam != null && mode.equals("staging") && format != BackupFormat.COPY) {
+            ctx.status(400).json(Map.of("message", "Only copy backups can be restored through a staging schema"));
+            return;
+        }
 
-            int exitCode = process.waitFor();
-            System.out.println("pg_restore exit code: " + exitCode);
+        BackupJobManager.Task restore = switch (format) {
+            case COPY -> mode.equals("staging")
+                ? output -> stagingRestore.restore(fullPath, jobs, output)
+                : output -> copyEngine.restore(fullPath, jobs, output);
+            // Decompressed on the fly, pg_restore never sees a file
+            case GZIP -> BackupJobManager.commandFrom(pgCommands.restoreFromStdin(), () -> new GZIPInputStream(
+                Files.newInputStream(fullPath), STREAM_BUFFER_SIZE));
+            case null, default -> BackupJobManager.command(pgCommands.restore(fullPath, jobs));
+        };
+        BackupJobManager.Task job = output -> {
+            try {
+                return restore.run(output);
+            } finally {
+                // Even a failed restore may have replaced rows, nothing cached can be trusted
+                tableVersions.bumpAll();
+                dashboardCache.invalidate();
+                dashboardStream.resync();
+            }
+        };
+        submitJob(ctx, BackupJob.Type.RESTORE,
+            () -> backupJobManager.submit(BackupJob.Type.RESTORE, pgCommands.getDatabase(), filename, job));
+    }
 
-            if (exitCode == 0) {
-                ctx.status(200).json(Map.of(
-                    "message", "Database restored successfully",
-                    "file", filename
-                ));
+    /**
+     * Swaps the schema replaced by the last staged restore back in; calling
+     * it again undoes the rollback.
+     */
+    public void rollbackRestore(Context ctx) {
+        BackupJob active = backupJobManager.active(pgCommands.getDatabase());
+        if (active != null) {
+            ctx.status(409).json(Map.of(
+                "message", "Can't roll back while a " + active.getType().name().toLowerCase() + " is running",
+                "jobId", active.getId()
+            ));
+            return;
+        }
+        try {
+            if (stagingRestore.rollback()) {
+                ctx.status(200).json(Map.of("message", "Rolled back to the previous data"));
             } else {
-                ctx.status(500).json(Map.of(
-                    "message", "Error restoring database",
-                    "exitCode", exitCode,
-                    "output", output.toString()
-                ));
+                ctx.status(404).json(Map.of("message", "No previous data to roll back to"));
             }
+        } catch (SQLException e) {
+            logger.error("Rollback failed: ", e);
+            ctx.status(500).json(Map.of("message", "Rollback failed: " + e.getMessage()));
+        }
+    }
 
-        } catch (Exception e) {
-            ctx.status(500).json(Map.of(
-                "message", "Exception: " + e.getMessage()
+    private int jobsParam(Context ctx) {
+        String jobs = ctx.queryParam("jobs");
+        if (jobs == null) {
+            return pgCommands.getParallelJobs();
+        }
+        try {
+            return PgCommands.clampJobs(Integer.parseInt(jobs));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("jobs must be a number");
+        }
+    }
+
+    private void submitJob(Context ctx, BackupJob.Type type, Supplier<BackupJob> submit) {
+        try {
+            BackupJob job = submit.get();
+            ctx.header("Location", "/api/admin/backup/jobs/" + job.getId());
+            ctx.status(202).json(Map.of(
+                "message", type == BackupJob.Type.BACKUP ? "Backup started" : "Restore started",
+                "jobId", job.getId(),
+                "file", job.getFile()
+            ));
+        } catch (BackupJobManager.ConflictException e) {
+            ctx.status(409).json(Map.of(
+                "message", e.getMessage(),
+                "jobId", e.getActive().getId()
             ));
-            e.printStackTrace();
+        } catch (RejectedExecutionException e) {
+            logger.warn("Backup job queue is full, rejected {}", type);
+            ctx.status(503).json(Map.of("message", "Too many backup jobs queued, try again later"));
         }
     }
 
+    /**
+     * Returns one job with its recent output.
+     */
+    public void getBackupJob(Context ctx) {
+        BackupJob job = backupJobManager.get(ctx.pathParam("jobId"));
+        if (job == null) {
+            ctx.status(404).json(Map.of("message", "Backup job not found"));
+            return;
+        }
+        ctx.status(200).json(job.toMap(true));
+    }
+
+    /**
+     * Returns the remembered jobs, newest first, without their output.
+     */
+    public void getBackupJobs(Context ctx) {
+        ctx.status(200).json(backupJobManager.list().stream()
+            .map(job -> job.toMap(false))
+            .toList());
+    }
+
     public void removeBackup(Context ctx) {
         String filename = ctx.pathParam("filename");
 
@@ -241,15 +548,29 @@ public class AdminController {
             return;
         }
 
-        String fullPath = pathToBackup + "/" + filename;
-        File file = new File(fullPath);
+        Path fullPath = Path.of(pathToBackup, filename);
 
-        if (!file.exists()) {
+        if (!Files.exists(fullPath)) {
             ctx.status(404).json(Map.of("message", "Backup file not found"));
             return;
         }
 
-        boolean deleted = file.delete();
+        BackupJob active = backupJobManager.active(pgCommands.getDatabase());
+        if (active != null && filename.equals(active.getFile())) {
+            ctx.status(409).json(Map.of(
+                "message", "Backup is in use by a running job",
+                "jobId", active.getId()
+            ));
+            return;
+        }
+
+        boolean deleted;
+        try {
+            deleted = backupCatalog.delete(filename);
+        } catch (IOException e) {
+            logger.error("Couldn't delete backup {}: ", filename, e);
+            deleted = false;
+        }
 
         if (deleted) {
             ctx.status(200).json(Map.of(
@@ -0,0 +1,361 @@
+package com.example.Controllers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+
+import org.eclipse.jetty.server.HttpOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Backup.BackupCatalog;
+import com.example.Backup.BackupFormat;
+import com.example.Backup.BackupJobManager;
+import com.example.Utils.ByteRange;
+
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+
+/**
+ * The {@code BackupFileController} class moves backup files in and out of
+ * the backup directory over HTTP.
+ *
+ * <p>Downloads support {@code Range} (one range, for resuming), conditional
+ * requests on a strong {@code ETag} and {@code HEAD}. The file is mapped in
+ * chunks and the mapped buffers are handed to Jetty, which writes them to
+ * the socket without copying the bytes into the Java heap.
+ *
+ * <p>Uploads are streamed from the request body to {@code .<name>.part} and
+ * renamed once complete, so a half-uploaded backup never shows up in the
+ * list. Completed uploads are registered in the {@link BackupCatalog}; a
+ * whole-file upload is hashed while it streams in. An upload can be sent in pieces and resumed after a failure:
+ * <ul>
+ *   <li>{@code HEAD /upload/{filename}} answers the stored length in
+ *       {@value #UPLOAD_OFFSET_HEADER},</li>
+ *   <li>{@code PUT /upload/{filename}} with
+ *       {@code Content-Range: bytes <from>-<to>/<total>} appends a piece,
+ *       which must start at the stored length and hold exactly the announced
+ *       bytes, otherwise it is dropped again; the upload completes once
+ *       {@code total} bytes are stored ({@code *} leaves it open),</li>
+ *   <li>{@code PUT} without {@code Content-Range} uploads the whole file in
+ *       one request.</li>
+ * </ul>
+ */
+public class BackupFileController {
+    private static final Logger logger = LoggerFactory.getLogger(BackupFileController.class);
+
+    /** Response header carrying the number of bytes stored for an upload. */
+    public static final String UPLOAD_OFFSET_HEADER = "Upload-Offset";
+
+    private static final long MAP_CHUNK_SIZE = 16L * 1024 * 1024;
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private final Path backupDir;
+    private final BackupJobManager backupJobManager;
+    private final BackupCatalog backupCatalog;
+
+    /**
+     * Constructor with dependency injection for testing.
+     */
+    public BackupFileController(String backupPath, BackupJobManager backupJobManager, BackupCatalog backupCatalog) {
+        this.backupDir = Path.of(backupPath);
+        this.backupJobManager = backupJobManager;
+        this.backupCatalog = backupCatalog;
+    }
+
+    /**
+     * Default constructor for production use.
+     */
+    public BackupFileController() {
+        this(
+            System.getenv("BACKUP_PATH") != null ? System.getenv("BACKUP_PATH") : "/app/backups",
+            BackupJobManager.getInstance(),
+            BackupCatalog.getInstance()
+        );
+    }
+
+    /**
+     * Sends a backup file, or the requested range of it.
+     */
+    public void downloadBackup(Context ctx) throws IOException {
+        String filename = ctx.pathParam("filename");
+        if (!isValidName(filename)) {
+            ctx.status(400).json(Map.of("message", "Invalid filename"));
+            return;
+        }
+
+        Path path = backupDir.resolve(filename);
+        if (Files.isDirectory(path)) {
+            ctx.status(400).json(Map.of("message", "Directory dumps can't be downloaded, use the custom or copy format"));
+            return;
+        }
+        if (!Files.isRegularFile(path)) {
+            ctx.status(404).json(Map.of("message", "Backup file not found"));
+            return;
+        }
+        if (backupJobManager.isInUse(filename)) {
+            ctx.status(409).json(Map.of("message", "Backup is in use by a running job"));
+            return;
+        }
+
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        String etag = etag(attributes);
+
+        ctx.header("ETag", etag);
+        ctx.header("Last-Modified", HTTP_DATE.format(attributes.lastModifiedTime().toInstant()));
+        ctx.header("Accept-Ranges", "bytes");
+
+        if (etag.equals(ctx.header("If-None-Match"))) {
+            ctx.status(304);
+            return;
+        }
+
+        // A stale If-Range means the client's partial copy is of another file
+        String ifRange = ctx.header("If-Range");
+        ByteRange range;
+        try {
+            range = ifRange == null || ifRange.equals(etag) ? ByteRange.parse(ctx.header("Range"), size) : null;
+        } catch (ByteRange.UnsatisfiableException e) {
+            ctx.header("Content-Range", "bytes */" + size);
+            ctx.status(416).json(Map.of("message", e.getMessage()));
+            return;
+        }
+
+        long start = range != null ? range.start() : 0;
+        long length = range != null ? range.length() : size;
+        if (range != null) {
+            ctx.status(206);
+            ctx.header("Content-Range", range.contentRange(size));
+        } else {
+            ctx.status(200);
+        }
+        ctx.contentType("application/octet-stream");
+        ctx.header("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+        ctx.res().setContentLengthLong(length);
+
+        if (ctx.method() == HandlerType.HEAD) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            OutputStream out = ctx.res().getOutputStream();
+            if (out instanceof HttpOutput httpOutput) {
+                for (long position = start; position < start + length; position += MAP_CHUNK_SIZE) {
+                    long chunk = Math.min(MAP_CHUNK_SIZE, start + length - position);
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+                    httpOutput.write(buffer);
+                }
+            } else {
+                long position = start;
+                while (position < start + length) {
+                    position += channel.transferTo(position, start + length - position, Channels.newChannel(out));
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Answers how much of an upload is stored.
+     */
+    public void uploadStatus(Context ctx) throws IOException {
+        String filename = ctx.pathParam("filename");
+        if (!isValidName(filename)) {
+            ctx.status(400);
+            return;
+        }
+        Path part = partPath(filename);
+        ctx.header(UPLOAD_OFFSET_HEADER, String.valueOf(Files.exists(part) ? Files.size(part) : 0));
+        ctx.status(Files.exists(backupDir.resolve(filename)) ? 409 : 200);
+    }
+
+    /**
+     * Stores the request body as a backup, or as the next piece of one.
+     */
+    public void uploadBackup(Context ctx) throws IOException {
+        String filename = ctx.pathParam("filename");
+        if (!isValidName(filename)) {
+            ctx.status(400).json(Map.of("message", "Invalid filename"));
+            return;
+        }
+        Path target = backupDir.resolve(filename);
+        if (Files.exists(target)) {
+            ctx.status(409).json(Map.of("message", "Backup already exists", "file", filename));
+            return;
+        }
+
+        long from = 0;
+        long to = -1;
+        Long total = null;
+        String contentRange = ctx.header("Content-Range");
+        if (contentRange != null) {
+            long[] parsed = parseContentRange(contentRange);
+            if (parsed == null) {
+                ctx.status(400).json(Map.of("message", "Invalid Content-Range, expected bytes <from>-<to>/<total>"));
+                return;
+            }
+            from = parsed[0];
+            to = parsed[1];
+            total = parsed[2] >= 0 ? parsed[2] : null;
+        }
+
+        Path part = partPath(filename);
+        MessageDigest digest = contentRange == null ? BackupCatalog.newDigest() : null;
+        long stored;
+        try (FileChannel channel = FileChannel.open(part,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            if (lock == null) {
+                ctx.status(409).json(Map.of("message", "Another upload of this backup is in progress"));
+                return;
+            }
+
+            try (lock) {
+                if (contentRange == null) {
+                    // A whole-file upload starts over
+                    channel.truncate(0);
+                } else if (from != channel.size()) {
+                    ctx.header(UPLOAD_OFFSET_HEADER, String.valueOf(channel.size()));
+                    ctx.status(409).json(Map.of(
+                        "message", "Upload must continue at the stored offset",
+                        "offset", channel.size()
+                    ));
+                    return;
+                }
+
+                channel.position(from);
+                OutputStream out = Channels.newOutputStream(channel);
+                try (InputStream in = ctx.req().getInputStream()) {
+                    in.transferTo(digest != null ? new DigestOutputStream(out, digest) : out);
+                }
+                if (contentRange != null && channel.size() != to + 1) {
+                    // Drop the piece, so the upload can still continue at the offset it had
+                    long received = channel.size() - from;
+                    channel.truncate(from);
+                    channel.force(false);
+                    ctx.header(UPLOAD_OFFSET_HEADER, String.valueOf(from));
+                    ctx.status(400).json(Map.of(
+                        "message", "Piece has " + received + " bytes, Content-Range announced " + (to - from + 1),
+                        "offset", from
+                    ));
+                    return;
+                }
+                channel.force(false);
+                stored = channel.size();
+            }
+        }
+
+        ctx.header(UPLOAD_OFFSET_HEADER, String.valueOf(stored));
+        boolean complete = contentRange == null || (total != null && stored >= total);
+        if (!complete) {
+            ctx.status(200).json(Map.of("message", "Piece stored", "file", filename, "offset", stored));
+            return;
+        }
+        if (BackupFormat.detect(part) == null) {
+            Files.deleteIfExists(part);
+            ctx.status(400).json(Map.of("message", "Not a custom-format, gzip or copy backup", "file", filename));
+            return;
+        }
+        try {
+            publish(part, target);
+        } catch (FileAlreadyExistsException e) {
+            ctx.status(409).json(Map.of("message", "Backup already exists", "file", filename));
+            return;
+        }
+        // A pieced upload spans requests, its checksum is computed from the file
+        backupCatalog.register(target, digest != null ? HexFormat.of().formatHex(digest.digest()) : null);
+        logger.info("Backup {} uploaded, {} bytes", filename, stored);
+        ctx.status(201).json(Map.of("message", "Backup uploaded", "file", filename, "size", stored));
+    }
+
+    /**
+     * Gives a finished upload its final name without replacing a backup
+     * that appeared meanwhile. A rename replaces its target on POSIX, a hard
+     * link fails instead; where links aren't supported, a move without
+     * {@code REPLACE_EXISTING} refuses an existing target too.
+     */
+    private static void publish(Path part, Path target) throws IOException {
+        try {
+            Files.createLink(target, part);
+        } catch (UnsupportedOperationException e) {
+            Files.move(part, target);
+            return;
+        }
+        Files.delete(part);
+    }
+
+    /**
+     * Returns a strong validator of the file contents. Backups are written
+     * once and never modified in place, so size and modification time
+     * identify the bytes.
+     */
+    static String etag(BasicFileAttributes attributes) {
+        Instant modified = attributes.lastModifiedTime().toInstant();
+        return "\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(modified.getEpochSecond())
+            + "." + Integer.toHexString(modified.getNano()) + "\"";
+    }
+
+    /**
+     * Parses {@code bytes <from>-<to>/<total>}; {@code total} is {@code -1}
+     * for {@code *}.
+     */
+    private static long[] parseContentRange(String header) {
+        if (!header.startsWith("bytes ")) {
+            return null;
+        }
+        String spec = header.substring("bytes ".length()).trim();
+        int dash = spec.indexOf('-');
+        int slash = spec.indexOf('/');
+        if (dash < 0 || slash < dash) {
+            return null;
+        }
+        try {
+            long from = Long.parseLong(spec.substring(0, dash));
+            long to = Long.parseLong(spec.substring(dash + 1, slash));
+            String totalText = spec.substring(slash + 1);
+            long total = totalText.equals("*") ? -1 : Long.parseLong(totalText);
+            if (from < 0 || to < from || (total >= 0 && to >= total)) {
+                return null;
+            }
+            return new long[] {from, to, total};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another request of this process
+            return null;
+        }
+    }
+
+    private Path partPath(String filename) {
+        return backupDir.resolve("." + filename + ".part");
+    }
+
+    private static boolean isValidName(String filename) {
+        return filename != null && !filename.isEmpty() && !filename.startsWith(".")
+            && !filename.contains("..") && !filename.contains("/") && !filename.contains("\\");
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.Controllers;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Changes.ChangeFeed;
+import com.example.Config.DatabaseConfig;
+
+import io.javalin.http.Context;
+
+/**
+ * The {@code ChangeController} class serves the change feed of prisons,
+ * users, criminals and prison incidents.
+ *
+ * @see com.example.Changes.ChangeFeed
+ */
+public class ChangeController {
+    private final Logger logger;
+    private final ChangeFeed changeFeed;
+
+    /**
+     * Constructor with dependency injection for testing.
+     *
+     * @param changeFeed the feed reading the change log
+     */
+    public ChangeController(ChangeFeed changeFeed) {
+        this.logger = LoggerFactory.getLogger(ChangeController.class);
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Constructor with DataSource only.
+     *
+     * @param dataSource the data source to use for database connections
+     */
+    public ChangeController(DataSource dataSource) {
+        this(new ChangeFeed(dataSource));
+    }
+
+    /**
+     * Default constructor for production use.
+     */
+    public ChangeController() {
+        this(DatabaseConfig.getDataSource());
+    }
+
+    /**
+     * Returns the rows changed after a cursor.
+     *
+     * <p>Supported query parameters:
+     * <ul>
+     *   <li>{@code since} is the cursor of the previous response. Without it
+     *       no changes are returned, only the cursor of the head of the feed
+     *       to load the tables at.</li>
+     *   <li>{@code limit} caps the changes returned, default
+     *       {@value ChangeFeed#DEFAULT_LIMIT}, at most
+     *       {@value ChangeFeed#MAX_LIMIT}.</li>
+     * </ul>
+     * The response holds {@code changes}, the {@code cursor} to ask with
+     * next and {@code hasMore}, which is {@code true} when the next batch is
+     * ready right away. A cursor older than the change log's retention is
+     * answered with <b>410 Gone</b>: the client reloads the tables and
+     * starts again from the head.
+     *
+     * @param ctx the {@link Context} object representing the HTTP request and response
+     */
+    public void changes(Context ctx) {
+        ChangeFeed.Cursor since;
+        int limit;
+        try {
+            String sinceParam = ctx.queryParam("since");
+            since = sinceParam == null ? null : ChangeFeed.Cursor.decode(sinceParam);
+            limit = parseLimit(ctx.queryParam("limit"));
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of(
+                "error", "Invalid query parameters",
+                "message", e.getMessage()
+            ));
+            return;
+        }
+
+        try {
+            ctx.status(200).json(changeFeed.read(since, limit));
+        } catch (ChangeFeed.ExpiredCursorException e) {
+            ctx.status(410).json(Map.of(
+                "error", "Cursor expired",
+                "message", e.getMessage()
+            ));
+        } catch (SQLException e) {
+            logger.error("Couldn't read the change log: ", e);
+            ctx.status(500).json(Map.of(
+                "error", "Database error",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    private static int parseLimit(String limitParam) {
+        if (limitParam == null) {
+            return ChangeFeed.DEFAULT_LIMIT;
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(limitParam);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("limit must be a number");
+        }
+        if (limit < 1 || limit > ChangeFeed.MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + ChangeFeed.MAX_LIMIT);
+        }
+        return limit;
+    }
+}
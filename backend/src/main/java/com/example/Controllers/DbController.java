@@ -4,21 +4,40 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.example.Cache.DashboardSnapshotCache;
+import com.example.Cache.PrisonCache;
+import com.example.Cache.TableVersions;
 import com.example.Config.DatabaseConfig;
+import com.example.Dashboard.DashboardQueries;
+import com.example.Dashboard.DashboardStream;
+import com.example.Health.HealthProber;
 import com.example.Objects.Prison;
+import com.example.Utils.ConditionalGet;
 
 import io.javalin.http.Context;
+import io.javalin.http.sse.SseClient;
 
 /**
  * The {@code DbController} class handles API endpoints that interact
@@ -34,84 +53,192 @@ import io.javalin.http.Context;
  * @see com.example.Router.DatabaseRoutes
  */
 public class DbController {
+    /** Number of independent queries behind the dashboard. */
+    private static final int DASHBOARD_QUERIES = 3;
+
+    /** Tables the dashboard queries read, directly or through views. */
+    private static final String[] DASHBOARD_TABLES = {
+        "prisons", "prison_occupancy_counters", "criminals", "prison_visits", "prison_incidents", "officers"
+    };
+
+    /** How long a sequential dashboard request waits for a connection permit. */
+    private static final long DASHBOARD_PERMIT_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Connections all in-flight dashboard requests may hold together. Shared by
+     * every controller instance so the cap holds for the whole process.
+     */
+    private static final Semaphore dashboardPermits = new Semaphore(
+        Math.max(DASHBOARD_QUERIES, Integer.parseInt(
+            System.getenv().getOrDefault("DASHBOARD_MAX_CONNECTIONS", "4"))),
+        true
+    );
+
+    /** Dashboard queries block on JDBC, so each one gets a cheap virtual thread. */
+    private static final ExecutorService dashboardExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
     private final DataSource dataSource;
     private final Logger logger;
+    private final boolean dashboardFanOut;
+    private final PrisonController prisonController;
+    private final HealthProber healthProber;
+    private final DashboardStream dashboardStream;
+    private final DashboardSnapshotCache dashboardCache;
+    private final TableVersions tableVersions;
 
     /**
      * Constructor with dependency injection for testing.
      *
      * @param dataSource the data source to use for database connections
+     * @param dashboardFanOut whether the dashboard queries run concurrently
+     * @param prisonCache the cache serving prison reads
+     * @param healthProber the prober answering health checks
+     * @param dashboardStream the stream pushing dashboard updates
+     * @param dashboardCache the cache serving dashboard reads
+     * @param tableVersions the versions tagging prison and dashboard responses
      */
-    public DbController(DataSource dataSource) {
+    public DbController(DataSource dataSource, boolean dashboardFanOut, PrisonCache prisonCache,
+                        HealthProber healthProber, DashboardStream dashboardStream,
+                        DashboardSnapshotCache dashboardCache, TableVersions tableVersions) {
         this.dataSource = dataSource;
         this.logger = LoggerFactory.getLogger(DbController.class);
+        this.dashboardFanOut = dashboardFanOut;
+        this.prisonController = new PrisonController(dataSource, prisonCache, tableVersions);
+        this.healthProber = healthProber;
+        this.dashboardStream = dashboardStream;
+        this.dashboardCache = dashboardCache;
+        this.tableVersions = tableVersions;
+    }
+
+    /**
+     * Constructor with versions that are not tracking, so responses are
+     * never tagged.
+     *
+     * @param dataSource the data source to use for database connections
+     * @param dashboardFanOut whether the dashboard queries run concurrently
+     * @param prisonCache the cache serving prison reads
+     * @param healthProber the prober answering health checks
+     * @param dashboardStream the stream pushing dashboard updates
+     * @param dashboardCache the cache serving dashboard reads
+     */
+    public DbController(DataSource dataSource, boolean dashboardFanOut, PrisonCache prisonCache,
+                        HealthProber healthProber, DashboardStream dashboardStream,
+                        DashboardSnapshotCache dashboardCache) {
+        this(dataSource, dashboardFanOut, prisonCache, healthProber, dashboardStream, dashboardCache,
+            new TableVersions(dataSource));
+    }
+
+    /**
+     * Constructor with a private dashboard cache.
+     *
+     * @param dataSource the data source to use for database connections
+     * @param dashboardFanOut whether the dashboard queries run concurrently
+     * @param prisonCache the cache serving prison reads
+     * @param healthProber the prober answering health checks
+     * @param dashboardStream the stream pushing dashboard updates
+     */
+    public DbController(DataSource dataSource, boolean dashboardFanOut, PrisonCache prisonCache,
+                        HealthProber healthProber, DashboardStream dashboardStream) {
+        this(dataSource, dashboardFanOut, prisonCache, healthProber, dashboardStream, new DashboardSnapshotCache());
+    }
+
+    /**
+     * Constructor with a dashboard stream that is not listening, so
+     * subscribers only receive the snapshot.
+     *
+     * @param dataSource the data source to use for database connections
+     * @param dashboardFanOut whether the dashboard queries run concurrently
+     * @param prisonCache the cache serving prison reads
+     * @param healthProber the prober answering health checks
+     */
+    public DbController(DataSource dataSource, boolean dashboardFanOut, PrisonCache prisonCache, HealthProber healthProber) {
+        this(dataSource, dashboardFanOut, prisonCache, healthProber,
+            new DashboardStream(dataSource, dataSource, 64, 15000));
+    }
+
+    /**
+     * Constructor with a prober that is not running, so every health check
+     * is a live one.
+     *
+     * @param dataSource the data source to use for database connections
+     * @param dashboardFanOut whether the dashboard queries run concurrently
+     * @param prisonCache the cache serving prison reads
+     */
+    public DbController(DataSource dataSource, boolean dashboardFanOut, PrisonCache prisonCache) {
+        this(dataSource, dashboardFanOut, prisonCache, new HealthProber(dataSource));
+    }
+
+    /**
+     * Constructor with a private prison cache.
+     *
+     * @param dataSource the data source to use for database connections
+     * @param dashboardFanOut whether the dashboard queries run concurrently
+     */
+    public DbController(DataSource dataSource, boolean dashboardFanOut) {
+        this(dataSource, dashboardFanOut, new PrisonCache());
+    }
+
+    /**
+     * Constructor with DataSource only. Fan-out mode follows the
+     * {@code DASHBOARD_FANOUT} environment variable and is on by default.
+     *
+     * @param dataSource the data source to use for database connections
+     */
+    public DbController(DataSource dataSource) {
+        this(dataSource, fanOutFromEnv());
     }
 
     /**
      * Default constructor for production use.
-     * Uses the default DataSource from DatabaseConfig.
+     * Uses the default DataSource from DatabaseConfig, the shared prison cache,
+     * the shared health prober, the shared dashboard stream, the shared
+     * dashboard cache and the shared table versions.
      */
     public DbController() {
-        this(DatabaseConfig.getDataSource());
+        this(DatabaseConfig.getDataSource(), fanOutFromEnv(), PrisonCache.getInstance(), HealthProber.getInstance(),
+            DashboardStream.getInstance(), DashboardSnapshotCache.getInstance(), TableVersions.getInstance());
+    }
+
+    private static boolean fanOutFromEnv() {
+        return !"false".equalsIgnoreCase(System.getenv("DASHBOARD_FANOUT"));
     }
 
     /**
      * Checks the health of the database connection.
      *
-     * <p>Attempts to acquire a connection from the configured data source.
-     * If successful, it returns <b>200 OK</b> with a confirmation message.
-     * If the connection fails, it logs the error and responds with
-     * <b>500 Internal Server Error</b>.
+     * <p>Answers from the last result of the {@link HealthProber} without
+     * borrowing a connection. With {@code ?deep=true} the database is checked
+     * live. If the database is reachable it returns <b>200 OK</b> with a
+     * confirmation message, otherwise <b>500 Internal Server Error</b>. With
+     * {@code ?details=true} the full status, including pool saturation, is
+     * returned as JSON.
      *
      * @param ctx the {@link Context} object representing the HTTP request
      *            and response in Javalin
-     *
-     * @throws RuntimeException if the database connection cannot be established
      */
     public void checkHealth(Context ctx) {
-        logger.info("Redirected to checkHealth: api/db/health");
-        try (Connection conn = dataSource.getConnection()) {
-            logger.info("Database connection healthy");
+        HealthProber.Status status = healthProber.status("true".equals(ctx.queryParam("deep")));
+        ctx.header(HealthProber.AGE_HEADER, String.valueOf(status.ageMillis()));
+
+        if ("true".equals(ctx.queryParam("details"))) {
+            ctx.status(status.databaseUp() ? 200 : 500).json(status.toMap());
+        } else if (status.databaseUp()) {
             ctx.status(200).result("Database connection is healthy!");
-        } catch(Exception e) {
-            logger.error("Couldn't connect to database: ", e);
-            ctx.status(500).result("Database connection failed: " + e.getMessage());
+        } else {
+            ctx.status(500).result("Database connection failed: " + status.error());
         }
     }
 
     /**
-     * Retrieves all prisons from the database.
+     * Retrieves all prisons in id order, read like an unfiltered prison list
+     * and sharing its {@link PrisonCache} entry.
      *
      * @param ctx the {@link Context} object
      * @return a list of {@link Prison} objects, or null if an error occurs
      */
     public List<Prison> getPrisonsFromDb(Context ctx) {
-        try (Connection conn = dataSource.getConnection()) {
-            List<Prison> prisonList = new ArrayList<>();
-            String sql = "SELECT * FROM prisons";
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                ResultSet rs = stmt.executeQuery();
-
-                while(rs.next()) {
-                    Prison prison = new Prison();
-
-                    prison.setId(rs.getInt("prison_id"));
-                    prison.setName(rs.getString("name"));
-                    prison.setLocation(rs.getString("location"));
-                    prison.setCapacity(rs.getInt("capacity"));
-                    prison.setSecurityLevel(rs.getString("security_level"));
-                    java.sql.Date sqlDate = rs.getDate("opening_date");
-                    if (sqlDate != null) {
-                        prison.setDate(sqlDate.toLocalDate());
-                    }
-                    prison.setNumOfCells(rs.getInt("number_of_cells"));
-                    prison.setIsActive(rs.getBoolean("is_active"));
-
-                    prisonList.add(prison);
-                }
-
-                return prisonList;
-            } 
+        try {
+            return prisonController.loadAllPrisons();
         } catch (Exception e) {
             logger.error("Couldn't connect to database: ", e);
             ctx.status(500).result("Database connection failed: " + e.getMessage());
@@ -122,11 +249,19 @@ public class DbController {
     /**
      * Endpoint to retrieve prison information.
      *
+     * <p>The response is tagged with the version of {@code prisons}, see
+     * {@link TableVersions}, and answered with a 304 when the client
+     * already has it.
+     *
      * @param ctx the {@link Context} object
      */
     public void prisonInfo(Context ctx) {
         logger.info("Redirected to prisonInfo: api/db/prisonInfo");
-        
+
+        if (ConditionalGet.notModified(ctx, tableVersions.etag("prisons"))) {
+            return;
+        }
+
         List<Prison> prisonList = getPrisonsFromDb(ctx);
 
         if (prisonList != null && !prisonList.isEmpty()) {
@@ -139,123 +274,209 @@ public class DbController {
     /**
      * Endpoint to retrieve dashboard data including prisons, visits, and incidents.
      *
+     * <p>Responses come from the shared {@link DashboardSnapshotCache}, so a
+     * burst of requests costs one set of queries. The body's
+     * {@code snapshotAgeMs} and the {@code Age} header tell how long ago the
+     * data was read.
+     *
+     * <p>Snapshots are tagged with the versions of the tables they were read
+     * from, see {@link TableVersions}. A snapshot whose tables haven't
+     * changed is kept past {@code DASHBOARD_STALE_MILLIS}. A client
+     * sending the current tag back in {@code If-None-Match} gets a 304
+     * before the cache is consulted; one sending the tag of the snapshot
+     * being served gets a 304 without the body being serialized.
+     *
      * @param ctx the {@link Context} object
      */
     public void dashboard(Context ctx) {
         logger.info("Redirected to dashboard: api/db/dashboard");
-        List<Map<String, Object>> prisonsData = new ArrayList<>();
-        List<Map<String, Object>> visitsData = new ArrayList<>();
-        List<Map<String, Object>> incidentData = new ArrayList<>();
 
-        try (Connection conn = dataSource.getConnection()) {
-            
-            String sql = """
-                SELECT   
-                    p.prison_id,
-                    p.prison_name,
-                    p.location,
-                    p.capacity,
-                    p.security_level,
-                    p.current_inmates,
-                    p.occupancy_percentage    
-                FROM public.view_prison_occupancy p
-            """;
-
-            try (PreparedStatement stmt = conn.prepareStatement(sql);
-                ResultSet rs = stmt.executeQuery()) {    
-                while(rs.next()) {
-                    Map<String, Object> prisonStats = new HashMap<>();
-                    prisonStats.put("id", rs.getInt("prison_id"));
-                    prisonStats.put("name", rs.getString("prison_name"));
-                    prisonStats.put("location", rs.getString("location"));
-                    prisonStats.put("capacity", rs.getInt("capacity"));
-                    prisonStats.put("securityLevel", rs.getString("security_level"));
-                    prisonStats.put("currentInmates", rs.getInt("current_inmates"));
-                    prisonStats.put("occupancyPercentage", rs.getDouble("occupancy_percentage"));
-                    
-                    prisonsData.add(prisonStats);
-                }               
+        // A client holding the current tables is answered without touching the cache
+        String current = tableVersions.etag(DASHBOARD_TABLES);
+        if (current != null && ConditionalGet.matches(ctx.header("If-None-Match"), current)) {
+            ConditionalGet.notModified(ctx, current);
+            return;
+        }
+
+        try {
+            DashboardSnapshotCache.Snapshot snapshot = dashboardCache.get(this::loadDashboard,
+                () -> tableVersions.etag(DASHBOARD_TABLES));
+            long age = snapshot.ageMillis();
+            ctx.header("Age", String.valueOf(TimeUnit.MILLISECONDS.toSeconds(age)));
+            if (ConditionalGet.notModified(ctx, snapshot.version())) {
+                return;
             }
+            Map<String, Object> response = new HashMap<>(snapshot.body());
+            response.put("snapshotAgeMs", age);
+            ctx.status(200).json(response);
+        } catch (SQLException e) {
+            logger.error("Database error in dashboard: ", e);
+            ctx.status(500).json(Map.of("error", "Database error", "message", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Dashboard interrupted: ", e);
+            ctx.status(500).json(Map.of("error", "Database error", "message", "Request interrupted"));
+        }
+    }
 
-            sql = """
-                SELECT 
-                    c.first_name, 
-                    c.last_name, 
-                    p.name AS prison_name, 
-                    pv.visitor_first_name, 
-                    pv.visitor_last_name, 
-                    pv.relationship,
-                    pv.visit_datetime
-                FROM prison_visits pv
-                LEFT JOIN criminals c ON pv.criminal_id = c.criminal_id
-                LEFT JOIN prisons p ON pv.prison_id = p.prison_id
-                WHERE pv.is_approved = TRUE
-                ORDER BY pv.visit_datetime
-                LIMIT 3
-            """;
-
-            try(PreparedStatement stmt = conn.prepareStatement(sql);
-                ResultSet rs = stmt.executeQuery()) {
-                while(rs.next()) {
-                    Map<String, Object> visitStats = new HashMap<>();
-                    visitStats.put("criminal_first_name", rs.getString("first_name"));
-                    visitStats.put("criminal_last_name", rs.getString("last_name"));
-                    visitStats.put("prison_name", rs.getString("prison_name"));
-                    visitStats.put("visitor_first_name", rs.getString("visitor_first_name"));
-                    visitStats.put("visitor_last_name", rs.getString("visitor_last_name"));
-                    visitStats.put("relationship", rs.getString("relationship"));
-                    java.sql.Timestamp tsp = rs.getTimestamp("visit_datetime");
-                    if (tsp != null) {
-                        visitStats.put("visit_datetime", tsp);
-                    }
-
-                    visitsData.add(visitStats);
-                }
+    /**
+     * Returns the dashboard cache counters.
+     *
+     * @param ctx the {@link Context} object
+     */
+    public void dashboardCacheStats(Context ctx) {
+        ctx.status(200).json(dashboardCache.stats());
+    }
+
+    /**
+     * Reads the dashboard from the database.
+     *
+     * <p>The three queries are independent, so in fan-out mode they run
+     * concurrently on separate pooled connections and a refresh costs about
+     * as much as the slowest of them. A refresh only fans out when it can take
+     * all three connection permits at once; otherwise it runs the queries one
+     * after another on a single connection, which keeps the dashboard's share
+     * of the pool capped at {@code DASHBOARD_MAX_CONNECTIONS}.
+     *
+     * @return the dashboard response body
+     * @throws SQLException if any of the queries fails
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private Map<String, Object> loadDashboard() throws SQLException, InterruptedException {
+        if (dashboardFanOut && dashboardPermits.tryAcquire(DASHBOARD_QUERIES)) {
+            try {
+                return loadDashboardConcurrently();
+            } finally {
+                dashboardPermits.release(DASHBOARD_QUERIES);
             }
+        }
+        if (!dashboardPermits.tryAcquire(DASHBOARD_PERMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new SQLException("Timed out waiting for a dashboard connection slot");
+        }
+        try {
+            return loadDashboardSequentially();
+        } finally {
+            dashboardPermits.release();
+        }
+    }
 
-            sql = """
-                SELECT
-                    incident_id,
-                    incident_datetime,
-                    prison_name,
-                    incident_type,
-                    severity,
-                    criminal_involved,
-                    officer_involved,
-                    description
-                FROM view_recent_incidents
-            """;
-
-            try(PreparedStatement stmt = conn.prepareStatement(sql);
-                ResultSet rs = stmt.executeQuery()) {
-                while(rs.next()) {
-                    Map<String, Object> incidentStats = new HashMap<>();
-                    incidentStats.put("incident_id", rs.getInt("incident_id"));
-                    incidentStats.put("prison_name", rs.getString("prison_name"));
-                    incidentStats.put("incident_type", rs.getString("incident_type"));
-                    incidentStats.put("severity", rs.getString("severity"));
-                    incidentStats.put("criminal_involved", rs.getString("criminal_involved"));
-                    incidentStats.put("officer_involved", rs.getString("officer_involved"));
-                    
-                    java.sql.Timestamp tsp = rs.getTimestamp("incident_datetime");
-                    if (tsp != null) {
-                        incidentStats.put("incident_datetime", tsp);
-                    }
-                    
-                    incidentStats.put("description", rs.getString("description"));
-
-                    incidentData.add(incidentStats);
-                }
+    /**
+     * Streams live dashboard updates as Server-Sent Events.
+     *
+     * <p>The client first receives a {@code snapshot} event with the same
+     * body as {@link #dashboard(Context)}, then {@code occupancy},
+     * {@code incident}, {@code incidentRemoved} and {@code visits} events
+     * as the data changes. See {@link DashboardStream}.
+     *
+     * @param client the SSE client
+     */
+    public void dashboardStream(SseClient client) {
+        logger.info("Dashboard stream opened: api/db/dashboard/stream");
+        client.keepAlive();
+        dashboardStream.subscribe(DashboardStream.sink(client));
+    }
+
+    /**
+     * Runs the dashboard queries one after another on a single connection.
+     *
+     * @return the dashboard response body
+     * @throws SQLException if any of the queries fails
+     */
+    private Map<String, Object> loadDashboardSequentially() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            return DashboardQueries.load(conn);
+        }
+    }
+
+    /**
+     * Runs the dashboard queries concurrently, each on its own pooled connection.
+     *
+     * <p>When one query fails the statements still running are cancelled on the
+     * server and their tasks interrupted, so a failed request does not keep
+     * holding connections.
+     *
+     * @return the dashboard response body
+     * @throws SQLException if any of the queries fails
+     * @throws InterruptedException if the request thread is interrupted while waiting
+     */
+    private Map<String, Object> loadDashboardConcurrently() throws SQLException, InterruptedException {
+        Queue<Statement> running = new ConcurrentLinkedQueue<>();
+        CompletionService<List<Map<String, Object>>> completion =
+            new ExecutorCompletionService<>(dashboardExecutor);
+
+        List<Future<List<Map<String, Object>>>> futures = List.of(
+            completion.submit(() -> queryOnOwnConnection(
+                DashboardQueries.OCCUPANCY_SQL, DashboardQueries::mapOccupancy, running)),
+            completion.submit(() -> queryOnOwnConnection(
+                DashboardQueries.VISITS_SQL, DashboardQueries::mapVisit, running)),
+            completion.submit(() -> queryOnOwnConnection(
+                DashboardQueries.INCIDENTS_SQL, DashboardQueries::mapIncident, running))
+        );
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                completion.take().get();
             }
 
             Map<String, Object> response = new HashMap<>();
-            response.put("prisons", prisonsData);
-            response.put("visits", visitsData);
-            response.put("incidents", incidentData);
-            ctx.status(200).json(response);
-        } catch (SQLException e) {
-            logger.error("Database error in dashboard: ", e);
-            ctx.status(500).json(Map.of("error", "Database error", "message", e.getMessage()));
+            response.put("prisons", futures.get(0).get());
+            response.put("visits", futures.get(1).get());
+            response.put("incidents", futures.get(2).get());
+            return response;
+        } catch (ExecutionException e) {
+            cancelSiblings(futures, running);
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            cancelSiblings(futures, running);
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels the statements that are still executing and the tasks running them.
+     */
+    private void cancelSiblings(List<Future<List<Map<String, Object>>>> futures, Queue<Statement> running) {
+        for (Statement stmt : running) {
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                logger.warn("Couldn't cancel dashboard statement: ", e);
+            }
+        }
+        futures.forEach(future -> future.cancel(true));
+    }
+
+    private List<Map<String, Object>> queryOnOwnConnection(String sql, DashboardQueries.RowMapper mapper,
+                                                           Queue<Statement> running) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            return runQuery(conn, sql, mapper, running);
+        }
+    }
+
+    /**
+     * Executes a query and maps every row with the given mapper.
+     *
+     * @param running the statement is registered here while it executes so
+     *                that it can be cancelled from another thread
+     */
+    private List<Map<String, Object>> runQuery(Connection conn, String sql, DashboardQueries.RowMapper mapper,
+                                               Queue<Statement> running) throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            running.add(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            } finally {
+                running.remove(stmt);
+            }
         }
+        return rows;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package com.example.Controllers;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Metrics.JvmMetrics;
+import com.example.Metrics.PoolMetrics;
+import com.example.Metrics.RequestMetrics;
+import com.example.Metrics.SqlStats;
+
+import io.javalin.http.Context;
+
+/**
+ * The {@code MetricsController} class exposes the collected metrics in the
+ * Prometheus text exposition format.
+ *
+ * @see com.example.Metrics.RequestMetrics
+ * @see com.example.Metrics.PoolMetrics
+ * @see com.example.Metrics.JvmMetrics
+ */
+public class MetricsController {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Logger logger;
+    private final RequestMetrics requestMetrics;
+    private final PoolMetrics poolMetrics;
+    private final SqlStats sqlStats;
+
+    /**
+     * Constructor with dependency injection for testing.
+     *
+     * @param requestMetrics the per-route request metrics
+     * @param poolMetrics the connection pool metrics
+     * @param sqlStats the per-statement timings
+     */
+    public MetricsController(RequestMetrics requestMetrics, PoolMetrics poolMetrics, SqlStats sqlStats) {
+        this.logger = LoggerFactory.getLogger(MetricsController.class);
+        this.requestMetrics = requestMetrics;
+        this.poolMetrics = poolMetrics;
+        this.sqlStats = sqlStats;
+    }
+
+    /**
+     * Default constructor for production use.
+     */
+    public MetricsController() {
+        this(RequestMetrics.getInstance(), PoolMetrics.getInstance(), SqlStats.getInstance());
+    }
+
+    /**
+     * Writes all metrics for a Prometheus scrape.
+     *
+     * @param ctx the {@link Context} object representing the HTTP request and response
+     */
+    public void metrics(Context ctx) {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        requestMetrics.writeTo(out);
+        poolMetrics.writeTo(out);
+        sqlStats.writeTo(out);
+        JvmMetrics.writeTo(out);
+
+        logger.debug("Metrics scraped, {} bytes", out.length());
+        ctx.status(200).contentType(CONTENT_TYPE).result(out.toString());
+    }
+
+    /**
+     * Returns the per-statement aggregates, most total time first.
+     *
+     * <p>Query parameter {@code limit} caps the number of statements
+     * (default 50).
+     *
+     * @param ctx the {@link Context} object representing the HTTP request and response
+     */
+    public void sqlStats(Context ctx) {
+        int limit;
+        try {
+            limit = ctx.queryParam("limit") != null ? Integer.parseInt(ctx.queryParam("limit")) : 50;
+        } catch (NumberFormatException e) {
+            ctx.status(400).json(Map.of(
+                "error", "Invalid limit",
+                "message", "limit must be a number"
+            ));
+            return;
+        }
+
+        ctx.status(200).json(Map.of(
+            "statements", sqlStats.top(limit),
+            "connectionHold", sqlStats.connectionHoldSummary()
+        ));
+    }
+
+    /**
+     * Clears the per-statement aggregates.
+     *
+     * @param ctx the {@link Context} object representing the HTTP request and response
+     */
+    public void resetSqlStats(Context ctx) {
+        sqlStats.reset();
+        logger.info("SQL stats reset");
+        ctx.status(200).json(Map.of("message", "SQL stats reset"));
+    }
+}
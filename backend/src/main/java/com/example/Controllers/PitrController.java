@@ -0,0 +1,122 @@
+package com.example.Controllers;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Backup.BackupJob;
+import com.example.Backup.BackupJobManager;
+import com.example.Backup.PitrManager;
+import com.example.Backup.PgCommands;
+
+import io.javalin.http.Context;
+
+/**
+ * The {@code PitrController} class exposes the {@link PitrManager}: the
+ * archiving status, base backups and preparing a recovery to a point in
+ * time. Base backups and recoveries run as {@link BackupJob}s, one per
+ * database at a time together with dumps and restores.
+ */
+public class PitrController {
+    private static final Logger logger = LoggerFactory.getLogger(PitrController.class);
+
+    private final PitrManager pitrManager;
+    private final BackupJobManager backupJobManager;
+    private final String database;
+
+    /**
+     * Constructor with dependency injection for testing.
+     */
+    public PitrController(PitrManager pitrManager, BackupJobManager backupJobManager, String database) {
+        this.pitrManager = pitrManager;
+        this.backupJobManager = backupJobManager;
+        this.database = database;
+    }
+
+    /**
+     * Default constructor for production use.
+     */
+    public PitrController() {
+        this(PitrManager.getInstance(), BackupJobManager.getInstance(), PgCommands.fromDatabaseConfig().getDatabase());
+    }
+
+    /**
+     * Returns the archiving settings and counters, the base backups and the
+     * window a recovery target may fall in.
+     */
+    public void getStatus(Context ctx) {
+        try {
+            ctx.status(200).json(pitrManager.status());
+        } catch (SQLException | IOException e) {
+            logger.error("Couldn't read the PITR status", e);
+            ctx.status(500).json(Map.of("message", "Couldn't read the PITR status: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Starts a base backup; answers the job to follow.
+     */
+    public void createBaseBackup(Context ctx) {
+        submitJob(ctx, BackupJob.Type.BASE_BACKUP, "base", pitrManager::baseBackup);
+    }
+
+    /**
+     * Prepares a data directory recovering to {@code ?target=}, an ISO-8601
+     * timestamp with an offset such as {@code 2024-05-01T10:15:00Z}.
+     */
+    public void prepareRecovery(Context ctx) {
+        String target = ctx.queryParam("target");
+        if (target == null || target.isBlank()) {
+            ctx.status(400).json(Map.of("message", "target is required"));
+            return;
+        }
+        Instant instant;
+        try {
+            instant = OffsetDateTime.parse(target).toInstant();
+        } catch (DateTimeParseException e) {
+            ctx.status(400).json(Map.of("message", "target must be an ISO-8601 timestamp with an offset"));
+            return;
+        }
+        if (instant.isAfter(Instant.now())) {
+            ctx.status(400).json(Map.of("message", "target is in the future"));
+            return;
+        }
+        try {
+            if (PitrManager.chooseBaseBackup(pitrManager.listBaseBackups(), instant) == null) {
+                ctx.status(400).json(Map.of("message", "No base backup finished before " + instant));
+                return;
+            }
+        } catch (IOException e) {
+            ctx.status(500).json(Map.of("message", "Couldn't list base backups: " + e.getMessage()));
+            return;
+        }
+        submitJob(ctx, BackupJob.Type.PREPARE_RECOVERY, instant.toString(),
+            output -> pitrManager.prepareRecovery(instant, output));
+    }
+
+    private void submitJob(Context ctx, BackupJob.Type type, String file, BackupJobManager.Task task) {
+        try {
+            BackupJob job = backupJobManager.submit(type, database, file, task);
+            ctx.header("Location", "/api/admin/backup/jobs/" + job.getId());
+            ctx.status(202).json(Map.of(
+                "message", type == BackupJob.Type.BASE_BACKUP ? "Base backup started" : "Recovery preparation started",
+                "jobId", job.getId()
+            ));
+        } catch (BackupJobManager.ConflictException e) {
+            ctx.status(409).json(Map.of(
+                "message", e.getMessage(),
+                "jobId", e.getActive().getId()
+            ));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Backup job queue is full, rejected {}", type);
+            ctx.status(503).json(Map.of("message", "Too many backup jobs queued, try again later"));
+        }
+    }
+}
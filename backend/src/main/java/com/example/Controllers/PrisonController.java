@@ -3,6 +3,7 @@ package com.example.Controllers;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,9 +14,17 @@ import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.example.Cache.PrisonCache;
+import com.example.Cache.TableVersions;
 import com.example.Config.DatabaseConfig;
 import com.example.Objects.Prison;
+import com.example.Utils.ConditionalGet;
+import com.example.Utils.KeysetPage;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
 
 /**
@@ -27,64 +36,238 @@ import io.javalin.http.Context;
  * @see com.example.Objects.Prison
  */
 public class PrisonController {
+    /** Rows fetched from the server-side cursor per round trip in streaming mode. */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Mapper used for streamed responses. It registers the same Java time module
+     * Javalin's default mapper picks up, so streamed and buffered bodies match.
+     */
+    private static final ObjectMapper STREAM_MAPPER = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
     private final DataSource dataSource;
     private final Logger logger;
+    private final PrisonCache prisonCache;
+    private final TableVersions tableVersions;
 
     /**
      * Constructor with dependency injection for testing.
      *
      * @param dataSource the data source to use for database connections
+     * @param prisonCache the cache serving prison reads
+     * @param tableVersions the versions tagging the prison list
      */
-    public PrisonController(DataSource dataSource) {
+    public PrisonController(DataSource dataSource, PrisonCache prisonCache, TableVersions tableVersions) {
         this.dataSource = dataSource;
         this.logger = LoggerFactory.getLogger(PrisonController.class);
+        this.prisonCache = prisonCache;
+        this.tableVersions = tableVersions;
+    }
+
+    /**
+     * Constructor with versions that are not tracking, so the prison list
+     * is never tagged.
+     *
+     * @param dataSource the data source to use for database connections
+     * @param prisonCache the cache serving prison reads
+     */
+    public PrisonController(DataSource dataSource, PrisonCache prisonCache) {
+        this(dataSource, prisonCache, new TableVersions(dataSource));
+    }
+
+    /**
+     * Constructor with DataSource only (uses a private prison cache).
+     *
+     * @param dataSource the data source to use for database connections
+     */
+    public PrisonController(DataSource dataSource) {
+        this(dataSource, new PrisonCache());
     }
 
     /**
      * Default constructor for production use.
-     * Uses the default DataSource from DatabaseConfig.
+     * Uses the default DataSource from DatabaseConfig, the shared prison cache
+     * and the shared table versions.
      */
     public PrisonController() {
-        this(DatabaseConfig.getDataSource());
+        this(DatabaseConfig.getDataSource(), PrisonCache.getInstance(), TableVersions.getInstance());
     }
 
     /**
-     * Retrieves all prisons from the database.
+     * Retrieves prisons from the database.
+     *
+     * <p>Supported query parameters:
+     * <ul>
+     *   <li>{@code securityLevel} and {@code isActive} filter the rows in SQL.</li>
+     *   <li>{@code limit} and {@code after} select a keyset page, see {@link KeysetPage}.</li>
+     *   <li>{@code stream=true} writes the rows to the response as they arrive
+     *       from the database instead of collecting them first, see
+     *       {@link #streamAllPrisons(Context, PrisonQuery)}.</li>
+     * </ul>
+     * The buffered path is served from the {@link PrisonCache} and tagged
+     * with the version of {@code prisons}, see {@link TableVersions}; a
+     * client sending the tag back in {@code If-None-Match} gets a 304
+     * without touching the cache.
      *
      * @param ctx the {@link Context} object representing the HTTP request and response
      */
     public void getAllPrisons(Context ctx) {
+        PrisonQuery query;
+        try {
+            query = PrisonQuery.fromContext(ctx);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of(
+                "error", "Invalid query parameters",
+                "message", e.getMessage()
+            ));
+            return;
+        }
+
+        if ("true".equalsIgnoreCase(ctx.queryParam("stream"))) {
+            streamAllPrisons(ctx, query);
+            return;
+        }
+
+        if (ConditionalGet.notModified(ctx, tableVersions.etag("prisons"))) {
+            return;
+        }
+
+        try {
+            List<Prison> fetched = prisonCache.get(query.cacheKey(), () -> loadPrisons(query));
+            List<Prison> prisonList = query.page().apply(fetched, Prison::getId, ctx);
+
+            if (!prisonList.isEmpty() || query.page().getAfterId() != null) {
+                ctx.status(200).json(prisonList);
+            } else {
+                ctx.status(404).json(Map.of("error", "No prisons found"));
+            }
+        } catch (Exception e) {
+            logger.error("Couldn't connect to database: ", e);
+            ctx.status(500).json(Map.of(
+                "error", "Database connection failed",
+                "message", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Loads the prisons matching a query. Used by the cache on a miss.
+     *
+     * @param query the filters and page to load
+     * @return the list of prisons
+     * @throws SQLException if the query fails
+     */
+    private List<Prison> loadPrisons(PrisonQuery query) throws SQLException {
         try (Connection conn = dataSource.getConnection()) {
-            String sql = "SELECT * FROM prisons";
             List<Prison> prisonList = new ArrayList<>();
 
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                ResultSet rs = stmt.executeQuery();
+            try (PreparedStatement stmt = query.prepare(conn);
+                 ResultSet rs = stmt.executeQuery()) {
                 while(rs.next()) {
-                    Prison prison = new Prison();
-
-                    prison.setId(rs.getInt("prison_id"));
-                    prison.setName(rs.getString("name"));
-                    prison.setLocation(rs.getString("location"));
-                    prison.setCapacity(rs.getInt("capacity"));
-                    prison.setSecurityLevel(rs.getString("security_level"));
-                    java.sql.Date sqlDate = rs.getDate("opening_date");
-                    if (sqlDate != null) {
-                        prison.setDate(sqlDate.toLocalDate());
+                    prisonList.add(mapPrison(rs));
+                }
+            }
+            return prisonList;
+        }
+    }
+
+    /**
+     * Returns every prison in id order, from the {@link PrisonCache} entry
+     * an unfiltered {@link #getAllPrisons(Context)} uses. Other controllers
+     * listing prisons read them through here.
+     *
+     * @return the list of prisons
+     * @throws SQLException if the query fails
+     */
+    List<Prison> loadAllPrisons() throws SQLException {
+        PrisonQuery query = new PrisonQuery(null, null, KeysetPage.unpaged());
+        return prisonCache.get(query.cacheKey(), () -> loadPrisons(query));
+    }
+
+    /**
+     * Returns the prison cache counters.
+     *
+     * @param ctx the {@link Context} object representing the HTTP request and response
+     */
+    public void cacheStats(Context ctx) {
+        ctx.status(200).json(prisonCache.stats());
+    }
+
+    /**
+     * Streams all prisons straight from a server-side cursor to the response.
+     *
+     * <p>PostgreSQL only honours the JDBC fetch size inside a transaction, so
+     * autocommit is switched off for the duration of the query. Each row is
+     * serialised with a {@link JsonGenerator} as soon as it is read, which keeps
+     * heap usage independent of the table size. Once the first row has been
+     * written the status can no longer change, so a failure after that point
+     * only truncates the body and is logged.
+     *
+     * <p>A keyset page is read before anything is written, so that the
+     * {@value KeysetPage#NEXT_CURSOR_HEADER} header can still be set.
+     *
+     * @param ctx the {@link Context} object representing the HTTP request and response
+     * @param query the filters and page to stream
+     */
+    private void streamAllPrisons(Context ctx, PrisonQuery query) {
+        boolean streaming = false;
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = query.prepare(conn)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        // Past the last page, like the buffered path
+                        if (query.page().getAfterId() != null) {
+                            ctx.status(200).json(List.of());
+                        } else {
+                            ctx.status(404).json(Map.of("error", "No prisons found"));
+                        }
+                        return;
                     }
-                    prison.setNumOfCells(rs.getInt("number_of_cells"));
-                    prison.setIsActive(rs.getBoolean("is_active"));
 
-                    prisonList.add(prison);
-                }
+                    // A page is at most MAX_LIMIT rows; read it whole so the next-page header goes out before the body
+                    List<Prison> page = null;
+                    if (query.page().isPaged()) {
+                        List<Prison> rows = new ArrayList<>();
+                        do {
+                            rows.add(mapPrison(rs));
+                        } while (rows.size() < query.page().fetchSize() && rs.next());
+                        page = query.page().apply(rows, Prison::getId, ctx);
+                    }
 
-                if (!prisonList.isEmpty()) {
-                    ctx.status(200).json(prisonList);
-                } else {
-                    ctx.status(404).json(Map.of("error", "No prisons found"));
+                    ctx.status(200).contentType(ContentType.APPLICATION_JSON);
+                    streaming = true;
+
+                    try (JsonGenerator gen = STREAM_MAPPER.getFactory().createGenerator(ctx.outputStream())) {
+                        gen.writeStartArray();
+                        if (page != null) {
+                            for (Prison prison : page) {
+                                gen.writeObject(prison);
+                            }
+                        } else {
+                            do {
+                                gen.writeObject(mapPrison(rs));
+                            } while (rs.next());
+                        }
+                        gen.writeEndArray();
+                    }
                 }
+            } finally {
+                // Read-only transaction, ending it just releases the cursor
+                conn.rollback();
+                conn.setAutoCommit(true);
             }
         } catch (Exception e) {
+            if (streaming) {
+                logger.error("Streaming prisons failed after the response was committed: ", e);
+                return;
+            }
             logger.error("Couldn't connect to database: ", e);
             ctx.status(500).json(Map.of(
                 "error", "Database connection failed",
@@ -93,6 +276,31 @@ public class PrisonController {
         }
     }
 
+    /**
+     * Maps the current row of a {@code prisons} result set to a {@link Prison}.
+     *
+     * @param rs the result set positioned on a row
+     * @return the mapped prison
+     * @throws SQLException if a column cannot be read
+     */
+    private Prison mapPrison(ResultSet rs) throws SQLException {
+        Prison prison = new Prison();
+
+        prison.setId(rs.getInt("prison_id"));
+        prison.setName(rs.getString("name"));
+        prison.setLocation(rs.getString("location"));
+        prison.setCapacity(rs.getInt("capacity"));
+        prison.setSecurityLevel(rs.getString("security_level"));
+        java.sql.Date sqlDate = rs.getDate("opening_date");
+        if (sqlDate != null) {
+            prison.setDate(sqlDate.toLocalDate());
+        }
+        prison.setNumOfCells(rs.getInt("number_of_cells"));
+        prison.setIsActive(rs.getBoolean("is_active"));
+
+        return prison;
+    }
+
     /**
      * Deletes a prison by ID.
      *
@@ -108,6 +316,9 @@ public class PrisonController {
                 int rows = stmt.executeUpdate();
 
                 if (rows > 0) {
+                    // Autocommit is on, so the delete is already committed here
+                    prisonCache.invalidateAll();
+                    tableVersions.bump("prisons");
                     ctx.status(200).json(Map.of("message", "Prison deleted successfully"));
                 } else {
                     ctx.status(404).json(Map.of("message", "Prison not found"));
@@ -154,6 +365,8 @@ public class PrisonController {
                 stmt.setBoolean(6, prison.getIsActive());
                 
                 stmt.executeUpdate();
+                prisonCache.invalidateAll();
+                tableVersions.bump("prisons");
 
                 // POBIERANIE GENEROWANEGO ID
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
@@ -212,6 +425,8 @@ public class PrisonController {
 
                 int rows = stmt.executeUpdate();
                 if (rows > 0) {
+                    prisonCache.invalidateAll();
+                    tableVersions.bump("prisons");
                     ctx.status(200).json(Map.of("message", "Prison edited successfully"));
                 } else {
                     ctx.status(404).json(Map.of("message", "Prison not found"));
@@ -231,4 +446,60 @@ public class PrisonController {
             ));
         }
     } 
+
+    /**
+     * Filters and page of a prison list request, translated to SQL.
+     */
+    private record PrisonQuery(String securityLevel, Boolean isActive, KeysetPage page) {
+
+        static PrisonQuery fromContext(Context ctx) {
+            String isActiveParam = ctx.queryParam("isActive");
+            Boolean isActive = null;
+            if (isActiveParam != null) {
+                if (!isActiveParam.equalsIgnoreCase("true") && !isActiveParam.equalsIgnoreCase("false")) {
+                    throw new IllegalArgumentException("isActive must be true or false");
+                }
+                isActive = Boolean.parseBoolean(isActiveParam);
+            }
+            return new PrisonQuery(ctx.queryParam("securityLevel"), isActive, KeysetPage.fromQuery(ctx));
+        }
+
+        String cacheKey() {
+            return "securityLevel=" + securityLevel + ",isActive=" + isActive + "," + page;
+        }
+
+        PreparedStatement prepare(Connection conn) throws SQLException {
+            StringBuilder sql = new StringBuilder("SELECT * FROM prisons WHERE TRUE");
+            List<Object> params = new ArrayList<>();
+
+            if (securityLevel != null) {
+                sql.append(" AND security_level = ?");
+                params.add(securityLevel);
+            }
+            if (isActive != null) {
+                sql.append(" AND is_active = ?");
+                params.add(isActive);
+            }
+            if (page.getAfterId() != null) {
+                sql.append(" AND prison_id > ?");
+                params.add(page.getAfterId());
+            }
+            sql.append(" ORDER BY prison_id");
+            if (page.isPaged()) {
+                sql.append(" LIMIT ?");
+                params.add(page.fetchSize());
+            }
+
+            PreparedStatement stmt = conn.prepareStatement(sql.toString());
+            try {
+                for (int i = 0; i < params.size(); i++) {
+                    stmt.setObject(i + 1, params.get(i));
+                }
+            } catch (SQLException e) {
+                stmt.close();
+                throw e;
+            }
+            return stmt;
+        }
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.Controllers;
 
 import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -8,19 +9,32 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Map;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
 import java.security.Key;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.mindrot.jbcrypt.BCrypt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.example.Auth.PasswordService;
+import com.example.Auth.TokenService;
+import com.example.Cache.TableVersions;
 import com.example.Config.DatabaseConfig;
+import com.example.Health.HealthProber;
 import com.example.Objects.*;
+import com.example.Utils.ConditionalGet;
+import com.example.Utils.KeysetPage;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.javalin.http.Context;
 
@@ -33,49 +47,112 @@ import io.javalin.http.Context;
  * @see com.example.Objects.User
  */
 public class UserController {
+    /** Rows hashed and inserted together in one transaction by {@link #bulkImport(Context)}. */
+    private static final int IMPORT_CHUNK_SIZE =
+        Integer.parseInt(System.getenv().getOrDefault("BULK_IMPORT_CHUNK_SIZE", "200"));
+
+    private static final String BULK_INSERT_SQL =
+        "INSERT INTO users(username, email, password, role) VALUES (?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private static final ObjectMapper IMPORT_MAPPER = new ObjectMapper();
+
     private final DataSource dataSource;
     private final Logger logger;
     private final Key secretKey;
+    private final PasswordService passwordService;
+    private final HealthProber healthProber;
+    private final TableVersions tableVersions;
 
     /**
      * Constructor with dependency injection for testing.
      *
      * @param dataSource the data source to use for database connections
      * @param secretKey the secret key for JWT token generation
+     * @param passwordService the service verifying passwords off the request thread
+     * @param healthProber the prober answering health checks
+     * @param tableVersions the versions tagging the user list
      */
-    public UserController(DataSource dataSource, Key secretKey) {
+    public UserController(DataSource dataSource, Key secretKey, PasswordService passwordService,
+                          HealthProber healthProber, TableVersions tableVersions) {
         this.dataSource = dataSource;
         this.logger = LoggerFactory.getLogger(UserController.class);
         this.secretKey = secretKey;
+        this.passwordService = passwordService;
+        this.healthProber = healthProber;
+        this.tableVersions = tableVersions;
     }
 
     /**
-     * Constructor with DataSource only (generates default secret key).
+     * Constructor with versions that are not tracking, so the user list is
+     * never tagged.
+     *
+     * @param dataSource the data source to use for database connections
+     * @param secretKey the secret key for JWT token generation
+     * @param passwordService the service verifying passwords off the request thread
+     * @param healthProber the prober answering health checks
+     */
+    public UserController(DataSource dataSource, Key secretKey, PasswordService passwordService, HealthProber healthProber) {
+        this(dataSource, secretKey, passwordService, healthProber, new TableVersions(dataSource));
+    }
+
+    /**
+     * Constructor with a prober that is not running, so every health check
+     * is a live one.
+     *
+     * @param dataSource the data source to use for database connections
+     * @param secretKey the secret key for JWT token generation
+     * @param passwordService the service verifying passwords off the request thread
+     */
+    public UserController(DataSource dataSource, Key secretKey, PasswordService passwordService) {
+        this(dataSource, secretKey, passwordService, new HealthProber(dataSource));
+    }
+
+    /**
+     * Constructor with the shared password service.
+     *
+     * @param dataSource the data source to use for database connections
+     * @param secretKey the secret key for JWT token generation
+     */
+    public UserController(DataSource dataSource, Key secretKey) {
+        this(dataSource, secretKey, PasswordService.getInstance());
+    }
+
+    /**
+     * Constructor with DataSource only (signs tokens with the shared key of
+     * {@link TokenService}, so {@link com.example.Auth.AuthHandler} and other
+     * replicas can verify them).
      *
      * @param dataSource the data source to use for database connections
      */
     public UserController(DataSource dataSource) {
-        this(dataSource, Keys.secretKeyFor(SignatureAlgorithm.HS256));
+        this(dataSource, TokenService.getInstance().getKey());
     }
 
     /**
      * Default constructor for production use.
      */
     public UserController() {
-        this(DatabaseConfig.getDataSource());
+        this(
+            DatabaseConfig.getDataSource(),
+            TokenService.getInstance().getKey(),
+            PasswordService.getInstance(),
+            HealthProber.getInstance(),
+            TableVersions.getInstance()
+        );
     }
 
     /**
-     * Authenticates a user by username and password.
+     * Looks up the stored credentials of a user.
+     *
+     * <p>Only the lookup happens here; the password is checked later, after
+     * the connection has been returned to the pool.
      *
      * @param conn the database connection
      * @param username the username
-     * @param password the plain text password
-     * @return the authenticated User object, or null if authentication fails
+     * @return the user and their password hash, or null if there is no such user
      * @throws SQLException if a database error occurs
      */
-    private User authenticateUser(Connection conn, String username, String password) 
-            throws SQLException {
+    private StoredCredentials findCredentials(Connection conn, String username) throws SQLException {
         String sql = "SELECT id, username, email, password, role FROM users WHERE username = ?";
         
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -83,22 +160,23 @@ public class UserController {
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                String hashedPassword = rs.getString("password");
-                
-                if (BCrypt.checkpw(password, hashedPassword)) {
-                    User user = new User();
-                    user.setId(rs.getInt("id"));
-                    user.setUsername(rs.getString("username"));
-                    user.setEmail(rs.getString("email"));
-                    user.setRole(rs.getString("role"));
-                    
-                    return user;
-                }
+                User user = new User();
+                user.setId(rs.getInt("id"));
+                user.setUsername(rs.getString("username"));
+                user.setEmail(rs.getString("email"));
+                user.setRole(rs.getString("role"));
+
+                return new StoredCredentials(user, rs.getString("password"));
             }
         }
         return null;
     }
 
+    /**
+     * A user row together with its password hash.
+     */
+    private record StoredCredentials(User user, String hashedPassword) {}
+
     /**
      * Generates a JWT token for the given user.
      *
@@ -121,16 +199,22 @@ public class UserController {
     /**
      * Handles a simple health-check or test request.
      *
+     * <p>Answers from the {@link HealthProber} status; {@code ?deep=true}
+     * checks the database live.
+     *
      * @param ctx the {@link Context} object representing the HTTP request and response
      */
     public void helloMsg(Context ctx) {
-        try (Connection conn = dataSource.getConnection()) {
+        HealthProber.Status status = healthProber.status("true".equals(ctx.queryParam("deep")));
+        ctx.header(HealthProber.AGE_HEADER, String.valueOf(status.ageMillis()));
+
+        if (status.databaseUp()) {
             ctx.status(200).result("Hello from backend");
-        } catch (Exception e) {
-            logger.error("Couldn't connect to database: ", e);
+        } else {
+            logger.error("Couldn't connect to database: {}", status.error());
             ctx.status(500).json(Map.of(
                 "error", "Database connection failed",
-                "message", e.getMessage()
+                "message", String.valueOf(status.error())
             ));
         }
     }
@@ -138,14 +222,23 @@ public class UserController {
     /**
      * Handles user login authentication.
      *
+     * <p>The user row is fetched and the connection released before hashing
+     * starts. BCrypt verification then runs on the {@link PasswordService}
+     * executor and the response is completed asynchronously, so neither a
+     * Jetty thread nor a pooled connection is held while the CPU works. When
+     * the verification queue is full the request is answered with <b>503</b>.
+     *
      * @param ctx the {@link Context} object containing login credentials
      */
     public void login(Context ctx) {
+        StoredCredentials credentials;
+        String password;
+
         try (Connection conn = dataSource.getConnection()) {
             LoginRequest loginData = ctx.bodyAsClass(LoginRequest.class);
             
             String username = loginData.getUsername();
-            String password = loginData.getPassword();
+            password = loginData.getPassword();
             
             // Validate input
             if (username == null || username.isEmpty() || password == null || password.isEmpty()) {
@@ -155,40 +248,110 @@ public class UserController {
             
             logger.info("Login attempt for user: {}", username);
             
-            User user = authenticateUser(conn, username, password);
-            
-            if (user != null) {
-                LoginResponse response = new LoginResponse(
-                    true,
-                    "Login successful",
-                    user.getUsername(),
-                    user.getEmail(),
-                    user.getRole(),
-                    generateToken(user)
-                );
-                ctx.status(200).json(response);
-            } else {
-                ctx.status(401).json(Map.of("error", "Invalid credentials"));
-            }
+            credentials = findCredentials(conn, username);
         } catch (Exception e) {
             logger.error("Login error: ", e);
             ctx.status(500).json(Map.of(
                 "error", "Database connection failed",
                 "message", e.getMessage()
             ));
+            return;
+        }
+
+        if (credentials == null) {
+            ctx.status(401).json(Map.of("error", "Invalid credentials"));
+            return;
         }
+
+        ctx.future(() -> passwordService.verify(password, credentials.hashedPassword())
+            .thenAccept(matches -> {
+                if (matches) {
+                    User user = credentials.user();
+                    LoginResponse response = new LoginResponse(
+                        true,
+                        "Login successful",
+                        user.getUsername(),
+                        user.getEmail(),
+                        user.getRole(),
+                        generateToken(user)
+                    );
+                    ctx.status(200).json(response);
+                } else {
+                    ctx.status(401).json(Map.of("error", "Invalid credentials"));
+                }
+            })
+            .exceptionally(e -> {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (cause instanceof RejectedExecutionException) {
+                    logger.warn("Login rejected, password verification queue is full");
+                    ctx.header("Retry-After", "1");
+                    ctx.status(503).json(Map.of("error", "Too many login attempts, try again shortly"));
+                } else {
+                    logger.error("Login error: ", cause);
+                    ctx.status(500).json(Map.of(
+                        "error", "Login failed",
+                        "message", String.valueOf(cause.getMessage())
+                    ));
+                }
+                return null;
+            }));
     }
 
     /**
-     * Retrieves all users from the database.
+     * Retrieves users from the database.
+     *
+     * <p>{@code ?role=} filters by role in SQL, and {@code ?limit=} with
+     * {@code ?after=} select a keyset page on {@code users.id}, see
+     * {@link KeysetPage}. Without them every user is returned.
+     *
+     * <p>The response is tagged with the version of {@code users}, see
+     * {@link TableVersions}; a client sending the tag back in
+     * {@code If-None-Match} gets a 304 without a query.
      *
      * @param ctx the {@link Context} object
      */
     public void getAllUsers(Context ctx) {
+        KeysetPage page;
+        try {
+            page = KeysetPage.fromQuery(ctx);
+        } catch (IllegalArgumentException e) {
+            ctx.status(400).json(Map.of(
+                "error", "Invalid query parameters",
+                "message", e.getMessage()
+            ));
+            return;
+        }
+
+        if (ConditionalGet.notModified(ctx, tableVersions.etag("users"))) {
+            return;
+        }
+
         try (Connection conn = dataSource.getConnection()) {
-            String sql = "SELECT * FROM users";
+            String role = ctx.queryParam("role");
+            StringBuilder sql = new StringBuilder("SELECT id, username, email, role FROM users WHERE TRUE");
+            if (role != null) {
+                sql.append(" AND role = ?");
+            }
+            if (page.getAfterId() != null) {
+                sql.append(" AND id > ?");
+            }
+            sql.append(" ORDER BY id");
+            if (page.isPaged()) {
+                sql.append(" LIMIT ?");
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                int param = 1;
+                if (role != null) {
+                    stmt.setString(param++, role);
+                }
+                if (page.getAfterId() != null) {
+                    stmt.setInt(param++, page.getAfterId());
+                }
+                if (page.isPaged()) {
+                    stmt.setInt(param++, page.fetchSize());
+                }
 
-            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                 ResultSet rs = stmt.executeQuery();
                 List<User> usersList = new ArrayList<>();
 
@@ -202,7 +365,7 @@ public class UserController {
                     usersList.add(user);
                 }
 
-                ctx.status(200).json(usersList);    
+                ctx.status(200).json(page.apply(usersList, User::getId, ctx));
             }
         } catch (Exception e) {
             logger.error("Couldn't connect to database: ", e);
@@ -241,6 +404,7 @@ public class UserController {
                 stmt.setString(4, user.getRole() != null ? user.getRole() : "user");
                 
                 stmt.executeUpdate();
+                tableVersions.bump("users");
 
                 // POBIERANIE GENEROWANEGO ID
                 try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
@@ -261,6 +425,190 @@ public class UserController {
         }
     }
 
+    /**
+     * Imports many users in one request.
+     *
+     * <p>The body is either a JSON array of users or newline-delimited JSON
+     * (one user object per line). It is parsed as a stream and processed in
+     * chunks of {@code BULK_IMPORT_CHUNK_SIZE} rows:
+     * <ol>
+     *   <li>passwords of the chunk are hashed in parallel across all cores,</li>
+     *   <li>the rows are inserted with one JDBC batch in their own transaction.</li>
+     * </ol>
+     * The connection is only borrowed for the insert, not while hashing.
+     *
+     * <p>The response lists a result for every input row: {@code created} with
+     * the new id, {@code duplicate} with the violated constraint
+     * ({@code users_username_key} or {@code users_email_key}), {@code invalid},
+     * or {@code error} if the chunk's transaction failed.
+     *
+     * @param ctx the {@link Context} object containing the users to import
+     */
+    public void bulkImport(Context ctx) {
+        logger.info("Redirected to bulk user import");
+        List<Map<String, Object>> results = new ArrayList<>();
+        List<ImportRow> chunk = new ArrayList<>();
+        String parseError = null;
+        int index = 0;
+
+        try (MappingIterator<User> users = IMPORT_MAPPER.readerFor(User.class).readValues(ctx.bodyInputStream())) {
+            while (true) {
+                User user;
+                try {
+                    if (!users.hasNextValue()) {
+                        break;
+                    }
+                    user = users.nextValue();
+                } catch (IOException e) {
+                    parseError = "Malformed input after row " + index + ": " + e.getMessage();
+                    break;
+                }
+
+                int rowIndex = index++;
+                if (user.getUsername() == null || user.getUsername().isEmpty() ||
+                    user.getPassword() == null || user.getPassword().isEmpty() ||
+                    user.getEmail() == null || user.getEmail().isEmpty()) {
+                    Map<String, Object> result = rowResult(rowIndex, user.getUsername(), "invalid");
+                    result.put("error", "All fields are required");
+                    results.add(result);
+                    continue;
+                }
+
+                chunk.add(new ImportRow(rowIndex, user));
+                if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                    importChunk(chunk, results);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, results);
+            }
+        } catch (IOException e) {
+            parseError = "Malformed input: " + e.getMessage();
+        }
+
+        if (index == 0) {
+            ctx.status(400).json(Map.of(
+                "error", "No users to import",
+                "message", parseError != null ? parseError : "Request body is empty"
+            ));
+            return;
+        }
+
+        results.sort(Comparator.comparingInt(result -> (Integer) result.get("index")));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("total", results.size());
+        response.put("created", results.stream().filter(r -> "created".equals(r.get("status"))).count());
+        response.put("duplicates", results.stream().filter(r -> "duplicate".equals(r.get("status"))).count());
+        response.put("failed", results.stream()
+            .filter(r -> "invalid".equals(r.get("status")) || "error".equals(r.get("status"))).count());
+        if (parseError != null) {
+            response.put("error", parseError);
+        }
+        response.put("results", results);
+        ctx.status(200).json(response);
+    }
+
+    /**
+     * Hashes and inserts one chunk of users, appending a result per row.
+     */
+    private void importChunk(List<ImportRow> chunk, List<Map<String, Object>> results) {
+        List<String> hashes = passwordService.hashAll(
+            chunk.stream().map(row -> row.user().getPassword()).toList()
+        );
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(BULK_INSERT_SQL, new String[] {"id", "username"})) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    User user = chunk.get(i).user();
+                    stmt.setString(1, user.getUsername());
+                    stmt.setString(2, user.getEmail());
+                    stmt.setString(3, hashes.get(i));
+                    stmt.setString(4, user.getRole() != null ? user.getRole() : "user");
+                    stmt.addBatch();
+                }
+
+                int[] counts = stmt.executeBatch();
+
+                Map<String, Integer> createdIds = new HashMap<>();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        createdIds.put(keys.getString("username"), keys.getInt("id"));
+                    }
+                }
+
+                // ON CONFLICT DO NOTHING skipped these rows, find out which key they hit
+                List<String> skippedNames = new ArrayList<>();
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (counts[i] == 0) {
+                        skippedNames.add(chunk.get(i).user().getUsername());
+                    }
+                }
+                Set<String> takenNames = skippedNames.isEmpty() ? Set.of() : existingUsernames(conn, skippedNames);
+
+                conn.commit();
+                if (!createdIds.isEmpty()) {
+                    tableVersions.bump("users");
+                }
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    ImportRow row = chunk.get(i);
+                    String username = row.user().getUsername();
+                    if (counts[i] == 0) {
+                        Map<String, Object> result = rowResult(row.index(), username, "duplicate");
+                        result.put("constraint", takenNames.contains(username) ? "users_username_key" : "users_email_key");
+                        results.add(result);
+                    } else {
+                        Map<String, Object> result = rowResult(row.index(), username, "created");
+                        result.put("id", createdIds.get(username));
+                        results.add(result);
+                    }
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Bulk import chunk failed: ", e);
+            for (ImportRow row : chunk) {
+                Map<String, Object> result = rowResult(row.index(), row.user().getUsername(), "error");
+                result.put("error", e.getMessage());
+                results.add(result);
+            }
+        }
+    }
+
+    private Set<String> existingUsernames(Connection conn, List<String> usernames) throws SQLException {
+        String sql = "SELECT username FROM users WHERE username = ANY(?)";
+        Set<String> taken = new HashSet<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("varchar", usernames.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    taken.add(rs.getString("username"));
+                }
+            }
+        }
+        return taken;
+    }
+
+    private Map<String, Object> rowResult(int index, String username, String status) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", index);
+        result.put("username", username);
+        result.put("status", status);
+        return result;
+    }
+
+    /**
+     * A parsed import row and its position in the request body.
+     */
+    private record ImportRow(int index, User user) {}
+
     /**
      * Deletes a user by ID.
      *
@@ -277,6 +625,7 @@ public class UserController {
                 int rows = stmt.executeUpdate();
 
                 if (rows > 0) {
+                    tableVersions.bump("users");
                     ctx.status(200).json(Map.of("message", "User deleted successfully"));
                 } else {
                     ctx.status(404).json(Map.of("message", "User not found"));
@@ -326,6 +675,7 @@ public class UserController {
 
                 int rows = stmt.executeUpdate();
                 if (rows > 0) {
+                    tableVersions.bump("users");
                     ctx.status(200).json(Map.of("message", "User edited successfully"));
                 } else {
                     ctx.status(404).json(Map.of("message", "User not found"));
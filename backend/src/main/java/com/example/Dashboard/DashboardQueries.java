@@ -0,0 +1,195 @@
+package com.example.Dashboard;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code DashboardQueries} class holds the queries behind the admin
+ * dashboard and maps their rows to the JSON the frontend reads, for the
+ * full dashboard and for the per-row updates pushed by
+ * {@link DashboardStream}.
+ */
+public final class DashboardQueries {
+
+    /**
+     * Occupancy of the active prisons, read from the counters the
+     * {@code V2__prison_occupancy_counters} triggers maintain, so it costs
+     * one row per prison whatever the number of criminals.
+     */
+    private static final String OCCUPANCY_SELECT = """
+        SELECT
+            p.prison_id,
+            p.name AS prison_name,
+            p.location,
+            p.capacity,
+            p.security_level,
+            COALESCE(o.current_inmates, 0) AS current_inmates,
+            round(COALESCE(o.current_inmates, 0)::numeric / p.capacity * 100, 2) AS occupancy_percentage
+        FROM public.prisons p
+        LEFT JOIN public.prison_occupancy_counters o ON o.prison_id = p.prison_id
+        WHERE p.is_active = TRUE
+    """;
+
+    public static final String OCCUPANCY_SQL = OCCUPANCY_SELECT + " ORDER BY occupancy_percentage DESC";
+
+    /** Occupancy of some prisons. */
+    public static final String OCCUPANCY_BY_PRISON_SQL = OCCUPANCY_SELECT + " AND p.prison_id = ANY (?)";
+
+    public static final String VISITS_SQL = """
+        SELECT
+            c.first_name,
+            c.last_name,
+            p.name AS prison_name,
+            pv.visitor_first_name,
+            pv.visitor_last_name,
+            pv.relationship,
+            pv.visit_datetime
+        FROM prison_visits pv
+        LEFT JOIN criminals c ON pv.criminal_id = c.criminal_id
+        LEFT JOIN prisons p ON pv.prison_id = p.prison_id
+        WHERE pv.is_approved = TRUE
+        ORDER BY pv.visit_datetime
+        LIMIT 3
+    """;
+
+    public static final String INCIDENTS_SQL = """
+        SELECT
+            incident_id,
+            incident_datetime,
+            prison_name,
+            incident_type,
+            severity,
+            criminal_involved,
+            officer_involved,
+            description
+        FROM view_recent_incidents
+    """;
+
+    /**
+     * Incidents by ID, shaped like {@code view_recent_incidents}, whose
+     * {@code LIMIT} keeps a filter from reaching the tables.
+     */
+    public static final String INCIDENTS_BY_ID_SQL = """
+        SELECT
+            pi.incident_id,
+            pi.incident_datetime,
+            pr.name AS prison_name,
+            pi.incident_type,
+            pi.severity,
+            c.first_name || ' ' || c.last_name AS criminal_involved,
+            o.first_name || ' ' || o.last_name AS officer_involved,
+            pi.description
+        FROM prison_incidents pi
+        JOIN prisons pr ON pi.prison_id = pr.prison_id
+        LEFT JOIN criminals c ON pi.criminal_id = c.criminal_id
+        LEFT JOIN officers o ON pi.officer_id = o.officer_id
+        WHERE pi.incident_id = ANY (?)
+    """;
+
+    private DashboardQueries() {
+    }
+
+    /**
+     * Maps a single result set row to a JSON-ready map.
+     */
+    @FunctionalInterface
+    public interface RowMapper {
+        Map<String, Object> map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Loads the whole dashboard on one connection.
+     *
+     * @param conn the connection
+     * @return the dashboard, as {@code GET /api/db/dashboard} answers it
+     * @throws SQLException if a query fails
+     */
+    public static Map<String, Object> load(Connection conn) throws SQLException {
+        Map<String, Object> response = new HashMap<>();
+        response.put("prisons", query(conn, OCCUPANCY_SQL, DashboardQueries::mapOccupancy));
+        response.put("visits", query(conn, VISITS_SQL, DashboardQueries::mapVisit));
+        response.put("incidents", query(conn, INCIDENTS_SQL, DashboardQueries::mapIncident));
+        return response;
+    }
+
+    /**
+     * Runs a query and maps every row.
+     *
+     * @param conn the connection
+     * @param sql the query, with one {@code integer[]} parameter per element of {@code ids}
+     * @param mapper maps a row
+     * @param ids IDs bound to the parameters, one collection per parameter
+     * @return the rows
+     * @throws SQLException if the query fails
+     */
+    @SafeVarargs
+    public static List<Map<String, Object>> query(Connection conn, String sql, RowMapper mapper,
+                                                  Collection<Integer>... ids) throws SQLException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.length; i++) {
+                Array array = conn.createArrayOf("integer", ids[i].toArray());
+                stmt.setArray(i + 1, array);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    public static Map<String, Object> mapOccupancy(ResultSet rs) throws SQLException {
+        Map<String, Object> prisonStats = new HashMap<>();
+        prisonStats.put("id", rs.getInt("prison_id"));
+        prisonStats.put("name", rs.getString("prison_name"));
+        prisonStats.put("location", rs.getString("location"));
+        prisonStats.put("capacity", rs.getInt("capacity"));
+        prisonStats.put("securityLevel", rs.getString("security_level"));
+        prisonStats.put("currentInmates", rs.getInt("current_inmates"));
+        prisonStats.put("occupancyPercentage", rs.getDouble("occupancy_percentage"));
+        return prisonStats;
+    }
+
+    public static Map<String, Object> mapVisit(ResultSet rs) throws SQLException {
+        Map<String, Object> visitStats = new HashMap<>();
+        visitStats.put("criminal_first_name", rs.getString("first_name"));
+        visitStats.put("criminal_last_name", rs.getString("last_name"));
+        visitStats.put("prison_name", rs.getString("prison_name"));
+        visitStats.put("visitor_first_name", rs.getString("visitor_first_name"));
+        visitStats.put("visitor_last_name", rs.getString("visitor_last_name"));
+        visitStats.put("relationship", rs.getString("relationship"));
+        java.sql.Timestamp tsp = rs.getTimestamp("visit_datetime");
+        if (tsp != null) {
+            visitStats.put("visit_datetime", tsp);
+        }
+        return visitStats;
+    }
+
+    public static Map<String, Object> mapIncident(ResultSet rs) throws SQLException {
+        Map<String, Object> incidentStats = new HashMap<>();
+        incidentStats.put("incident_id", rs.getInt("incident_id"));
+        incidentStats.put("prison_name", rs.getString("prison_name"));
+        incidentStats.put("incident_type", rs.getString("incident_type"));
+        incidentStats.put("severity", rs.getString("severity"));
+        incidentStats.put("criminal_involved", rs.getString("criminal_involved"));
+        incidentStats.put("officer_involved", rs.getString("officer_involved"));
+
+        java.sql.Timestamp tsp = rs.getTimestamp("incident_datetime");
+        if (tsp != null) {
+            incidentStats.put("incident_datetime", tsp);
+        }
+
+        incidentStats.put("description", rs.getString("description"));
+        return incidentStats;
+    }
+}
@@ -0,0 +1,503 @@
+package com.example.Dashboard;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Config.DatabaseConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.javalin.http.sse.SseClient;
+
+/**
+ * The {@code DashboardStream} class pushes live admin dashboard updates to
+ * every open dashboard over Server-Sent Events.
+ *
+ * <p>Triggers installed by the {@code V1__dashboard_notify} and
+ * {@code V5__prison_dashboard_notify} migrations
+ * {@code NOTIFY dashboard_events} when a write changes what the dashboard
+ * shows. One listener connection, outside the pool, receives them;
+ * notifications arriving within {@value #COALESCE_MILLIS} ms are handled
+ * as one round, and each round re-reads only what changed and sends it to
+ * every subscriber:
+ * <ul>
+ *   <li>{@code occupancy} — the occupancy rows of the prisons whose
+ *       imprisoned criminals or whose own columns changed, and under
+ *       {@code removed} the IDs of those no longer listed because they
+ *       were deleted or deactivated</li>
+ *   <li>{@code incident} / {@code incidentRemoved} — incidents added or
+ *       edited, and the IDs of deleted ones</li>
+ *   <li>{@code visits} — the upcoming approved visits, when they changed</li>
+ * </ul>
+ * Updates carry current values rather than differences, so applying one
+ * twice is harmless. A subscriber first receives a {@code snapshot} event
+ * with the whole dashboard; snapshots are shared by every subscriber
+ * until the next round, so the database load follows the write rate and
+ * not the number of open dashboards.
+ *
+ * <p>Every subscriber has its own bounded queue and writer thread, so a
+ * slow client never holds up the others. When its queue overflows the
+ * queued updates are dropped for a fresh snapshot. A comment is sent
+ * every {@code DASHBOARD_STREAM_HEARTBEAT_SECONDS} (default 15) while
+ * idle, which keeps proxies from closing the stream and notices clients
+ * that went away. After the listener loses its connection it reconnects
+ * with backoff and sends everyone a snapshot, since notifications sent
+ * meanwhile are lost. Writes that bypass the triggers, such as a restore,
+ * call {@link #resync()} for the same reason.
+ */
+public class DashboardStream {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStream.class);
+    private static DashboardStream instance;
+
+    /** The channel the triggers notify. */
+    public static final String CHANNEL = "dashboard_events";
+
+    /** How long notifications are gathered into one round. */
+    static final long COALESCE_MILLIS = 50;
+
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    /** Queued in place of updates a subscriber has to catch up on. */
+    private static final Message RESYNC = new Message("snapshot", null, 0);
+
+    /**
+     * Where a subscriber's events are written.
+     */
+    public interface Sink {
+        /** Sends an event; a closed sink ignores it. */
+        void send(String event, String data);
+
+        /** Sends a comment, which clients ignore. */
+        void comment(String text);
+
+        boolean isClosed();
+
+        void close();
+
+        /** Runs the callback once the client goes away. */
+        void onClose(Runnable callback);
+    }
+
+    /**
+     * An event queued for a subscriber.
+     *
+     * @param event the event name
+     * @param data the JSON data, {@code null} for a snapshot
+     * @param round the round the data was read in
+     */
+    private record Message(String event, String data, long round) {}
+
+    /**
+     * A snapshot of the whole dashboard.
+     *
+     * @param data the JSON data
+     * @param round the round it was read in; updates of this round or
+     *              older are already part of it
+     */
+    private record Snapshot(String data, long round) {}
+
+    private final DataSource dataSource;
+    private final DataSource listenerSource;
+    private final int queueCapacity;
+    private final long heartbeatMillis;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong round = new AtomicLong();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private Snapshot snapshot;
+    private volatile String lastVisits;
+
+    private volatile Thread listener;
+
+    /**
+     * Creates a stream with explicit settings. Call {@link #start()} to
+     * listen for changes.
+     *
+     * @param dataSource the pool the dashboard is read from
+     * @param listenerSource opens the listener connection, which stays open
+     * @param queueCapacity events queued per subscriber before it is resynced
+     * @param heartbeatMillis idle time before a heartbeat comment is sent
+     */
+    public DashboardStream(DataSource dataSource, DataSource listenerSource, int queueCapacity, long heartbeatMillis) {
+        this.dataSource = dataSource;
+        this.listenerSource = listenerSource;
+        this.queueCapacity = Math.max(2, queueCapacity);
+        this.heartbeatMillis = heartbeatMillis;
+    }
+
+    /**
+     * Returns the stream of the application database, configured from the
+     * environment. It is not started.
+     *
+     * @return the shared {@link DashboardStream}
+     */
+    public static synchronized DashboardStream getInstance() {
+        if (instance == null) {
+            PGSimpleDataSource listenerSource = new PGSimpleDataSource();
+            listenerSource.setURL(DatabaseConfig.getJdbcUrl());
+            listenerSource.setUser(DatabaseConfig.getUser());
+            listenerSource.setPassword(DatabaseConfig.getPassword());
+            listenerSource.setApplicationName("prisonflow-dashboard-listener");
+            instance = new DashboardStream(
+                DatabaseConfig.getDataSource(),
+                listenerSource,
+                Integer.parseInt(System.getenv().getOrDefault("DASHBOARD_STREAM_QUEUE", "64")),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(
+                    System.getenv().getOrDefault("DASHBOARD_STREAM_HEARTBEAT_SECONDS", "15")))
+            );
+        }
+        return instance;
+    }
+
+    /**
+     * Adapts a Javalin SSE client. Call {@link SseClient#keepAlive()}
+     * before subscribing it.
+     *
+     * @param client the client
+     * @return a sink writing to the client
+     */
+    public static Sink sink(SseClient client) {
+        return new Sink() {
+            @Override
+            public void send(String event, String data) {
+                client.sendEvent(event, data);
+            }
+
+            @Override
+            public void comment(String text) {
+                client.sendComment(text);
+            }
+
+            @Override
+            public boolean isClosed() {
+                return client.terminated();
+            }
+
+            @Override
+            public void close() {
+                client.close();
+            }
+
+            @Override
+            public void onClose(Runnable callback) {
+                client.onClose(callback);
+            }
+        };
+    }
+
+    /**
+     * Starts listening for changes on a background thread.
+     */
+    public synchronized void start() {
+        if (listener != null) {
+            return;
+        }
+        listener = Thread.ofPlatform().name("dashboard-listener").daemon(true).start(this::listen);
+        logger.info("Dashboard stream listening on {}", CHANNEL);
+    }
+
+    /**
+     * Stops listening and disconnects every subscriber.
+     */
+    public synchronized void stop() {
+        if (listener != null) {
+            listener.interrupt();
+            listener = null;
+        }
+        subscribers.forEach(subscriber -> subscriber.sink.close());
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Subscribes a client. It receives a snapshot first, then updates.
+     *
+     * @param sink where the client's events are written
+     */
+    public void subscribe(Sink sink) {
+        Subscriber subscriber = new Subscriber(sink, queueCapacity);
+        subscribers.add(subscriber);
+        subscriber.offer(RESYNC);
+        subscriber.writer = Thread.ofVirtual().name("dashboard-stream-writer").start(subscriber::write);
+        sink.onClose(subscriber.writer::interrupt);
+    }
+
+    /**
+     * Sends an update read now to every subscriber.
+     *
+     * @param event the event name
+     * @param data the event data, serialized to JSON
+     */
+    public void broadcast(String event, Object data) {
+        publish(round.incrementAndGet(), event, data);
+    }
+
+    private void publish(long currentRound, String event, Object data) {
+        String json;
+        try {
+            json = mapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            logger.error("Couldn't serialize dashboard {} event: ", event, e);
+            return;
+        }
+        Message message = new Message(event, json, currentRound);
+        subscribers.forEach(subscriber -> subscriber.offer(message));
+    }
+
+    /**
+     * Sends every subscriber a fresh snapshot. Call it after the data
+     * changed without the triggers firing, such as after a restore.
+     */
+    public void resync() {
+        resyncAll();
+    }
+
+    private void resyncAll() {
+        lastVisits = null;
+        long currentRound = round.incrementAndGet();
+        Message message = new Message(RESYNC.event(), null, currentRound);
+        subscribers.forEach(subscriber -> subscriber.offer(message));
+    }
+
+    /**
+     * Returns the snapshot of the current round, reading it if no
+     * subscriber has yet.
+     */
+    private Snapshot snapshot() throws SQLException, JsonProcessingException {
+        snapshotLock.lock();
+        try {
+            long currentRound = round.get();
+            if (snapshot == null || snapshot.round() != currentRound) {
+                Map<String, Object> dashboard;
+                try (Connection conn = dataSource.getConnection()) {
+                    dashboard = DashboardQueries.load(conn);
+                }
+                snapshot = new Snapshot(mapper.writeValueAsString(dashboard), currentRound);
+            }
+            return snapshot;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    private void listen() {
+        long backoff = 1000;
+        boolean reconnected = false;
+        while (!Thread.currentThread().isInterrupted()) {
+            try (Connection conn = listenerSource.getConnection()) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnected) {
+                    logger.info("Dashboard listener reconnected");
+                    resyncAll();
+                }
+                backoff = 1000;
+                reconnected = true;
+                receive(conn);
+            } catch (SQLException e) {
+                logger.warn("Dashboard listener lost its connection, retrying in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void receive(Connection conn) throws SQLException {
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        while (!Thread.currentThread().isInterrupted()) {
+            PGNotification[] first = pg.getNotifications((int) heartbeatMillis);
+            if (first == null || first.length == 0) {
+                // Nothing to do, make sure the connection is still there
+                if (!conn.isValid(5)) {
+                    throw new SQLException("Listener connection is no longer valid");
+                }
+                continue;
+            }
+            List<String> payloads = new ArrayList<>();
+            add(payloads, first);
+            long deadline = System.currentTimeMillis() + COALESCE_MILLIS;
+            long remaining;
+            while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+                add(payloads, pg.getNotifications((int) remaining));
+            }
+            try {
+                handle(payloads);
+            } catch (RuntimeException e) {
+                // This is the only listener, keep it alive; the resync covers what was skipped
+                logger.error("Couldn't handle dashboard notifications {}, resyncing subscribers: ", payloads, e);
+                resyncAll();
+            }
+        }
+    }
+
+    private static void add(List<String> payloads, PGNotification[] notifications) {
+        if (notifications != null) {
+            for (PGNotification notification : notifications) {
+                payloads.add(notification.getParameter());
+            }
+        }
+    }
+
+    /**
+     * Handles one round of notifications.
+     */
+    private void handle(List<String> payloads) {
+        // Anything read from here on is at least as new as these notifications
+        long currentRound = round.incrementAndGet();
+        if (subscribers.isEmpty()) {
+            // Whoever subscribes next starts from a snapshot
+            lastVisits = null;
+            return;
+        }
+
+        Set<Integer> prisonIds = new LinkedHashSet<>();
+        Set<Integer> changedIncidents = new LinkedHashSet<>();
+        Set<Integer> removedIncidents = new LinkedHashSet<>();
+        boolean visits = false;
+        for (String payload : payloads) {
+            Map<?, ?> change;
+            try {
+                change = mapper.readValue(payload, Map.class);
+            } catch (JsonProcessingException e) {
+                logger.warn("Ignoring malformed dashboard notification {}", payload);
+                continue;
+            }
+            if ("TRUNCATE".equals(change.get("op"))) {
+                resyncAll();
+                return;
+            }
+            switch (String.valueOf(change.get("table"))) {
+                case "criminals", "prisons" -> prisonIds.add(id(change, "prisonId"));
+                case "prison_incidents" -> {
+                    int id = id(change, "id");
+                    if ("DELETE".equals(change.get("op"))) {
+                        changedIncidents.remove(id);
+                        removedIncidents.add(id);
+                    } else {
+                        removedIncidents.remove(id);
+                        changedIncidents.add(id);
+                    }
+                }
+                case "prison_visits" -> visits = true;
+                default -> logger.warn("Ignoring dashboard notification {}", payload);
+            }
+        }
+
+        try (Connection conn = dataSource.getConnection()) {
+            if (!prisonIds.isEmpty()) {
+                List<Map<String, Object>> rows = DashboardQueries.query(conn,
+                    DashboardQueries.OCCUPANCY_BY_PRISON_SQL, DashboardQueries::mapOccupancy, prisonIds);
+                // Prisons asked for but not read are gone from the list
+                Set<Integer> removed = new LinkedHashSet<>(prisonIds);
+                rows.forEach(row -> removed.remove(row.get("id")));
+                publish(currentRound, "occupancy", Map.of("prisons", rows, "removed", removed));
+            }
+            if (!changedIncidents.isEmpty()) {
+                publish(currentRound, "incident", Map.of("incidents", DashboardQueries.query(conn,
+                    DashboardQueries.INCIDENTS_BY_ID_SQL, DashboardQueries::mapIncident, changedIncidents)));
+            }
+            if (!removedIncidents.isEmpty()) {
+                publish(currentRound, "incidentRemoved", Map.of("ids", removedIncidents));
+            }
+            if (visits) {
+                List<Map<String, Object>> rows = DashboardQueries.query(conn,
+                    DashboardQueries.VISITS_SQL, DashboardQueries::mapVisit);
+                String json = mapper.writeValueAsString(rows);
+                if (!json.equals(lastVisits)) {
+                    lastVisits = json;
+                    publish(currentRound, "visits", Map.of("visits", rows));
+                }
+            }
+        } catch (SQLException | JsonProcessingException e) {
+            logger.error("Couldn't read dashboard changes, resyncing subscribers: ", e);
+            resyncAll();
+        }
+    }
+
+    private static int id(Map<?, ?> change, String key) {
+        return ((Number) change.get(key)).intValue();
+    }
+
+    /**
+     * A connected client, with the events it hasn't been sent yet.
+     */
+    private class Subscriber {
+        private final Sink sink;
+        private final BlockingQueue<Message> queue;
+        private Thread writer;
+
+        Subscriber(Sink sink, int capacity) {
+            this.sink = sink;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Queues an event without waiting. A full queue is replaced by a
+         * snapshot, which covers everything that was queued.
+         */
+        synchronized void offer(Message message) {
+            if (!queue.offer(message)) {
+                queue.clear();
+                queue.offer(RESYNC);
+                logger.debug("Dashboard subscriber fell behind, resyncing it");
+            }
+        }
+
+        void write() {
+            long seen = -1;
+            try {
+                while (!sink.isClosed()) {
+                    Message message = queue.poll(heartbeatMillis, TimeUnit.MILLISECONDS);
+                    if (message == null) {
+                        sink.comment("heartbeat");
+                    } else if (message.data() == null) {
+                        Snapshot current = snapshot();
+                        if (current.round() > seen) {
+                            sink.send(message.event(), current.data());
+                            seen = current.round();
+                        }
+                    } else if (message.round() > seen) {
+                        sink.send(message.event(), message.data());
+                    }
+                }
+            } catch (InterruptedException e) {
+                // The client went away
+            } catch (SQLException | JsonProcessingException e) {
+                // The client reconnects and tries again
+                logger.warn("Couldn't send dashboard snapshot: {}", e.getMessage());
+                sink.close();
+            } finally {
+                subscribers.remove(this);
+            }
+        }
+    }
+}
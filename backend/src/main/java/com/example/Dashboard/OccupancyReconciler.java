@@ -0,0 +1,164 @@
+package com.example.Dashboard;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Config.DatabaseConfig;
+
+/**
+ * The {@code OccupancyReconciler} class repairs the prison occupancy
+ * counters when they no longer match the criminals they count.
+ *
+ * <p>The counters in {@code prison_occupancy_counters} are kept by
+ * triggers, so they only drift when those are bypassed, for example by a
+ * restore with triggers disabled or by writes made while the triggers were
+ * dropped. Every {@code OCCUPANCY_RECONCILE_MINUTES} (default 60, off when
+ * {@code 0}) the real counts are compared with the counters and every
+ * difference is added to its counter. Detection and repair are one
+ * statement, so writes committed meanwhile are neither lost nor counted
+ * twice. Repaired prisons are announced on
+ * {@link DashboardStream#CHANNEL} like any other occupancy change.
+ */
+public class OccupancyReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(OccupancyReconciler.class);
+    private static OccupancyReconciler instance;
+
+    private static final String RECONCILE_SQL = """
+        WITH actual AS (
+            SELECT prison_id, count(*)::integer AS inmates
+            FROM public.criminals
+            WHERE status = 'imprisoned' AND prison_id IS NOT NULL
+            GROUP BY prison_id
+        ),
+        drift AS (
+            SELECT
+                COALESCE(a.prison_id, o.prison_id) AS prison_id,
+                COALESCE(a.inmates, 0) AS actual,
+                COALESCE(o.current_inmates, 0) AS counted
+            FROM actual a
+            FULL JOIN public.prison_occupancy_counters o ON o.prison_id = a.prison_id
+            WHERE COALESCE(a.inmates, 0) <> COALESCE(o.current_inmates, 0)
+        ),
+        repaired AS (
+            INSERT INTO public.prison_occupancy_counters AS o (prison_id, current_inmates)
+            SELECT prison_id, actual - counted FROM drift
+            ON CONFLICT (prison_id) DO UPDATE
+                SET current_inmates = o.current_inmates + EXCLUDED.current_inmates, updated_at = now()
+            RETURNING o.prison_id
+        )
+        SELECT d.prison_id, d.actual, d.counted,
+            pg_notify('dashboard_events', json_build_object('table', 'criminals', 'prisonId', d.prison_id)::text)
+        FROM drift d
+        JOIN repaired r ON r.prison_id = d.prison_id
+        ORDER BY d.prison_id
+    """;
+
+    /**
+     * A counter that was repaired.
+     *
+     * @param prisonId the prison
+     * @param actual imprisoned criminals counted from the table
+     * @param counted what the counter said
+     */
+    public record Drift(int prisonId, int actual, int counted) {}
+
+    private final DataSource dataSource;
+    private final long intervalMillis;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a reconciler. Call {@link #start()} to run it on a schedule.
+     *
+     * @param dataSource the database holding the counters
+     * @param intervalMillis time between runs, {@code 0} for none
+     */
+    public OccupancyReconciler(DataSource dataSource, long intervalMillis) {
+        this.dataSource = dataSource;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Returns the reconciler of the application database, configured from
+     * the environment. It is not started.
+     *
+     * @return the shared {@link OccupancyReconciler}
+     */
+    public static synchronized OccupancyReconciler getInstance() {
+        if (instance == null) {
+            instance = new OccupancyReconciler(
+                DatabaseConfig.getDataSource(),
+                TimeUnit.MINUTES.toMillis(Long.parseLong(
+                    System.getenv().getOrDefault("OCCUPANCY_RECONCILE_MINUTES", "60")))
+            );
+        }
+        return instance;
+    }
+
+    /**
+     * Starts reconciling on a background thread, first right away.
+     */
+    public synchronized void start() {
+        if (scheduler != null || intervalMillis <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "occupancy-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background work.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Repairs every counter that doesn't match.
+     *
+     * @return the counters repaired, by prison
+     * @throws SQLException if the counts can't be read or written
+     */
+    public List<Drift> reconcile() throws SQLException {
+        List<Drift> drifts = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(RECONCILE_SQL)) {
+            while (rs.next()) {
+                drifts.add(new Drift(rs.getInt("prison_id"), rs.getInt("actual"), rs.getInt("counted")));
+            }
+        }
+        return drifts;
+    }
+
+    private void reconcileQuietly() {
+        try {
+            List<Drift> drifts = reconcile();
+            for (Drift drift : drifts) {
+                logger.warn("Occupancy counter of prison {} was off by {}, repaired", drift.prisonId(),
+                    drift.counted() - drift.actual());
+            }
+        } catch (SQLException e) {
+            logger.error("Reconciling occupancy counters failed: ", e);
+        }
+    }
+}
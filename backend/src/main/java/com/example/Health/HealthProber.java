@@ -0,0 +1,257 @@
+package com.example.Health;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.Config.DatabaseConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * The {@code HealthProber} class checks the database in the background and
+ * publishes the result, so health endpoints do not need a connection of
+ * their own.
+ *
+ * <p>Every {@code HEALTH_PROBE_INTERVAL_MS} (default 5000) one probe:
+ * <ul>
+ *   <li>reads the HikariCP pool counters (active, idle, waiting threads),</li>
+ *   <li>borrows a connection and runs {@link Connection#isValid(int)} with a
+ *       {@code HEALTH_PROBE_TIMEOUT_SECONDS} timeout (default 2).</li>
+ * </ul>
+ * While the pool is saturated (threads already waiting for a connection) the
+ * probe does not queue behind them; it keeps the last reachability result,
+ * with the time it was checked, and only refreshes the pool counters.
+ *
+ * <p>{@link #status(boolean)} answers from the published {@link Status}. It
+ * probes synchronously when asked for a deep check, when no probe has run yet
+ * or when the last result is older than three intervals. A saturated pool
+ * therefore can't stand in for a real check longer than that.
+ */
+public class HealthProber {
+    private static final Logger logger = LoggerFactory.getLogger(HealthProber.class);
+    private static HealthProber instance;
+
+    /** Response header telling how old the status behind a health answer is. */
+    public static final String AGE_HEADER = "X-Health-Age-Ms";
+
+    private final DataSource dataSource;
+    private final long intervalMillis;
+    private final int timeoutSeconds;
+    private ScheduledExecutorService scheduler;
+    private volatile Status current;
+
+    /**
+     * The result of one probe.
+     *
+     * @param databaseUp whether the database answered the last check
+     * @param error why the last check failed, or null
+     * @param latencyMicros time to borrow and validate a connection
+     * @param activeConnections connections in use
+     * @param idleConnections connections idle in the pool
+     * @param totalConnections connections in the pool
+     * @param threadsAwaiting threads waiting for a connection
+     * @param checkedAt epoch millis of the last reachability check
+     */
+    public record Status(
+        boolean databaseUp,
+        String error,
+        long latencyMicros,
+        int activeConnections,
+        int idleConnections,
+        int totalConnections,
+        int threadsAwaiting,
+        long checkedAt
+    ) {
+        /**
+         * Whether requests are queueing for a connection.
+         */
+        public boolean saturated() {
+            return threadsAwaiting > 0;
+        }
+
+        /**
+         * Milliseconds since the reachability check ran.
+         */
+        public long ageMillis() {
+            return System.currentTimeMillis() - checkedAt;
+        }
+
+        /**
+         * Returns the status as a JSON-friendly map.
+         */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("database", databaseUp ? "UP" : "DOWN");
+            if (error != null) {
+                map.put("error", error);
+            }
+            map.put("latencyMicros", latencyMicros);
+            map.put("saturated", saturated());
+            map.put("activeConnections", activeConnections);
+            map.put("idleConnections", idleConnections);
+            map.put("totalConnections", totalConnections);
+            map.put("threadsAwaitingConnection", threadsAwaiting);
+            map.put("checkedAt", checkedAt);
+            map.put("ageMs", ageMillis());
+            return map;
+        }
+    }
+
+    /**
+     * Creates a prober with explicit settings. Call {@link #start()} to run
+     * it in the background.
+     *
+     * @param dataSource the pool to probe
+     * @param intervalMillis time between probes
+     * @param timeoutSeconds timeout of the validity check
+     */
+    public HealthProber(DataSource dataSource, long intervalMillis, int timeoutSeconds) {
+        this.dataSource = dataSource;
+        this.intervalMillis = intervalMillis;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Creates a prober configured from the environment.
+     *
+     * @param dataSource the pool to probe
+     */
+    public HealthProber(DataSource dataSource) {
+        this(
+            dataSource,
+            Long.parseLong(System.getenv().getOrDefault("HEALTH_PROBE_INTERVAL_MS", "5000")),
+            Integer.parseInt(System.getenv().getOrDefault("HEALTH_PROBE_TIMEOUT_SECONDS", "2"))
+        );
+    }
+
+    /**
+     * Returns the running prober of the shared data source.
+     *
+     * @return the shared {@link HealthProber}
+     */
+    public static synchronized HealthProber getInstance() {
+        if (instance == null) {
+            instance = new HealthProber(DatabaseConfig.getDataSource());
+            instance.start();
+        }
+        return instance;
+    }
+
+    /**
+     * Starts probing on a background thread.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "health-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::probeQuietly, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        logger.info("Health prober started, interval {} ms", intervalMillis);
+    }
+
+    /**
+     * Stops the background probing.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Returns the database status.
+     *
+     * @param deep probe now instead of answering from the last result
+     * @return the current status
+     */
+    public Status status(boolean deep) {
+        Status status = current;
+        if (deep || status == null || status.ageMillis() > 3 * intervalMillis) {
+            return probe(true);
+        }
+        return status;
+    }
+
+    private void probeQuietly() {
+        try {
+            probe(false);
+        } catch (RuntimeException e) {
+            logger.error("Health probe failed: ", e);
+        }
+    }
+
+    /**
+     * Runs one probe and publishes its result.
+     *
+     * @param force borrow a connection even while the pool is saturated
+     */
+    private Status probe(boolean force) {
+        HikariPoolMXBean pool = poolBean();
+        int active = pool != null ? pool.getActiveConnections() : 0;
+        int idle = pool != null ? pool.getIdleConnections() : 0;
+        int total = pool != null ? pool.getTotalConnections() : 0;
+        int awaiting = pool != null ? pool.getThreadsAwaitingConnection() : 0;
+
+        Status previous = current;
+        if (!force && awaiting > 0 && previous != null) {
+            // Keeps checkedAt, so status() still probes once the result turns stale
+            Status status = new Status(previous.databaseUp(), previous.error(), previous.latencyMicros(),
+                active, idle, total, awaiting, previous.checkedAt());
+            current = status;
+            return status;
+        }
+
+        long start = System.nanoTime();
+        boolean up;
+        String error = null;
+        try (Connection conn = dataSource.getConnection()) {
+            up = conn.isValid(timeoutSeconds);
+            if (!up) {
+                error = "Connection is not valid";
+            }
+        } catch (Exception e) {
+            up = false;
+            error = e.getMessage();
+        }
+        long latencyMicros = (System.nanoTime() - start) / 1000;
+
+        if (previous != null && previous.databaseUp() != up) {
+            if (up) {
+                logger.info("Database is reachable again");
+            } else {
+                logger.error("Database became unreachable: {}", error);
+            }
+        }
+
+        Status status = new Status(up, error, latencyMicros, active, idle, total, awaiting, System.currentTimeMillis());
+        current = status;
+        return status;
+    }
+
+    private HikariPoolMXBean poolBean() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                return hikari.isClosed() ? null : hikari.getHikariPoolMXBean();
+            }
+        } catch (SQLException e) {
+            logger.warn("Couldn't read pool statistics: {}", e.getMessage());
+        }
+        return null;
+    }
+}
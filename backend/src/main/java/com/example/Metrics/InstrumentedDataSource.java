@@ -0,0 +1,253 @@
+package com.example.Metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+/**
+ * The {@code InstrumentedDataSource} class wraps a {@link DataSource} so that
+ * every statement run through it is timed.
+ *
+ * <p>Connections, statements and result sets handed out are dynamic proxies
+ * around the real JDBC objects. They report to {@link SqlStats}:
+ * <ul>
+ *   <li>the time spent in each {@code execute*} call,</li>
+ *   <li>the rows read from its result set, reported when the result set or
+ *       its statement is closed, or the update count for writes,</li>
+ *   <li>how long each connection was held between borrow and close.</li>
+ * </ul>
+ *
+ * <p>{@code unwrap} and {@code isWrapperFor} see through the proxies, so code
+ * asking for {@code HikariDataSource} or {@code PGConnection} still gets it.
+ */
+public class InstrumentedDataSource {
+
+    private InstrumentedDataSource() {
+    }
+
+    /**
+     * Wraps a data source.
+     *
+     * @param target the data source to instrument
+     * @param stats where timings are reported
+     * @return a {@link DataSource} reporting to {@code stats}
+     */
+    public static DataSource wrap(DataSource target, SqlStats stats) {
+        return proxy(DataSource.class, target, (proxy, method, args) -> {
+            if (method.getName().equals("getConnection")) {
+                Connection connection = (Connection) invoke(target, method, args);
+                return wrapConnection(connection, stats);
+            }
+            return delegate(proxy, target, method, args);
+        });
+    }
+
+    private static Connection wrapConnection(Connection target, SqlStats stats) {
+        long borrowedAt = System.nanoTime();
+        boolean[] closed = {false};
+
+        return proxy(Connection.class, target, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement", "prepareCall" -> {
+                    Statement statement = (Statement) invoke(target, method, args);
+                    return wrapStatement(statement, (String) args[0], proxy, stats, method.getReturnType());
+                }
+                case "createStatement" -> {
+                    Statement statement = (Statement) invoke(target, method, args);
+                    return wrapStatement(statement, null, proxy, stats, Statement.class);
+                }
+                case "close" -> {
+                    try {
+                        return invoke(target, method, args);
+                    } finally {
+                        if (!closed[0]) {
+                            closed[0] = true;
+                            stats.recordConnectionHold(System.nanoTime() - borrowedAt);
+                        }
+                    }
+                }
+                default -> {
+                    return delegate(proxy, target, method, args);
+                }
+            }
+        });
+    }
+
+    /**
+     * State shared by a statement proxy and the result sets it hands out.
+     */
+    private static class Execution {
+        String sql;
+        long execNanos;
+        boolean failed;
+        long rows;
+        boolean pending;
+        boolean resultAvailable;
+    }
+
+    private static Statement wrapStatement(Statement target, String preparedSql, Object connectionProxy,
+                                           SqlStats stats, Class<?> type) {
+        Execution current = new Execution();
+
+        Class<? extends Statement> iface = type == CallableStatement.class ? CallableStatement.class
+            : type == PreparedStatement.class ? PreparedStatement.class : Statement.class;
+
+        return proxy(iface, target, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                flush(current, stats);
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+                current.sql = sql != null ? sql : "<unknown>";
+                current.rows = 0;
+                current.failed = false;
+                current.resultAvailable = false;
+
+                long start = System.nanoTime();
+                Object result;
+                try {
+                    result = invoke(target, method, args);
+                } catch (Throwable e) {
+                    current.execNanos = System.nanoTime() - start;
+                    current.failed = true;
+                    stats.recordExecution(current.sql, current.execNanos, 0, true);
+                    throw e;
+                }
+                current.execNanos = System.nanoTime() - start;
+
+                if (result instanceof ResultSet resultSet) {
+                    // Rows are known once the result is read, report on close
+                    current.pending = true;
+                    return wrapResultSet(resultSet, current, stats);
+                }
+                if (Boolean.TRUE.equals(result)) {
+                    // execute() produced a result set, picked up by getResultSet()
+                    current.pending = true;
+                    current.resultAvailable = true;
+                    return result;
+                }
+                stats.recordExecution(current.sql, current.execNanos, updateCount(result), false);
+                return result;
+            }
+            if (name.equals("getResultSet")) {
+                ResultSet resultSet = (ResultSet) invoke(target, method, args);
+                if (resultSet != null && current.resultAvailable) {
+                    current.resultAvailable = false;
+                    return wrapResultSet(resultSet, current, stats);
+                }
+                return resultSet;
+            }
+            if (name.equals("close")) {
+                try {
+                    return invoke(target, method, args);
+                } finally {
+                    flush(current, stats);
+                }
+            }
+            if (name.equals("getConnection")) {
+                return connectionProxy;
+            }
+            return delegate(proxy, target, method, args);
+        });
+    }
+
+    private static long updateCount(Object result) {
+        if (result instanceof Integer count) {
+            return count;
+        }
+        if (result instanceof Long count) {
+            return count;
+        }
+        if (result instanceof int[] counts) {
+            long total = 0;
+            for (int count : counts) {
+                total += Math.max(0, count);
+            }
+            return total;
+        }
+        return 0;
+    }
+
+    private static void flush(Execution execution, SqlStats stats) {
+        if (execution.pending) {
+            execution.pending = false;
+            stats.recordExecution(execution.sql, execution.execNanos, execution.rows, execution.failed);
+        }
+    }
+
+    private static ResultSet wrapResultSet(ResultSet target, Execution execution, SqlStats stats) {
+        return proxy(ResultSet.class, target, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next" -> {
+                    boolean hasRow = (Boolean) invoke(target, method, args);
+                    if (hasRow) {
+                        execution.rows++;
+                    }
+                    return hasRow;
+                }
+                case "close" -> {
+                    try {
+                        return invoke(target, method, args);
+                    } finally {
+                        flush(execution, stats);
+                    }
+                }
+                default -> {
+                    return delegate(proxy, target, method, args);
+                }
+            }
+        });
+    }
+
+    /**
+     * Handles the methods every proxy treats the same way and passes the
+     * rest to the target.
+     */
+    private static Object delegate(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "unwrap" -> {
+                Class<?> iface = (Class<?>) args[0];
+                if (iface.isInstance(target)) {
+                    return target;
+                }
+                return invoke(target, method, args);
+            }
+            case "isWrapperFor" -> {
+                Class<?> iface = (Class<?>) args[0];
+                return iface.isInstance(target) || (Boolean) invoke(target, method, args);
+            }
+            case "equals" -> {
+                return proxy == args[0];
+            }
+            case "hashCode" -> {
+                return System.identityHashCode(proxy);
+            }
+            case "toString" -> {
+                return "Instrumented[" + target + "]";
+            }
+            default -> {
+                return invoke(target, method, args);
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> iface, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[] {iface}, handler);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.Metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+
+/**
+ * The {@code JvmMetrics} class reports heap, garbage collection and thread
+ * figures of the running JVM, read from the platform MXBeans at scrape time.
+ */
+public class JvmMetrics {
+
+    private JvmMetrics() {
+    }
+
+    /**
+     * Appends the JVM metrics in Prometheus text format.
+     *
+     * @param out the buffer to write to
+     */
+    public static void writeTo(StringBuilder out) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        PoolMetrics.gauge(out, "jvm_memory_heap_used_bytes", "Heap in use.", "", heap.getUsed());
+        PoolMetrics.gauge(out, "jvm_memory_heap_committed_bytes", "Heap committed by the JVM.", "", heap.getCommitted());
+        PoolMetrics.gauge(out, "jvm_memory_heap_max_bytes", "Maximum heap size.", "", heap.getMax());
+
+        out.append("# HELP jvm_gc_collections_total Garbage collections by collector.\n");
+        out.append("# TYPE jvm_gc_collections_total counter\n");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.append("jvm_gc_collections_total{gc=\"").append(RequestMetrics.escape(gc.getName())).append("\"} ")
+                .append(Math.max(0, gc.getCollectionCount())).append('\n');
+        }
+        out.append("# HELP jvm_gc_collection_seconds_total Time spent in garbage collection by collector.\n");
+        out.append("# TYPE jvm_gc_collection_seconds_total counter\n");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            out.append("jvm_gc_collection_seconds_total{gc=\"").append(RequestMetrics.escape(gc.getName())).append("\"} ")
+                .append(Math.max(0, gc.getCollectionTime()) / 1000.0).append('\n');
+        }
+
+        PoolMetrics.gauge(out, "jvm_threads_live", "Live platform threads.", "", ManagementFactory.getThreadMXBean().getThreadCount());
+        PoolMetrics.gauge(out, "jvm_uptime_seconds", "Time since the JVM started.", "",
+            ManagementFactory.getRuntimeMXBean().getUptime() / 1000);
+    }
+}
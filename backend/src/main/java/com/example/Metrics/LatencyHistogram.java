@@ -0,0 +1,87 @@
+package com.example.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The {@code LatencyHistogram} class counts durations into fixed buckets.
+ *
+ * <p>The bucket bounds are shared by every histogram and chosen once, so
+ * {@link #record(long)} only walks a small array and bumps two
+ * {@link LongAdder}s. It allocates nothing and never blocks, which keeps it
+ * cheap enough for every request.
+ *
+ * <p>The buckets follow the Prometheus histogram layout: bucket {@code i}
+ * counts durations up to {@link #BOUNDS_SECONDS}{@code [i]}, and the last one
+ * everything above.
+ */
+public class LatencyHistogram {
+    /** Upper bounds of the buckets, in seconds. */
+    static final double[] BOUNDS_SECONDS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30
+    };
+
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+            BOUNDS_NANOS[i] = (long) (BOUNDS_SECONDS[i] * 1_000_000_000L);
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Appends the histogram in Prometheus text format.
+     *
+     * @param out the buffer to write to
+     * @param name the metric name, without the {@code _bucket} suffix
+     * @param labels the labels of this series, like {@code route="/api"}, or empty
+     */
+    void writeTo(StringBuilder out, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            cumulative += buckets[i].sum();
+            String le = i < BOUNDS_SECONDS.length ? Double.toString(BOUNDS_SECONDS[i]) : "+Inf";
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(le).append("\"} ")
+                .append(cumulative).append('\n');
+        }
+        String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(braces).append(' ').append(sumNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count").append(braces).append(' ').append(cumulative).append('\n');
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.Metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+/**
+ * The {@code PoolMetrics} class collects HikariCP pool statistics.
+ *
+ * <p>It is installed with {@code HikariConfig.setMetricsTrackerFactory}, after
+ * which HikariCP reports every connection acquisition, usage and timeout to
+ * it and hands over its {@link PoolStats} for the pool gauges.
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+    private static PoolMetrics instance;
+
+    private final LatencyHistogram acquisition = new LatencyHistogram();
+    private final LatencyHistogram usage = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private volatile String poolName;
+    private volatile PoolStats poolStats;
+
+    /**
+     * Returns the process-wide pool metrics.
+     *
+     * @return the shared {@link PoolMetrics}
+     */
+    public static synchronized PoolMetrics getInstance() {
+        if (instance == null) {
+            instance = new PoolMetrics();
+        }
+        return instance;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolName = poolName;
+        this.poolStats = poolStats;
+
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisition.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(elapsedBorrowedMillis * 1_000_000);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                created.increment();
+            }
+        };
+    }
+
+    /**
+     * Appends the pool metrics in Prometheus text format. Writes nothing
+     * before HikariCP has registered a pool.
+     *
+     * @param out the buffer to write to
+     */
+    public void writeTo(StringBuilder out) {
+        PoolStats stats = poolStats;
+        if (stats == null) {
+            return;
+        }
+        String labels = "pool=\"" + RequestMetrics.escape(poolName) + "\"";
+
+        gauge(out, "hikaricp_connections_active", "Connections in use.", labels, stats.getActiveConnections());
+        gauge(out, "hikaricp_connections_idle", "Connections idle in the pool.", labels, stats.getIdleConnections());
+        gauge(out, "hikaricp_connections_pending", "Threads waiting for a connection.", labels, stats.getPendingThreads());
+        gauge(out, "hikaricp_connections", "Connections in the pool.", labels, stats.getTotalConnections());
+        gauge(out, "hikaricp_connections_max", "Maximum pool size.", labels, stats.getMaxConnections());
+
+        out.append("# HELP hikaricp_connections_timeout_total Connection requests that timed out.\n");
+        out.append("# TYPE hikaricp_connections_timeout_total counter\n");
+        out.append("hikaricp_connections_timeout_total{").append(labels).append("} ").append(timeouts.sum()).append('\n');
+        out.append("# HELP hikaricp_connections_created_total Physical connections opened.\n");
+        out.append("# TYPE hikaricp_connections_created_total counter\n");
+        out.append("hikaricp_connections_created_total{").append(labels).append("} ").append(created.sum()).append('\n');
+
+        out.append("# HELP hikaricp_connections_acquire_seconds Time to borrow a connection.\n");
+        out.append("# TYPE hikaricp_connections_acquire_seconds histogram\n");
+        acquisition.writeTo(out, "hikaricp_connections_acquire_seconds", labels);
+        out.append("# HELP hikaricp_connections_usage_seconds Time a connection was held.\n");
+        out.append("# TYPE hikaricp_connections_usage_seconds histogram\n");
+        usage.writeTo(out, "hikaricp_connections_usage_seconds", labels);
+    }
+
+    static void gauge(StringBuilder out, String name, String help, String labels, long value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+}
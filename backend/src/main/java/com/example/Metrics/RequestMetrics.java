@@ -0,0 +1,164 @@
+package com.example.Metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+
+/**
+ * The {@code RequestMetrics} class times every request and keeps one
+ * {@link LatencyHistogram} per route, method and status.
+ *
+ * <p>The route is the path the endpoint was registered with (for example
+ * {@code /api/prisons/{prisonId}}), not the requested path, so the number of
+ * series stays bounded. Requests that matched no endpoint are counted under
+ * {@link #UNMATCHED_ROUTE}.
+ *
+ * <p>After the first request of a series, recording is lock- and
+ * allocation-free: the route's entry is found by the registered path string,
+ * and the histogram by indexing arrays with the method and status code. The
+ * only per-request object is the start time stored on the request.
+ */
+public class RequestMetrics {
+    private static RequestMetrics instance;
+
+    /** Route label of requests that matched no endpoint. */
+    public static final String UNMATCHED_ROUTE = "unmatched";
+
+    private static final String START_ATTRIBUTE = "metrics.startNanos";
+    private static final int STATUS_CODES = 600;
+    private static final HandlerType[] METHODS = HandlerType.values();
+
+    private final Map<String, RouteSeries> routes = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Histograms of one route, indexed by method and status code.
+     */
+    private static class RouteSeries {
+        private final AtomicReferenceArray<AtomicReferenceArray<LatencyHistogram>> byMethod =
+            new AtomicReferenceArray<>(METHODS.length);
+
+        LatencyHistogram histogram(HandlerType method, int status) {
+            AtomicReferenceArray<LatencyHistogram> byStatus = byMethod.get(method.ordinal());
+            if (byStatus == null) {
+                byMethod.compareAndSet(method.ordinal(), null, new AtomicReferenceArray<>(STATUS_CODES));
+                byStatus = byMethod.get(method.ordinal());
+            }
+            int index = status >= 0 && status < STATUS_CODES ? status : 0;
+            LatencyHistogram histogram = byStatus.get(index);
+            if (histogram == null) {
+                byStatus.compareAndSet(index, null, new LatencyHistogram());
+                histogram = byStatus.get(index);
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * Returns the process-wide request metrics.
+     *
+     * @return the shared {@link RequestMetrics}
+     */
+    public static synchronized RequestMetrics getInstance() {
+        if (instance == null) {
+            instance = new RequestMetrics();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers the timing handlers on every request of the app.
+     *
+     * @param app the Javalin instance to measure
+     */
+    public void register(Javalin app) {
+        app.before(this::start);
+        app.after(this::finish);
+    }
+
+    /**
+     * Marks the start of a request.
+     *
+     * @param ctx the request context
+     */
+    public void start(Context ctx) {
+        inFlight.incrementAndGet();
+        ctx.attribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    /**
+     * Records the duration of a request started with {@link #start(Context)}.
+     *
+     * @param ctx the request context
+     */
+    public void finish(Context ctx) {
+        Long started = ctx.attribute(START_ATTRIBUTE);
+        if (started == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - started;
+        inFlight.decrementAndGet();
+
+        // Without a matching endpoint Javalin reports a description instead of a path
+        String route = ctx.endpointHandlerPath();
+        if (route == null || !route.startsWith("/")) {
+            route = UNMATCHED_ROUTE;
+        }
+        RouteSeries series = routes.get(route);
+        if (series == null) {
+            series = routes.computeIfAbsent(route, key -> new RouteSeries());
+        }
+        series.histogram(ctx.method(), ctx.statusCode()).record(elapsed);
+    }
+
+    /**
+     * Returns the number of requests currently being handled.
+     *
+     * @return in-flight request count
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Appends all request metrics in Prometheus text format.
+     *
+     * @param out the buffer to write to
+     */
+    public void writeTo(StringBuilder out) {
+        out.append("# HELP http_server_requests_in_flight Requests currently being handled.\n");
+        out.append("# TYPE http_server_requests_in_flight gauge\n");
+        out.append("http_server_requests_in_flight ").append(inFlight.get()).append('\n');
+
+        out.append("# HELP http_server_requests_seconds Request latency by route, method and status.\n");
+        out.append("# TYPE http_server_requests_seconds histogram\n");
+        routes.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(entry -> {
+                RouteSeries series = entry.getValue();
+                for (HandlerType method : METHODS) {
+                    AtomicReferenceArray<LatencyHistogram> byStatus = series.byMethod.get(method.ordinal());
+                    if (byStatus == null) {
+                        continue;
+                    }
+                    for (int status = 0; status < STATUS_CODES; status++) {
+                        LatencyHistogram histogram = byStatus.get(status);
+                        if (histogram != null) {
+                            String labels = "method=\"" + method + "\",route=\"" + escape(entry.getKey())
+                                + "\",status=\"" + status + "\"";
+                            histogram.writeTo(out, "http_server_requests_seconds", labels);
+                        }
+                    }
+                }
+            });
+    }
+
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
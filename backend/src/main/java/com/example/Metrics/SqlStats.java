@@ -0,0 +1,226 @@
+package com.example.Metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code SqlStats} class aggregates statement timings reported by
+ * {@link InstrumentedDataSource}.
+ *
+ * <p>Statements are grouped by fingerprint: the SQL text with literals
+ * replaced by {@code ?} and whitespace collapsed, so the same statement with
+ * different values lands in one entry. For each fingerprint it keeps the
+ * number of executions and errors, total and maximum execution time and the
+ * rows fetched. At most {@code SQL_STATS_MAX_FINGERPRINTS} (default 500)
+ * fingerprints are tracked; later ones are counted under {@link #OVERFLOW}.
+ *
+ * <p>Executions slower than {@code SLOW_QUERY_MS} (default 500) are written to
+ * the {@code com.example.SlowQuery} logger as one {@code key=value} line.
+ */
+public class SqlStats {
+    private static final Logger logger = LoggerFactory.getLogger(SqlStats.class);
+    private static final Logger slowLog = LoggerFactory.getLogger("com.example.SlowQuery");
+    private static SqlStats instance;
+
+    /** Fingerprint collecting statements once the table is full. */
+    public static final String OVERFLOW = "<other statements>";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']++|'')*+'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_CACHED_SQL = 1000;
+
+    private final int maxFingerprints;
+    private final long slowQueryNanos;
+    private final Map<String, Aggregate> aggregates = new ConcurrentHashMap<>();
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final LatencyHistogram connectionHold = new LatencyHistogram();
+    private final LongAccumulator maxHoldNanos = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Totals of one fingerprint.
+     */
+    static class Aggregate {
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        final LongAdder rows = new LongAdder();
+    }
+
+    /**
+     * Creates stats with explicit limits.
+     *
+     * @param maxFingerprints number of distinct statements tracked
+     * @param slowQueryMillis executions at least this slow are logged
+     */
+    public SqlStats(int maxFingerprints, long slowQueryMillis) {
+        this.maxFingerprints = maxFingerprints;
+        this.slowQueryNanos = slowQueryMillis * 1_000_000;
+    }
+
+    /**
+     * Creates stats configured from the environment.
+     */
+    public SqlStats() {
+        this(
+            Integer.parseInt(System.getenv().getOrDefault("SQL_STATS_MAX_FINGERPRINTS", "500")),
+            Long.parseLong(System.getenv().getOrDefault("SLOW_QUERY_MS", "500"))
+        );
+    }
+
+    /**
+     * Returns the process-wide statement stats.
+     *
+     * @return the shared {@link SqlStats}
+     */
+    public static synchronized SqlStats getInstance() {
+        if (instance == null) {
+            instance = new SqlStats();
+            logger.info("SQL stats initialized");
+        }
+        return instance;
+    }
+
+    /**
+     * Normalizes a statement so executions with different literals share
+     * one entry.
+     *
+     * @param sql the statement text
+     * @return the fingerprint
+     */
+    public static String fingerprint(String sql) {
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    private String fingerprintOf(String sql) {
+        String fingerprint = fingerprints.get(sql);
+        if (fingerprint == null) {
+            fingerprint = fingerprint(sql);
+            if (fingerprints.size() < MAX_CACHED_SQL) {
+                fingerprints.put(sql, fingerprint);
+            }
+        }
+        return fingerprint;
+    }
+
+    private Aggregate aggregateFor(String fingerprint) {
+        Aggregate aggregate = aggregates.get(fingerprint);
+        if (aggregate != null) {
+            return aggregate;
+        }
+        if (aggregates.size() >= maxFingerprints) {
+            return aggregates.computeIfAbsent(OVERFLOW, key -> new Aggregate());
+        }
+        return aggregates.computeIfAbsent(fingerprint, key -> new Aggregate());
+    }
+
+    /**
+     * Records one finished execution.
+     *
+     * @param sql the statement text
+     * @param execNanos time spent in the execute call
+     * @param rows rows fetched from the result, or the update count
+     * @param failed whether the execution threw
+     */
+    public void recordExecution(String sql, long execNanos, long rows, boolean failed) {
+        String fingerprint = fingerprintOf(sql);
+        Aggregate aggregate = aggregateFor(fingerprint);
+        aggregate.calls.increment();
+        aggregate.totalNanos.add(execNanos);
+        aggregate.maxNanos.accumulate(execNanos);
+        aggregate.rows.add(Math.max(0, rows));
+        if (failed) {
+            aggregate.errors.increment();
+        }
+
+        if (execNanos >= slowQueryNanos) {
+            slowLog.warn("slow_query duration_ms={} rows={} failed={} thread=\"{}\" sql=\"{}\"",
+                execNanos / 1_000_000, rows, failed, Thread.currentThread().getName(), fingerprint);
+        }
+    }
+
+    /**
+     * Records how long a connection was held between borrow and close.
+     *
+     * @param holdNanos the hold time
+     */
+    public void recordConnectionHold(long holdNanos) {
+        connectionHold.record(holdNanos);
+        maxHoldNanos.accumulate(holdNanos);
+    }
+
+    /**
+     * Returns the aggregates, most total time first.
+     *
+     * @param limit maximum number of fingerprints returned
+     * @return one map per fingerprint
+     */
+    public List<Map<String, Object>> top(int limit) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        aggregates.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, Aggregate> e) -> e.getValue().totalNanos.sum()).reversed())
+            .limit(limit)
+            .forEach(entry -> {
+                Aggregate aggregate = entry.getValue();
+                long calls = aggregate.calls.sum();
+                long totalNanos = aggregate.totalNanos.sum();
+
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("sql", entry.getKey());
+                row.put("calls", calls);
+                row.put("errors", aggregate.errors.sum());
+                row.put("totalMs", totalNanos / 1e6);
+                row.put("avgMs", calls == 0 ? 0.0 : totalNanos / 1e6 / calls);
+                row.put("maxMs", aggregate.maxNanos.get() / 1e6);
+                row.put("rows", aggregate.rows.sum());
+                rows.add(row);
+            });
+        return rows;
+    }
+
+    /**
+     * Returns connection hold time totals.
+     *
+     * @return count and maximum of the hold times
+     */
+    public Map<String, Object> connectionHoldSummary() {
+        return Map.of(
+            "count", connectionHold.count(),
+            "maxMs", maxHoldNanos.get() / 1e6
+        );
+    }
+
+    /**
+     * Appends the connection hold time histogram in Prometheus text format.
+     *
+     * @param out the buffer to write to
+     */
+    public void writeTo(StringBuilder out) {
+        out.append("# HELP db_connection_hold_seconds Time a connection was held by application code.\n");
+        out.append("# TYPE db_connection_hold_seconds histogram\n");
+        connectionHold.writeTo(out, "db_connection_hold_seconds", "");
+    }
+
+    /**
+     * Forgets the statement aggregates and the maximum hold time, for example
+     * after a deployment. The hold time histogram keeps counting, as
+     * Prometheus expects of a histogram.
+     */
+    public void reset() {
+        aggregates.clear();
+        maxHoldNanos.reset();
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.Router;
 
+import com.example.Backup.BackupScheduler;
 import com.example.Controllers.AdminController;
+import com.example.Controllers.BackupFileController;
+import com.example.Controllers.MetricsController;
+import com.example.Controllers.PitrController;
 import static io.javalin.apibuilder.ApiBuilder.*;
 
 import org.slf4j.Logger;
@@ -23,13 +27,37 @@ public class AdminRoutes {
         path("/admin", () -> {
             logger.info("Route to admin built: api/admin");
             AdminController adminController = new AdminController();
+            BackupScheduler.getInstance().start(adminController::startBackup);
             get("/test", adminController::testAdmin);
             path("/backup", () -> {
                 get("/list", adminController::getAllBackups);
                 post("/create", adminController::createBackup);
                 post("/restore/{filename}", adminController::restoreBackup);
+                post("/rollback", adminController::rollbackRestore);
                 post("/remove/{filename}", adminController::removeBackup);
+                post("/verify", adminController::verifyBackups);
+                get("/retention", adminController::getRetentionPlan);
+                post("/prune", adminController::pruneBackups);
+                get("/jobs", adminController::getBackupJobs);
+                get("/jobs/{jobId}", adminController::getBackupJob);
+
+                BackupFileController backupFileController = new BackupFileController();
+                get("/download/{filename}", backupFileController::downloadBackup);
+                head("/download/{filename}", backupFileController::downloadBackup);
+                put("/upload/{filename}", backupFileController::uploadBackup);
+                head("/upload/{filename}", backupFileController::uploadStatus);
+
+                path("/pitr", () -> {
+                    PitrController pitrController = new PitrController();
+                    get("/status", pitrController::getStatus);
+                    post("/base", pitrController::createBaseBackup);
+                    post("/recover", pitrController::prepareRecovery);
+                });
             });
+
+            MetricsController metricsController = new MetricsController();
+            get("/sqlStats", metricsController::sqlStats);
+            post("/sqlStats/reset", metricsController::resetSqlStats);
         });
     }
 }
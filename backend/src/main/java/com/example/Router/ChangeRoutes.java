@@ -0,0 +1,25 @@
+package com.example.Router;
+
+import com.example.Changes.ChangeLogCompactor;
+import com.example.Controllers.ChangeController;
+import static io.javalin.apibuilder.ApiBuilder.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code ChangeRoutes} class registers the change feed under
+ * <code>/api/changes</code> and starts the {@link ChangeLogCompactor}.
+ *
+ * @see com.example.Controllers.ChangeController
+ */
+public class ChangeRoutes {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeRoutes.class);
+
+    public static void register() {
+        logger.info("Route built: api/changes");
+        ChangeController changeController = new ChangeController();
+        ChangeLogCompactor.getInstance().start();
+        get("/changes", changeController::changes);
+    }
+}
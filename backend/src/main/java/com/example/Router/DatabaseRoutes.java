@@ -1,6 +1,8 @@
 package com.example.Router;
 
 import com.example.Controllers.DbController;
+import com.example.Dashboard.DashboardStream;
+import com.example.Dashboard.OccupancyReconciler;
 import static io.javalin.apibuilder.ApiBuilder.*;
 
 import org.slf4j.Logger;
@@ -17,6 +19,7 @@ import org.slf4j.LoggerFactory;
  * <p>Currently available routes:
  * <ul>
  *   <li><b>GET /api/db/health</b> — Checks the database connection status.</li>
+ *   <li><b>GET /api/db/dashboard/stream</b> — Streams live dashboard updates as Server-Sent Events.</li>
  *   <!-- <li><b>GET /api/db/stats</b> — Returns database statistics.</li> -->
  * </ul>
  *
@@ -38,9 +41,13 @@ public class DatabaseRoutes {
         path("/db", () -> {
             logger.info("Route to databse built: api/db");
             DbController dbController = new DbController();
+            DashboardStream.getInstance().start();
+            OccupancyReconciler.getInstance().start();
             get("/health", dbController::checkHealth);
             get("/prisonInfo", dbController::prisonInfo);
             get("/dashboard", dbController::dashboard);
+            get("/dashboard/cacheStats", dbController::dashboardCacheStats);
+            sse("/dashboard/stream", dbController::dashboardStream);
         });
     }
 }
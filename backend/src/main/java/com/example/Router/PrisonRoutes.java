@@ -17,6 +17,7 @@ public class PrisonRoutes {
             delete("/deletePrison/{prisonId}", prisonController::deletePrison);
             post("/addPrison", prisonController::addPrison);
             post("/editPrison/{prisonId}", prisonController::editPrison);
+            get("/cacheStats", prisonController::cacheStats);
         });
     }
 }
\ No newline at end of file
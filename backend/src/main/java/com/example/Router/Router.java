@@ -3,6 +3,12 @@ package com.example.Router;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.javalin.Javalin;
+import com.example.Auth.AuthHandler;
+import com.example.Cache.PrisonCache;
+import com.example.Cache.TableVersions;
+import com.example.Config.SchemaMigrations;
+import com.example.Controllers.MetricsController;
+import com.example.Metrics.RequestMetrics;
 import static io.javalin.apibuilder.ApiBuilder.*;
 
 /**
@@ -24,13 +30,30 @@ public class Router {
      * Configures all application routes and attaches them to the provided
      * Javalin instance.
      *
-     * <p>This method registers the base <code>/api</code> path and delegates
+     * <p>This method applies pending {@link SchemaMigrations}, starts the
+     * {@link TableVersions} listener, installs the
+     * {@link RequestMetrics} timing handlers and the {@link AuthHandler} in
+     * front of <code>/api/*</code>, registers the base <code>/api</code> path and delegates
      * sub-route registration to the {@link DatabaseRoutes} and
      * {@link NonDbRoutes} classes.
      *
      * @param app the currently running Javalin server instance
      */
     public static void configure(Javalin app) {
+        // Triggers and tables the routes below rely on
+        SchemaMigrations.migrateOnStartup();
+
+        // Version tables for conditional GETs; outside writes to prisons also drop the prison cache
+        TableVersions tableVersions = TableVersions.getInstance();
+        tableVersions.onChange("prisons", PrisonCache.getInstance()::invalidateAll);
+        tableVersions.start();
+
+        // Time every request, including the ones rejected by auth
+        RequestMetrics.getInstance().register(app);
+
+        // Verify bearer tokens before any /api handler runs
+        AuthHandler.register(app, new AuthHandler());
+
         app.routes(() -> {
             logger.info("Api route build: /api");
             path("/api", () -> {
@@ -39,6 +62,11 @@ public class Router {
                 UserRoutes.register();
                 AdminRoutes.register();
                 PrisonRoutes.register();
+                ChangeRoutes.register();
+
+                // Prometheus scrape endpoint
+                MetricsController metricsController = new MetricsController();
+                get("/metrics", metricsController::metrics);
             });
         });
     }
@@ -40,6 +40,7 @@ public class UserRoutes {
             post("/login", userController::login);
             get("/allUsers", userController::getAllUsers);
             post("/addUser", userController::addUser);
+            post("/bulkImport", userController::bulkImport);
             delete("/deleteUser/{userId}", userController::deleteUser);
             post("/editUser/{userId}", userController::editUser);
         });
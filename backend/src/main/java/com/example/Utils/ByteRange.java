@@ -0,0 +1,90 @@
+package com.example.Utils;
+
+/**
+ * The {@code ByteRange} record is one satisfiable byte range of a
+ * {@code Range: bytes=...} request header.
+ *
+ * <p>Only a single range is supported. A header asking for several ranges,
+ * or one that is not a byte range at all, is ignored as RFC 9110 allows, and
+ * the whole representation is sent.
+ *
+ * @param start first byte, inclusive
+ * @param end last byte, inclusive
+ */
+public record ByteRange(long start, long end) {
+
+    /**
+     * Thrown when no byte of the requested range exists; answer {@code 416}.
+     */
+    public static class UnsatisfiableException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public UnsatisfiableException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Parses a {@code Range} header against a representation of
+     * {@code size} bytes.
+     *
+     * @param header the header value, may be null
+     * @param size length of the representation
+     * @return the range, or null when the whole representation should be sent
+     * @throws UnsatisfiableException if the range starts past the end
+     */
+    public static ByteRange parse(String header, long size) {
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        if (spec.contains(",")) {
+            return null;
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // Suffix range: the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || size == 0) {
+                    throw new UnsatisfiableException("Empty suffix range");
+                }
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= size) {
+                throw new UnsatisfiableException("Range starts at " + start + " of " + size + " bytes");
+            }
+            return new ByteRange(start, Math.min(end, size - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the number of bytes in the range.
+     */
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * Returns the {@code Content-Range} header value of this range.
+     *
+     * @param size length of the whole representation
+     */
+    public String contentRange(long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+}
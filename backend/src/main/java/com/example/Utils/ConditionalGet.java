@@ -0,0 +1,68 @@
+package com.example.Utils;
+
+import io.javalin.http.Context;
+
+/**
+ * The {@code ConditionalGet} class answers conditional GET requests.
+ *
+ * <p>A handler that knows the {@code ETag} of its response before building
+ * it calls {@link #notModified(Context, String)} first: the tag is set on
+ * the response, and when the client's {@code If-None-Match} already names
+ * it the response becomes <b>304 Not Modified</b> and the handler returns
+ * without querying or serializing anything.
+ */
+public final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Sets the response's {@code ETag} and tells whether the client's copy
+     * is still current.
+     *
+     * @param ctx the {@link Context} of the request
+     * @param etag the quoted entity tag of the response, or {@code null}
+     *             when none is known, which never matches
+     * @return {@code true} if the status was set to 304 and the handler
+     *         must not send a body
+     */
+    public static boolean notModified(Context ctx, String etag) {
+        if (etag == null) {
+            return false;
+        }
+        ctx.header("ETag", etag);
+        // Clients revalidate every time rather than trusting a heuristic lifetime
+        ctx.header("Cache-Control", "no-cache");
+        if (matches(ctx.header("If-None-Match"), etag)) {
+            ctx.status(304);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether an {@code If-None-Match} header names a tag, using weak
+     * comparison as RFC 9110 asks for it.
+     *
+     * @param ifNoneMatch the header value, may be {@code null}
+     * @param etag the quoted entity tag
+     * @return whether the header matches
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || opaque(candidate).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import io.javalin.http.Context;
+
+/**
+ * The {@code KeysetPage} class describes one page of a list endpoint that is
+ * paginated on an integer primary key.
+ *
+ * <p>Clients pass {@code ?limit=} and, for every page after the first,
+ * {@code ?after=} with the opaque cursor returned in the
+ * {@value #NEXT_CURSOR_HEADER} response header. The query then becomes
+ * {@code WHERE id > :after ORDER BY id LIMIT :limit + 1}, which costs the same
+ * no matter how deep the client pages. The extra row only tells whether a
+ * next page exists.
+ *
+ * <p>Requests without either parameter stay unpaged so existing clients keep
+ * receiving the whole list.
+ */
+public class KeysetPage {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private final Integer limit;
+    private final Integer afterId;
+
+    private KeysetPage(Integer limit, Integer afterId) {
+        this.limit = limit;
+        this.afterId = afterId;
+    }
+
+    /**
+     * Returns the page holding every row.
+     *
+     * @return an unpaged page
+     */
+    public static KeysetPage unpaged() {
+        return new KeysetPage(null, null);
+    }
+
+    /**
+     * Reads {@code limit} and {@code after} from the query string.
+     *
+     * @param ctx the {@link Context} of the request
+     * @return the requested page
+     * @throws IllegalArgumentException if a parameter is malformed
+     */
+    public static KeysetPage fromQuery(Context ctx) {
+        String limitParam = ctx.queryParam("limit");
+        String afterParam = ctx.queryParam("after");
+
+        if (limitParam == null && afterParam == null) {
+            return unpaged();
+        }
+
+        int limit = DEFAULT_LIMIT;
+        if (limitParam != null) {
+            try {
+                limit = Integer.parseInt(limitParam);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("limit must be a number");
+            }
+            if (limit < 1) {
+                throw new IllegalArgumentException("limit must be positive");
+            }
+            limit = Math.min(limit, MAX_LIMIT);
+        }
+
+        Integer afterId = afterParam == null || afterParam.isEmpty() ? null : decodeCursor(afterParam);
+        return new KeysetPage(limit, afterId);
+    }
+
+    /**
+     * Encodes the key of the last row on a page as an opaque cursor.
+     *
+     * @param lastId the primary key of the last returned row
+     * @return the cursor token
+     */
+    public static String encodeCursor(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encodeCursor(int)}.
+     *
+     * @param token the cursor token
+     * @return the primary key the next page starts after
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static int decodeCursor(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public boolean isPaged() {
+        return limit != null;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public Integer getAfterId() {
+        return afterId;
+    }
+
+    /**
+     * Number of rows to fetch: one more than the page size, so that the
+     * presence of a next page is known without a count query.
+     */
+    public int fetchSize() {
+        return limit + 1;
+    }
+
+    /**
+     * Cuts the fetched rows down to the page size and, when there are more
+     * rows, sets the {@value #NEXT_CURSOR_HEADER} header on the response.
+     *
+     * @param rows the rows fetched with {@link #fetchSize()}
+     * @param idOf extracts the primary key of a row
+     * @param ctx the {@link Context} of the request
+     * @return the rows belonging to this page
+     */
+    public <T> List<T> apply(List<T> rows, ToIntFunction<T> idOf, Context ctx) {
+        if (!isPaged() || rows.size() <= limit) {
+            return rows;
+        }
+        List<T> page = rows.subList(0, limit);
+        ctx.header(NEXT_CURSOR_HEADER, encodeCursor(idOf.applyAsInt(page.get(limit - 1))));
+        return page;
+    }
+
+    /**
+     * Describes the page for use in cache keys.
+     */
+    @Override
+    public String toString() {
+        return isPaged() ? "limit=" + limit + ",after=" + afterId : "all";
+    }
+}
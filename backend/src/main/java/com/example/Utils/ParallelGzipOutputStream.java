@@ -0,0 +1,246 @@
+package com.example.Utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The {@code ParallelGzipOutputStream} class writes standard gzip, like
+ * {@link java.util.zip.GZIPOutputStream}, but compresses on several cores
+ * the way {@code pigz} does.
+ *
+ * <p>The input is cut into blocks that are deflated independently on a
+ * {@link ForkJoinPool}, each primed with the last 32 KiB of the block before
+ * it so the ratio stays close to single-stream gzip. Every block but the
+ * last ends with a sync flush, which leaves the deflate stream byte-aligned,
+ * so the compressed blocks concatenate into one gzip member that any gzip
+ * reader inflates. The CRC and length of the trailer are computed on the
+ * writing thread, which is cheap next to deflating.
+ *
+ * <p>At most two blocks per worker are in flight; a writer that is faster
+ * than the pool blocks until the oldest block is written out.
+ *
+ * <p>Not thread-safe: one thread writes, the pool compresses.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    /** Default input block size, large enough that per-block overhead is small. */
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = {
+        0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private final OutputStream out;
+    private final int blockSize;
+    private final int level;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int maxInFlight;
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+
+    private byte[] block;
+    private int blockLength;
+    private byte[] previousBlock;
+    private int previousLength;
+    private long totalLength;
+    private boolean closed;
+
+    /**
+     * Creates a stream compressing on its own pool of {@code threads}
+     * workers, shut down when the stream is closed.
+     *
+     * @param out receives the gzip stream
+     * @param threads compressing threads
+     * @throws IOException if the header can't be written
+     */
+    public ParallelGzipOutputStream(OutputStream out, int threads) throws IOException {
+        this(out, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, new ForkJoinPool(Math.max(1, threads)), true);
+    }
+
+    /**
+     * Creates a stream compressing on a shared pool, which is left running.
+     *
+     * @param out receives the gzip stream
+     * @param blockSize bytes of input per block
+     * @param level deflate level, {@code 0..9} or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param pool the pool that compresses the blocks
+     * @throws IOException if the header can't be written
+     */
+    public ParallelGzipOutputStream(OutputStream out, int blockSize, int level, ForkJoinPool pool) throws IOException {
+        this(out, blockSize, level, pool, false);
+    }
+
+    private ParallelGzipOutputStream(OutputStream out, int blockSize, int level, ForkJoinPool pool,
+                                     boolean ownsPool) throws IOException {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Block size must be at least " + DICTIONARY_SIZE);
+        }
+        this.out = out;
+        this.blockSize = blockSize;
+        this.level = level;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.maxInFlight = 2 * pool.getParallelism();
+        this.block = new byte[blockSize];
+        try {
+            out.write(HEADER);
+        } catch (IOException e) {
+            shutdownPool();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, blockSize - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == blockSize) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Compresses the buffered input as a block of its own and writes out
+     * every block. Frequent flushes cost compression ratio.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (blockLength > 0) {
+            submitBlock(false);
+        }
+        while (!inFlight.isEmpty()) {
+            writeOldest();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the last block and the gzip trailer, then closes the underlying
+     * stream and, if the stream owns it, the pool.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (out) {
+            submitBlock(true);
+            while (!inFlight.isEmpty()) {
+                writeOldest();
+            }
+            writeIntLE((int) crc.getValue());
+            writeIntLE((int) totalLength);
+            out.flush();
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+            shutdownPool();
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        byte[] data = block;
+        int length = blockLength;
+        byte[] dictionary = previousBlock;
+        int dictionaryLength = previousLength;
+
+        crc.update(data, 0, length);
+        totalLength += length;
+        while (inFlight.size() >= maxInFlight) {
+            writeOldest();
+        }
+        inFlight.add(pool.submit(() -> deflate(data, length, dictionary, dictionaryLength, last)));
+
+        // The submitted block is read by its task, so the next one needs a new buffer
+        previousBlock = data;
+        previousLength = length;
+        block = last ? null : new byte[blockSize];
+        blockLength = 0;
+    }
+
+    private byte[] deflate(byte[] data, int length, byte[] dictionary, int dictionaryLength, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                int size = Math.min(DICTIONARY_SIZE, dictionaryLength);
+                deflater.setDictionary(dictionary, dictionaryLength - size, size);
+            }
+            deflater.setInput(data, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+
+            byte[] result = new byte[length + length / 8 + 64];
+            int written = 0;
+            while (true) {
+                if (written == result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                written += deflater.deflate(result, written, result.length - written,
+                    last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+                // A sync flush is complete once it leaves output space unused
+                if (last ? deflater.finished() : written < result.length) {
+                    return Arrays.copyOf(result, written);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        try {
+            out.write(inFlight.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed", e.getCause());
+        }
+    }
+
+    private void writeIntLE(int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void shutdownPool() {
+        if (ownsPool) {
+            pool.shutdownNow();
+        }
+    }
+}
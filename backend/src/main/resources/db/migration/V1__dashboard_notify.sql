@@ -0,0 +1,72 @@
+-- Notifies dashboard_events when a write changes what the admin dashboard
+-- shows, so the backend can push updates instead of every open dashboard
+-- polling. Payloads name the rows to re-read; the backend coalesces them,
+-- and identical payloads within one transaction are delivered once.
+
+CREATE OR REPLACE FUNCTION public.dashboard_notify() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    IF TG_LEVEL = 'STATEMENT' THEN
+        PERFORM pg_notify('dashboard_events',
+            json_build_object('table', TG_TABLE_NAME, 'op', TG_OP)::text);
+        RETURN NULL;
+    END IF;
+
+    IF TG_TABLE_NAME = 'criminals' THEN
+        -- Occupancy counts imprisoned criminals per prison
+        IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.status = 'imprisoned' AND OLD.prison_id IS NOT NULL
+                AND (TG_OP = 'DELETE' OR NEW.status IS DISTINCT FROM OLD.status
+                     OR NEW.prison_id IS DISTINCT FROM OLD.prison_id) THEN
+            PERFORM pg_notify('dashboard_events',
+                json_build_object('table', TG_TABLE_NAME, 'prisonId', OLD.prison_id)::text);
+        END IF;
+        IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.status = 'imprisoned' AND NEW.prison_id IS NOT NULL
+                AND (TG_OP = 'INSERT' OR NEW.status IS DISTINCT FROM OLD.status
+                     OR NEW.prison_id IS DISTINCT FROM OLD.prison_id) THEN
+            PERFORM pg_notify('dashboard_events',
+                json_build_object('table', TG_TABLE_NAME, 'prisonId', NEW.prison_id)::text);
+        END IF;
+    ELSIF TG_TABLE_NAME = 'prison_incidents' THEN
+        PERFORM pg_notify('dashboard_events',
+            json_build_object('table', TG_TABLE_NAME, 'op', TG_OP,
+                'id', CASE WHEN TG_OP = 'DELETE' THEN OLD.incident_id ELSE NEW.incident_id END)::text);
+    ELSIF TG_TABLE_NAME = 'prison_visits' THEN
+        -- The dashboard lists approved visits only
+        IF (TG_OP <> 'INSERT' AND OLD.is_approved) OR (TG_OP <> 'DELETE' AND NEW.is_approved) THEN
+            PERFORM pg_notify('dashboard_events', json_build_object('table', TG_TABLE_NAME)::text);
+        END IF;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS criminals_dashboard_notify ON public.criminals;
+CREATE TRIGGER criminals_dashboard_notify
+    AFTER INSERT OR UPDATE OR DELETE ON public.criminals
+    FOR EACH ROW EXECUTE FUNCTION public.dashboard_notify();
+
+DROP TRIGGER IF EXISTS criminals_dashboard_notify_truncate ON public.criminals;
+CREATE TRIGGER criminals_dashboard_notify_truncate
+    AFTER TRUNCATE ON public.criminals
+    FOR EACH STATEMENT EXECUTE FUNCTION public.dashboard_notify();
+
+DROP TRIGGER IF EXISTS prison_incidents_dashboard_notify ON public.prison_incidents;
+CREATE TRIGGER prison_incidents_dashboard_notify
+    AFTER INSERT OR UPDATE OR DELETE ON public.prison_incidents
+    FOR EACH ROW EXECUTE FUNCTION public.dashboard_notify();
+
+DROP TRIGGER IF EXISTS prison_incidents_dashboard_notify_truncate ON public.prison_incidents;
+CREATE TRIGGER prison_incidents_dashboard_notify_truncate
+    AFTER TRUNCATE ON public.prison_incidents
+    FOR EACH STATEMENT EXECUTE FUNCTION public.dashboard_notify();
+
+DROP TRIGGER IF EXISTS prison_visits_dashboard_notify ON public.prison_visits;
+CREATE TRIGGER prison_visits_dashboard_notify
+    AFTER INSERT OR UPDATE OR DELETE ON public.prison_visits
+    FOR EACH ROW EXECUTE FUNCTION public.dashboard_notify();
+
+DROP TRIGGER IF EXISTS prison_visits_dashboard_notify_truncate ON public.prison_visits;
+CREATE TRIGGER prison_visits_dashboard_notify_truncate
+    AFTER TRUNCATE ON public.prison_visits
+    FOR EACH STATEMENT EXECUTE FUNCTION public.dashboard_notify();
@@ -0,0 +1,80 @@
+-- Keeps the number of imprisoned criminals per prison in a counter table,
+-- so the dashboard reads one row per prison instead of counting every
+-- criminal. Triggers on criminals adjust the counters in the same
+-- transaction as the write; OccupancyReconciler repairs any drift.
+--
+-- There is deliberately no foreign key to prisons: when a prison_id is
+-- renumbered or deleted, the cascaded updates of criminals move the counts
+-- through the triggers below.
+
+CREATE TABLE IF NOT EXISTS public.prison_occupancy_counters (
+    prison_id integer PRIMARY KEY,
+    current_inmates integer NOT NULL DEFAULT 0,
+    updated_at timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE OR REPLACE FUNCTION public.prison_occupancy_bump(target integer, delta integer) RETURNS void
+    LANGUAGE sql
+    AS $$
+    INSERT INTO public.prison_occupancy_counters AS o (prison_id, current_inmates)
+    VALUES (target, delta)
+    ON CONFLICT (prison_id) DO UPDATE
+        SET current_inmates = o.current_inmates + EXCLUDED.current_inmates, updated_at = now();
+$$;
+
+CREATE OR REPLACE FUNCTION public.prison_occupancy_maintain() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+DECLARE
+    old_prison integer;
+    new_prison integer;
+BEGIN
+    IF TG_LEVEL = 'STATEMENT' THEN
+        DELETE FROM public.prison_occupancy_counters;
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.status = 'imprisoned' THEN
+        old_prison := OLD.prison_id;
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.status = 'imprisoned' THEN
+        new_prison := NEW.prison_id;
+    END IF;
+    IF old_prison IS NOT DISTINCT FROM new_prison THEN
+        RETURN NULL;
+    END IF;
+
+    -- Lower prison first, so two moves in opposite directions can't deadlock
+    IF old_prison IS NOT NULL AND (new_prison IS NULL OR old_prison < new_prison) THEN
+        PERFORM public.prison_occupancy_bump(old_prison, -1);
+        old_prison := NULL;
+    END IF;
+    IF new_prison IS NOT NULL THEN
+        PERFORM public.prison_occupancy_bump(new_prison, 1);
+    END IF;
+    IF old_prison IS NOT NULL THEN
+        PERFORM public.prison_occupancy_bump(old_prison, -1);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+-- No counter may change while the triggers are created and the counters filled
+LOCK TABLE public.criminals IN SHARE ROW EXCLUSIVE MODE;
+
+DROP TRIGGER IF EXISTS criminals_occupancy_counters ON public.criminals;
+CREATE TRIGGER criminals_occupancy_counters
+    AFTER INSERT OR DELETE OR UPDATE OF status, prison_id ON public.criminals
+    FOR EACH ROW EXECUTE FUNCTION public.prison_occupancy_maintain();
+
+DROP TRIGGER IF EXISTS criminals_occupancy_counters_truncate ON public.criminals;
+CREATE TRIGGER criminals_occupancy_counters_truncate
+    AFTER TRUNCATE ON public.criminals
+    FOR EACH STATEMENT EXECUTE FUNCTION public.prison_occupancy_maintain();
+
+DELETE FROM public.prison_occupancy_counters;
+INSERT INTO public.prison_occupancy_counters (prison_id, current_inmates)
+SELECT prison_id, count(*)
+FROM public.criminals
+WHERE status = 'imprisoned' AND prison_id IS NOT NULL
+GROUP BY prison_id;
@@ -0,0 +1,28 @@
+-- Notifies table_changes with the table name after every statement that
+-- writes to a table the API serves lists from, so TableVersions can bump
+-- its version and ETags change. Statement-level triggers cost one
+-- notification per statement, and identical ones within a transaction are
+-- delivered once.
+
+CREATE OR REPLACE FUNCTION public.table_change_notify() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    PERFORM pg_notify('table_changes', TG_TABLE_NAME);
+    RETURN NULL;
+END;
+$$;
+
+DO $$
+DECLARE
+    tbl text;
+BEGIN
+    FOREACH tbl IN ARRAY ARRAY['prisons', 'users', 'criminals', 'officers', 'prison_visits',
+                               'prison_incidents', 'prison_occupancy_counters'] LOOP
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON public.%I', tbl || '_change_notify', tbl);
+        EXECUTE format('CREATE TRIGGER %I AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON public.%I '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION public.table_change_notify()',
+                       tbl || '_change_notify', tbl);
+    END LOOP;
+END;
+$$;
@@ -0,0 +1,107 @@
+-- Records every insert, update and delete of prisons, users, criminals and
+-- prison_incidents in change_log, so clients can sync what changed since
+-- their last cursor through /api/changes instead of refetching tables.
+--
+-- Entries are ordered by the writing transaction's id (xid8) and then by
+-- change_id. Every entry whose transaction id is below the xmin of a
+-- snapshot belongs to a finished transaction, so that prefix of the log
+-- never grows again and a cursor into it can't skip a late commit.
+--
+-- Each entry holds the full row after the change, minus columns the API
+-- never serves (users.password, criminals.ssn), so only the latest entry
+-- per row matters and ChangeLogCompactor deletes the ones it superseded.
+-- Entries older than the retention are pruned too; change_log_horizon
+-- remembers the newest pruned one, and older cursors are answered with 410.
+
+CREATE TABLE IF NOT EXISTS public.change_log (
+    change_id bigserial PRIMARY KEY,
+    txid xid8 NOT NULL DEFAULT pg_current_xact_id(),
+    table_name text NOT NULL,
+    op text NOT NULL CHECK (op IN ('upsert', 'delete', 'truncate')),
+    row_id integer,
+    row_data jsonb,
+    changed_at timestamptz NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS change_log_cursor_idx ON public.change_log (txid, change_id);
+CREATE INDEX IF NOT EXISTS change_log_row_idx ON public.change_log (table_name, row_id, txid, change_id);
+
+CREATE TABLE IF NOT EXISTS public.change_log_horizon (
+    singleton boolean PRIMARY KEY DEFAULT true CHECK (singleton),
+    txid xid8 NOT NULL DEFAULT '0',
+    change_id bigint NOT NULL DEFAULT 0
+);
+
+INSERT INTO public.change_log_horizon DEFAULT VALUES ON CONFLICT DO NOTHING;
+
+-- TG_ARGV[0] is the primary key column, the remaining arguments are
+-- columns left out of row_data.
+CREATE OR REPLACE FUNCTION public.change_log_record() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+DECLARE
+    key text := TG_ARGV[0];
+    hidden text[] := TG_ARGV[1:];
+    new_row jsonb;
+    old_row jsonb;
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        INSERT INTO public.change_log (table_name, op) VALUES (TG_TABLE_NAME, 'truncate');
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP <> 'INSERT' THEN
+        old_row := to_jsonb(OLD) - hidden;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        new_row := to_jsonb(NEW) - hidden;
+    END IF;
+
+    IF TG_OP = 'UPDATE' AND new_row = old_row THEN
+        RETURN NULL;
+    END IF;
+
+    IF old_row IS NOT NULL AND (new_row IS NULL OR new_row -> key <> old_row -> key) THEN
+        INSERT INTO public.change_log (table_name, op, row_id)
+        VALUES (TG_TABLE_NAME, 'delete', (old_row ->> key)::integer);
+    END IF;
+    IF new_row IS NOT NULL THEN
+        INSERT INTO public.change_log (table_name, op, row_id, row_data)
+        VALUES (TG_TABLE_NAME, 'upsert', (new_row ->> key)::integer, new_row);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS prisons_change_log ON public.prisons;
+CREATE TRIGGER prisons_change_log
+    AFTER INSERT OR UPDATE OR DELETE ON public.prisons
+    FOR EACH ROW EXECUTE FUNCTION public.change_log_record('prison_id');
+
+DROP TRIGGER IF EXISTS users_change_log ON public.users;
+CREATE TRIGGER users_change_log
+    AFTER INSERT OR UPDATE OR DELETE ON public.users
+    FOR EACH ROW EXECUTE FUNCTION public.change_log_record('id', 'password');
+
+DROP TRIGGER IF EXISTS criminals_change_log ON public.criminals;
+CREATE TRIGGER criminals_change_log
+    AFTER INSERT OR UPDATE OR DELETE ON public.criminals
+    FOR EACH ROW EXECUTE FUNCTION public.change_log_record('criminal_id', 'ssn');
+
+DROP TRIGGER IF EXISTS prison_incidents_change_log ON public.prison_incidents;
+CREATE TRIGGER prison_incidents_change_log
+    AFTER INSERT OR UPDATE OR DELETE ON public.prison_incidents
+    FOR EACH ROW EXECUTE FUNCTION public.change_log_record('incident_id');
+
+DO $$
+DECLARE
+    tbl text;
+BEGIN
+    FOREACH tbl IN ARRAY ARRAY['prisons', 'users', 'criminals', 'prison_incidents'] LOOP
+        EXECUTE format('DROP TRIGGER IF EXISTS %I ON public.%I', tbl || '_change_log_truncate', tbl);
+        EXECUTE format('CREATE TRIGGER %I AFTER TRUNCATE ON public.%I '
+                       'FOR EACH STATEMENT EXECUTE FUNCTION public.change_log_record(%L)',
+                       tbl || '_change_log_truncate', tbl, 'none');
+    END LOOP;
+END;
+$$;
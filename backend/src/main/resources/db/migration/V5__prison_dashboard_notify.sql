@@ -0,0 +1,37 @@
+-- Notifies dashboard_events when a prison is added, removed or changes a
+-- column the dashboard's occupancy list shows, so DashboardStream re-reads
+-- the occupancy rows of those prisons. A renumbered prison notifies both
+-- its old and its new id; a truncate makes every dashboard resync.
+
+CREATE OR REPLACE FUNCTION public.prison_dashboard_notify() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    IF TG_OP = 'UPDATE'
+            AND (NEW.prison_id, NEW.name, NEW.location, NEW.capacity, NEW.security_level, NEW.is_active)
+                IS NOT DISTINCT FROM
+                (OLD.prison_id, OLD.name, OLD.location, OLD.capacity, OLD.security_level, OLD.is_active) THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM pg_notify('dashboard_events',
+            json_build_object('table', TG_TABLE_NAME, 'prisonId', OLD.prison_id)::text);
+    END IF;
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        PERFORM pg_notify('dashboard_events',
+            json_build_object('table', TG_TABLE_NAME, 'prisonId', NEW.prison_id)::text);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS prisons_dashboard_notify ON public.prisons;
+CREATE TRIGGER prisons_dashboard_notify
+    AFTER INSERT OR UPDATE OR DELETE ON public.prisons
+    FOR EACH ROW EXECUTE FUNCTION public.prison_dashboard_notify();
+
+DROP TRIGGER IF EXISTS prisons_dashboard_notify_truncate ON public.prisons;
+CREATE TRIGGER prisons_dashboard_notify_truncate
+    AFTER TRUNCATE ON public.prisons
+    FOR EACH STATEMENT EXECUTE FUNCTION public.dashboard_notify();
@@ -0,0 +1,97 @@
+package com.example.bench;
+
+import com.example.Backup.BackupFiles;
+import com.example.Backup.BackupFormat;
+import com.example.Backup.BackupJobManager;
+import com.example.Backup.PgCommands;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares the single-stream custom-format backup with parallel directory
+ * dumps, and the matching restores, using the same commands the backup
+ * endpoints run.
+ *
+ * <p>For every job count it dumps the database, records time and size, then
+ * restores the dump into the same database. Point it at a scratch copy:
+ * the restore drops and recreates every object. Not a unit test; run it by
+ * hand with {@code pg_dump}/{@code pg_restore} on the path:
+ * <pre>
+ * PGHOST=localhost PGPORT=5432 PGDATABASE=bench PGUSER=postgres PGPASSWORD=postgres \
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.bench.BackupBenchmark -Dexec.args="/tmp/bench 1,2,4"
+ * </pre>
+ */
+public class BackupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Path workDir = Path.of(args.length > 0 ? args[0] : "/tmp/backup-bench");
+        List<Integer> jobCounts = new ArrayList<>();
+        for (String jobs : (args.length > 1 ? args[1] : "1,2,4").split(",")) {
+            jobCounts.add(Integer.parseInt(jobs.trim()));
+        }
+
+        PgCommands commands = new PgCommands(
+            System.getenv().getOrDefault("PGHOST", "localhost"),
+            System.getenv().getOrDefault("PGPORT", "5432"),
+            System.getenv().getOrDefault("PGDATABASE", "prisonflow"),
+            System.getenv().getOrDefault("PGUSER", "postgres"),
+            System.getenv().getOrDefault("PGPASSWORD", "postgres"),
+            1
+        );
+        Files.createDirectories(workDir);
+
+        System.out.printf("database=%s cores=%d%n", commands.getDatabase(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %5s %10s %11s %10s%n", "format", "jobs", "dump s", "size MiB", "restore s");
+
+        run(commands, workDir, BackupFormat.CUSTOM, 1);
+        for (int jobs : jobCounts) {
+            run(commands, workDir, BackupFormat.DIRECTORY, jobs);
+        }
+    }
+
+    private static void run(PgCommands commands, Path workDir, BackupFormat format, int jobs) throws Exception {
+        Path target = workDir.resolve("bench_" + jobs + format.extension());
+        BackupFiles.delete(target);
+
+        double dumpSeconds = time(commands.dump(target, format, jobs));
+        long size = size(target);
+        // A custom archive restores in parallel too; use the same job count
+        double restoreSeconds = time(commands.restore(target, jobs));
+
+        System.out.printf("%-10s %5d %10.2f %11.1f %10.2f%n",
+            format.name().toLowerCase(), jobs, dumpSeconds, size / 1048576.0, restoreSeconds);
+        BackupFiles.delete(target);
+    }
+
+    private static double time(ProcessBuilder command) throws Exception {
+        List<String> tail = new ArrayList<>();
+        long start = System.nanoTime();
+        int exitCode = BackupJobManager.command(command).run(line -> {
+            tail.add(line);
+            if (tail.size() > 20) {
+                tail.remove(0);
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (exitCode != 0) {
+            throw new IllegalStateException(command.command().get(0) + " exited with " + exitCode
+                + ":\n" + String.join("\n", tail));
+        }
+        return seconds;
+    }
+
+    private static long size(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Files.size(path);
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            return walk.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
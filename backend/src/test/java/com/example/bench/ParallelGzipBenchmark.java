@@ -0,0 +1,132 @@
+package com.example.bench;
+
+import com.example.Utils.ParallelGzipOutputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures how {@link ParallelGzipOutputStream} throughput scales with
+ * threads, against {@link GZIPOutputStream} on one core.
+ *
+ * <p>The input is generated {@code COPY}-like text held in memory, and the
+ * output is counted and discarded, so only compression is measured. Each
+ * configuration runs a warm-up round, then the best of three is reported,
+ * and every output is checked to inflate back to the input. Not a unit
+ * test; run it by hand on a machine with several cores:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.bench.ParallelGzipBenchmark -Dexec.args="256 1,2,4,8"
+ * </pre>
+ * The first argument is the input size in MiB.
+ */
+public class ParallelGzipBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int mebibytes = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        List<Integer> threadCounts = new ArrayList<>();
+        for (String threads : (args.length > 1 ? args[1] : "1,2,4,8").split(",")) {
+            threadCounts.add(Integer.parseInt(threads.trim()));
+        }
+
+        byte[] input = rows(mebibytes * 1024 * 1024);
+        System.out.printf("input=%d MiB cores=%d%n", mebibytes, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-10s %7s %9s %8s %8s%n", "stream", "threads", "MiB/s", "ratio", "speedup");
+
+        double baseline = run("gzip", 1, input, out -> new GZIPOutputStream(out, 64 * 1024), 0);
+        for (int threads : threadCounts) {
+            run("parallel", threads, input, out -> new ParallelGzipOutputStream(out, threads), baseline);
+        }
+    }
+
+    private interface Compressor {
+        OutputStream open(OutputStream out) throws IOException;
+    }
+
+    private static double run(String name, int threads, byte[] input, Compressor compressor, double baseline)
+            throws IOException {
+        double best = 0;
+        long size = 0;
+        for (int round = 0; round < 4; round++) {
+            CountingOutputStream counter = new CountingOutputStream(round == 0);
+            long start = System.nanoTime();
+            try (OutputStream out = compressor.open(counter)) {
+                for (int offset = 0; offset < input.length; offset += 64 * 1024) {
+                    out.write(input, offset, Math.min(64 * 1024, input.length - offset));
+                }
+            }
+            double mibPerSecond = input.length / 1048576.0 / ((System.nanoTime() - start) / 1e9);
+            if (round == 0) {
+                verify(input, counter.bytes());
+            } else {
+                best = Math.max(best, mibPerSecond);
+            }
+            size = counter.count;
+        }
+
+        System.out.printf("%-10s %7d %9.1f %8.3f %8s%n", name, threads, best, (double) size / input.length,
+            baseline > 0 ? String.format("%.2fx", best / baseline) : "-");
+        return best;
+    }
+
+    private static void verify(byte[] input, byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            if (!Arrays.equals(input, in.readAllBytes())) {
+                throw new IllegalStateException("Output does not inflate to the input");
+            }
+        }
+    }
+
+    private static byte[] rows(int size) {
+        StringBuilder text = new StringBuilder(size + 100);
+        Random random = new Random(7);
+        for (int id = 1; text.length() < size; id++) {
+            text.append(id).append('\t').append("Prisoner ").append(random.nextInt(100_000))
+                .append('\t').append(random.nextInt(500)).append("\t2024-0").append(1 + random.nextInt(9))
+                .append('-').append(10 + random.nextInt(18)).append('\n');
+        }
+        text.setLength(size);
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Counts the output, keeping it only when it is to be verified.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream kept;
+        private long count;
+
+        CountingOutputStream(boolean keep) {
+            this.kept = keep ? new ByteArrayOutputStream() : null;
+        }
+
+        @Override
+        public void write(int b) {
+            count++;
+            if (kept != null) {
+                kept.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+            if (kept != null) {
+                kept.write(b, off, len);
+            }
+        }
+
+        byte[] bytes() {
+            return kept.toByteArray();
+        }
+    }
+}
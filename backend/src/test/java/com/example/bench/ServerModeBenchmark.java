@@ -0,0 +1,116 @@
+package com.example.bench;
+
+import com.example.Config.ServerConfig;
+import com.example.Config.ServerConfig.ThreadMode;
+import io.javalin.Javalin;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares request throughput and latency of the two {@link ServerConfig}
+ * thread modes.
+ *
+ * <p>Each run starts a server whose only handler blocks for
+ * {@code sleepMs}, standing in for a slow query, and hits it from
+ * {@code clients} concurrent clients for {@code seconds}. Not a unit test;
+ * run it by hand:
+ * <pre>
+ * mvn -q test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.bench.ServerModeBenchmark -Dexec.args="1000 100 15"
+ * </pre>
+ */
+public class ServerModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long sleepMs = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 15;
+
+        System.out.printf("clients=%d handlerSleep=%dms duration=%ds%n", clients, sleepMs, seconds);
+        System.out.printf("%-9s %10s %9s %9s %9s %7s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+        for (ThreadMode mode : ThreadMode.values()) {
+            run(mode, clients, sleepMs, seconds);
+        }
+    }
+
+    private static void run(ThreadMode mode, int clients, long sleepMs, int seconds) throws Exception {
+        ServerConfig serverConfig = new ServerConfig(mode, 250, 10_000, 5_000);
+        Javalin app = Javalin.create(serverConfig::configure);
+        serverConfig.install(app);
+        app.get("/slow", ctx -> {
+            Thread.sleep(sleepMs);
+            ctx.result("ok");
+        });
+        app.start(0);
+
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + "/slow"))
+            .timeout(Duration.ofSeconds(60))
+            .build();
+
+        // Warm up connections and JIT
+        runClients(client, request, clients, 3_000, new ArrayList<>(), new AtomicLong());
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        runClients(client, request, clients, seconds * 1000L, latencies, errors);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        app.stop();
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("%-9s %10.0f %9.1f %9.1f %9.1f %7d%n",
+            mode.name().toLowerCase(),
+            sorted.size() / elapsed,
+            percentile(sorted, 0.50),
+            percentile(sorted, 0.99),
+            sorted.isEmpty() ? 0.0 : sorted.get(sorted.size() - 1) / 1e6,
+            errors.get());
+    }
+
+    private static void runClients(HttpClient client, HttpRequest request, int clients, long durationMs,
+                                   List<Long> latencies, AtomicLong errors) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + durationMs;
+        // Platform client threads, so the clients do not compete with the server's virtual threads for carriers
+        try (ExecutorService pool = Executors.newFixedThreadPool(clients)) {
+            for (int i = 0; i < clients; i++) {
+                pool.submit(() -> {
+                    while (System.currentTimeMillis() < deadline) {
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                            if (response.statusCode() == 200) {
+                                latencies.add(System.nanoTime() - sent);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private static double percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0.0;
+        }
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(p * sorted.size()) - 1)) / 1e6;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.e2e;
+
+import com.example.Changes.ChangeFeed;
+import com.example.Changes.ChangeLogCompactor;
+import com.example.Config.DatabaseConfig;
+import com.example.Config.SchemaMigrations;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that writes reach the change feed in order, that compaction keeps
+ * the latest entry of every row and that cursors behind pruned entries
+ * expire. Requires a running database.
+ */
+class ChangeFeedE2ETest {
+
+    private static final String NAME = "ChangeFeedE2E";
+
+    private static DataSource dataSource;
+    private static ChangeFeed feed;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = DatabaseConfig.getDataSource();
+        new SchemaMigrations(dataSource).migrate();
+        feed = new ChangeFeed(dataSource);
+    }
+
+    @AfterEach
+    void cleanUp() throws SQLException {
+        execute("DELETE FROM prisons WHERE name = '" + NAME + "'");
+        execute("DELETE FROM users WHERE username = '" + NAME + "'");
+    }
+
+    private static int insert(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static List<ChangeFeed.Change> ours(ChangeFeed.Page page, int prisonId, int userId) {
+        return page.changes().stream()
+            .filter(c -> ("prisons".equals(c.table()) && Integer.valueOf(prisonId).equals(c.id()))
+                || ("users".equals(c.table()) && Integer.valueOf(userId).equals(c.id())))
+            .toList();
+    }
+
+    @Test
+    void feed_shouldReturnChangesAfterCursorAndCompactToLatest() throws Exception {
+        String head = feed.read(null, 10).cursor();
+
+        int prisonId = insert("INSERT INTO prisons (name, location, capacity, security_level, opening_date, "
+            + "number_of_cells, is_active) VALUES ('" + NAME + "', 'A', 10, 'low', CURRENT_DATE, 5, true) "
+            + "RETURNING prison_id");
+        execute("UPDATE prisons SET capacity = 20 WHERE prison_id = " + prisonId);
+        execute("UPDATE prisons SET capacity = capacity WHERE prison_id = " + prisonId);
+        int userId = insert("INSERT INTO users (username, email, password, role) VALUES ('" + NAME + "', "
+            + "'" + NAME + "@example.com', 'secret-hash', 'user') RETURNING id");
+        execute("DELETE FROM prisons WHERE prison_id = " + prisonId);
+
+        ChangeFeed.Page page = feed.read(ChangeFeed.Cursor.decode(head), ChangeFeed.MAX_LIMIT);
+        List<ChangeFeed.Change> changes = ours(page, prisonId, userId);
+        assertEquals(List.of("upsert", "upsert", "upsert", "delete"),
+            changes.stream().map(ChangeFeed.Change::op).toList(), "no-op updates are not logged");
+        assertTrue(changes.get(1).row().contains("\"capacity\": 20"));
+        assertFalse(changes.get(2).row().contains("password"));
+        assertNull(changes.get(3).row());
+
+        ChangeFeed.Page next = feed.read(ChangeFeed.Cursor.decode(page.cursor()), ChangeFeed.MAX_LIMIT);
+        assertEquals(List.of(), ours(next, prisonId, userId), "a cursor skips what it has seen");
+
+        ChangeFeed.Page first = feed.read(ChangeFeed.Cursor.decode(head), 1);
+        assertTrue(first.hasMore());
+        assertEquals(1, first.changes().size());
+
+        ChangeLogCompactor.Result result = new ChangeLogCompactor(dataSource, 0, 24).compact();
+        assertTrue(result.superseded() >= 2);
+        List<ChangeFeed.Change> compacted =
+            ours(feed.read(ChangeFeed.Cursor.decode(head), ChangeFeed.MAX_LIMIT), prisonId, userId);
+        assertEquals(List.of("users:upsert", "prisons:delete"),
+            compacted.stream().map(c -> c.table() + ":" + c.op()).toList());
+    }
+
+    @Test
+    void feed_shouldExpireCursorsBehindPrunedEntries() throws Exception {
+        String head = feed.read(null, 10).cursor();
+        execute("INSERT INTO users (username, email, password, role) VALUES ('" + NAME + "', "
+            + "'" + NAME + "@example.com', 'secret-hash', 'user')");
+
+        // The insert's transaction started before the compaction's, so a zero retention prunes it
+        Thread.sleep(20);
+        assertTrue(new ChangeLogCompactor(dataSource, 0, 0).compact().expired() >= 1);
+
+        assertThrows(ChangeFeed.ExpiredCursorException.class,
+            () -> feed.read(ChangeFeed.Cursor.decode(head), 10));
+        String fresh = feed.read(null, 10).cursor();
+        assertDoesNotThrow(() -> feed.read(ChangeFeed.Cursor.decode(fresh), 10));
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.e2e;
+
+import com.example.Backup.BackupCatalog;
+import com.example.Backup.BackupFormat;
+import com.example.Backup.CopyBackupEngine;
+import com.example.Changes.ChangeFeed;
+import com.example.Config.DatabaseConfig;
+import com.example.Config.SchemaMigrations;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Backs up and restores a scratch schema, and the application schema in
+ * place, with {@link CopyBackupEngine}. Requires a running database.
+ */
+class CopyBackupE2ETest {
+
+    private static final String SCHEMA = "copy_backup_test";
+
+    private static DataSource dataSource;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        dataSource = DatabaseConfig.getDataSource();
+        execute(
+            "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE",
+            "CREATE SCHEMA " + SCHEMA,
+            "CREATE TABLE " + SCHEMA + ".blocks (block_id SERIAL PRIMARY KEY, name TEXT NOT NULL)",
+            "CREATE TABLE " + SCHEMA + ".cells (cell_id SERIAL PRIMARY KEY, "
+                + "block_id INT NOT NULL REFERENCES " + SCHEMA + ".blocks(block_id), "
+                + "note TEXT, capacity INT, doubled INT GENERATED ALWAYS AS (capacity * 2) STORED)",
+            "CREATE TABLE " + SCHEMA + ".audit (id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, "
+                + "cell_id INT REFERENCES " + SCHEMA + ".cells(cell_id), message TEXT)",
+            "INSERT INTO " + SCHEMA + ".blocks (name) SELECT 'Block ' || g FROM generate_series(1, 5) g",
+            "INSERT INTO " + SCHEMA + ".cells (block_id, note, capacity) "
+                + "SELECT 1 + g % 5, CASE WHEN g % 7 = 0 THEN NULL ELSE E'tab\\there ' || g END, g % 4 "
+                + "FROM generate_series(1, 2000) g",
+            "INSERT INTO " + SCHEMA + ".audit (cell_id, message) SELECT g, 'created' FROM generate_series(1, 50) g"
+        );
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void backupAndRestore_shouldRoundTripTablesInDependencyOrder() throws Exception {
+        CopyBackupEngine engine = new CopyBackupEngine(dataSource, SCHEMA);
+        Path archive = dir.resolve("backup.zip");
+        List<String> output = new ArrayList<>();
+
+        String sha256 = engine.backup(archive, 2, output::add);
+        assertEquals(BackupCatalog.sha256(archive), sha256);
+        assertEquals(BackupFormat.COPY, BackupFormat.detect(archive));
+
+        CopyBackupEngine.Manifest manifest = CopyBackupEngine.readManifest(archive);
+        Map<String, CopyBackupEngine.TableEntry> tables = manifest.tables().stream()
+            .collect(Collectors.toMap(CopyBackupEngine.TableEntry::name, table -> table));
+        assertEquals(0, tables.get("blocks").level());
+        assertEquals(1, tables.get("cells").level());
+        assertEquals(2, tables.get("audit").level());
+        assertEquals(2000, tables.get("cells").rows());
+        assertFalse(tables.get("cells").columns().contains("doubled"));
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count(), "temporary files should be removed");
+        }
+
+        String before = checksum();
+        execute(
+            "DELETE FROM " + SCHEMA + ".audit",
+            "DELETE FROM " + SCHEMA + ".cells WHERE cell_id > 100",
+            "UPDATE " + SCHEMA + ".blocks SET name = 'changed'"
+        );
+        assertNotEquals(before, checksum());
+
+        assertEquals(0, engine.restore(archive, 2, output::add));
+        assertEquals(before, checksum());
+
+        // Sequences continue after the restored rows
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO " + SCHEMA + ".blocks (name) VALUES ('new')");
+            stmt.execute("INSERT INTO " + SCHEMA + ".audit (message) VALUES ('new')");
+            try (ResultSet rs = stmt.executeQuery("SELECT MAX(block_id) FROM " + SCHEMA + ".blocks")) {
+                rs.next();
+                assertEquals(6, rs.getInt(1));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT MAX(id) FROM " + SCHEMA + ".audit")) {
+                rs.next();
+                assertEquals(51, rs.getLong(1));
+            }
+        }
+    }
+
+    @Test
+    void restoreInPlace_shouldRecountOccupancyAndExpireFeedCursors() throws Exception {
+        new SchemaMigrations(dataSource).migrate();
+        CopyBackupEngine engine = new CopyBackupEngine(dataSource, "public");
+        ChangeFeed feed = new ChangeFeed(dataSource);
+        Path archive = dir.resolve("public.zip");
+        engine.backup(archive, 2, line -> {});
+        String counters = counters();
+        String cursor = feed.read(null, 10).cursor();
+
+        execute("INSERT INTO public.criminals (first_name, last_name, date_of_birth, status, prison_id) "
+            + "VALUES ('A', 'CopyBackupE2E', '1990-01-01', 'imprisoned', 1)");
+        assertNotEquals(counters, counters());
+
+        assertEquals(0, engine.restore(archive, 2, line -> {}));
+        assertEquals(counters, counters(), "restored rows must not be counted on top of the restored counters");
+        assertEquals(0, query("SELECT count(*) "
+            + "FROM (SELECT prison_id, count(*) AS inmates FROM public.criminals "
+            + "WHERE status = 'imprisoned' AND prison_id IS NOT NULL GROUP BY prison_id) a "
+            + "FULL JOIN public.prison_occupancy_counters o USING (prison_id) "
+            + "WHERE COALESCE(a.inmates, 0) <> COALESCE(o.current_inmates, 0)"));
+        assertEquals(0, query("SELECT count(*) FROM public.change_log"), "restored rows are not logged");
+
+        assertThrows(ChangeFeed.ExpiredCursorException.class, () -> feed.read(ChangeFeed.Cursor.decode(cursor), 10));
+        String fresh = feed.read(null, 10).cursor();
+        assertDoesNotThrow(() -> feed.read(ChangeFeed.Cursor.decode(fresh), 10));
+    }
+
+    private static String counters() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT string_agg(prison_id || ':' || current_inmates, ',' "
+                 + "ORDER BY prison_id) FROM public.prison_occupancy_counters")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static long query(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static String checksum() throws SQLException {
+        StringBuilder result = new StringBuilder();
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            for (String table : List.of("blocks", "cells", "audit")) {
+                try (ResultSet rs = stmt.executeQuery(
+                        "SELECT count(*), md5(string_agg(t::text, ',' ORDER BY t::text)) FROM " + SCHEMA + "." + table + " t")) {
+                    rs.next();
+                    result.append(table).append(':').append(rs.getLong(1)).append(':').append(rs.getString(2)).append(';');
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    private static void execute(String... statements) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.e2e;
+
+import com.example.Config.DatabaseConfig;
+import com.example.Config.SchemaMigrations;
+import com.example.Dashboard.DashboardStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that writes reach {@link DashboardStream} subscribers through the
+ * notification triggers. Requires a running database.
+ */
+class DashboardStreamE2ETest {
+
+    private static final String LAST_NAME = "DashboardStreamE2E";
+
+    private static DataSource dataSource;
+    private static DashboardStream stream;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = DatabaseConfig.getDataSource();
+        new SchemaMigrations(dataSource).migrate();
+
+        PGSimpleDataSource listenerSource = new PGSimpleDataSource();
+        listenerSource.setURL(DatabaseConfig.getJdbcUrl());
+        listenerSource.setUser(DatabaseConfig.getUser());
+        listenerSource.setPassword(DatabaseConfig.getPassword());
+        stream = new DashboardStream(dataSource, listenerSource, 64, 10_000);
+        stream.start();
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        stream.stop();
+        cleanUp();
+    }
+
+    private static void cleanUp() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DELETE FROM prison_incidents WHERE description = '" + LAST_NAME + "'");
+            stmt.execute("DELETE FROM criminals WHERE last_name = '" + LAST_NAME + "'");
+            stmt.execute("DELETE FROM prisons WHERE name = '" + LAST_NAME + "'");
+        }
+    }
+
+    private static int insert(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private static String await(List<String> events, String prefix) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            for (String event : events) {
+                if (event.startsWith(prefix)) {
+                    events.remove(event);
+                    return event;
+                }
+            }
+            Thread.sleep(20);
+        }
+        fail("No " + prefix + " event in " + events);
+        return null;
+    }
+
+    @Test
+    void writes_shouldBePushedToSubscribers() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        stream.subscribe(new DashboardStream.Sink() {
+            @Override
+            public void send(String event, String data) {
+                events.add(event + ":" + data);
+            }
+
+            @Override
+            public void comment(String text) {
+            }
+
+            @Override
+            public boolean isClosed() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void onClose(Runnable callback) {
+            }
+        });
+        assertTrue(await(events, "snapshot:").contains("\"prisons\""));
+        // Let the listener connect before writing
+        Thread.sleep(500);
+
+        int criminalId = insert("INSERT INTO criminals (first_name, last_name, date_of_birth, status, prison_id) "
+            + "VALUES ('Test', '" + LAST_NAME + "', '1990-01-01', 'imprisoned', 1) RETURNING criminal_id");
+        String occupancy = await(events, "occupancy:");
+        assertTrue(occupancy.contains("\"id\":1,"), occupancy);
+
+        int incidentId = insert("INSERT INTO prison_incidents (prison_id, criminal_id, incident_type, description, "
+            + "severity) VALUES (1, " + criminalId + ", 'fight', '" + LAST_NAME + "', 'low') RETURNING incident_id");
+        String incident = await(events, "incident:");
+        assertTrue(incident.contains("\"incident_id\":" + incidentId), incident);
+        assertTrue(incident.contains("Test " + LAST_NAME), incident);
+
+        cleanUp();
+        assertEquals("incidentRemoved:{\"ids\":[" + incidentId + "]}", await(events, "incidentRemoved:"));
+        assertTrue(await(events, "occupancy:").contains("\"id\":1,"));
+
+        int prisonId = insert("INSERT INTO prisons (name, location, capacity, security_level, opening_date, "
+            + "number_of_cells, is_active) VALUES ('" + LAST_NAME + "', 'A', 10, 'low', CURRENT_DATE, 5, true) "
+            + "RETURNING prison_id");
+        String added = await(events, "occupancy:");
+        assertTrue(added.contains("\"id\":" + prisonId + ","), added);
+        assertTrue(added.contains("\"removed\":[]"), added);
+
+        cleanUp();
+        String removed = await(events, "occupancy:");
+        assertTrue(removed.contains("\"prisons\":[]"), removed);
+        assertTrue(removed.contains("\"removed\":[" + prisonId + "]"), removed);
+    }
+}
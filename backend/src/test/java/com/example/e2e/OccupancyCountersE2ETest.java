@@ -0,0 +1,99 @@
+package com.example.e2e;
+
+import com.example.Config.DatabaseConfig;
+import com.example.Config.SchemaMigrations;
+import com.example.Dashboard.OccupancyReconciler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the occupancy counters follow writes to criminals and that
+ * {@link OccupancyReconciler} repairs them. Requires a running database.
+ */
+class OccupancyCountersE2ETest {
+
+    private static final String LAST_NAME = "OccupancyCountersE2E";
+
+    private static DataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = DatabaseConfig.getDataSource();
+        new SchemaMigrations(dataSource).migrate();
+    }
+
+    @AfterEach
+    void cleanUp() throws SQLException {
+        execute("DELETE FROM criminals WHERE last_name = '" + LAST_NAME + "'");
+        new OccupancyReconciler(dataSource, 0).reconcile();
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static int query(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int counter(int prisonId) throws SQLException {
+        return query("SELECT current_inmates FROM prison_occupancy_counters WHERE prison_id = " + prisonId);
+    }
+
+    private static int actual(int prisonId) throws SQLException {
+        return query("SELECT count(*) FROM criminals WHERE status = 'imprisoned' AND prison_id = " + prisonId);
+    }
+
+    @Test
+    void counters_shouldFollowInsertsMovesAndDeletes() throws SQLException {
+        assertEquals(actual(1), counter(1));
+        int prison1 = counter(1);
+        int prison2 = counter(2);
+
+        execute("INSERT INTO criminals (first_name, last_name, date_of_birth, status, prison_id) VALUES "
+            + "('A', '" + LAST_NAME + "', '1990-01-01', 'imprisoned', 1), "
+            + "('B', '" + LAST_NAME + "', '1990-01-01', 'imprisoned', 1), "
+            + "('C', '" + LAST_NAME + "', '1990-01-01', 'arrested', 1)");
+        assertEquals(prison1 + 2, counter(1));
+
+        execute("UPDATE criminals SET prison_id = 2 WHERE last_name = '" + LAST_NAME + "' AND first_name = 'A'");
+        execute("UPDATE criminals SET status = 'imprisoned' WHERE last_name = '" + LAST_NAME + "' AND first_name = 'C'");
+        execute("UPDATE criminals SET status = 'released' WHERE last_name = '" + LAST_NAME + "' AND first_name = 'B'");
+        assertEquals(prison1 + 1, counter(1));
+        assertEquals(prison2 + 1, counter(2));
+
+        execute("DELETE FROM criminals WHERE last_name = '" + LAST_NAME + "'");
+        assertEquals(prison1, counter(1));
+        assertEquals(prison2, counter(2));
+        assertEquals(actual(2), counter(2));
+    }
+
+    @Test
+    void reconcile_shouldRepairDriftedCounters() throws SQLException {
+        OccupancyReconciler reconciler = new OccupancyReconciler(dataSource, 0);
+        assertEquals(List.of(), reconciler.reconcile());
+
+        int actual = actual(1);
+        execute("UPDATE prison_occupancy_counters SET current_inmates = current_inmates + 5 WHERE prison_id = 1");
+
+        assertEquals(List.of(new OccupancyReconciler.Drift(1, actual, actual + 5)), reconciler.reconcile());
+        assertEquals(actual, counter(1));
+        assertEquals(List.of(), reconciler.reconcile());
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.e2e;
+
+import com.example.Backup.CopyBackupEngine;
+import com.example.Backup.StagingRestore;
+import com.example.Changes.ChangeFeed;
+import com.example.Config.DatabaseConfig;
+import com.example.Config.SchemaMigrations;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Restores a scratch schema through {@link StagingRestore} while a reader
+ * keeps querying it. Requires a running database.
+ */
+class StagingRestoreE2ETest {
+
+    private static final String SCHEMA = "staging_restore_test";
+    private static final String FEED_SCHEMA = "staging_restore_feed_test";
+
+    private static DataSource dataSource;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        dataSource = DatabaseConfig.getDataSource();
+        dropSchemas();
+        execute(
+            "CREATE SCHEMA " + SCHEMA,
+            "CREATE TABLE " + SCHEMA + ".blocks (block_id SERIAL PRIMARY KEY, name TEXT NOT NULL UNIQUE)",
+            "CREATE TABLE " + SCHEMA + ".cells (cell_id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, "
+                + "block_id INT NOT NULL REFERENCES " + SCHEMA + ".blocks(block_id), capacity INT CHECK (capacity >= 0), "
+                + "doubled INT GENERATED ALWAYS AS (capacity * 2) STORED)",
+            "CREATE TABLE " + SCHEMA + ".cell_counts (block_id INT PRIMARY KEY, cells INT NOT NULL)",
+            "CREATE FUNCTION " + SCHEMA + ".count_cell() RETURNS trigger LANGUAGE plpgsql SET search_path = " + SCHEMA + " AS $$ BEGIN "
+                + "INSERT INTO cell_counts VALUES (NEW.block_id, 1) "
+                + "ON CONFLICT (block_id) DO UPDATE SET cells = cell_counts.cells + 1; RETURN NEW; END $$",
+            "CREATE TRIGGER cells_count AFTER INSERT ON " + SCHEMA + ".cells FOR EACH ROW EXECUTE FUNCTION "
+                + SCHEMA + ".count_cell()",
+            "CREATE VIEW " + SCHEMA + ".block_capacity AS SELECT b.name, sum(c.capacity) AS capacity FROM "
+                + SCHEMA + ".blocks b JOIN " + SCHEMA + ".cells c USING (block_id) GROUP BY b.name",
+            "INSERT INTO " + SCHEMA + ".blocks (name) SELECT 'Block ' || g FROM generate_series(1, 3) g",
+            "INSERT INTO " + SCHEMA + ".cells (block_id, capacity) SELECT 1 + g % 3, g % 5 FROM generate_series(1, 300) g"
+        );
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        dropSchemas();
+    }
+
+    @Test
+    void restore_shouldSwapInRestoredSchemaWhileReadersKeepServing() throws Exception {
+        Path archive = dir.resolve("backup.zip");
+        new CopyBackupEngine(dataSource, SCHEMA).backup(archive, 2, line -> { });
+        long capacity = capacity();
+
+        execute(
+            "DELETE FROM " + SCHEMA + ".cells WHERE cell_id > 10",
+            "CREATE TABLE " + SCHEMA + ".notes (note_id SERIAL PRIMARY KEY, body TEXT)",
+            "INSERT INTO " + SCHEMA + ".notes (body) VALUES ('kept')"
+        );
+        long changedCapacity = capacity();
+        assertNotEquals(capacity, changedCapacity);
+
+        StagingRestore restore = new StagingRestore(dataSource, SCHEMA, 60_000, () -> { });
+        List<String> output = new ArrayList<>();
+        AtomicInteger reads = new AtomicInteger();
+        List<Throwable> readFailures = new ArrayList<>();
+        Thread reader = new Thread(() -> {
+            // The same prepared statement keeps running across the swap
+            try (Connection conn = dataSource.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT sum(capacity) FROM " + SCHEMA + ".block_capacity")) {
+                while (!Thread.currentThread().isInterrupted()) {
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        rs.next();
+                        reads.incrementAndGet();
+                    }
+                }
+            } catch (SQLException e) {
+                synchronized (readFailures) {
+                    readFailures.add(e);
+                }
+            }
+        });
+        reader.start();
+        try {
+            assertEquals(0, restore.restore(archive, 2, output::add));
+        } finally {
+            reader.interrupt();
+            reader.join();
+        }
+
+        assertEquals(List.of(), readFailures, String.join("\n", output));
+        assertTrue(reads.get() > 0);
+        assertEquals(capacity, capacity());
+        assertEquals("kept", queryString("SELECT body FROM " + SCHEMA + ".notes"));
+
+        // Sequences, triggers and foreign keys belong to the restored tables
+        execute(
+            "INSERT INTO " + SCHEMA + ".blocks (name) VALUES ('new')",
+            "INSERT INTO " + SCHEMA + ".cells (block_id, capacity) VALUES (4, 1)"
+        );
+        assertEquals("4", queryString("SELECT max(block_id) FROM " + SCHEMA + ".blocks"));
+        assertEquals("301", queryString("SELECT max(cell_id) FROM " + SCHEMA + ".cells"));
+        assertEquals("1", queryString("SELECT cells FROM " + SCHEMA + ".cell_counts WHERE block_id = 4"));
+        assertThrows(SQLException.class, () -> execute("INSERT INTO " + SCHEMA + ".cells (block_id) VALUES (99)"));
+
+        assertTrue(restore.rollback());
+        assertEquals(changedCapacity, capacity());
+        assertTrue(restore.rollback());
+        assertEquals(capacity + 1, capacity());
+    }
+
+    @Test
+    void restore_shouldExpireChangeFeedCursorsOfBeforeTheSwap() throws Exception {
+        new SchemaMigrations(dataSource).migrate();
+        execute(
+            "CREATE SCHEMA " + FEED_SCHEMA,
+            "CREATE TABLE " + FEED_SCHEMA + ".change_log (LIKE public.change_log INCLUDING ALL)",
+            "CREATE TABLE " + FEED_SCHEMA + ".change_log_horizon (LIKE public.change_log_horizon INCLUDING ALL)",
+            "INSERT INTO " + FEED_SCHEMA + ".change_log_horizon DEFAULT VALUES",
+            "INSERT INTO " + FEED_SCHEMA + ".change_log (table_name, op, row_id) VALUES ('prisons', 'delete', 1)"
+        );
+        Path archive = dir.resolve("feed.zip");
+        new CopyBackupEngine(dataSource, FEED_SCHEMA).backup(archive, 2, line -> { });
+        ChangeFeed feed = new ChangeFeed(dataSource, FEED_SCHEMA);
+        String cursor = feed.read(null, 10).cursor();
+
+        StagingRestore restore = new StagingRestore(dataSource, FEED_SCHEMA, 60_000, () -> { });
+        assertEquals(0, restore.restore(archive, 2, line -> { }));
+
+        assertEquals("0", queryString("SELECT count(*) FROM " + FEED_SCHEMA + ".change_log"));
+        assertThrows(ChangeFeed.ExpiredCursorException.class, () -> feed.read(ChangeFeed.Cursor.decode(cursor), 10));
+        String fresh = feed.read(null, 10).cursor();
+        assertDoesNotThrow(() -> feed.read(ChangeFeed.Cursor.decode(fresh), 10));
+
+        // Cursors handed out after the swap expire when it is rolled back
+        assertTrue(restore.rollback());
+        assertThrows(ChangeFeed.ExpiredCursorException.class, () -> feed.read(ChangeFeed.Cursor.decode(fresh), 10));
+    }
+
+    private static long capacity() throws SQLException {
+        return Long.parseLong(queryString("SELECT sum(capacity) FROM " + SCHEMA + ".block_capacity"));
+    }
+
+    private static String queryString(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static void dropSchemas() throws SQLException {
+        execute(
+            "DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE",
+            "DROP SCHEMA IF EXISTS " + SCHEMA + "_staging CASCADE",
+            "DROP SCHEMA IF EXISTS " + SCHEMA + "_previous CASCADE",
+            "DROP SCHEMA IF EXISTS " + FEED_SCHEMA + " CASCADE",
+            "DROP SCHEMA IF EXISTS " + FEED_SCHEMA + "_staging CASCADE",
+            "DROP SCHEMA IF EXISTS " + FEED_SCHEMA + "_previous CASCADE"
+        );
+    }
+
+    private static void execute(String... statements) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.unit.auth;
+
+import com.example.Auth.AuthHandler;
+import com.example.Auth.TokenService;
+import io.javalin.http.Context;
+import io.javalin.http.ForbiddenResponse;
+import io.javalin.http.HandlerType;
+import io.javalin.http.UnauthorizedResponse;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.Key;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AuthHandlerTest {
+
+    private Key key;
+    private TokenService tokenService;
+    private Context ctx;
+
+    @BeforeEach
+    void setUp() {
+        key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        tokenService = new TokenService(key, 100);
+        ctx = mock(Context.class);
+        when(ctx.method()).thenReturn(HandlerType.GET);
+    }
+
+    private String token(Key signingKey, String role, long ttlMillis) {
+        return Jwts.builder()
+                .setSubject("tester")
+                .claim("role", role)
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + ttlMillis))
+                .signWith(signingKey)
+                .compact();
+    }
+
+    private void request(String path, String token) {
+        when(ctx.path()).thenReturn(path);
+        when(ctx.header("Authorization")).thenReturn(token == null ? null : "Bearer " + token);
+    }
+
+    @Test
+    void handle_shouldExposeClaimsOfValidToken() {
+        request("/api/prisons", token(key, "user", 60_000));
+
+        new AuthHandler(tokenService, true).handle(ctx);
+
+        verify(ctx).attribute(eq(AuthHandler.CLAIMS_ATTRIBUTE), any(Claims.class));
+    }
+
+    @Test
+    void handle_shouldRejectTokenSignedWithAnotherKey() {
+        request("/api/prisons", token(Keys.secretKeyFor(SignatureAlgorithm.HS256), "admin", 60_000));
+
+        assertThrows(UnauthorizedResponse.class, () -> new AuthHandler(tokenService, false).handle(ctx));
+    }
+
+    @Test
+    void handle_shouldRequireTokenOnlyWhenConfigured() {
+        request("/api/prisons", null);
+
+        assertDoesNotThrow(() -> new AuthHandler(tokenService, false).handle(ctx));
+        assertThrows(UnauthorizedResponse.class, () -> new AuthHandler(tokenService, true).handle(ctx));
+    }
+
+    @Test
+    void handle_shouldLetPublicPathsThrough() {
+        request("/api/login", null);
+
+        assertDoesNotThrow(() -> new AuthHandler(tokenService, true).handle(ctx));
+    }
+
+    @Test
+    void handle_shouldRequireAdminRoleOnAdminPaths() {
+        request("/api/admin/backup/list", token(key, "user", 60_000));
+        assertThrows(ForbiddenResponse.class, () -> new AuthHandler(tokenService, true).handle(ctx));
+
+        request("/api/admin/backup/list", token(key, "admin", 60_000));
+        assertDoesNotThrow(() -> new AuthHandler(tokenService, true).handle(ctx));
+    }
+
+    @Test
+    void handle_shouldRequireTokenOnAdminPathsEvenWhenNotConfigured() {
+        request("/api/admin/backup/restore/latest.sql", null);
+
+        assertThrows(UnauthorizedResponse.class, () -> new AuthHandler(tokenService, false).handle(ctx));
+    }
+
+    @Test
+    void verify_shouldServeRepeatedTokensFromCache() {
+        String token = token(key, "user", 60_000);
+
+        tokenService.verify(token);
+        tokenService.verify(token);
+
+        assertEquals(1L, tokenService.stats().get("misses"));
+        assertEquals(1L, tokenService.stats().get("hits"));
+    }
+
+    @Test
+    void verify_shouldRejectCachedTokenOnceExpired() throws InterruptedException {
+        String token = token(key, "user", 2_000);
+        tokenService.verify(token);
+
+        Thread.sleep(2_100);
+
+        request("/api/prisons", token);
+        assertThrows(UnauthorizedResponse.class, () -> new AuthHandler(tokenService, true).handle(ctx));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.unit.backup;
+
+import com.example.Backup.BackupCatalog;
+import com.example.Backup.BackupFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackupCatalogTest {
+
+    @TempDir
+    Path dir;
+
+    private BackupCatalog catalog() {
+        return new BackupCatalog(dir, Long.MAX_VALUE, name -> name.equals("busy.sql"));
+    }
+
+    @Test
+    void register_shouldStoreChecksumNextToBackup() throws IOException {
+        Path backup = Files.write(dir.resolve("backup_1.sql"), "PGDMP data".getBytes());
+        BackupCatalog catalog = catalog();
+
+        BackupCatalog.Entry entry = catalog.register(backup, null);
+
+        assertEquals(BackupCatalog.sha256(backup), entry.sha256());
+        assertEquals(BackupCatalog.Integrity.OK, entry.integrity());
+        assertEquals(BackupFormat.CUSTOM, entry.format());
+        assertEquals(10, entry.size());
+        assertEquals(entry.sha256() + "  backup_1.sql\n", Files.readString(dir.resolve(".backup_1.sql.sha256")));
+
+        // A fresh catalog picks the checksum up from the sidecar
+        assertEquals(entry.sha256(), catalog().get("backup_1.sql").sha256());
+    }
+
+    @Test
+    void verify_shouldDetectCorruptionAndSkipBackupsInUse() throws IOException {
+        Path backup = Files.write(dir.resolve("backup_1.sql"), "PGDMP data".getBytes());
+        Files.write(dir.resolve("busy.sql"), "PGDMP busy".getBytes());
+        BackupCatalog catalog = catalog();
+        catalog.register(backup, null);
+
+        Files.write(backup, "PGDMP evil".getBytes());
+        Files.setLastModifiedTime(backup, FileTime.fromMillis(1_000));
+        catalog.rescan();
+        assertEquals(BackupCatalog.Integrity.UNVERIFIED, catalog.get("backup_1.sql").integrity());
+
+        catalog.verifyAll();
+        assertEquals(BackupCatalog.Integrity.CORRUPTED, catalog.get("backup_1.sql").integrity());
+        assertNull(catalog.get("busy.sql").sha256());
+        assertFalse(Files.exists(dir.resolve(".busy.sql.sha256")));
+    }
+
+    @Test
+    void list_shouldSortNewestFirstAndForgetDeletedBackups() throws IOException {
+        Path older = Files.write(dir.resolve("backup_1.sql"), "PGDMP".getBytes());
+        Path newer = Files.write(dir.resolve("backup_2.zip"), new byte[] {'P', 'K', 3, 4});
+        Files.write(dir.resolve(".backup_3.zip.part"), new byte[] {1});
+        Files.setLastModifiedTime(older, FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(newer, FileTime.fromMillis(2_000));
+        BackupCatalog catalog = catalog();
+        catalog.register(older, "abc");
+
+        assertEquals(List.of("backup_2.zip", "backup_1.sql"),
+            catalog.list().stream().map(BackupCatalog.Entry::name).toList());
+
+        assertTrue(catalog.delete("backup_1.sql"));
+        assertFalse(Files.exists(dir.resolve(".backup_1.sql.sha256")));
+        assertEquals(List.of("backup_2.zip"), catalog.list().stream().map(BackupCatalog.Entry::name).toList());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.unit.backup;
+
+import com.example.Backup.BackupFiles;
+import com.example.Backup.BackupFormat;
+import com.example.Backup.PgCommands;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackupFilesTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void list_shouldReturnCompleteBackupsNewestFirst() throws IOException {
+        Path custom = Files.write(dir.resolve("backup_1.sql"), "PGDMP...".getBytes());
+        Path directory = Files.createDirectory(dir.resolve("backup_2.dir"));
+        Files.write(directory.resolve("toc.dat"), new byte[] {1});
+        Files.createDirectory(dir.resolve("backup_3.dir"));
+        Files.write(dir.resolve(".hidden"), new byte[] {1});
+        Files.write(dir.resolve("backup_4.sql"), "PGDMP".getBytes());
+
+        Files.setLastModifiedTime(custom, FileTime.fromMillis(1_000));
+        Files.setLastModifiedTime(directory, FileTime.fromMillis(2_000));
+
+        assertEquals(List.of("backup_2.dir", "backup_1.sql"), BackupFiles.list(dir, Set.of("backup_4.sql")));
+        assertEquals(BackupFormat.CUSTOM, BackupFormat.detect(custom));
+        assertEquals(BackupFormat.DIRECTORY, BackupFormat.detect(directory));
+        assertNull(BackupFormat.detect(dir.resolve("backup_3.dir")));
+    }
+
+    @Test
+    void delete_shouldRemoveDirectoryDumpRecursively() throws IOException {
+        Path directory = Files.createDirectory(dir.resolve("backup.dir"));
+        Files.write(directory.resolve("toc.dat"), new byte[] {1});
+        Files.write(directory.resolve("3012.dat.gz"), new byte[] {1});
+
+        assertTrue(BackupFiles.delete(directory));
+        assertFalse(Files.exists(directory));
+        assertFalse(BackupFiles.delete(dir.resolve("missing.sql")));
+    }
+
+    @Test
+    void pgCommands_shouldOnlyParallelizeFormatsThatSupportIt() {
+        PgCommands commands = new PgCommands("db", "5432", "prisonflow", "postgres", "secret", 4);
+
+        List<String> directory = commands.dump(Path.of("/b/x.dir"), BackupFormat.DIRECTORY, 4).command();
+        assertEquals(List.of("-F", "d"), directory.subList(directory.indexOf("-F"), directory.indexOf("-F") + 2));
+        assertTrue(directory.containsAll(List.of("-j", "4")));
+
+        List<String> custom = commands.dump(Path.of("/b/x.sql"), BackupFormat.CUSTOM, 4).command();
+        assertFalse(custom.contains("-j"));
+
+        ProcessBuilder restore = commands.restore(Path.of("/b/x.sql"), 64);
+        assertTrue(restore.command().containsAll(List.of("-j", String.valueOf(PgCommands.MAX_PARALLEL_JOBS))));
+        assertEquals("/b/x.sql", restore.command().get(restore.command().size() - 1));
+        assertEquals("secret", restore.environment().get("PGPASSWORD"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.unit.backup;
+
+import com.example.Backup.BackupJob;
+import com.example.Backup.BackupJobManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackupJobManagerTest {
+
+    private BackupJobManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new BackupJobManager(1, 1, 3, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void submit_shouldRunCommandAndKeepOutputTail() throws Exception {
+        ProcessBuilder command = new ProcessBuilder("sh", "-c", "for i in 1 2 3 4 5; do echo line$i; done");
+
+        BackupJob job = manager.submit(BackupJob.Type.BACKUP, "prisonflow", "backup.sql", BackupJobManager.command(command));
+
+        assertTrue(job.await(10, TimeUnit.SECONDS));
+        assertEquals(BackupJob.State.SUCCEEDED, job.getState());
+        assertEquals(0, job.getExitCode());
+        assertEquals(List.of("line3", "line4", "line5"), job.getOutput());
+
+        Map<String, Object> map = job.toMap(false);
+        assertEquals("succeeded", map.get("state"));
+        assertEquals(5L, map.get("linesRead"));
+        assertEquals("line5", map.get("lastLine"));
+        assertFalse(map.containsKey("output"));
+        assertSame(job, manager.get(job.getId()));
+    }
+
+    @Test
+    void submit_shouldMarkJobFailedOnNonZeroExitOrException() throws Exception {
+        BackupJob exited = manager.submit(BackupJob.Type.RESTORE, "prisonflow", "a.sql", output -> 3);
+        assertTrue(exited.await(10, TimeUnit.SECONDS));
+        assertEquals(BackupJob.State.FAILED, exited.getState());
+        assertEquals(3, exited.getExitCode());
+
+        BackupJob thrown = manager.submit(BackupJob.Type.RESTORE, "prisonflow", "b.sql", output -> {
+            throw new IllegalStateException("pg_restore not found");
+        });
+        assertTrue(thrown.await(10, TimeUnit.SECONDS));
+        assertEquals(BackupJob.State.FAILED, thrown.getState());
+        assertEquals("pg_restore not found", thrown.toMap(false).get("error"));
+    }
+
+    @Test
+    void submit_shouldRejectSecondJobOnSameDatabase() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BackupJob running = manager.submit(BackupJob.Type.BACKUP, "prisonflow", "a.sql", output -> {
+            release.await();
+            return 0;
+        });
+
+        BackupJobManager.ConflictException e = assertThrows(BackupJobManager.ConflictException.class,
+            () -> manager.submit(BackupJob.Type.RESTORE, "prisonflow", "b.sql", output -> 0));
+        assertSame(running, e.getActive());
+        assertSame(running, manager.active("prisonflow"));
+
+        release.countDown();
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        assertNull(manager.active("prisonflow"));
+
+        BackupJob next = manager.submit(BackupJob.Type.RESTORE, "prisonflow", "b.sql", output -> 0);
+        assertTrue(next.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of(next, running), manager.list());
+    }
+
+    @Test
+    void submit_shouldRejectJobsWhenWorkersAndQueueAreFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        BackupJobManager.Task blocked = output -> {
+            release.await();
+            return 0;
+        };
+        BackupJob first = manager.submit(BackupJob.Type.BACKUP, "db1", "a.sql", blocked);
+        BackupJob queued = manager.submit(BackupJob.Type.BACKUP, "db2", "b.sql", blocked);
+
+        assertThrows(RejectedExecutionException.class,
+            () -> manager.submit(BackupJob.Type.BACKUP, "db3", "c.sql", output -> 0));
+        assertNull(manager.active("db3"));
+
+        release.countDown();
+        assertTrue(first.await(10, TimeUnit.SECONDS));
+        assertTrue(queued.await(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.unit.backup;
+
+import com.example.Backup.PitrManager;
+import com.example.Backup.PitrManager.BaseBackup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PitrManagerTest {
+
+    @TempDir
+    Path dir;
+
+    private static BaseBackup base(String name, long finishedAt) {
+        return new BaseBackup(name, "0/2000028", "0/2000100", "000000010000000000000002", 1,
+            finishedAt - 1000, finishedAt, 1024);
+    }
+
+    @Test
+    void chooseBaseBackup_shouldPickNewestBackupFinishedBeforeTarget() {
+        List<BaseBackup> backups = List.of(base("a", 10_000), base("b", 20_000), base("c", 30_000));
+
+        assertEquals("b", PitrManager.chooseBaseBackup(backups, Instant.ofEpochMilli(29_999)).name());
+        assertEquals("c", PitrManager.chooseBaseBackup(backups, Instant.ofEpochMilli(30_000)).name());
+        assertEquals("a", PitrManager.chooseBaseBackup(backups, Instant.ofEpochMilli(10_000)).name());
+        assertNull(PitrManager.chooseBaseBackup(backups, Instant.ofEpochMilli(9_999)));
+        assertNull(PitrManager.chooseBaseBackup(List.of(), Instant.now()));
+    }
+
+    @Test
+    void recoveryConf_shouldRestoreFromArchiveAndStopAtTarget() {
+        String conf = PitrManager.recoveryConf("/backups/wal", Instant.parse("2024-05-01T10:15:30.123456Z"));
+
+        assertTrue(conf.contains("restore_command = 'cp /backups/wal/%f %p'\n"), conf);
+        assertTrue(conf.contains("recovery_target_time = '2024-05-01 10:15:30.123456+00:00'\n"), conf);
+        assertTrue(conf.contains("recovery_target_action = 'promote'\n"), conf);
+    }
+
+    @Test
+    void listBaseBackups_shouldReadMetadataAndSkipIncompleteBackups() throws IOException {
+        PitrManager manager = new PitrManager(null, dir, dir.resolve("pgdata"), "/backups/wal");
+        Files.createDirectories(dir.resolve("base/base_1"));
+        Files.createDirectories(dir.resolve("base/base_2"));
+        Files.createDirectories(dir.resolve("base/.base_3/data"));
+        Files.writeString(dir.resolve("base/base_1/" + PitrManager.INFO_FILE), """
+            {"name":"base_1","startLsn":"0/2000028","stopLsn":"0/2000100","startWalFile":"000000010000000000000002",
+             "timeline":1,"startedAt":1000,"finishedAt":2000,"size":10}
+            """);
+        Files.writeString(dir.resolve("base/base_2/" + PitrManager.INFO_FILE), """
+            {"name":"base_2","startLsn":"0/4000028","stopLsn":"0/4000100","startWalFile":"000000010000000000000004",
+             "timeline":1,"startedAt":3000,"finishedAt":4000,"size":20}
+            """);
+
+        List<BaseBackup> backups = manager.listBaseBackups();
+
+        assertEquals(List.of("base_2", "base_1"), backups.stream().map(BaseBackup::name).toList());
+        assertEquals("000000010000000000000004", backups.get(0).startWalFile());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.unit.backup;
+
+import com.example.Backup.BackupCatalog;
+import com.example.Backup.BackupFormat;
+import com.example.Backup.RetentionPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetentionPolicyTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-15T12:30:00Z");
+
+    private static BackupCatalog.Entry backup(String name, Instant createdAt) {
+        return backup(name, createdAt, BackupFormat.COPY, BackupCatalog.Integrity.OK);
+    }
+
+    private static BackupCatalog.Entry backup(String name, Instant createdAt, BackupFormat format,
+                                              BackupCatalog.Integrity integrity) {
+        return new BackupCatalog.Entry(name, format, 100, createdAt.toEpochMilli(), createdAt.toEpochMilli(),
+            null, integrity, 0);
+    }
+
+    private static List<String> names(List<RetentionPolicy.Decision> decisions) {
+        return decisions.stream().map(RetentionPolicy.Decision::name).toList();
+    }
+
+    @Test
+    void apply_shouldKeepNewestBackupOfEachPeriodWithinEachTier() {
+        // One backup every 30 minutes for 3 days
+        List<BackupCatalog.Entry> backups = new ArrayList<>();
+        for (int i = 0; i < 3 * 48; i++) {
+            backups.add(backup("b" + i, NOW.minus(Duration.ofMinutes(30L * i))));
+        }
+
+        RetentionPolicy.Plan plan = RetentionPolicy.parse("last=2,hourly=6h,daily=7d").apply(backups, NOW);
+
+        Map<String, String> kept = plan.keep().stream()
+            .collect(Collectors.toMap(RetentionPolicy.Decision::name, RetentionPolicy.Decision::reason));
+        // 12:30 and 12:00 are the newest two, then the newest of each hour back to 06:30
+        assertEquals("last,hourly,daily", kept.get("b0"));
+        assertEquals("last", kept.get("b1"));
+        assertEquals("hourly", kept.get("b2"));
+        assertEquals("hourly", kept.get("b12"));
+        assertFalse(kept.containsKey("b13"));
+        // 23:30 of each earlier day is its newest backup
+        assertEquals("daily", kept.get("b26"));
+        assertEquals("daily", kept.get("b74"));
+        assertEquals("daily", kept.get("b122"));
+        assertEquals(List.of("b0", "b1", "b2", "b4", "b6", "b8", "b10", "b12", "b26", "b74", "b122"),
+            names(plan.keep()));
+        assertEquals(3 * 48 - 11, plan.delete().size());
+        assertEquals("b143", plan.delete().get(0).name(), "oldest is deleted first");
+        assertEquals("expired", plan.delete().get(0).reason());
+    }
+
+    @Test
+    void apply_shouldKeepMonthlyAndSkipCorruptedAndUnknownBackups() {
+        List<BackupCatalog.Entry> backups = List.of(
+            backup("june", Instant.parse("2024-06-10T00:00:00Z"), BackupFormat.COPY, BackupCatalog.Integrity.CORRUPTED),
+            backup("june-early", Instant.parse("2024-06-02T00:00:00Z")),
+            backup("may-late", Instant.parse("2024-05-30T00:00:00Z")),
+            backup("may-early", Instant.parse("2024-05-01T00:00:00Z")),
+            backup("last-year", Instant.parse("2023-05-01T00:00:00Z")),
+            backup("notes.txt", Instant.parse("2020-01-01T00:00:00Z"), null, BackupCatalog.Integrity.UNVERIFIED)
+        );
+
+        RetentionPolicy.Plan plan = RetentionPolicy.parse("monthly=1y").apply(backups, NOW);
+
+        assertEquals(List.of("june-early", "may-late"), names(plan.keep()));
+        assertEquals(List.of("last-year", "may-early", "june"), names(plan.delete()));
+        assertEquals("corrupted", plan.delete().get(2).reason());
+    }
+
+    @Test
+    void parse_shouldRejectMalformedPolicies() {
+        RetentionPolicy policy = RetentionPolicy.parse(" last=3, weekly=8w ");
+        assertEquals(3, policy.getKeepLast());
+        assertEquals(Duration.ofDays(56), policy.getTiers().get(0).window());
+
+        for (String spec : new String[] {"", "last=0", "yearly=2y", "daily", "daily=30", "daily=xd", "last=-1",
+                "daily=1d,daily=2d"}) {
+            assertThrows(IllegalArgumentException.class, () -> RetentionPolicy.parse(spec), spec);
+        }
+    }
+}
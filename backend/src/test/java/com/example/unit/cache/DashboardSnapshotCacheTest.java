@@ -0,0 +1,181 @@
+package com.example.unit.cache;
+
+import com.example.Cache.DashboardSnapshotCache;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DashboardSnapshotCacheTest {
+
+    @Test
+    void get_shouldShareOneLoadBetweenConcurrentCallers() throws Exception {
+        DashboardSnapshotCache cache = new DashboardSnapshotCache(60_000, 60_000, 5_000);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        DashboardSnapshotCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            release.await();
+            return Map.of("prisons", List.of());
+        };
+
+        List<Future<DashboardSnapshotCache.Snapshot>> results = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                results.add(callers.submit(() -> cache.get(loader)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+        }
+
+        assertEquals(1, loads.get());
+        for (Future<DashboardSnapshotCache.Snapshot> result : results) {
+            assertSame(results.get(0).get(), result.get());
+        }
+        assertEquals(50L, cache.stats().get("waits"));
+        assertEquals(1L, cache.stats().get("refreshes"));
+    }
+
+    @Test
+    void get_shouldServeStaleSnapshotWhileOneRefreshRuns() throws Exception {
+        DashboardSnapshotCache cache = new DashboardSnapshotCache(0, 60_000, 5_000);
+        DashboardSnapshotCache.Snapshot first = cache.get(() -> Map.of("n", 1));
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        DashboardSnapshotCache.Loader slow = () -> {
+            loads.incrementAndGet();
+            release.await();
+            return Map.of("n", 2);
+        };
+        for (int i = 0; i < 10; i++) {
+            assertSame(first, cache.get(slow));
+        }
+        Thread.sleep(50);
+        assertEquals(1, loads.get(), "stale reads share one refresh");
+        assertEquals(10L, cache.stats().get("staleHits"));
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cache.get(slow).body().get("n").equals(1)) {
+            assertTrue(System.nanoTime() < deadline, "refresh never landed");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void get_shouldKeepOldSnapshotWhenBackgroundRefreshFails() throws Exception {
+        DashboardSnapshotCache cache = new DashboardSnapshotCache(0, 60_000, 5_000);
+        DashboardSnapshotCache.Snapshot first = cache.get(() -> Map.of("n", 1));
+
+        DashboardSnapshotCache.Loader failing = () -> {
+            throw new SQLException("database down");
+        };
+        assertSame(first, cache.get(failing));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((long) cache.stats().get("failures") == 0) {
+            assertTrue(System.nanoTime() < deadline, "refresh never failed");
+            Thread.sleep(10);
+        }
+        assertSame(first, cache.get(() -> Map.of("n", 2)));
+    }
+
+    @Test
+    void get_shouldKeepSnapshotUntilItsVersionChanges() throws Exception {
+        DashboardSnapshotCache cache = new DashboardSnapshotCache(0, 60_000, 5_000);
+        AtomicInteger loads = new AtomicInteger();
+        AtomicReference<String> version = new AtomicReference<>("\"e-1\"");
+        DashboardSnapshotCache.Loader loader = () -> Map.of("n", loads.incrementAndGet());
+
+        DashboardSnapshotCache.Snapshot first = cache.get(loader, version::get);
+        assertEquals("\"e-1\"", first.version());
+        for (int i = 0; i < 10; i++) {
+            assertSame(first, cache.get(loader, version::get));
+        }
+        assertEquals(1, loads.get(), "an unchanged version is a hit even past staleMillis");
+        assertEquals(10L, cache.stats().get("hits"));
+
+        version.set("\"e-2\"");
+        assertSame(first, cache.get(loader, version::get), "a changed version is served stale once");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!"\"e-2\"".equals(cache.get(loader, version::get).version())) {
+            assertTrue(System.nanoTime() < deadline, "refresh never landed");
+            Thread.sleep(10);
+        }
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_shouldFailCallerThatWaitsForFailedRefresh() {
+        DashboardSnapshotCache cache = new DashboardSnapshotCache(0, 0, 5_000);
+
+        SQLException e = assertThrows(SQLException.class, () -> cache.get(() -> {
+            throw new SQLException("database down");
+        }));
+        assertEquals("database down", e.getMessage());
+    }
+
+    @Test
+    void get_shouldRecoverFromRefreshThatThrowsError() throws Exception {
+        DashboardSnapshotCache cache = new DashboardSnapshotCache(0, 0, 5_000);
+
+        assertThrows(SQLException.class, () -> cache.get(() -> {
+            throw new AssertionError("loader bug");
+        }));
+        assertEquals(1, cache.get(() -> Map.of("n", 1)).body().get("n"));
+    }
+
+    @Test
+    void get_shouldStopWaitingForRefreshThatHangs() {
+        DashboardSnapshotCache cache = new DashboardSnapshotCache(0, 0, 100);
+        CountDownLatch release = new CountDownLatch(1);
+
+        SQLException e = assertThrows(SQLException.class, () -> cache.get(() -> {
+            release.await();
+            return Map.of();
+        }));
+        assertEquals("Timed out waiting for the dashboard refresh", e.getMessage());
+        release.countDown();
+    }
+
+    @Test
+    void invalidate_shouldMakeNextCallerReadAgainAndDropRefreshInFlight() throws Exception {
+        DashboardSnapshotCache cache = new DashboardSnapshotCache(60_000, 60_000, 5_000);
+        cache.get(() -> Map.of("n", 1));
+
+        // A refresh started before the invalidation must not land afterwards
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        cache.invalidate();
+        Thread before = Thread.ofVirtual().start(() -> {
+            try {
+                cache.get(() -> {
+                    started.countDown();
+                    release.await();
+                    return Map.of("n", 2);
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        cache.invalidate();
+        assertEquals(3, cache.get(() -> Map.of("n", 3)).body().get("n"));
+
+        release.countDown();
+        before.join(5_000);
+        assertEquals(3, cache.get(() -> Map.of("n", 4)).body().get("n"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.unit.cache;
+
+import com.example.Cache.PrisonCache;
+import com.example.Objects.Prison;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrisonCacheTest {
+
+    private static List<Prison> prisons(String name) {
+        Prison prison = new Prison();
+        prison.setName(name);
+        return List.of(prison);
+    }
+
+    @Test
+    void get_shouldLoadOnceAndServeHitsFromMemory() throws SQLException {
+        PrisonCache cache = new PrisonCache(8, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("all", () -> { loads.incrementAndGet(); return prisons("A"); });
+        List<Prison> second = cache.get("all", () -> { loads.incrementAndGet(); return prisons("B"); });
+
+        assertEquals(1, loads.get());
+        assertEquals("A", second.get(0).getName());
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("misses"));
+    }
+
+    @Test
+    void invalidateAll_shouldForceReload() throws SQLException {
+        PrisonCache cache = new PrisonCache(8, 60_000);
+        cache.get("all", () -> prisons("old"));
+
+        cache.invalidateAll();
+        List<Prison> reloaded = cache.get("all", () -> prisons("new"));
+
+        assertEquals("new", reloaded.get(0).getName());
+        assertEquals(1L, cache.stats().get("invalidations"));
+    }
+
+    @Test
+    void get_shouldNotPublishLoadThatRacedWithInvalidation() throws SQLException {
+        PrisonCache cache = new PrisonCache(8, 60_000);
+
+        cache.get("all", () -> {
+            // A write commits while this (now stale) load is in flight
+            cache.invalidateAll();
+            return prisons("stale");
+        });
+        List<Prison> next = cache.get("all", () -> prisons("fresh"));
+
+        assertEquals("fresh", next.get(0).getName());
+    }
+
+    @Test
+    void get_shouldEvictLeastRecentlyUsedEntryWhenFull() throws SQLException {
+        PrisonCache cache = new PrisonCache(2, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        PrisonCache.Loader loader = () -> { loads.incrementAndGet(); return prisons("x"); };
+
+        cache.get("a", loader);
+        cache.get("b", loader);
+        cache.get("a", loader);
+        cache.get("c", loader);
+        cache.get("a", loader);
+        cache.get("b", loader);
+
+        assertEquals(4, loads.get());
+        assertEquals(2L, cache.stats().get("evictions"));
+        assertEquals(2, cache.stats().get("size"));
+    }
+
+    @Test
+    void get_shouldReloadExpiredEntries() throws Exception {
+        PrisonCache cache = new PrisonCache(8, 1);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("all", () -> { loads.incrementAndGet(); return prisons("x"); });
+        Thread.sleep(5);
+        cache.get("all", () -> { loads.incrementAndGet(); return prisons("x"); });
+
+        assertEquals(2, loads.get());
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+}
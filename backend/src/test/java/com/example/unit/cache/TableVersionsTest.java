@@ -0,0 +1,43 @@
+package com.example.unit.cache;
+
+import com.example.Cache.TableVersions;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class TableVersionsTest {
+
+    @Test
+    void bump_shouldRunCallbacksBeforeTheVersionChanges() {
+        TableVersions versions = new TableVersions(mock(DataSource.class));
+        List<Long> seen = new ArrayList<>();
+        versions.onChange("prisons", () -> seen.add(versions.version("prisons")));
+
+        versions.bump("prisons");
+        versions.bump("prisons");
+
+        // A cache dropped in the callback is empty before anyone reads the new tag
+        assertEquals(List.of(0L, 1L), seen);
+        assertEquals(2, versions.version("prisons"));
+    }
+
+    @Test
+    void bumpAll_shouldRunEveryCallback() {
+        TableVersions versions = new TableVersions(mock(DataSource.class));
+        List<String> seen = new ArrayList<>();
+        versions.onChange("prisons", () -> seen.add("prisons"));
+        versions.onChange("users", () -> seen.add("users"));
+
+        versions.bump("users");
+        assertEquals(List.of("users"), seen);
+
+        versions.bumpAll();
+        assertEquals(3, seen.size());
+        assertTrue(seen.subList(1, 3).containsAll(List.of("prisons", "users")));
+    }
+}
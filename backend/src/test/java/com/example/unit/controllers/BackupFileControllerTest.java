@@ -0,0 +1,92 @@
+package com.example.unit.controllers;
+
+import com.example.Backup.BackupCatalog;
+import com.example.Backup.BackupJobManager;
+import com.example.Controllers.BackupFileController;
+import io.javalin.http.Context;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class BackupFileControllerTest {
+
+    @TempDir
+    Path dir;
+
+    private Context ctx;
+    private HttpServletRequest request;
+    private BackupFileController controller;
+
+    @BeforeEach
+    void setUp() {
+        ctx = mock(Context.class);
+        request = mock(HttpServletRequest.class);
+        when(ctx.status(anyInt())).thenReturn(ctx);
+        when(ctx.req()).thenReturn(request);
+        when(ctx.pathParam("filename")).thenReturn("nightly.dump");
+
+        controller = new BackupFileController(dir.toString(), mock(BackupJobManager.class), mock(BackupCatalog.class));
+    }
+
+    private void body(String contentRange, byte[] bytes) throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+        when(ctx.header("Content-Range")).thenReturn(contentRange);
+        when(request.getInputStream()).thenReturn(new ServletInputStream() {
+            @Override public int read() { return in.read(); }
+            @Override public boolean isFinished() { return in.available() == 0; }
+            @Override public boolean isReady() { return true; }
+            @Override public void setReadListener(ReadListener listener) {}
+        });
+    }
+
+    @Test
+    void uploadBackup_shouldDropPieceLongerThanAnnouncedAndStayResumable() throws IOException {
+        // given
+        Path part = dir.resolve(".nightly.dump.part");
+        body("bytes 0-3/10", new byte[] {1, 2, 3, 4});
+        controller.uploadBackup(ctx);
+        clearInvocations(ctx);
+
+        // when
+        body("bytes 4-7/10", new byte[] {5, 6, 7, 8, 9, 10, 11});
+        controller.uploadBackup(ctx);
+
+        // then
+        verify(ctx).status(400);
+        verify(ctx).header(BackupFileController.UPLOAD_OFFSET_HEADER, "4");
+        assertEquals(4, Files.size(part));
+
+        // The upload continues where it was
+        clearInvocations(ctx);
+        body("bytes 4-7/10", new byte[] {5, 6, 7, 8});
+        controller.uploadBackup(ctx);
+        verify(ctx).status(200);
+        assertEquals(8, Files.size(part));
+    }
+
+    @Test
+    void uploadBackup_shouldDropPieceShorterThanAnnounced() throws IOException {
+        // given
+        body("bytes 0-3/10", new byte[] {1, 2});
+
+        // when
+        controller.uploadBackup(ctx);
+
+        // then
+        verify(ctx).status(400);
+        verify(ctx).header(BackupFileController.UPLOAD_OFFSET_HEADER, "0");
+        assertEquals(0, Files.size(dir.resolve(".nightly.dump.part")));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.unit.controllers;
+
+import com.example.Changes.ChangeFeed;
+import com.example.Controllers.ChangeController;
+import io.javalin.http.Context;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChangeControllerTest {
+
+    private ChangeFeed feed;
+    private Context ctx;
+    private ChangeController controller;
+
+    @BeforeEach
+    void setUp() {
+        feed = mock(ChangeFeed.class);
+        ctx = mock(Context.class);
+        when(ctx.status(anyInt())).thenReturn(ctx);
+        controller = new ChangeController(feed);
+    }
+
+    @Test
+    void cursor_shouldRoundTripAndRejectForeignTokens() {
+        ChangeFeed.Cursor cursor = new ChangeFeed.Cursor(1234, 56);
+        assertEquals(cursor, ChangeFeed.Cursor.decode(cursor.encode()));
+        assertTrue(new ChangeFeed.Cursor(5, 0).compareTo(new ChangeFeed.Cursor(4, 99)) > 0);
+        assertThrows(IllegalArgumentException.class, () -> ChangeFeed.Cursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> ChangeFeed.Cursor.decode("aWQ6Mw"));
+    }
+
+    @Test
+    void changes_shouldReadAfterCursorWithLimit() throws Exception {
+        ChangeFeed.Cursor since = new ChangeFeed.Cursor(10, 2);
+        ChangeFeed.Page page = new ChangeFeed.Page(
+            List.of(new ChangeFeed.Change("prisons", "delete", 7, null, "2026-01-01T00:00:00Z")), "next", false);
+        when(ctx.queryParam("since")).thenReturn(since.encode());
+        when(ctx.queryParam("limit")).thenReturn("20");
+        when(feed.read(since, 20)).thenReturn(page);
+
+        controller.changes(ctx);
+
+        verify(ctx).status(200);
+        verify(ctx).json(page);
+    }
+
+    @Test
+    void changes_shouldAnswer410ForExpiredCursor() throws Exception {
+        when(ctx.queryParam("since")).thenReturn(new ChangeFeed.Cursor(1, 1).encode());
+        when(feed.read(any(), anyInt())).thenThrow(new ChangeFeed.ExpiredCursorException());
+
+        controller.changes(ctx);
+
+        verify(ctx).status(410);
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(ctx).json(captor.capture());
+        assertEquals("Cursor expired", captor.getValue().get("error"));
+    }
+
+    @Test
+    void changes_shouldRejectBadCursorAndLimit() throws Exception {
+        when(ctx.queryParam("since")).thenReturn("garbage");
+        controller.changes(ctx);
+
+        when(ctx.queryParam("since")).thenReturn(null);
+        when(ctx.queryParam("limit")).thenReturn("0");
+        controller.changes(ctx);
+
+        verify(ctx, times(2)).status(400);
+        verify(feed, never()).read(any(), anyInt());
+    }
+}
@@ -1,8 +1,16 @@
 // src/test/java/com/example/unit/controllers/DbControllerTest.java
 package com.example.unit.controllers;
 
+import com.example.Cache.DashboardSnapshotCache;
+import com.example.Cache.PrisonCache;
+import com.example.Cache.TableVersions;
 import com.example.Controllers.DbController;
+import com.example.Controllers.PrisonController;
+import com.example.Dashboard.DashboardStream;
+import com.example.Health.HealthProber;
 import com.example.Objects.Prison;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import io.javalin.http.Context;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -52,6 +60,9 @@ class DbControllerTest {
 
     @Test
     void checkHealth_shouldReturn200WhenDatabaseIsHealthy() throws SQLException {
+        // given
+        when(mockConnection.isValid(anyInt())).thenReturn(true);
+
         // when
         controller.checkHealth(ctx);
 
@@ -75,6 +86,68 @@ class DbControllerTest {
         verify(ctx).result(captor.capture());
     }
 
+    @Test
+    void checkHealth_shouldAnswerFromProbedStatusWithoutBorrowingConnection() throws SQLException {
+        // given
+        when(mockConnection.isValid(anyInt())).thenReturn(true);
+        HealthProber prober = new HealthProber(mockDataSource, 60_000, 1);
+        prober.status(true);
+        clearInvocations(mockDataSource);
+        controller = new DbController(mockDataSource, true, new PrisonCache(), prober);
+
+        // when
+        controller.checkHealth(ctx);
+
+        // then
+        verify(ctx).status(200);
+        verify(ctx).result("Database connection is healthy!");
+        verify(mockDataSource, never()).getConnection();
+    }
+
+    @Test
+    void checkHealth_shouldCheckLiveWhenDeepIsRequested() throws SQLException {
+        // given
+        when(mockConnection.isValid(anyInt())).thenReturn(true);
+        HealthProber prober = new HealthProber(mockDataSource, 60_000, 1);
+        prober.status(true);
+        controller = new DbController(mockDataSource, true, new PrisonCache(), prober);
+        when(mockConnection.isValid(anyInt())).thenReturn(false);
+        when(ctx.queryParam("deep")).thenReturn("true");
+
+        // when
+        controller.checkHealth(ctx);
+
+        // then
+        verify(mockDataSource, times(2)).getConnection();
+        verify(ctx).status(500);
+    }
+
+    @Test
+    void checkHealth_shouldCheckLiveOnceSaturatedPoolKeptResultStale() throws Exception {
+        // given
+        HikariDataSource hikari = mock(HikariDataSource.class);
+        HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+        when(mockDataSource.isWrapperFor(HikariDataSource.class)).thenReturn(true);
+        when(mockDataSource.unwrap(HikariDataSource.class)).thenReturn(hikari);
+        when(hikari.getHikariPoolMXBean()).thenReturn(pool);
+        when(mockConnection.isValid(anyInt())).thenReturn(true);
+        HealthProber prober = new HealthProber(mockDataSource, 20, 1);
+        prober.status(true);
+        when(pool.getThreadsAwaitingConnection()).thenReturn(3);
+        when(mockConnection.isValid(anyInt())).thenReturn(false);
+        prober.start();
+        Thread.sleep(150);
+        prober.stop();
+        controller = new DbController(mockDataSource, true, new PrisonCache(), prober);
+
+        // when
+        controller.checkHealth(ctx);
+
+        // then
+        verify(mockDataSource, times(2)).getConnection();
+        verify(ctx).status(500);
+    }
+
     // ==================== getPrisonsFromDb Tests ====================
 
     @Test
@@ -149,6 +222,26 @@ class DbControllerTest {
         assertEquals(0, result.size());
     }
 
+    @Test
+    void getPrisonsFromDb_shouldShareCacheEntryWithUnfilteredPrisonList() throws SQLException {
+        // given
+        when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        when(mockResultSet.getInt("prison_id")).thenReturn(1);
+        PrisonCache cache = new PrisonCache();
+        DbController cachedController = new DbController(mockDataSource, true, cache);
+        PrisonController prisonController = new PrisonController(mockDataSource, cache);
+
+        // when
+        List<Prison> result = cachedController.getPrisonsFromDb(ctx);
+        prisonController.getAllPrisons(ctx);
+
+        // then
+        assertEquals(1, result.size());
+        verify(mockDataSource, times(1)).getConnection();
+        verify(mockResultSet).close();
+        verify(ctx).json(result);
+    }
+
     @Test
     void getPrisonsFromDb_shouldReturnNullOnDatabaseError() throws SQLException {
         // given
@@ -233,7 +326,7 @@ class DbControllerTest {
 
     @Test
     void dashboard_shouldReturn200WithCompleteData() throws SQLException {
-        // given - mock dla view_prison_occupancy
+        // given - mock dla prison_occupancy_counters
         PreparedStatement stmt1 = mock(PreparedStatement.class);
         ResultSet rs1 = mock(ResultSet.class);
         
@@ -246,7 +339,7 @@ class DbControllerTest {
         ResultSet rs3 = mock(ResultSet.class);
 
         // Setup dla pierwszego query (prisons)
-        when(mockConnection.prepareStatement(contains("view_prison_occupancy")))
+        when(mockConnection.prepareStatement(contains("prison_occupancy_counters")))
             .thenReturn(stmt1);
         when(stmt1.executeQuery()).thenReturn(rs1);
         when(rs1.next())
@@ -350,7 +443,7 @@ class DbControllerTest {
         ResultSet rs2 = mock(ResultSet.class);
         ResultSet rs3 = mock(ResultSet.class);
 
-        when(mockConnection.prepareStatement(contains("view_prison_occupancy"))).thenReturn(stmt1);
+        when(mockConnection.prepareStatement(contains("prison_occupancy_counters"))).thenReturn(stmt1);
         when(mockConnection.prepareStatement(contains("prison_visits"))).thenReturn(stmt2);
         when(mockConnection.prepareStatement(contains("view_recent_incidents"))).thenReturn(stmt3);
 
@@ -382,6 +475,113 @@ class DbControllerTest {
         assertEquals(0, incidents.size());
     }
 
+    @Test
+    void dashboard_shouldUseOneConnectionPerQueryInFanOutMode() throws SQLException {
+        // given
+        when(mockResultSet.next()).thenReturn(false);
+        DbController fanOutController = new DbController(mockDataSource, true);
+
+        // when
+        fanOutController.dashboard(ctx);
+
+        // then
+        verify(ctx).status(200);
+        verify(mockDataSource, times(3)).getConnection();
+        verify(mockConnection, times(3)).close();
+    }
+
+    @Test
+    void dashboard_shouldShareOneConnectionInSequentialMode() throws SQLException {
+        // given
+        when(mockResultSet.next()).thenReturn(false);
+        DbController sequentialController = new DbController(mockDataSource, false);
+
+        // when
+        sequentialController.dashboard(ctx);
+
+        // then
+        verify(ctx).status(200);
+        verify(mockDataSource, times(1)).getConnection();
+    }
+
+    @Test
+    void dashboard_shouldCancelRunningSiblingWhenOneQueryFails() throws Exception {
+        // given - incidents query blocks until it is cancelled, visits query fails
+        PreparedStatement slowStmt = mock(PreparedStatement.class);
+        PreparedStatement failingStmt = mock(PreparedStatement.class);
+        java.util.concurrent.CountDownLatch cancelled = new java.util.concurrent.CountDownLatch(1);
+
+        when(mockConnection.prepareStatement(contains("prison_occupancy_counters"))).thenReturn(mockStatement);
+        when(mockConnection.prepareStatement(contains("view_recent_incidents"))).thenReturn(slowStmt);
+        when(mockConnection.prepareStatement(contains("prison_visits"))).thenReturn(failingStmt);
+        when(mockResultSet.next()).thenReturn(false);
+        when(slowStmt.executeQuery()).thenAnswer(invocation -> {
+            cancelled.await();
+            throw new SQLException("canceling statement due to user request");
+        });
+        doAnswer(invocation -> {
+            cancelled.countDown();
+            return null;
+        }).when(slowStmt).cancel();
+        when(failingStmt.executeQuery()).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            throw new SQLException("visits failed");
+        });
+
+        // when
+        new DbController(mockDataSource, true).dashboard(ctx);
+
+        // then
+        verify(ctx).status(500);
+        verify(slowStmt).cancel();
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(ctx).json(captor.capture());
+        assertEquals("visits failed", captor.getValue().get("message"));
+    }
+
+    @Test
+    void dashboard_shouldServeRepeatedRequestsFromOneSnapshot() throws SQLException {
+        // given
+        when(mockResultSet.next()).thenReturn(false);
+        DbController cachedController = new DbController(mockDataSource, false, new PrisonCache(),
+            new HealthProber(mockDataSource), null, new DashboardSnapshotCache(60_000, 60_000, 5_000));
+
+        // when
+        cachedController.dashboard(ctx);
+        cachedController.dashboard(ctx);
+
+        // then
+        verify(mockDataSource, times(1)).getConnection();
+        verify(ctx, times(2)).status(200);
+        verify(ctx, times(2)).header("Age", "0");
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(ctx, times(2)).json(captor.capture());
+        assertTrue(captor.getValue().containsKey("snapshotAgeMs"));
+        assertTrue(captor.getValue().containsKey("prisons"));
+    }
+
+    @Test
+    void dashboard_shouldAnswer304ForCurrentTagWithoutTouchingCache() throws SQLException {
+        // given
+        TableVersions versions = mock(TableVersions.class);
+        when(versions.etag(any(String[].class))).thenReturn("\"e-7\"");
+        when(ctx.header("If-None-Match")).thenReturn("\"e-7\"");
+        DashboardSnapshotCache cache = new DashboardSnapshotCache(60_000, 60_000, 5_000);
+        DbController taggedController = new DbController(mockDataSource, true, new PrisonCache(),
+            new HealthProber(mockDataSource), new DashboardStream(mockDataSource, mockDataSource, 64, 15000),
+            cache, versions);
+
+        // when
+        taggedController.dashboard(ctx);
+
+        // then
+        verify(ctx).header("ETag", "\"e-7\"");
+        verify(ctx).status(304);
+        verify(mockDataSource, never()).getConnection();
+        assertEquals(0L, cache.stats().get("hits"));
+        assertEquals(0L, cache.stats().get("waits"));
+    }
+
     // ==================== Constructor Tests ====================
 
     @Test
@@ -1,13 +1,20 @@
 package com.example.unit.controllers;
 
+import com.example.Cache.PrisonCache;
+import com.example.Cache.TableVersions;
 import com.example.Controllers.PrisonController;
 import com.example.Objects.Prison;
+import com.example.Utils.KeysetPage;
 import io.javalin.http.Context;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.List;
@@ -151,6 +158,168 @@ class PrisonControllerTest {
         verify(ctx).status(404);
     }
 
+    @Test
+    void getAllPrisons_shouldStreamRowsFromCursorWhenRequested() throws SQLException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(ctx.queryParam("stream")).thenReturn("true");
+        when(ctx.outputStream()).thenReturn(new ServletOutputStream() {
+            @Override public void write(int b) { body.write(b); }
+            @Override public boolean isReady() { return true; }
+            @Override public void setWriteListener(WriteListener listener) {}
+        });
+        when(mockResultSet.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+        when(mockResultSet.getInt("prison_id")).thenReturn(1).thenReturn(2);
+        when(mockResultSet.getString("name")).thenReturn("Prison A").thenReturn("Prison B");
+
+        controller.getAllPrisons(ctx);
+
+        verify(mockConnection).setAutoCommit(false);
+        verify(mockStatement).setFetchSize(anyInt());
+        verify(ctx).status(200);
+        verify(ctx, never()).json(any());
+        String json = body.toString(StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[") && json.endsWith("]"));
+        assertTrue(json.contains("\"name\":\"Prison A\"") && json.contains("\"name\":\"Prison B\""));
+    }
+
+    @Test
+    void getAllPrisons_shouldStreamOnlyTheRequestedPage() throws SQLException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(ctx.queryParam("stream")).thenReturn("true");
+        when(ctx.queryParam("limit")).thenReturn("2");
+        when(ctx.outputStream()).thenReturn(new ServletOutputStream() {
+            @Override public void write(int b) { body.write(b); }
+            @Override public boolean isReady() { return true; }
+            @Override public void setWriteListener(WriteListener listener) {}
+        });
+        when(mockResultSet.next()).thenReturn(true).thenReturn(true).thenReturn(true).thenReturn(false);
+        when(mockResultSet.getInt("prison_id")).thenReturn(1).thenReturn(2).thenReturn(3);
+
+        controller.getAllPrisons(ctx);
+
+        verify(mockStatement).setObject(1, 3);
+        verify(ctx).header(KeysetPage.NEXT_CURSOR_HEADER, KeysetPage.encodeCursor(2));
+        String json = body.toString(StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"id\":2"));
+        assertFalse(json.contains("\"id\":3"));
+    }
+
+    @Test
+    void getAllPrisons_shouldReturn404WhenStreamingEmptyTable() throws SQLException {
+        when(ctx.queryParam("stream")).thenReturn("true");
+        when(mockResultSet.next()).thenReturn(false);
+
+        controller.getAllPrisons(ctx);
+
+        verify(ctx).status(404);
+        verify(ctx, never()).outputStream();
+    }
+
+    @Test
+    void getAllPrisons_shouldReturnEmptyPageWhenStreamingPastLastCursor() throws SQLException {
+        when(ctx.queryParam("stream")).thenReturn("true");
+        when(ctx.queryParam("limit")).thenReturn("2");
+        when(ctx.queryParam("after")).thenReturn(KeysetPage.encodeCursor(3));
+        when(mockResultSet.next()).thenReturn(false);
+
+        controller.getAllPrisons(ctx);
+
+        verify(ctx).status(200);
+        verify(ctx).json(List.of());
+        verify(ctx, never()).header(eq(KeysetPage.NEXT_CURSOR_HEADER), anyString());
+    }
+
+    @Test
+    void getAllPrisons_shouldServeRepeatedReadsFromCache() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        when(mockResultSet.getString("name")).thenReturn("Prison A");
+
+        controller.getAllPrisons(ctx);
+        controller.getAllPrisons(ctx);
+
+        verify(mockDataSource, times(1)).getConnection();
+        verify(ctx, times(2)).status(200);
+    }
+
+    @Test
+    void deletePrison_shouldInvalidateCachedPrisons() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true).thenReturn(false).thenReturn(true).thenReturn(false);
+        when(ctx.pathParam("prisonId")).thenReturn("1");
+        when(mockStatement.executeUpdate()).thenReturn(1);
+
+        controller.getAllPrisons(ctx);
+        controller.deletePrison(ctx);
+        controller.getAllPrisons(ctx);
+
+        // one connection per read plus one for the delete
+        verify(mockDataSource, times(3)).getConnection();
+    }
+
+    @Test
+    void getAllPrisons_shouldAnswer304WithoutQueryingWhenTagMatches() throws SQLException {
+        TableVersions versions = mock(TableVersions.class);
+        when(versions.etag("prisons")).thenReturn("\"e-3\"");
+        when(ctx.header("If-None-Match")).thenReturn("\"e-3\"");
+        controller = new PrisonController(mockDataSource, new PrisonCache(), versions);
+
+        controller.getAllPrisons(ctx);
+
+        verify(ctx).header("ETag", "\"e-3\"");
+        verify(ctx).status(304);
+        verify(mockDataSource, never()).getConnection();
+        verify(ctx, never()).json(any());
+    }
+
+    @Test
+    void editPrison_shouldBumpPrisonsVersion() throws SQLException {
+        TableVersions versions = mock(TableVersions.class);
+        controller = new PrisonController(mockDataSource, new PrisonCache(), versions);
+        when(ctx.bodyAsClass(Prison.class)).thenReturn(createValidPrison());
+        when(ctx.pathParam("prisonId")).thenReturn("1");
+        when(mockStatement.executeUpdate()).thenReturn(1);
+
+        controller.editPrison(ctx);
+
+        verify(versions).bump("prisons");
+    }
+
+    @Test
+    void getAllPrisons_shouldPushFiltersAndKeysetIntoSql() throws SQLException {
+        when(ctx.queryParam("securityLevel")).thenReturn("high");
+        when(ctx.queryParam("isActive")).thenReturn("true");
+        when(ctx.queryParam("limit")).thenReturn("1");
+        when(ctx.queryParam("after")).thenReturn(KeysetPage.encodeCursor(3));
+        when(mockResultSet.next()).thenReturn(true).thenReturn(true).thenReturn(false);
+        when(mockResultSet.getInt("prison_id")).thenReturn(4).thenReturn(5);
+
+        controller.getAllPrisons(ctx);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().contains("security_level = ?"));
+        assertTrue(sql.getValue().contains("is_active = ?"));
+        assertTrue(sql.getValue().contains("prison_id > ?"));
+        verify(mockStatement).setObject(1, "high");
+        verify(mockStatement).setObject(2, true);
+        verify(mockStatement).setObject(3, 3);
+        verify(mockStatement).setObject(4, 2);
+
+        verify(ctx).status(200);
+        verify(ctx).header(KeysetPage.NEXT_CURSOR_HEADER, KeysetPage.encodeCursor(4));
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(ctx).json(captor.capture());
+        assertEquals(1, captor.getValue().size());
+    }
+
+    @Test
+    void getAllPrisons_shouldReturn400ForInvalidFilter() {
+        when(ctx.queryParam("isActive")).thenReturn("maybe");
+
+        controller.getAllPrisons(ctx);
+
+        verify(ctx).status(400);
+    }
+
     // ==================== deletePrison Tests ====================
 
     @Test
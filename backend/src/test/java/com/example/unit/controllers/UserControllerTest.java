@@ -1,5 +1,6 @@
 package com.example.unit.controllers;
 
+import com.example.Auth.PasswordService;
 import com.example.Controllers.UserController;
 import com.example.Objects.LoginRequest;
 import com.example.Objects.LoginResponse;
@@ -11,12 +12,18 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mindrot.jbcrypt.BCrypt;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.sql.*;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,6 +49,12 @@ class UserControllerTest {
         testSecretKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
 
         when(ctx.status(anyInt())).thenReturn(ctx);
+        // Login completes through ctx.future, run the supplied future to completion
+        doAnswer(invocation -> {
+            Supplier<CompletableFuture<?>> supplier = invocation.getArgument(0);
+            supplier.get().join();
+            return null;
+        }).when(ctx).future(any());
         when(mockDataSource.getConnection()).thenReturn(mockConnection);
         
         // Obsługa obu wersji prepareStatement
@@ -178,6 +191,52 @@ class UserControllerTest {
         verify(ctx).status(401);
     }
 
+    @Test
+    void login_shouldReleaseConnectionBeforeVerifyingPassword() throws SQLException {
+        PasswordService passwordService = mock(PasswordService.class);
+        when(passwordService.verify(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(true));
+        UserController asyncController = new UserController(mockDataSource, testSecretKey, passwordService);
+        when(ctx.bodyAsClass(LoginRequest.class)).thenReturn(new LoginRequest("testuser", "password123"));
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getString("password")).thenReturn("$2a$10$hash");
+
+        asyncController.login(ctx);
+
+        InOrder order = inOrder(mockConnection, passwordService);
+        order.verify(mockConnection).close();
+        order.verify(passwordService).verify("password123", "$2a$10$hash");
+        verify(ctx).status(200);
+    }
+
+    @Test
+    void login_shouldReturn503WhenVerificationQueueIsFull() throws SQLException {
+        PasswordService passwordService = mock(PasswordService.class);
+        when(passwordService.verify(anyString(), anyString()))
+            .thenReturn(CompletableFuture.failedFuture(new RejectedExecutionException("full")));
+        UserController asyncController = new UserController(mockDataSource, testSecretKey, passwordService);
+        when(ctx.bodyAsClass(LoginRequest.class)).thenReturn(new LoginRequest("testuser", "password123"));
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getString("password")).thenReturn("$2a$10$hash");
+
+        asyncController.login(ctx);
+
+        verify(ctx).status(503);
+        verify(ctx).header("Retry-After", "1");
+    }
+
+    @Test
+    void login_shouldReturn401WithoutHashingForUnknownUser() throws SQLException {
+        PasswordService passwordService = mock(PasswordService.class);
+        UserController asyncController = new UserController(mockDataSource, testSecretKey, passwordService);
+        when(ctx.bodyAsClass(LoginRequest.class)).thenReturn(new LoginRequest("ghost", "password123"));
+        when(mockResultSet.next()).thenReturn(false);
+
+        asyncController.login(ctx);
+
+        verify(ctx).status(401);
+        verifyNoInteractions(passwordService);
+    }
+
     // ==================== getAllUsers Tests ====================
 
     @Test
@@ -196,6 +255,25 @@ class UserControllerTest {
 
     // ==================== deleteUser Tests ====================
 
+    @Test
+    void getAllUsers_shouldFilterByRoleAndPageOnId() throws SQLException {
+        when(ctx.queryParam("role")).thenReturn("admin");
+        when(ctx.queryParam("limit")).thenReturn("10");
+        when(mockResultSet.next()).thenReturn(true).thenReturn(false);
+        when(mockResultSet.getInt("id")).thenReturn(1);
+
+        controller.getAllUsers(ctx);
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().contains("role = ?"));
+        assertTrue(sql.getValue().contains("ORDER BY id"));
+        verify(mockStatement).setString(1, "admin");
+        verify(mockStatement).setInt(2, 11);
+        verify(ctx).status(200);
+        verify(ctx, never()).header(anyString(), anyString());
+    }
+
     @Test
     void deleteUser_shouldReturn200WhenUserDeletedSuccessfully() throws SQLException {
         when(ctx.pathParam("userId")).thenReturn("1");
@@ -212,4 +290,92 @@ class UserControllerTest {
         controller.deleteUser(ctx);
         verify(ctx).status(400);
     }
-}
\ No newline at end of file
+
+    // ==================== bulkImport Tests ====================
+
+    @Test
+    void bulkImport_shouldReportCreatedDuplicateAndInvalidRows() throws SQLException {
+        // given
+        String body = "[" +
+            "{\"username\":\"anna\",\"email\":\"anna@test.com\",\"password\":\"a\"}," +
+            "{\"username\":\"admin\",\"email\":\"new@test.com\",\"password\":\"b\"}," +
+            "{\"username\":\"bob\",\"email\":\"anna@test.com\",\"password\":\"c\"}," +
+            "{\"username\":\"\",\"email\":\"x@test.com\",\"password\":\"d\"}]";
+        when(ctx.bodyInputStream()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        PasswordService passwordService = mock(PasswordService.class);
+        when(passwordService.hashAll(anyList())).thenReturn(List.of("h1", "h2", "h3"));
+        controller = new UserController(mockDataSource, testSecretKey, passwordService);
+
+        when(mockConnection.prepareStatement(anyString(), any(String[].class))).thenReturn(mockStatement);
+        when(mockStatement.executeBatch()).thenReturn(new int[] {1, 0, 0});
+        ResultSet keys = mock(ResultSet.class);
+        when(mockStatement.getGeneratedKeys()).thenReturn(keys);
+        when(keys.next()).thenReturn(true, false);
+        when(keys.getString("username")).thenReturn("anna");
+        when(keys.getInt("id")).thenReturn(42);
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getString("username")).thenReturn("admin");
+
+        // when
+        controller.bulkImport(ctx);
+
+        // then
+        verify(passwordService).hashAll(List.of("a", "b", "c"));
+        verify(mockStatement, times(3)).addBatch();
+        verify(mockConnection).commit();
+        verify(ctx).status(200);
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(ctx).json(captor.capture());
+
+        Map<String, Object> response = captor.getValue();
+        assertEquals(4, response.get("total"));
+        assertEquals(1L, response.get("created"));
+        assertEquals(2L, response.get("duplicates"));
+        assertEquals(1L, response.get("failed"));
+
+        List<Map<String, Object>> results = (List<Map<String, Object>>) response.get("results");
+        assertEquals(42, results.get(0).get("id"));
+        assertEquals("users_username_key", results.get(1).get("constraint"));
+        assertEquals("users_email_key", results.get(2).get("constraint"));
+        assertEquals("invalid", results.get(3).get("status"));
+    }
+
+    @Test
+    void bulkImport_shouldRollBackAndMarkChunkAsErrorWhenBatchFails() throws SQLException {
+        // given
+        String body = "{\"username\":\"anna\",\"email\":\"anna@test.com\",\"password\":\"a\"}\n";
+        when(ctx.bodyInputStream()).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        PasswordService passwordService = mock(PasswordService.class);
+        when(passwordService.hashAll(anyList())).thenReturn(List.of("h1"));
+        controller = new UserController(mockDataSource, testSecretKey, passwordService);
+
+        when(mockConnection.prepareStatement(anyString(), any(String[].class))).thenReturn(mockStatement);
+        when(mockStatement.executeBatch()).thenThrow(new BatchUpdateException());
+
+        // when
+        controller.bulkImport(ctx);
+
+        // then
+        verify(mockConnection).rollback();
+        verify(mockConnection, never()).commit();
+        ArgumentCaptor<Map> captor = ArgumentCaptor.forClass(Map.class);
+        verify(ctx).json(captor.capture());
+        List<Map<String, Object>> results = (List<Map<String, Object>>) captor.getValue().get("results");
+        assertEquals("error", results.get(0).get("status"));
+    }
+
+    @Test
+    void bulkImport_shouldReturn400WhenBodyIsMalformed() throws SQLException {
+        // given
+        when(ctx.bodyInputStream()).thenReturn(new ByteArrayInputStream("[{bad".getBytes(StandardCharsets.UTF_8)));
+
+        // when
+        controller.bulkImport(ctx);
+
+        // then
+        verify(ctx).status(400);
+        verify(mockDataSource, never()).getConnection();
+    }
+}
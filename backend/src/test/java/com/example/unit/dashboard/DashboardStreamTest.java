@@ -0,0 +1,215 @@
+package com.example.unit.dashboard;
+
+import com.example.Dashboard.DashboardStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class DashboardStreamTest {
+
+    private DataSource dataSource;
+    private DashboardStream stream;
+
+    /**
+     * Records the events it is sent, optionally blocking until released like
+     * a client that stopped reading.
+     */
+    private static class RecordingSink implements DashboardStream.Sink {
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch released;
+        volatile boolean closed;
+        volatile Runnable onClose;
+
+        RecordingSink(boolean blocked) {
+            released = new CountDownLatch(blocked ? 1 : 0);
+        }
+
+        @Override
+        public void send(String event, String data) {
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event.equals("snapshot") ? event : event + ":" + data);
+        }
+
+        @Override
+        public void comment(String text) {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (onClose != null) {
+                onClose.run();
+            }
+        }
+
+        @Override
+        public void onClose(Runnable callback) {
+            onClose = callback;
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(false);
+
+        stream = new DashboardStream(dataSource, dataSource, 4, 10_000);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void subscribe_shouldShareOneSnapshotBetweenSubscribers() throws Exception {
+        RecordingSink first = new RecordingSink(false);
+        RecordingSink second = new RecordingSink(false);
+
+        stream.subscribe(first);
+        stream.subscribe(second);
+
+        await(() -> first.events.size() == 1 && second.events.size() == 1);
+        assertEquals(List.of("snapshot"), first.events);
+        assertEquals(List.of("snapshot"), second.events);
+        verify(dataSource, times(1)).getConnection();
+        assertEquals(2, stream.getSubscriberCount());
+    }
+
+    @Test
+    void broadcast_shouldResyncSlowSubscriberWithoutHoldingUpOthers() throws Exception {
+        RecordingSink fast = new RecordingSink(false);
+        RecordingSink slow = new RecordingSink(true);
+        stream.subscribe(fast);
+        stream.subscribe(slow);
+        await(() -> fast.events.size() == 1);
+
+        // The fast subscriber gets every update in order while the slow one is stuck
+        for (int i = 0; i < 20; i++) {
+            stream.broadcast("occupancy", Map.of("n", i));
+            int received = i + 2;
+            await(() -> fast.events.size() == received);
+        }
+        assertEquals("occupancy:{\"n\":0}", fast.events.get(1));
+        assertEquals("occupancy:{\"n\":19}", fast.events.get(20));
+        assertEquals(0, slow.events.size());
+
+        // The slow one catches up with a fresh snapshot instead of the backlog
+        slow.released.countDown();
+        await(() -> slow.events.size() >= 2);
+        Thread.sleep(100);
+        assertEquals("snapshot", slow.events.get(0));
+        assertTrue(slow.events.lastIndexOf("snapshot") > 0, slow.events.toString());
+        assertTrue(slow.events.size() < 21, slow.events.toString());
+        assertFalse(slow.events.contains("occupancy:{\"n\":0}"), slow.events.toString());
+    }
+
+    @Test
+    void subscribe_shouldDropSubscriberOnceItCloses() throws Exception {
+        RecordingSink sink = new RecordingSink(false);
+        stream.subscribe(sink);
+        await(() -> sink.events.size() == 1);
+
+        sink.close();
+
+        await(() -> stream.getSubscriberCount() == 0);
+        stream.broadcast("visits", Map.of());
+        assertEquals(List.of("snapshot"), sink.events);
+    }
+
+    @Test
+    void resync_shouldSendEverySubscriberAFreshSnapshot() throws Exception {
+        RecordingSink sink = new RecordingSink(false);
+        stream.subscribe(sink);
+        await(() -> sink.events.size() == 1);
+
+        stream.resync();
+
+        await(() -> sink.events.size() == 2);
+        assertEquals(List.of("snapshot", "snapshot"), sink.events);
+        verify(dataSource, times(2)).getConnection();
+    }
+
+    @Test
+    void listen_shouldResyncAndKeepListeningAfterNotificationFailsToHandle() throws Exception {
+        // given
+        Queue<PGNotification[]> notifications = new ConcurrentLinkedQueue<>();
+        DataSource listenerSource = mock(DataSource.class);
+        Connection listenerConnection = mock(Connection.class);
+        PGConnection pg = mock(PGConnection.class);
+        when(listenerSource.getConnection()).thenReturn(listenerConnection);
+        when(listenerConnection.createStatement()).thenReturn(mock(Statement.class));
+        when(listenerConnection.unwrap(PGConnection.class)).thenReturn(pg);
+        when(listenerConnection.isValid(anyInt())).thenReturn(true);
+        when(pg.getNotifications(anyInt())).thenAnswer(invocation -> {
+            PGNotification[] next = notifications.poll();
+            if (next == null) {
+                Thread.sleep(5);
+            }
+            return next;
+        });
+        DashboardStream listening = new DashboardStream(dataSource, listenerSource, 4, 10_000);
+        RecordingSink sink = new RecordingSink(false);
+        listening.subscribe(sink);
+        await(() -> sink.events.size() == 1);
+        listening.start();
+
+        try {
+            // when
+            notifications.add(new PGNotification[] { notification("{\"table\":\"criminals\"}") });
+            await(() -> sink.events.size() == 2);
+            notifications.add(new PGNotification[] { notification("{\"table\":\"prison_visits\"}") });
+
+            // then
+            await(() -> sink.events.size() == 3);
+            assertEquals(List.of("snapshot", "snapshot", "visits:{\"visits\":[]}"), sink.events);
+        } finally {
+            listening.stop();
+        }
+    }
+
+    private static PGNotification notification(String payload) {
+        PGNotification notification = mock(PGNotification.class);
+        when(notification.getParameter()).thenReturn(payload);
+        return notification;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.unit.metrics;
+
+import com.example.Metrics.InstrumentedDataSource;
+import com.example.Metrics.SqlStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InstrumentedDataSourceTest {
+
+    private DataSource mockDataSource;
+    private Connection mockConnection;
+    private PreparedStatement mockStatement;
+    private ResultSet mockResultSet;
+    private SqlStats stats;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        mockDataSource = mock(DataSource.class);
+        mockConnection = mock(Connection.class);
+        mockStatement = mock(PreparedStatement.class);
+        mockResultSet = mock(ResultSet.class);
+
+        when(mockDataSource.getConnection()).thenReturn(mockConnection);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockResultSet);
+
+        stats = new SqlStats(100, 60_000);
+        dataSource = InstrumentedDataSource.wrap(mockDataSource, stats);
+    }
+
+    @Test
+    void executeQuery_shouldRecordRowsWhenResultIsClosed() throws SQLException {
+        when(mockResultSet.next()).thenReturn(true, true, false);
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM prisons WHERE prison_id = 7");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                // read all rows
+            }
+        }
+
+        List<Map<String, Object>> top = stats.top(10);
+        assertEquals(1, top.size());
+        assertEquals("SELECT * FROM prisons WHERE prison_id = ?", top.get(0).get("sql"));
+        assertEquals(1L, top.get(0).get("calls"));
+        assertEquals(2L, top.get(0).get("rows"));
+        assertEquals(1L, stats.connectionHoldSummary().get("count"));
+        verify(mockConnection).close();
+    }
+
+    @Test
+    void executeUpdate_shouldRecordUpdateCountAndErrors() throws SQLException {
+        when(mockStatement.executeUpdate()).thenReturn(3).thenThrow(new SQLException("boom"));
+
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM users WHERE role = 'guest'")) {
+            stmt.executeUpdate();
+            assertThrows(SQLException.class, stmt::executeUpdate);
+        }
+
+        Map<String, Object> row = stats.top(10).get(0);
+        assertEquals("DELETE FROM users WHERE role = ?", row.get("sql"));
+        assertEquals(2L, row.get("calls"));
+        assertEquals(1L, row.get("errors"));
+        assertEquals(3L, row.get("rows"));
+    }
+
+    @Test
+    void fingerprint_shouldReplaceEscapedAndVeryLongLiterals() {
+        assertEquals("SELECT ?, ? FROM t WHERE id = ?",
+            SqlStats.fingerprint("SELECT 'it''s', '" + "x".repeat(100_000) + "' FROM t WHERE id = 42"));
+    }
+
+    @Test
+    void unwrap_shouldReachTheWrappedObjects() throws SQLException {
+        assertTrue(dataSource.isWrapperFor(mockDataSource.getClass()));
+        assertSame(mockDataSource, dataSource.unwrap(mockDataSource.getClass()));
+
+        Connection conn = dataSource.getConnection();
+        assertSame(mockConnection, conn.unwrap(mockConnection.getClass()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.unit.metrics;
+
+import com.example.Metrics.LatencyHistogram;
+import com.example.Metrics.RequestMetrics;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RequestMetricsTest {
+
+    private static Context request(String route, HandlerType method, int status) {
+        Context ctx = mock(Context.class);
+        Map<String, Object> attributes = new HashMap<>();
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(ctx).attribute(anyString(), any());
+        when(ctx.attribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+        when(ctx.endpointHandlerPath()).thenReturn(route);
+        when(ctx.method()).thenReturn(method);
+        when(ctx.statusCode()).thenReturn(status);
+        return ctx;
+    }
+
+    @Test
+    void record_shouldCountIntoCumulativeBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.record(500_000);          // 0.5 ms
+        histogram.record(30_000_000);       // 30 ms
+        histogram.record(60_000_000_000L);  // above the last bound
+
+        assertEquals(3, histogram.count());
+    }
+
+    @Test
+    void finish_shouldRecordPerRouteMethodAndStatus() {
+        RequestMetrics metrics = new RequestMetrics();
+        Context ok = request("/api/prison/{prisonId}", HandlerType.GET, 200);
+        Context missing = request("/api/prison/{prisonId}", HandlerType.GET, 404);
+
+        metrics.start(ok);
+        assertEquals(1, metrics.getInFlight());
+        metrics.finish(ok);
+        metrics.start(missing);
+        metrics.finish(missing);
+
+        StringBuilder out = new StringBuilder();
+        metrics.writeTo(out);
+        String text = out.toString();
+
+        assertEquals(0, metrics.getInFlight());
+        assertTrue(text.contains(
+            "http_server_requests_seconds_count{method=\"GET\",route=\"/api/prison/{prisonId}\",status=\"200\"} 1"));
+        assertTrue(text.contains(
+            "http_server_requests_seconds_count{method=\"GET\",route=\"/api/prison/{prisonId}\",status=\"404\"} 1"));
+        assertTrue(text.contains(
+            "http_server_requests_seconds_bucket{method=\"GET\",route=\"/api/prison/{prisonId}\",status=\"200\",le=\"+Inf\"} 1"));
+    }
+
+    @Test
+    void finish_shouldGroupUnmatchedRequests() {
+        RequestMetrics metrics = new RequestMetrics();
+        Context ctx = request("No handler matched request path/method (404/405)", HandlerType.GET, 404);
+
+        metrics.start(ctx);
+        metrics.finish(ctx);
+
+        StringBuilder out = new StringBuilder();
+        metrics.writeTo(out);
+        assertTrue(out.toString().contains("route=\"" + RequestMetrics.UNMATCHED_ROUTE + "\""));
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.unit.utils;
+
+import com.example.Utils.ByteRange;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTest {
+
+    @Test
+    void parse_shouldReadClosedOpenAndSuffixRanges() {
+        assertEquals(new ByteRange(100, 199), ByteRange.parse("bytes=100-199", 1000));
+        assertEquals(new ByteRange(500, 999), ByteRange.parse("bytes=500-", 1000));
+        assertEquals(new ByteRange(900, 999), ByteRange.parse("bytes=-100", 1000));
+        assertEquals(new ByteRange(0, 999), ByteRange.parse("bytes=-5000", 1000));
+        assertEquals(new ByteRange(990, 999), ByteRange.parse("bytes=990-5000", 1000));
+        assertEquals(100, ByteRange.parse("bytes=100-199", 1000).length());
+        assertEquals("bytes 100-199/1000", ByteRange.parse("bytes=100-199", 1000).contentRange(1000));
+    }
+
+    @Test
+    void parse_shouldIgnoreMissingMalformedAndMultipleRanges() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("items=0-5", 1000));
+        assertNull(ByteRange.parse("bytes=abc-", 1000));
+        assertNull(ByteRange.parse("bytes=200-100", 1000));
+        assertNull(ByteRange.parse("bytes=0-1,5-6", 1000));
+    }
+
+    @Test
+    void parse_shouldRejectRangesPastTheEnd() {
+        assertThrows(ByteRange.UnsatisfiableException.class, () -> ByteRange.parse("bytes=1000-", 1000));
+        assertThrows(ByteRange.UnsatisfiableException.class, () -> ByteRange.parse("bytes=5000-6000", 1000));
+        assertThrows(ByteRange.UnsatisfiableException.class, () -> ByteRange.parse("bytes=-0", 1000));
+    }
+}
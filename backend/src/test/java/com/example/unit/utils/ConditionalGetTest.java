@@ -0,0 +1,54 @@
+package com.example.unit.utils;
+
+import com.example.Utils.ConditionalGet;
+import io.javalin.http.Context;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ConditionalGetTest {
+
+    @Test
+    void matches_shouldCompareWeaklyAndAcceptListsAndWildcard() {
+        assertTrue(ConditionalGet.matches("\"a-1\"", "\"a-1\""));
+        assertTrue(ConditionalGet.matches("W/\"a-1\"", "\"a-1\""));
+        assertTrue(ConditionalGet.matches("\"x\", \"a-1\"", "\"a-1\""));
+        assertTrue(ConditionalGet.matches("*", "\"a-1\""));
+        assertFalse(ConditionalGet.matches("\"a-2\"", "\"a-1\""));
+        assertFalse(ConditionalGet.matches("a-1", "\"a-1\""));
+        assertFalse(ConditionalGet.matches(null, "\"a-1\""));
+        assertFalse(ConditionalGet.matches("", "\"a-1\""));
+    }
+
+    @Test
+    void notModified_shouldAnswer304WhenClientHasTheTag() {
+        Context ctx = mock(Context.class);
+        when(ctx.header("If-None-Match")).thenReturn("\"a-1\"");
+
+        assertTrue(ConditionalGet.notModified(ctx, "\"a-1\""));
+        verify(ctx).header("ETag", "\"a-1\"");
+        verify(ctx).status(304);
+    }
+
+    @Test
+    void notModified_shouldOnlyTagWhenClientCopyIsOutdated() {
+        Context ctx = mock(Context.class);
+        when(ctx.header("If-None-Match")).thenReturn("\"a-1\"");
+
+        assertFalse(ConditionalGet.notModified(ctx, "\"a-2\""));
+        verify(ctx).header("ETag", "\"a-2\"");
+        verify(ctx, never()).status(anyInt());
+    }
+
+    @Test
+    void notModified_shouldDoNothingWithoutTag() {
+        Context ctx = mock(Context.class);
+        when(ctx.header("If-None-Match")).thenReturn("*");
+
+        assertFalse(ConditionalGet.notModified(ctx, null));
+        verify(ctx, never()).header(anyString(), anyString());
+        verify(ctx, never()).status(anyInt());
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.unit.utils;
+
+import com.example.Utils.KeysetPage;
+import io.javalin.http.Context;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class KeysetPageTest {
+
+    private Context ctx;
+
+    @BeforeEach
+    void setUp() {
+        ctx = mock(Context.class);
+    }
+
+    @Test
+    void fromQuery_shouldBeUnpagedWithoutParameters() {
+        KeysetPage page = KeysetPage.fromQuery(ctx);
+
+        assertFalse(page.isPaged());
+        assertNull(page.getAfterId());
+        assertEquals(List.of(1, 2, 3), page.apply(List.of(1, 2, 3), i -> i, ctx));
+        verify(ctx, never()).header(anyString(), anyString());
+    }
+
+    @Test
+    void fromQuery_shouldClampLimitAndDecodeCursor() {
+        when(ctx.queryParam("limit")).thenReturn("100000");
+        when(ctx.queryParam("after")).thenReturn(KeysetPage.encodeCursor(42));
+
+        KeysetPage page = KeysetPage.fromQuery(ctx);
+
+        assertEquals(KeysetPage.MAX_LIMIT, page.getLimit());
+        assertEquals(42, page.getAfterId());
+        assertEquals(KeysetPage.MAX_LIMIT + 1, page.fetchSize());
+    }
+
+    @Test
+    void fromQuery_shouldRejectMalformedParameters() {
+        when(ctx.queryParam("limit")).thenReturn("0");
+        assertThrows(IllegalArgumentException.class, () -> KeysetPage.fromQuery(ctx));
+
+        when(ctx.queryParam("limit")).thenReturn("10");
+        when(ctx.queryParam("after")).thenReturn("not-a-cursor");
+        assertThrows(IllegalArgumentException.class, () -> KeysetPage.fromQuery(ctx));
+    }
+
+    @Test
+    void apply_shouldTrimExtraRowAndSetNextCursor() {
+        when(ctx.queryParam("limit")).thenReturn("2");
+        KeysetPage page = KeysetPage.fromQuery(ctx);
+
+        List<Integer> rows = page.apply(List.of(5, 7, 9), i -> i, ctx);
+
+        assertEquals(List.of(5, 7), rows);
+        verify(ctx).header(KeysetPage.NEXT_CURSOR_HEADER, KeysetPage.encodeCursor(7));
+    }
+
+    @Test
+    void apply_shouldNotSetCursorOnLastPage() {
+        when(ctx.queryParam("limit")).thenReturn("2");
+        KeysetPage page = KeysetPage.fromQuery(ctx);
+
+        List<Integer> rows = page.apply(List.of(5, 7), i -> i, ctx);
+
+        assertEquals(List.of(5, 7), rows);
+        verify(ctx, never()).header(anyString(), anyString());
+    }
+}
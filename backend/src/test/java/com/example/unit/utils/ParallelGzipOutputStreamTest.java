@@ -0,0 +1,107 @@
+package com.example.unit.utils;
+
+import com.example.Utils.ParallelGzipOutputStream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelGzipOutputStreamTest {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void write_shouldProduceGzipThatInflatesToTheInput() throws IOException {
+        for (int size : new int[] {0, 1, BLOCK_SIZE - 1, BLOCK_SIZE, BLOCK_SIZE + 1, 10 * BLOCK_SIZE + 123}) {
+            byte[] input = rows(size);
+            assertArrayEquals(input, gunzip(compress(input, 7_001)), "size " + size);
+        }
+    }
+
+    @Test
+    void write_shouldHandleSingleBytesFlushesAndIncompressibleData() throws IOException {
+        byte[] input = new byte[3 * BLOCK_SIZE];
+        new Random(42).nextBytes(input);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, BLOCK_SIZE,
+                Deflater.DEFAULT_COMPRESSION, pool)) {
+            for (int i = 0; i < 1000; i++) {
+                out.write(input[i]);
+            }
+            out.flush();
+            out.write(input, 1000, input.length - 1000);
+        }
+
+        assertArrayEquals(input, gunzip(compressed.toByteArray()));
+        assertFalse(pool.isShutdown(), "a shared pool is left running");
+    }
+
+    @Test
+    void write_shouldCompressAboutAsWellAsSingleStreamGzip() throws IOException {
+        byte[] input = rows(4 * 1024 * 1024);
+
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(single)) {
+            out.write(input);
+        }
+        int parallel = compress(input, input.length).length;
+
+        assertTrue(parallel < single.size() * 1.05, parallel + " vs " + single.size());
+    }
+
+    private static byte[] compress(byte[] input, int chunk) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, BLOCK_SIZE,
+                Deflater.DEFAULT_COMPRESSION, pool)) {
+            for (int offset = 0; offset < input.length; offset += chunk) {
+                out.write(input, offset, Math.min(chunk, input.length - offset));
+            }
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Returns text that compresses like a {@code COPY} stream.
+     */
+    private static byte[] rows(int size) {
+        StringBuilder text = new StringBuilder(size + 100);
+        Random random = new Random(7);
+        for (int id = 1; text.length() < size; id++) {
+            text.append(id).append('\t').append("Prisoner ").append(random.nextInt(100_000))
+                .append('\t').append(random.nextInt(500)).append("\t2024-0").append(1 + random.nextInt(9))
+                .append('-').append(10 + random.nextInt(18)).append('\n');
+        }
+        text.setLength(size);
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Returns the `Authorization` header for the logged-in user, merged into
+ * the given headers. The token is the one stored by `AuthContext.login`.
+ *
+ * @function    authHeaders
+ * @param       {Object} [headers]  Other headers of the request
+ * @returns     {Object}            The headers, with `Authorization` when logged in
+ */
+export const authHeaders = (headers = {}) => {
+    try {
+        const token = JSON.parse(localStorage.getItem('user'))?.token;
+        return token ? { ...headers, Authorization: `Bearer ${token}` } : headers;
+    } catch {
+        return headers;
+    }
+};
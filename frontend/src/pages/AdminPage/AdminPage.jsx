@@ -4,6 +4,7 @@ import './AdminPage.css';
 import { Dashboard } from "./Dashboard/Dashboard.jsx"
 import { UsersContent } from "./UsersContent/UsersContent.jsx"
 import { PrisonsContent } from "./PrisonsContent/PrisonsContent.jsx"
+import { authHeaders } from '../../auth/authHeaders.js';
 
 const AdminPage = () => {
   const [activeTab, setActiveTab] = useState('dashboard');
@@ -85,7 +86,7 @@ const BackupsContent = () => {
 
   const fetchBackups = async () => {
     try {
-      const response = await fetch(`${import.meta.env.VITE_API_URL}/api/admin/backup/list`)
+      const response = await fetch(`${import.meta.env.VITE_API_URL}/api/admin/backup/list`, { headers: authHeaders() })
       if (!response.ok) {
           throw new Error('Błąd pobierania danych');
       }
@@ -103,18 +104,18 @@ const BackupsContent = () => {
   }, []);
 
   const createBackup = async () => {
-    await fetch(`${import.meta.env.VITE_API_URL}/api/admin/backup/create`, { method: "POST" }) 
+    await fetch(`${import.meta.env.VITE_API_URL}/api/admin/backup/create`, { method: "POST", headers: authHeaders() }) 
     await fetchBackups()
   };
 
   const restoreBackup = (file) => {
-    fetch(`${import.meta.env.VITE_API_URL}/api/admin/backup/restore/${file}`, { method: "POST" })
-      .then(() => alert("Restored!"));
+    fetch(`${import.meta.env.VITE_API_URL}/api/admin/backup/restore/${file}`, { method: "POST", headers: authHeaders() })
+      .then(() => alert("Restore started"));
   };
 
   const removeBackup = async (file) => {
     try {
-      await fetch(`${import.meta.env.VITE_API_URL}/api/admin/backup/remove/${file}`, { method: "POST" })
+      await fetch(`${import.meta.env.VITE_API_URL}/api/admin/backup/remove/${file}`, { method: "POST", headers: authHeaders() })
       await fetchBackups()
     } catch (error) {
       console.error('Error while removing backup:', error);
@@ -1,5 +1,6 @@
 import { useState, useEffect } from "react";
 import "../Dashboard/Dashboard.css"
+import { authHeaders } from '../../../auth/authHeaders.js';
 
 export const Dashboard = () => {
     const [wiezienia, setWiezienia] = useState([]);
@@ -12,7 +13,7 @@ export const Dashboard = () => {
     useEffect(() => {
         const fetchDashboard = async () => {
         try {
-            const response = await fetch(`${import.meta.env.VITE_API_URL}/api/db/dashboard`);
+            const response = await fetch(`${import.meta.env.VITE_API_URL}/api/db/dashboard`, { headers: authHeaders() });
             
             if (!response.ok) {
             throw new Error('Błąd pobierania danych');
@@ -33,6 +34,88 @@ export const Dashboard = () => {
         fetchDashboard();
     }, []);
 
+    // Live updates pushed by the backend, see DashboardStream. Read over fetch()
+    // because EventSource can't send the Authorization header
+    useEffect(() => {
+        const controller = new AbortController();
+        const handlers = {
+            snapshot: (data) => {
+                setWiezienia(data.prisons)
+                setVisits(data.visits)
+                setIncidents(data.incidents)
+                setError(null)
+                setLoading(false)
+            },
+            occupancy: (data) => {
+                setWiezienia((current) => {
+                    const updated = new Set(data.prisons.map((prison) => prison.id));
+                    const removed = new Set(data.removed ?? []);
+                    return [...current.filter((prison) => !updated.has(prison.id) && !removed.has(prison.id)), ...data.prisons]
+                        .sort((a, b) => b.occupancyPercentage - a.occupancyPercentage);
+                });
+            },
+            incident: (data) => {
+                setIncidents((current) => {
+                    const ids = new Set(data.incidents.map((incident) => incident.incident_id));
+                    return [...data.incidents, ...current.filter((incident) => !ids.has(incident.incident_id))]
+                        .sort((a, b) => b.incident_datetime - a.incident_datetime)
+                        .slice(0, 50);
+                });
+            },
+            incidentRemoved: (data) => {
+                setIncidents((current) => current.filter((incident) => !data.ids.includes(incident.incident_id)));
+            },
+            visits: (data) => setVisits(data.visits),
+        };
+
+        // One server-sent event: "event:" and "data:" lines, ":" starts a comment
+        const dispatch = (block) => {
+            let event = 'message';
+            const data = [];
+            for (const line of block.split('\n')) {
+                if (line.startsWith('event:')) event = line.slice(6).trim();
+                else if (line.startsWith('data:')) data.push(line.slice(5).replace(/^ /, ''));
+            }
+            if (data.length === 0 || !handlers[event]) return;
+            handlers[event](JSON.parse(data.join('\n')));
+            setDataPobrania(new Date());
+        };
+
+        const follow = async () => {
+            while (!controller.signal.aborted) {
+                try {
+                    const response = await fetch(`${import.meta.env.VITE_API_URL}/api/db/dashboard/stream`, {
+                        headers: authHeaders({ Accept: 'text/event-stream' }),
+                        signal: controller.signal,
+                    });
+                    // Like EventSource, give up on an error answer; the one-time fetch still shows the data
+                    if (!response?.ok || !response.body) return;
+
+                    const reader = response.body.getReader();
+                    const decoder = new TextDecoder();
+                    let buffer = '';
+                    for (;;) {
+                        const { value, done } = await reader.read();
+                        if (done) break;
+                        buffer += decoder.decode(value, { stream: true });
+                        let end;
+                        while ((end = buffer.indexOf('\n\n')) >= 0) {
+                            dispatch(buffer.slice(0, end));
+                            buffer = buffer.slice(end + 2);
+                        }
+                    }
+                } catch {
+                    if (controller.signal.aborted) return;
+                }
+                // The connection dropped, reconnect the way EventSource would
+                await new Promise((resolve) => setTimeout(resolve, 3000));
+            }
+        };
+
+        follow();
+        return () => controller.abort();
+    }, []);
+
     const getProgressColor = (percentage) => {
         if (percentage >= 100) return "bg-red-500";
         if (percentage >= 80) return "bg-orange-500";
@@ -132,4 +132,40 @@ describe('Dashboard Component', () => {
       expect(screen.getByText(/⚠️ Overfilled/i)).toBeInTheDocument();
     });
   });
-});
\ No newline at end of file
+
+  test('powinien subskrybować strumień z tokenem i pokazać wypchnięty snapshot', async () => {
+    localStorage.setItem('user', JSON.stringify({ token: 'abc' }));
+    const pushed = {
+      ...mockDashboardData,
+      prisons: [{ ...mockDashboardData.prisons[0], id: 2, name: "Barczewo" }]
+    };
+    const chunks = [new TextEncoder().encode(`event: snapshot\ndata: ${JSON.stringify(pushed)}\n\n`)];
+    // Only the stream answers, so whatever is shown was pushed
+    fetch.mockImplementation((url) => url.endsWith('/stream')
+      ? Promise.resolve({
+          ok: true,
+          body: {
+            // Sends the snapshot, then stays open like the real stream
+            getReader: () => ({
+              read: () => chunks.length > 0
+                ? Promise.resolve({ value: chunks.shift(), done: false })
+                : new Promise(() => {}),
+            }),
+          },
+        })
+      : new Promise(() => {}));
+
+    try {
+      render(<Dashboard />);
+
+      await waitFor(() => {
+        expect(screen.getByText("Barczewo")).toBeInTheDocument();
+      });
+      expect(fetch).toHaveBeenCalledWith('http://localhost:7000/api/db/dashboard/stream', expect.objectContaining({
+        headers: expect.objectContaining({ Authorization: 'Bearer abc' }),
+      }));
+    } finally {
+      localStorage.removeItem('user');
+    }
+  });
+});
@@ -1,6 +1,7 @@
 import { useState, useEffect } from "react";
 import "../PrisonsContent/PrisonContent.css";
 import { Edit2, Trash2, Save, X } from 'lucide-react';
+import { authHeaders } from '../../../auth/authHeaders.js';
 
 export const PrisonsContent = () => {
     const [prisons, setPrisons] = useState([])
@@ -22,7 +23,7 @@ export const PrisonsContent = () => {
 
     const fetchPrisons = async() => {
         try {
-            const response = await fetch(`${import.meta.env.VITE_API_URL}/api/prison/getAllPrisons`)
+            const response = await fetch(`${import.meta.env.VITE_API_URL}/api/prison/getAllPrisons`, { headers: authHeaders() })
 
             if (!response.ok) {
                 throw new Error('Błąd pobierania danych');
@@ -84,7 +85,7 @@ export const PrisonsContent = () => {
         try {
             const res = await fetch(`${import.meta.env.VITE_API_URL}/api/prison/addPrison`, {
                 method: "POST",
-                headers: { "Content-Type": "application/json" },
+                headers: authHeaders({ "Content-Type": "application/json" }),
                 body: JSON.stringify(formData)
             });
 
@@ -100,7 +101,7 @@ export const PrisonsContent = () => {
         try {
             const res = await fetch(`${import.meta.env.VITE_API_URL}/api/prison/editPrison/${prId}`, {
                 method: "POST",
-                headers: { "Content-Type": "application/json" },
+                headers: authHeaders({ "Content-Type": "application/json" }),
                 body: JSON.stringify(formData)
             });
 
@@ -123,9 +124,7 @@ export const PrisonsContent = () => {
         try {
             const response = await fetch(`${import.meta.env.VITE_API_URL}/api/prison/deletePrison/${id}`, {
                 method: 'DELETE',
-                headers: {
-                'Content-Type': 'application/json',
-                }
+                headers: authHeaders({ 'Content-Type': 'application/json' })
         });
 
         if (!response.ok) {
@@ -1,6 +1,7 @@
 import { useState, useEffect } from "react";
 import "../UsersContent/UserContent.css"
 import { Edit2, Trash2, Save, X } from 'lucide-react';
+import { authHeaders } from '../../../auth/authHeaders.js';
 
 export const UsersContent = () => {
     const [users, setUsers] = useState([])
@@ -18,7 +19,7 @@ export const UsersContent = () => {
 
     const fetchUsers = async() => {
         try {
-            const response = await fetch(`${import.meta.env.VITE_API_URL}/api/user/allUsers`)
+            const response = await fetch(`${import.meta.env.VITE_API_URL}/api/user/allUsers`, { headers: authHeaders() })
 
             if (!response.ok) {
                 throw new Error('Błąd pobierania danych');
@@ -76,7 +77,7 @@ export const UsersContent = () => {
         try {
             const res = await fetch(`${import.meta.env.VITE_API_URL}/api/user/addUser`, {
                 method: "POST",
-                headers: { "Content-Type": "application/json" },
+                headers: authHeaders({ "Content-Type": "application/json" }),
                 body: JSON.stringify(formData)
             });
 
@@ -93,7 +94,7 @@ export const UsersContent = () => {
         try {
             const res = await fetch(`${import.meta.env.VITE_API_URL}/api/user/editUser/${usId}`, {
                 method: "POST",
-                headers: { "Content-Type": "application/json" },
+                headers: authHeaders({ "Content-Type": "application/json" }),
                 body: JSON.stringify(formData)
             });
 
@@ -116,9 +117,7 @@ export const UsersContent = () => {
         try {
         const response = await fetch(`${import.meta.env.VITE_API_URL}/api/user/deleteUser/${userId}`, {
             method: 'DELETE',
-            headers: {
-            'Content-Type': 'application/json',
-            }
+            headers: authHeaders({ 'Content-Type': 'application/json' })
         });
 
         if (!response.ok) {
@@ -0,0 +1,31 @@
+#!/bin/bash
+# Swaps a recovery prepared through POST /api/admin/backup/pitr/recover in
+# as the database's data directory and starts it; the server replays the
+# archived WAL up to the target and opens on a new timeline.
+#
+# Usage: ./pitr-recover.sh recovery_20240501_101500
+
+set -e
+
+NAME="$1"
+if [ -z "$NAME" ] || [ ! -d "backups/recovery/$NAME/data" ]; then
+    echo "Usage: $0 <recovery name>, one of:"
+    ls backups/recovery 2>/dev/null
+    exit 1
+fi
+
+echo "⏹️  Stopping the database..."
+docker compose stop backend db
+
+echo "🔁 Replacing the data directory with backups/recovery/$NAME..."
+docker compose run --rm --no-deps --entrypoint bash db -c "
+    set -e
+    rm -rf /var/lib/postgresql/data/*
+    cp -a /backups/recovery/$NAME/data/. /var/lib/postgresql/data/
+    chown -R postgres:postgres /var/lib/postgresql/data
+    chmod 700 /var/lib/postgresql/data
+"
+
+echo "▶️  Starting the database, it recovers before accepting connections..."
+docker compose up -d db backend
+echo "✅ Done. Follow the recovery with: docker compose logs -f db"